@@ -101,6 +101,13 @@ public class ChooseField extends XTextField
     return m_text.get( index );
   }
 
+  /****************************************** getChoice ******************************************/
+  public Object getChoice( int index )
+  {
+    // return object choice at specified index
+    return m_choices[index];
+  }
+
   /***************************************** getSelected *****************************************/
   public Object getSelected()
   {
@@ -0,0 +1,279 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.stream.IntStream;
+
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/********** Count, sum, average, min & max of one column, updated incrementally per row **********/
+/*************************************************************************************************/
+
+public class Aggregate
+{
+  // aggregate functions available
+  public enum Function
+  {
+    COUNT, SUM, AVERAGE, MIN, MAX
+  }
+
+  private TableData        m_data;        // table data
+  private int              m_columnIndex; // column index aggregated
+  private boolean          m_typed;       // true if values read via typed numeric getters
+  private int              m_rowCount;    // number of rows
+  private double[]         m_numbers;     // numeric value by row index, NaN if not a number, length is capacity
+  private BitSet           m_filled;      // rows with a value
+  private int              m_numberCount; // rows with a numeric value
+  private double           m_sum;         // sum of numeric values
+  private int              m_leaves;      // leaf count of min & max trees, power of two at least row count
+  private double[]         m_min;         // heap ordered tree, node n has children 2n & 2n+1, root 1 is minimum
+  private double[]         m_max;         // heap ordered tree, node n has children 2n & 2n+1, root 1 is maximum
+
+  final static private int CHUNK_ROWS = 65536; // rows read per parallel task
+
+  /**************************************** constructor ******************************************/
+  Aggregate( TableData data, int columnIndex )
+  {
+    // initialise and compute aggregates for all rows
+    m_data = data;
+    m_columnIndex = columnIndex;
+    rebuild();
+  }
+
+  /********************************************* get *********************************************/
+  public double get( Function function )
+  {
+    // return aggregate value, NaN if none (for example minimum of no numbers)
+    switch ( function )
+    {
+      case COUNT:
+        return m_filled.cardinality();
+      case SUM:
+        return m_numberCount == 0 ? Double.NaN : m_sum;
+      case AVERAGE:
+        return m_numberCount == 0 ? Double.NaN : m_sum / m_numberCount;
+      case MIN:
+        return m_numberCount == 0 ? Double.NaN : m_min[1];
+      case MAX:
+        return m_numberCount == 0 ? Double.NaN : m_max[1];
+      default:
+        throw new IllegalArgumentException( "Function=" + function );
+    }
+  }
+
+  /*************************************** getColumnIndex ****************************************/
+  public int getColumnIndex()
+  {
+    // return column index aggregated
+    return m_columnIndex;
+  }
+
+  /*************************************** setColumnIndex ****************************************/
+  void setColumnIndex( int columnIndex )
+  {
+    // set column index after columns inserted or removed before it
+    m_columnIndex = columnIndex;
+  }
+
+  /******************************************* rebuild *******************************************/
+  void rebuild()
+  {
+    // read all rows in parallel chunks, each chunk summing its own rows, then build min & max trees
+    ColumnType type = m_data.getColumnType( m_columnIndex );
+    m_typed = type != ColumnType.OBJECT && type != ColumnType.BOOLEAN;
+    m_rowCount = m_data.getRowCount();
+    m_numbers = new double[m_rowCount];
+    int chunks = ( m_rowCount + CHUNK_ROWS - 1 ) / CHUNK_ROWS;
+    long[][] filled = new long[chunks][];
+    double[] sums = new double[chunks];
+    int[] counts = new int[chunks];
+    IntStream.range( 0, chunks ).parallel().forEach( chunk ->
+    {
+      int from = chunk * CHUNK_ROWS;
+      int to = Math.min( m_rowCount, from + CHUNK_ROWS );
+      BitSet bits = new BitSet( to - from );
+      for ( int rowIndex = from; rowIndex < to; rowIndex++ )
+      {
+        double number = read( rowIndex, bits, rowIndex - from );
+        m_numbers[rowIndex] = number;
+        if ( !Double.isNaN( number ) )
+        {
+          sums[chunk] += number;
+          counts[chunk]++;
+        }
+      }
+      filled[chunk] = bits.toLongArray();
+    } );
+
+    // combine chunks in order, chunk rows are a multiple of 64 so bit set words concatenate
+    long[] words = new long[( m_rowCount + 63 ) >>> 6];
+    m_sum = 0.0;
+    m_numberCount = 0;
+    for ( int chunk = 0; chunk < chunks; chunk++ )
+    {
+      System.arraycopy( filled[chunk], 0, words, chunk * ( CHUNK_ROWS >>> 6 ), filled[chunk].length );
+      m_sum += sums[chunk];
+      m_numberCount += counts[chunk];
+    }
+    m_filled = BitSet.valueOf( words );
+    buildTrees( m_rowCount );
+  }
+
+  /****************************************** buildTrees *****************************************/
+  private void buildTrees( int capacity )
+  {
+    // build min & max trees bottom up from row numbers, empty leaves never win
+    m_leaves = Integer.highestOneBit( Math.max( capacity, 1 ) );
+    if ( m_leaves < capacity )
+      m_leaves <<= 1;
+    m_min = new double[2 * m_leaves];
+    m_max = new double[2 * m_leaves];
+    Arrays.fill( m_min, m_leaves, 2 * m_leaves, Double.POSITIVE_INFINITY );
+    Arrays.fill( m_max, m_leaves, 2 * m_leaves, Double.NEGATIVE_INFINITY );
+    for ( int rowIndex = 0; rowIndex < m_rowCount; rowIndex++ )
+      if ( !Double.isNaN( m_numbers[rowIndex] ) )
+      {
+        m_min[m_leaves + rowIndex] = m_numbers[rowIndex];
+        m_max[m_leaves + rowIndex] = m_numbers[rowIndex];
+      }
+    for ( int node = m_leaves - 1; node > 0; node-- )
+    {
+      m_min[node] = Math.min( m_min[2 * node], m_min[2 * node + 1] );
+      m_max[node] = Math.max( m_max[2 * node], m_max[2 * node + 1] );
+    }
+  }
+
+  /********************************************* read ********************************************/
+  private double read( int rowIndex, BitSet filled, int bit )
+  {
+    // return row value as number (NaN if not a number), setting filled bit if row has a value
+    if ( m_data.isNull( m_columnIndex, rowIndex ) )
+      return Double.NaN;
+
+    filled.set( bit );
+    if ( m_typed )
+      return m_data.getDouble( m_columnIndex, rowIndex );
+    Object value = m_data.getValue( m_columnIndex, rowIndex );
+    return value instanceof Number ? ( (Number) value ).doubleValue() : Double.NaN;
+  }
+
+  /******************************************* update ********************************************/
+  void update( int rowIndex )
+  {
+    // re-read one row applying the difference to sum & count, and updating tree path to root
+    double oldNumber = m_numbers[rowIndex];
+    double number = read( rowIndex, m_filled, rowIndex );
+    if ( Double.isNaN( number ) )
+      m_filled.set( rowIndex, !m_data.isNull( m_columnIndex, rowIndex ) );
+    if ( !Double.isNaN( oldNumber ) )
+    {
+      m_sum -= oldNumber;
+      m_numberCount--;
+    }
+    if ( !Double.isNaN( number ) )
+    {
+      m_sum += number;
+      m_numberCount++;
+    }
+    m_numbers[rowIndex] = number;
+    setLeaf( rowIndex, number );
+  }
+
+  /******************************************* setLeaf *******************************************/
+  private void setLeaf( int rowIndex, double number )
+  {
+    // set tree leaf for row and recompute its ancestors
+    int node = m_leaves + rowIndex;
+    m_min[node] = Double.isNaN( number ) ? Double.POSITIVE_INFINITY : number;
+    m_max[node] = Double.isNaN( number ) ? Double.NEGATIVE_INFINITY : number;
+    for ( node >>>= 1; node > 0; node >>>= 1 )
+    {
+      m_min[node] = Math.min( m_min[2 * node], m_min[2 * node + 1] );
+      m_max[node] = Math.max( m_max[2 * node], m_max[2 * node + 1] );
+    }
+  }
+
+  /**************************************** rowsInserted *****************************************/
+  void rowsInserted( int index, int count )
+  {
+    // open gap for inserted rows and read them, appends only touch tree paths of new rows
+    int oldCount = m_rowCount;
+    m_rowCount += count;
+    if ( m_rowCount > m_numbers.length )
+      m_numbers = Arrays.copyOf( m_numbers, Math.max( m_rowCount, m_numbers.length + ( m_numbers.length >> 1 ) ) );
+    System.arraycopy( m_numbers, index, m_numbers, index + count, oldCount - index );
+    Arrays.fill( m_numbers, index, index + count, Double.NaN );
+    BitSet moved = m_filled.get( index, Math.max( index, m_filled.length() ) );
+    m_filled.clear( index, Math.max( index, m_filled.length() ) );
+    moved.stream().forEach( bit -> m_filled.set( index + count + bit ) );
+
+    if ( index == oldCount && m_rowCount <= m_leaves )
+    {
+      for ( int rowIndex = index; rowIndex < m_rowCount; rowIndex++ )
+        update( rowIndex );
+    }
+    else
+    {
+      buildTrees( index == oldCount ? 2 * m_rowCount : m_rowCount );
+      for ( int rowIndex = index; rowIndex < index + count; rowIndex++ )
+        update( rowIndex );
+    }
+  }
+
+  /***************************************** rowsRemoved *****************************************/
+  void rowsRemoved( int index, int count )
+  {
+    // subtract removed rows and close gap, removing from end only touches tree paths of removed rows
+    for ( int rowIndex = index; rowIndex < index + count; rowIndex++ )
+      if ( !Double.isNaN( m_numbers[rowIndex] ) )
+      {
+        m_sum -= m_numbers[rowIndex];
+        m_numberCount--;
+      }
+
+    int oldCount = m_rowCount;
+    m_rowCount -= count;
+    System.arraycopy( m_numbers, index + count, m_numbers, index, oldCount - index - count );
+    if ( m_rowCount < m_numbers.length >> 2 )
+      m_numbers = Arrays.copyOf( m_numbers, m_rowCount << 1 );
+    BitSet moved = m_filled.get( Math.min( index + count, m_filled.length() ), m_filled.length() );
+    m_filled.clear( index, Math.max( index, m_filled.length() ) );
+    moved.stream().forEach( bit -> m_filled.set( index + bit ) );
+
+    if ( index + count == oldCount )
+      for ( int rowIndex = index; rowIndex < oldCount; rowIndex++ )
+        setLeaf( rowIndex, Double.NaN );
+    else
+      buildTrees( m_leaves );
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[column="
+        + m_columnIndex + " rows=" + m_rowCount + " count=" + get( Function.COUNT ) + " sum=" + get( Function.SUM )
+        + " min=" + get( Function.MIN ) + " max=" + get( Function.MAX ) + "]";
+  }
+
+}
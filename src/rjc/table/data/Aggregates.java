@@ -0,0 +1,135 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.util.HashMap;
+
+import rjc.table.data.TableBase.Signal;
+
+/*************************************************************************************************/
+/************ Per column aggregates computed on first use, kept up to date on changes ************/
+/*************************************************************************************************/
+
+public class Aggregates
+{
+  private TableData                   m_data;       // table data aggregates are for
+  private HashMap<Integer, Aggregate> m_aggregates; // aggregates by column index
+
+  final static private int            REBUILD_DIVISOR = 8; // rebuild if more than this fraction of rows change
+
+  /**************************************** constructor ******************************************/
+  public Aggregates( TableData data )
+  {
+    // initialise private variables and listen to data changes
+    m_data = data;
+    m_aggregates = new HashMap<>();
+    data.addListener( objects ->
+    {
+      if ( objects.length > 1 && objects[0] == Signal.TABLE_CHANGED )
+        changed( (TableChange) objects[1] );
+    } );
+  }
+
+  /********************************************* get *********************************************/
+  public Aggregate get( int columnIndex )
+  {
+    // return aggregates for column, computing them in parallel if first use
+    if ( columnIndex < 0 || columnIndex >= m_data.getColumnCount() )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " count=" + m_data.getColumnCount() );
+    return m_aggregates.computeIfAbsent( columnIndex, index -> new Aggregate( m_data, index ) );
+  }
+
+  /******************************************* release *******************************************/
+  public void release( int columnIndex )
+  {
+    // stop keeping aggregates for column, freeing memory
+    m_aggregates.remove( columnIndex );
+  }
+
+  /******************************************* changed *******************************************/
+  private void changed( TableChange change )
+  {
+    // apply change to aggregates of affected columns, rebuilding if a large part of column changed
+    int rowCount = m_data.getRowCount();
+    switch ( change.getType() )
+    {
+      case CELLS_UPDATED:
+        int from = Math.max( change.getMinRowIndex(), 0 );
+        int to = Math.min( change.getMaxRowIndex(), rowCount - 1 );
+        for ( Aggregate aggregate : m_aggregates.values() )
+          if ( aggregate.getColumnIndex() >= change.getMinColumnIndex()
+              && aggregate.getColumnIndex() <= change.getMaxColumnIndex() )
+            if ( to - from >= rowCount / REBUILD_DIVISOR )
+              aggregate.rebuild();
+            else
+              for ( int rowIndex = from; rowIndex <= to; rowIndex++ )
+                aggregate.update( rowIndex );
+        return;
+      case ROWS_INSERTED:
+        for ( Aggregate aggregate : m_aggregates.values() )
+          if ( change.getCount() > rowCount / REBUILD_DIVISOR )
+            aggregate.rebuild();
+          else
+            aggregate.rowsInserted( change.getIndex(), change.getCount() );
+        return;
+      case ROWS_REMOVED:
+        for ( Aggregate aggregate : m_aggregates.values() )
+          aggregate.rowsRemoved( change.getIndex(), change.getCount() );
+        return;
+      case COLUMNS_INSERTED:
+      case COLUMNS_REMOVED:
+        shiftColumns( change );
+        return;
+      default:
+        m_aggregates.clear();
+        return;
+    }
+  }
+
+  /**************************************** shiftColumns *****************************************/
+  private void shiftColumns( TableChange change )
+  {
+    // move aggregates for columns inserted or removed, dropping those of removed columns
+    boolean inserted = change.getType() == TableChange.Type.COLUMNS_INSERTED;
+    int index = change.getIndex();
+    int count = change.getCount();
+    HashMap<Integer, Aggregate> aggregates = new HashMap<>();
+    m_aggregates.forEach( ( columnIndex, aggregate ) ->
+    {
+      if ( columnIndex < index )
+        aggregates.put( columnIndex, aggregate );
+      else if ( inserted || columnIndex >= index + count )
+      {
+        aggregate.setColumnIndex( columnIndex + ( inserted ? count : -count ) );
+        aggregates.put( aggregate.getColumnIndex(), aggregate );
+      }
+    } );
+    m_aggregates = aggregates;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[columns="
+        + m_aggregates.keySet() + "]";
+  }
+
+}
@@ -0,0 +1,220 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+import javafx.application.Platform;
+
+/*************************************************************************************************/
+/*** Thread-safe buffer of cell updates from producer threads, applied on FX thread per pulse ****/
+/*************************************************************************************************/
+
+public class CellUpdateQueue
+{
+  private TableData                       m_data;       // data updates are applied to
+  private ConcurrentHashMap<Long, Object> m_pending;    // latest value for each updated cell, last write wins
+  private AtomicBoolean                   m_scheduled;  // true if drain scheduled on FX thread
+  private int                             m_capacity;   // maximum distinct cells pending before offers rejected
+  private long                            m_budget;     // maximum nanoseconds per drain before rest deferred
+
+  private LongAdder                       m_posted;     // updates accepted
+  private LongAdder                       m_coalesced;  // updates overwritten by later update before applied
+  private LongAdder                       m_rejected;   // updates rejected because buffer full
+  private long                            m_applied;    // updates applied to data (FX thread only)
+  private long                            m_drains;     // number of drains (FX thread only)
+  private long                            m_drainNanos; // duration of last drain (FX thread only)
+  private long[]                          m_drained;    // keys of cells applied by a drain (FX thread only)
+
+  // stored in place of null values which concurrent hash-map cannot hold
+  final static private Object NULL = new Object();
+
+  /**************************************** constructor ******************************************/
+  public CellUpdateQueue( TableData data )
+  {
+    // create update queue with one million cell capacity and 8ms drain budget
+    this( data, 1000000, 8L * 1000L * 1000L );
+  }
+
+  /**************************************** constructor ******************************************/
+  public CellUpdateQueue( TableData data, int capacity, long budgetNanos )
+  {
+    // initialise private variables
+    m_data = data;
+    m_pending = new ConcurrentHashMap<>();
+    m_scheduled = new AtomicBoolean();
+    m_capacity = capacity;
+    m_budget = budgetNanos;
+    m_posted = new LongAdder();
+    m_coalesced = new LongAdder();
+    m_rejected = new LongAdder();
+    m_drained = new long[256];
+  }
+
+  /******************************************** offer ********************************************/
+  public boolean offer( int columnIndex, int rowIndex, Object value )
+  {
+    // post cell update from any thread, returns false if buffer full (updates to pending cells always accepted)
+    long key = (long) columnIndex << 32 | rowIndex & 0xFFFFFFFFL;
+    Object stored = value == null ? NULL : value;
+    if ( m_pending.size() >= m_capacity && !m_pending.containsKey( key ) )
+    {
+      m_rejected.increment();
+      return false;
+    }
+
+    if ( m_pending.put( key, stored ) != null )
+      m_coalesced.increment();
+    m_posted.increment();
+    schedule();
+    return true;
+  }
+
+  /****************************************** offerRow *******************************************/
+  public boolean offerRow( int rowIndex, int firstColumnIndex, Object[] values )
+  {
+    // post updates for consecutive cells in a row, returns false if any rejected
+    boolean accepted = true;
+    for ( int column = 0; column < values.length; column++ )
+      accepted &= offer( firstColumnIndex + column, rowIndex, values[column] );
+    return accepted;
+  }
+
+  /***************************************** offerRange ******************************************/
+  public boolean offerRange( int firstColumnIndex, int firstRowIndex, Object[][] values )
+  {
+    // post updates for block of cells values[column][row], returns false if any rejected
+    boolean accepted = true;
+    for ( int column = 0; column < values.length; column++ )
+      for ( int row = 0; row < values[column].length; row++ )
+        accepted &= offer( firstColumnIndex + column, firstRowIndex + row, values[column][row] );
+    return accepted;
+  }
+
+  /****************************************** schedule *******************************************/
+  private void schedule()
+  {
+    // schedule one drain on FX thread however many updates arrive before it runs
+    if ( m_scheduled.compareAndSet( false, true ) )
+      Platform.runLater( () -> drain() );
+  }
+
+  /******************************************** drain ********************************************/
+  private void drain()
+  {
+    // apply pending updates to data then signal them in bands, deferring rest to next pulse if over budget
+    m_scheduled.set( false );
+    long start = System.nanoTime();
+    int count = 0;
+    int changed = 0;
+    for ( var iterator = m_pending.entrySet().iterator(); iterator.hasNext(); )
+    {
+      var entry = iterator.next();
+      long key = entry.getKey();
+      Object value = entry.getValue();
+
+      // only remove if not replaced by a newer value since read
+      if ( !m_pending.remove( key, value ) )
+        continue;
+
+      int columnIndex = (int) ( key >> 32 );
+      int rowIndex = (int) key;
+      if ( m_data.setValue( columnIndex, rowIndex, value == NULL ? null : value ) )
+      {
+        if ( changed == m_drained.length )
+          m_drained = Arrays.copyOf( m_drained, changed * 2 );
+        m_drained[changed++] = key;
+      }
+      m_applied++;
+
+      // check time budget periodically
+      if ( ( ++count & 0xFF ) == 0 && System.nanoTime() - start > m_budget )
+        break;
+    }
+    m_data.fireCellsUpdated( m_drained, changed );
+
+    m_drains++;
+    m_drainNanos = System.nanoTime() - start;
+    if ( !m_pending.isEmpty() )
+      schedule();
+  }
+
+  /***************************************** getPending ******************************************/
+  public int getPending()
+  {
+    // return number of distinct cells with updates waiting to be applied
+    return m_pending.size();
+  }
+
+  /****************************************** getPosted ******************************************/
+  public long getPosted()
+  {
+    // return number of updates accepted
+    return m_posted.sum();
+  }
+
+  /**************************************** getCoalesced *****************************************/
+  public long getCoalesced()
+  {
+    // return number of updates superseded by a later update to same cell before being applied
+    return m_coalesced.sum();
+  }
+
+  /***************************************** getRejected *****************************************/
+  public long getRejected()
+  {
+    // return number of updates rejected because buffer full
+    return m_rejected.sum();
+  }
+
+  /***************************************** getApplied ******************************************/
+  public long getApplied()
+  {
+    // return number of updates applied to data
+    return m_applied;
+  }
+
+  /****************************************** getDrains ******************************************/
+  public long getDrains()
+  {
+    // return number of times pending updates drained on FX thread
+    return m_drains;
+  }
+
+  /*************************************** getDrainNanos *****************************************/
+  public long getDrainNanos()
+  {
+    // return duration of last drain in nanoseconds
+    return m_drainNanos;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[pending="
+        + getPending() + " posted=" + getPosted() + " coalesced=" + getCoalesced() + " rejected=" + getRejected()
+        + " applied=" + m_applied + " drains=" + m_drains + " drainNanos=" + m_drainNanos + "]";
+  }
+
+}
@@ -0,0 +1,182 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javafx.application.Platform;
+import rjc.table.view.TableView;
+
+/*************************************************************************************************/
+/******** Delivers data change notifications to views on the FX thread, batched per pulse ********/
+/*************************************************************************************************/
+
+public class ChangeDispatcher
+{
+  private TableBase                          m_table;          // table data whose changes are dispatched
+  private List<TableView>                    m_views;          // views to be notified
+  private AtomicBoolean                      m_drainScheduled; // true if drain of pending notifications scheduled
+  private AtomicBoolean                      m_reset;          // true if views reset requested
+  private AtomicBoolean                      m_redraw;         // true if full views redraw requested
+  private Set<Integer>                       m_columns;        // pending column redraws
+  private Set<Integer>                       m_rows;           // pending row redraws
+  private Set<Long>                          m_cells;          // pending cell redraws, (long) column << 32 | row
+  private ConcurrentLinkedQueue<TableChange> m_changes;        // pending data changes in order fired
+
+  /**************************************** constructor ******************************************/
+  public ChangeDispatcher( TableBase table, List<TableView> views )
+  {
+    // initialise private variables
+    m_table = table;
+    m_views = views;
+    m_drainScheduled = new AtomicBoolean();
+    m_reset = new AtomicBoolean();
+    m_redraw = new AtomicBoolean();
+    m_columns = ConcurrentHashMap.newKeySet();
+    m_rows = ConcurrentHashMap.newKeySet();
+    m_cells = ConcurrentHashMap.newKeySet();
+    m_changes = new ConcurrentLinkedQueue<>();
+  }
+
+  /******************************************* change ********************************************/
+  public void change( TableChange change )
+  {
+    // apply data change now if on FX thread, otherwise in order fired when drained
+    if ( Platform.isFxApplicationThread() )
+      m_table.applyChange( change );
+    else
+    {
+      m_changes.add( change );
+      schedule();
+    }
+  }
+
+  /******************************************** reset ********************************************/
+  public void reset()
+  {
+    // reset views now if on FX thread, otherwise when pending notifications are drained
+    if ( Platform.isFxApplicationThread() )
+      m_views.forEach( view -> view.reset() );
+    else if ( m_reset.compareAndSet( false, true ) )
+      schedule();
+  }
+
+  /******************************************* redraw ********************************************/
+  public void redraw()
+  {
+    // redraw views now if on FX thread (canvas batches per pulse), otherwise when drained
+    if ( Platform.isFxApplicationThread() )
+      m_views.forEach( view -> view.redraw() );
+    else if ( m_redraw.compareAndSet( false, true ) )
+      schedule();
+  }
+
+  /***************************************** redrawCell ******************************************/
+  public void redrawCell( int columnIndex, int rowIndex )
+  {
+    // redraw cell in views now if on FX thread, otherwise when drained
+    if ( Platform.isFxApplicationThread() )
+      m_views.forEach( view -> view.redrawCell( columnIndex, rowIndex ) );
+    else if ( !m_redraw.get() && m_cells.add( (long) columnIndex << 32 | rowIndex & 0xFFFFFFFFL ) )
+      schedule();
+  }
+
+  /**************************************** redrawColumn *****************************************/
+  public void redrawColumn( int columnIndex )
+  {
+    // redraw column in views now if on FX thread, otherwise when drained
+    if ( Platform.isFxApplicationThread() )
+      m_views.forEach( view -> view.redrawColumn( columnIndex ) );
+    else if ( !m_redraw.get() && m_columns.add( columnIndex ) )
+      schedule();
+  }
+
+  /****************************************** redrawRow ******************************************/
+  public void redrawRow( int rowIndex )
+  {
+    // redraw row in views now if on FX thread, otherwise when drained
+    if ( Platform.isFxApplicationThread() )
+      m_views.forEach( view -> view.redrawRow( rowIndex ) );
+    else if ( !m_redraw.get() && m_rows.add( rowIndex ) )
+      schedule();
+  }
+
+  /****************************************** schedule *******************************************/
+  private void schedule()
+  {
+    // schedule one drain on FX thread however many notifications arrive before it runs
+    if ( m_drainScheduled.compareAndSet( false, true ) )
+      Platform.runLater( () -> drain() );
+  }
+
+  /******************************************** drain ********************************************/
+  private void drain()
+  {
+    // deliver pending notifications to views on FX thread
+    m_drainScheduled.set( false );
+    for ( TableChange change = m_changes.poll(); change != null; change = m_changes.poll() )
+      m_table.applyChange( change );
+    if ( m_reset.getAndSet( false ) )
+      m_views.forEach( view -> view.reset() );
+
+    // full redraw covers everything else pending
+    if ( m_redraw.getAndSet( false ) )
+    {
+      m_cells.clear();
+      m_columns.clear();
+      m_rows.clear();
+      m_views.forEach( view -> view.redraw() );
+      return;
+    }
+
+    for ( var iterator = m_columns.iterator(); iterator.hasNext(); )
+    {
+      int columnIndex = iterator.next();
+      iterator.remove();
+      m_views.forEach( view -> view.redrawColumn( columnIndex ) );
+    }
+    for ( var iterator = m_rows.iterator(); iterator.hasNext(); )
+    {
+      int rowIndex = iterator.next();
+      iterator.remove();
+      m_views.forEach( view -> view.redrawRow( rowIndex ) );
+    }
+    for ( var iterator = m_cells.iterator(); iterator.hasNext(); )
+    {
+      long hash = iterator.next();
+      iterator.remove();
+      m_views.forEach( view -> view.redrawCell( (int) ( hash >> 32 ), (int) hash ) );
+    }
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[reset="
+        + m_reset + " redraw=" + m_redraw + " columns=" + m_columns.size() + " rows=" + m_rows.size() + " cells="
+        + m_cells.size() + " changes=" + m_changes.size() + "]";
+  }
+
+}
@@ -0,0 +1,562 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import javafx.application.Platform;
+import rjc.table.Utils;
+import rjc.table.data.TableBase.Signal;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.signal.ISignal;
+
+/*************************************************************************************************/
+/****** Per column statistics computed in parallel in background, kept up to date on edits *******/
+/*************************************************************************************************/
+
+public class ColumnStatistics implements ISignal
+{
+  private TableData                 m_data;     // table data statistics are for
+  private HashMap<Integer, Tracker> m_trackers; // state of columns statistics requested for
+
+  final static public int           DISTINCT_MAX        = 65536; // most distinct values tracked per column
+  final static public int           HISTOGRAM_BINS      = 32;    // number of histogram bins
+  final static private int          CHUNK_ROWS          = 65536; // rows scanned per parallel task
+  final static private int          INCREMENTAL_DIVISOR = 8;     // rescan if more than this fraction of rows change
+  final static private int          NULL_ID             = -1;    // row id for rows with no value
+  final static private int          NEW_ID              = -2;    // row id for inserted rows not yet counted
+
+  // statistics state for one column, row ids into distinct values allow incremental update on edits
+  private static class State
+  {
+    boolean                  typed;     // true if values read via typed numeric getters
+    int                      rowCount;  // number of rows
+    int                      nullCount; // rows with no value
+    boolean                  numeric;   // true if all values are numbers
+    Object                   min;       // smallest value
+    Object                   max;       // largest value
+    int[]                    ids;       // distinct value id by row index, null if too many distinct values
+    ArrayList<Object>        values;    // distinct value by id
+    HashMap<Object, Integer> idByValue; // id by distinct value
+    int[]                    counts;    // row count by id
+    double[]                 numbers;   // numeric value by id, NaN if not a number
+    long[]                   histogram; // row count by bin, null if not numeric
+    double                   histMin;   // lowest value covered by histogram
+    double                   histMax;   // highest value covered by histogram
+  }
+
+  // results of scanning one chunk of rows
+  private static class Chunk
+  {
+    int      nullCount;                            // rows with no value
+    boolean  numeric   = true;                     // true if all values are numbers
+    Object   min;                                  // smallest value
+    Object   max;                                  // largest value
+    double   minNumber = Double.POSITIVE_INFINITY; // smallest number
+    double   maxNumber = Double.NEGATIVE_INFINITY; // largest number
+    int[]    counts    = new int[16];              // row count by distinct value id
+  }
+
+  // statistics for one column, current while version matches snapshot
+  private static class Tracker
+  {
+    long        version;   // incremented whenever column values change
+    boolean     computing; // true if background scan in progress
+    State       state;     // state for building statistics, null if stale
+    ColumnStats snapshot;  // last statistics built
+  }
+
+  /**************************************** constructor ******************************************/
+  public ColumnStatistics( TableData data )
+  {
+    // initialise private variables and listen to data changes
+    m_data = data;
+    m_trackers = new HashMap<>();
+    data.addListener( objects ->
+    {
+      if ( objects.length > 1 && objects[0] == Signal.TABLE_CHANGED )
+        changed( (TableChange) objects[1] );
+    } );
+  }
+
+  /********************************************* get *********************************************/
+  public ColumnStats get( int columnIndex )
+  {
+    // return current statistics for column, or null and start background scan signalling when ready
+    if ( columnIndex < 0 || columnIndex >= m_data.getColumnCount() )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " count=" + m_data.getColumnCount() );
+
+    Tracker tracker = m_trackers.computeIfAbsent( columnIndex, index -> new Tracker() );
+    if ( tracker.snapshot != null && tracker.snapshot.getVersion() == tracker.version )
+      return tracker.snapshot;
+    if ( tracker.state != null )
+      return snapshot( columnIndex, tracker );
+
+    if ( !tracker.computing )
+      scan( columnIndex, tracker );
+    return null;
+  }
+
+  /***************************************** getVersion ******************************************/
+  public long getVersion( int columnIndex )
+  {
+    // return version of column values, incremented whenever they change
+    Tracker tracker = m_trackers.get( columnIndex );
+    return tracker == null ? 0L : tracker.version;
+  }
+
+  /******************************************* release *******************************************/
+  public void release( int columnIndex )
+  {
+    // stop keeping statistics for column, freeing memory
+    m_trackers.remove( columnIndex );
+  }
+
+  /******************************************** scan *********************************************/
+  private void scan( int columnIndex, Tracker tracker )
+  {
+    // scan snapshot of rows on fork-join pool, result installed on FX thread if column unchanged meanwhile
+    tracker.computing = true;
+    long version = tracker.version;
+    TableSnapshot data = m_data.snapshot();
+    ForkJoinPool.commonPool().execute( () ->
+    {
+      State state;
+      try
+      {
+        state = scan( data, columnIndex, data.getRowCount() );
+      }
+      catch ( RuntimeException exception )
+      {
+        // data changed shape or could not be read while scanning, rescanned below if data changed
+        Utils.stack( "WARNING: statistics scan failed", columnIndex, exception );
+        state = null;
+      }
+
+      State scanned = state;
+      Platform.runLater( () ->
+      {
+        // release snapshot once checked, rescanning if its rows changed or column values changed meanwhile
+        data.close();
+        tracker.computing = false;
+        if ( m_trackers.get( columnIndex ) != tracker )
+          return;
+        if ( tracker.version != version || data.isStale() )
+        {
+          scan( columnIndex, tracker );
+          return;
+        }
+
+        // scan failed although data unchanged, so retried only when next requested
+        if ( scanned == null )
+          return;
+
+        tracker.state = scanned;
+        signal( columnIndex, snapshot( columnIndex, tracker ) );
+      } );
+    } );
+  }
+
+  /******************************************** scan *********************************************/
+  private static State scan( TableData data, int columnIndex, int rowCount )
+  {
+    // scan rows in parallel chunks sharing one concurrent map of distinct values to ids
+    ColumnType type = data.getColumnType( columnIndex );
+    boolean typed = type != ColumnType.OBJECT && type != ColumnType.BOOLEAN;
+    ConcurrentHashMap<Object, Integer> idByValue = new ConcurrentHashMap<>();
+    AtomicInteger nextId = new AtomicInteger();
+    Object[] values = new Object[DISTINCT_MAX];
+    double[] numbers = new double[DISTINCT_MAX];
+    int[] ids = new int[rowCount];
+    Chunk[] chunks = new Chunk[( rowCount + CHUNK_ROWS - 1 ) / CHUNK_ROWS];
+
+    IntStream.range( 0, chunks.length ).parallel().forEach( index ->
+    {
+      Chunk chunk = new Chunk();
+      int end = Math.min( rowCount, ( index + 1 ) * CHUNK_ROWS );
+      for ( int rowIndex = index * CHUNK_ROWS; rowIndex < end; rowIndex++ )
+      {
+        if ( data.isNull( columnIndex, rowIndex ) )
+        {
+          chunk.nullCount++;
+          ids[rowIndex] = NULL_ID;
+          continue;
+        }
+
+        Object value = data.getValue( columnIndex, rowIndex );
+        double number = number( data, columnIndex, typed, value, rowIndex );
+        if ( Double.isNaN( number ) )
+          chunk.numeric &= typed;
+        else
+        {
+          chunk.minNumber = Math.min( chunk.minNumber, number );
+          chunk.maxNumber = Math.max( chunk.maxNumber, number );
+        }
+        chunk.min = min( chunk.min, value );
+        chunk.max = max( chunk.max, value );
+
+        // give value an id unless too many distinct values, in which case no longer tracked
+        int id = NULL_ID;
+        if ( nextId.get() <= DISTINCT_MAX )
+          id = idByValue.computeIfAbsent( value, key ->
+          {
+            int newId = nextId.getAndIncrement();
+            if ( newId < DISTINCT_MAX )
+            {
+              values[newId] = key;
+              numbers[newId] = number;
+            }
+            return newId;
+          } );
+        if ( id >= 0 && id < DISTINCT_MAX )
+        {
+          if ( id >= chunk.counts.length )
+            chunk.counts = Arrays.copyOf( chunk.counts, Math.max( id + 1, chunk.counts.length * 2 ) );
+          chunk.counts[id]++;
+          ids[rowIndex] = id;
+        }
+      }
+      chunks[index] = chunk;
+    } );
+
+    // combine chunk results in chunk order
+    State state = new State();
+    state.typed = typed;
+    state.rowCount = rowCount;
+    state.numeric = true;
+    double minNumber = Double.POSITIVE_INFINITY;
+    double maxNumber = Double.NEGATIVE_INFINITY;
+    int distinct = nextId.get();
+    if ( distinct <= DISTINCT_MAX )
+    {
+      state.ids = ids;
+      state.values = new ArrayList<>( Arrays.asList( values ).subList( 0, distinct ) );
+      state.idByValue = new HashMap<>( idByValue );
+      state.counts = new int[Math.max( distinct, 16 )];
+      state.numbers = Arrays.copyOf( numbers, state.counts.length );
+    }
+    for ( Chunk chunk : chunks )
+    {
+      state.nullCount += chunk.nullCount;
+      state.numeric &= chunk.numeric;
+      state.min = min( state.min, chunk.min );
+      state.max = max( state.max, chunk.max );
+      minNumber = Math.min( minNumber, chunk.minNumber );
+      maxNumber = Math.max( maxNumber, chunk.maxNumber );
+      if ( state.ids != null )
+        for ( int id = 0; id < Math.min( chunk.counts.length, distinct ); id++ )
+          state.counts[id] += chunk.counts[id];
+    }
+
+    // histogram from distinct values if known, otherwise from a second parallel pass over rows
+    if ( state.numeric && minNumber <= maxNumber )
+    {
+      state.histMin = minNumber;
+      state.histMax = maxNumber;
+      state.histogram = new long[HISTOGRAM_BINS];
+      if ( state.ids != null )
+      {
+        for ( int id = 0; id < distinct; id++ )
+          if ( !Double.isNaN( state.numbers[id] ) )
+            state.histogram[bin( state, state.numbers[id] )] += state.counts[id];
+      }
+      else
+        IntStream.range( 0, chunks.length ).parallel().mapToObj( index ->
+        {
+          long[] histogram = new long[HISTOGRAM_BINS];
+          int end = Math.min( rowCount, ( index + 1 ) * CHUNK_ROWS );
+          for ( int rowIndex = index * CHUNK_ROWS; rowIndex < end; rowIndex++ )
+            if ( !data.isNull( columnIndex, rowIndex ) )
+            {
+              double number = number( data, columnIndex, typed, null, rowIndex );
+              if ( !Double.isNaN( number ) )
+                histogram[bin( state, number )]++;
+            }
+          return histogram;
+        } ).sequential().forEach( histogram ->
+        {
+          for ( int bin = 0; bin < HISTOGRAM_BINS; bin++ )
+            state.histogram[bin] += histogram[bin];
+        } );
+    }
+
+    return state;
+  }
+
+  /******************************************* number ********************************************/
+  private static double number( TableData data, int columnIndex, boolean typed, Object value, int rowIndex )
+  {
+    // return cell value as number via typed getter, or NaN if not a number
+    if ( typed )
+      return data.getDouble( columnIndex, rowIndex );
+    if ( value == null )
+      value = data.getValue( columnIndex, rowIndex );
+    return value instanceof Number ? ( (Number) value ).doubleValue() : Double.NaN;
+  }
+
+  /********************************************* bin *********************************************/
+  private static int bin( State state, double number )
+  {
+    // return histogram bin for number within histogram range
+    if ( state.histMax <= state.histMin )
+      return 0;
+    int bin = (int) ( ( number - state.histMin ) / ( state.histMax - state.histMin ) * HISTOGRAM_BINS );
+    return Math.max( 0, Math.min( HISTOGRAM_BINS - 1, bin ) );
+  }
+
+  /********************************************* min *********************************************/
+  private static Object min( Object value1, Object value2 )
+  {
+    // return smaller of two values in value order, ignoring nulls
+    if ( value1 == null || value2 != null && ColumnStats.compare( value2, value1 ) < 0 )
+      return value2;
+    return value1;
+  }
+
+  /********************************************* max *********************************************/
+  private static Object max( Object value1, Object value2 )
+  {
+    // return larger of two values in value order, ignoring nulls
+    if ( value1 == null || value2 != null && ColumnStats.compare( value2, value1 ) > 0 )
+      return value2;
+    return value1;
+  }
+
+  /****************************************** snapshot *******************************************/
+  private ColumnStats snapshot( int columnIndex, Tracker tracker )
+  {
+    // build statistics from state, distinct values in value order with min & max from those still present
+    State state = tracker.state;
+    LinkedHashMap<Object, Integer> distinct = null;
+    Object min = state.min;
+    Object max = state.max;
+    if ( state.ids != null )
+    {
+      Integer[] ids = IntStream.range( 0, state.values.size() ).filter( id -> state.counts[id] > 0 ).boxed()
+          .toArray( Integer[]::new );
+      Arrays.sort( ids, ( id1, id2 ) -> ColumnStats.compare( state.values.get( id1 ), state.values.get( id2 ) ) );
+      distinct = new LinkedHashMap<>();
+      for ( int id : ids )
+        distinct.put( state.values.get( id ), state.counts[id] );
+      min = ids.length == 0 ? null : state.values.get( ids[0] );
+      max = ids.length == 0 ? null : state.values.get( ids[ids.length - 1] );
+    }
+
+    tracker.snapshot = new ColumnStats( columnIndex, tracker.version, state.rowCount, state.nullCount, min, max,
+        distinct, state.histogram == null ? null : state.histogram.clone(), state.histMin, state.histMax );
+    return tracker.snapshot;
+  }
+
+  /******************************************* changed *******************************************/
+  private void changed( TableChange change )
+  {
+    // update statistics of affected columns incrementally where possible, otherwise mark stale
+    switch ( change.getType() )
+    {
+      case CELLS_UPDATED:
+        m_trackers.forEach( ( columnIndex, tracker ) ->
+        {
+          if ( columnIndex >= change.getMinColumnIndex() && columnIndex <= change.getMaxColumnIndex() )
+            rowsChanged( columnIndex, tracker, Math.max( change.getMinRowIndex(), 0 ),
+                Math.min( change.getMaxRowIndex(), m_data.getRowCount() - 1 ) );
+        } );
+        return;
+      case ROWS_INSERTED:
+        m_trackers.forEach(
+            ( columnIndex, tracker ) -> rowsInserted( columnIndex, tracker, change.getIndex(), change.getCount() ) );
+        return;
+      case ROWS_REMOVED:
+        m_trackers.forEach( ( columnIndex, tracker ) -> rowsRemoved( tracker, change.getIndex(), change.getCount() ) );
+        return;
+      case COLUMNS_INSERTED:
+      case COLUMNS_REMOVED:
+        shiftColumns( change );
+        return;
+      default:
+        m_trackers.clear();
+        return;
+    }
+  }
+
+  /**************************************** shiftColumns *****************************************/
+  private void shiftColumns( TableChange change )
+  {
+    // move trackers for columns inserted or removed, dropping those of removed columns
+    boolean inserted = change.getType() == TableChange.Type.COLUMNS_INSERTED;
+    int index = change.getIndex();
+    int count = change.getCount();
+    HashMap<Integer, Tracker> trackers = new HashMap<>();
+    m_trackers.forEach( ( columnIndex, tracker ) ->
+    {
+      if ( columnIndex < index )
+        trackers.put( columnIndex, tracker );
+      else if ( inserted || columnIndex >= index + count )
+        trackers.put( columnIndex + ( inserted ? count : -count ), tracker );
+    } );
+    m_trackers = trackers;
+  }
+
+  /***************************************** rowsChanged *****************************************/
+  private void rowsChanged( int columnIndex, Tracker tracker, int from, int to )
+  {
+    // re-count changed rows, or mark stale if many rows or state cannot be updated
+    tracker.version++;
+    recount( columnIndex, tracker, from, to );
+  }
+
+  /******************************************* recount *******************************************/
+  private void recount( int columnIndex, Tracker tracker, int from, int to )
+  {
+    // re-count rows from their current values, or mark stale if many rows or state cannot be updated
+    State state = tracker.state;
+    if ( state == null || state.ids == null || to - from >= state.rowCount / INCREMENTAL_DIVISOR )
+    {
+      tracker.state = null;
+      return;
+    }
+
+    for ( int rowIndex = from; rowIndex <= to; rowIndex++ )
+      if ( !update( state, columnIndex, rowIndex ) )
+      {
+        tracker.state = null;
+        return;
+      }
+  }
+
+  /**************************************** rowsInserted *****************************************/
+  private void rowsInserted( int columnIndex, Tracker tracker, int index, int count )
+  {
+    // open gap in row ids for inserted rows and count them, or mark stale if many rows
+    tracker.version++;
+    State state = tracker.state;
+    if ( state == null || state.ids == null || count > state.rowCount / INCREMENTAL_DIVISOR )
+    {
+      tracker.state = null;
+      return;
+    }
+
+    int[] ids = new int[state.rowCount + count];
+    System.arraycopy( state.ids, 0, ids, 0, index );
+    Arrays.fill( ids, index, index + count, NEW_ID );
+    System.arraycopy( state.ids, index, ids, index + count, state.rowCount - index );
+    state.ids = ids;
+    state.rowCount += count;
+    recount( columnIndex, tracker, index, index + count - 1 );
+  }
+
+  /***************************************** rowsRemoved *****************************************/
+  private void rowsRemoved( Tracker tracker, int index, int count )
+  {
+    // un-count removed rows and close gap in row ids, or mark stale if many rows
+    tracker.version++;
+    State state = tracker.state;
+    if ( state == null || state.ids == null || count > state.rowCount / INCREMENTAL_DIVISOR )
+    {
+      tracker.state = null;
+      return;
+    }
+
+    for ( int rowIndex = index; rowIndex < index + count; rowIndex++ )
+      if ( !count( state, state.ids[rowIndex], -1 ) )
+      {
+        tracker.state = null;
+        return;
+      }
+
+    System.arraycopy( state.ids, index + count, state.ids, index, state.rowCount - index - count );
+    state.rowCount -= count;
+    state.ids = Arrays.copyOf( state.ids, state.rowCount );
+  }
+
+  /******************************************* update ********************************************/
+  private boolean update( State state, int columnIndex, int rowIndex )
+  {
+    // re-count one row from its current value, returns false if state cannot be updated
+    int newId = NULL_ID;
+    if ( !m_data.isNull( columnIndex, rowIndex ) )
+    {
+      Object value = m_data.getValue( columnIndex, rowIndex );
+      double number = number( m_data, columnIndex, state.typed, value, rowIndex );
+      if ( state.numeric && Double.isNaN( number ) && !state.typed )
+        return false;
+
+      Integer id = state.idByValue.get( value );
+      if ( id == null )
+      {
+        if ( state.values.size() >= DISTINCT_MAX )
+          return false;
+        id = state.values.size();
+        state.values.add( value );
+        state.idByValue.put( value, id );
+        if ( id >= state.counts.length )
+        {
+          state.counts = Arrays.copyOf( state.counts, state.counts.length * 2 );
+          state.numbers = Arrays.copyOf( state.numbers, state.counts.length );
+        }
+        state.numbers[id] = number;
+      }
+      newId = id;
+    }
+
+    int oldId = state.ids[rowIndex];
+    if ( oldId == newId )
+      return true;
+    state.ids[rowIndex] = newId;
+    return count( state, oldId, -1 ) && count( state, newId, 1 );
+  }
+
+  /******************************************* count *********************************************/
+  private static boolean count( State state, int id, int delta )
+  {
+    // add delta to row count for id, returns false if number outside histogram range
+    if ( id == NEW_ID )
+      return true;
+    if ( id == NULL_ID )
+    {
+      state.nullCount += delta;
+      return true;
+    }
+
+    state.counts[id] += delta;
+    double number = state.numbers[id];
+    if ( !state.numeric || Double.isNaN( number ) )
+      return true;
+    if ( state.histogram == null || number < state.histMin || number > state.histMax )
+      return false;
+    state.histogram[bin( state, number )] += delta;
+    return true;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[columns="
+        + m_trackers.keySet() + "]";
+  }
+
+}
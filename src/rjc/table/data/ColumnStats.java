@@ -0,0 +1,166 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+
+/*************************************************************************************************/
+/************** Statistics of one column's body cell values, valid for one version ***************/
+/*************************************************************************************************/
+
+public class ColumnStats
+{
+  private int                 m_columnIndex;  // column index statistics are for
+  private long                m_version;      // column version statistics are valid for
+  private int                 m_rowCount;     // number of rows
+  private int                 m_nullCount;    // number of rows with no value
+  private Object              m_min;          // smallest value, null if no values
+  private Object              m_max;          // largest value, null if no values
+  private Map<Object, Integer> m_distinct;     // row count by distinct value in value order, null if too many
+  private long[]              m_histogram;    // row count by equal width bin, null if not numeric
+  private double              m_histogramMin; // lowest value covered by histogram
+  private double              m_histogramMax; // highest value covered by histogram
+
+  /**************************************** constructor ******************************************/
+  ColumnStats( int columnIndex, long version, int rowCount, int nullCount, Object min, Object max,
+      Map<Object, Integer> distinct, long[] histogram, double histogramMin, double histogramMax )
+  {
+    // initialise private variables
+    m_columnIndex = columnIndex;
+    m_version = version;
+    m_rowCount = rowCount;
+    m_nullCount = nullCount;
+    m_min = min;
+    m_max = max;
+    m_distinct = distinct == null ? null : Collections.unmodifiableMap( distinct );
+    m_histogram = histogram;
+    m_histogramMin = histogramMin;
+    m_histogramMax = histogramMax;
+  }
+
+  /*************************************** getColumnIndex ****************************************/
+  public int getColumnIndex()
+  {
+    // return column index statistics are for
+    return m_columnIndex;
+  }
+
+  /***************************************** getVersion ******************************************/
+  public long getVersion()
+  {
+    // return column version statistics are valid for
+    return m_version;
+  }
+
+  /***************************************** getRowCount *****************************************/
+  public int getRowCount()
+  {
+    // return number of rows
+    return m_rowCount;
+  }
+
+  /**************************************** getNullCount *****************************************/
+  public int getNullCount()
+  {
+    // return number of rows with no value
+    return m_nullCount;
+  }
+
+  /******************************************* getMin ********************************************/
+  public Object getMin()
+  {
+    // return smallest value in value order, null if no values
+    return m_min;
+  }
+
+  /******************************************* getMax ********************************************/
+  public Object getMax()
+  {
+    // return largest value in value order, null if no values
+    return m_max;
+  }
+
+  /***************************************** getDistinct *****************************************/
+  public Map<Object, Integer> getDistinct()
+  {
+    // return row count by distinct value in value order, or null if more than maximum distinct values
+    return m_distinct;
+  }
+
+  /************************************** getDistinctCount ***************************************/
+  public int getDistinctCount()
+  {
+    // return number of distinct values, or -1 if more than maximum distinct values
+    return m_distinct == null ? -1 : m_distinct.size();
+  }
+
+  /**************************************** getHistogram *****************************************/
+  public long[] getHistogram()
+  {
+    // return row count by equal width bin between histogram min & max, or null if values not numeric
+    return m_histogram == null ? null : m_histogram.clone();
+  }
+
+  /************************************** getHistogramMin ****************************************/
+  public double getHistogramMin()
+  {
+    // return lowest value covered by histogram
+    return m_histogramMin;
+  }
+
+  /************************************** getHistogramMax ****************************************/
+  public double getHistogramMax()
+  {
+    // return highest value covered by histogram
+    return m_histogramMax;
+  }
+
+  /******************************************* compare *******************************************/
+  public static int compare( Object value1, Object value2 )
+  {
+    // compare two non-null values in value order, numbers & dates numerically otherwise naturally or by text
+    if ( value1 instanceof Number && value2 instanceof Number )
+      return Double.compare( ( (Number) value1 ).doubleValue(), ( (Number) value2 ).doubleValue() );
+    if ( value1 instanceof Date && value2 instanceof Date )
+      return Integer.compare( ( (Date) value1 ).getEpochday(), ( (Date) value2 ).getEpochday() );
+    if ( value1 instanceof Time && value2 instanceof Time )
+      return Integer.compare( ( (Time) value1 ).getDayMilliseconds(), ( (Time) value2 ).getDayMilliseconds() );
+    if ( value1 instanceof Comparable && value1.getClass() == value2.getClass() )
+    {
+      @SuppressWarnings( "unchecked" )
+      Comparable<Object> comparable = (Comparable<Object>) value1;
+      return comparable.compareTo( value2 );
+    }
+    return value1.toString().compareTo( value2.toString() );
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[column="
+        + m_columnIndex + " version=" + m_version + " rows=" + m_rowCount + " nulls=" + m_nullCount + " distinct="
+        + getDistinctCount() + " min=" + m_min + " max=" + m_max + " histogram=" + Arrays.toString( m_histogram )
+        + "]";
+  }
+
+}
@@ -19,6 +19,7 @@
 package rjc.table.data;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
@@ -38,16 +39,23 @@ public class TableBase implements ISignal
   private ObservableInteger    m_columnCount = new ObservableInteger( 3 );
   private ObservableInteger    m_rowCount    = new ObservableInteger( 10 );
 
-  // list of registered table views
+  // list of registered table views and dispatcher of change notifications to them
   private ArrayList<TableView> m_views       = new ArrayList<>();
+  private ChangeDispatcher     m_dispatcher  = new ChangeDispatcher( this, m_views );
 
   public enum Signal
   {
-    VIEW_REGISTERED, VIEW_UNREGISTERED
+    VIEW_REGISTERED, VIEW_UNREGISTERED, TABLE_CHANGED
   }
 
   // column & row index starts at 0 for table body, index of -1 is for header
-  final static public int HEADER = -1;
+  final static public int  HEADER           = -1;
+
+  // bulk redraws of more than this many cells, rows or columns redraw whole views instead
+  final static private int REDRAW_CELLS_MAX = 1000;
+
+  // updated cells in same column with rows no further apart than this are signalled as one change
+  final static private int BAND_ROWS        = 32;
 
   /*************************************** getColumnCount ****************************************/
   final public int getColumnCount()
@@ -125,39 +133,153 @@ public class TableBase implements ISignal
   /***************************************** resetViews ******************************************/
   public void resetViews()
   {
-    // reset associated views (for example after number of columns or rows changed) in PARALLEL
-    m_views.parallelStream().forEach( view -> view.reset() );
+    // reset associated views (for example after number of columns or rows changed)
+    m_dispatcher.reset();
+  }
+
+  /***************************************** fireChange ******************************************/
+  public void fireChange( TableChange change )
+  {
+    // notify views & listeners of data change, applied now if on FX thread otherwise in order when drained
+    m_dispatcher.change( change );
+  }
+
+  /************************************** fireCellsUpdated ***************************************/
+  public void fireCellsUpdated( long[] cells, int count )
+  {
+    // notify first count cells (column << 32 | row & 0xFFFFFFFFL) updated, one change per band of near rows
+    // in a column rather than per cell, cells array is sorted
+    Arrays.sort( cells, 0, count );
+    int start = 0;
+    while ( start < count )
+    {
+      int columnIndex = (int) ( cells[start] >>> 32 );
+      int minRowIndex = (int) cells[start];
+      int maxRowIndex = minRowIndex;
+      int end = start + 1;
+      while ( end < count && (int) ( cells[end] >>> 32 ) == columnIndex && (int) cells[end] > maxRowIndex
+          && (int) cells[end] - maxRowIndex <= BAND_ROWS )
+        maxRowIndex = (int) cells[end++];
+
+      fireChange( TableChange.cellsUpdated( columnIndex, minRowIndex, columnIndex, maxRowIndex ) );
+      start = end;
+    }
+  }
+
+  /**************************************** applyChange ******************************************/
+  void applyChange( TableChange change )
+  {
+    // views update their axes before the count changes, so count listeners see change already applied
+    switch ( change.getType() )
+    {
+      case CELLS_UPDATED:
+        redrawCells( change.getMinColumnIndex(), change.getMinRowIndex(), change.getMaxColumnIndex(),
+            change.getMaxRowIndex() );
+        break;
+      case COLUMNS_INSERTED:
+        m_views.forEach( view -> view.tableChanged( change ) );
+        m_columnCount.set( getColumnCount() + change.getCount() );
+        break;
+      case COLUMNS_REMOVED:
+        m_views.forEach( view -> view.tableChanged( change ) );
+        m_columnCount.set( getColumnCount() - change.getCount() );
+        break;
+      case ROWS_INSERTED:
+        m_views.forEach( view -> view.tableChanged( change ) );
+        m_rowCount.set( getRowCount() + change.getCount() );
+        break;
+      case ROWS_REMOVED:
+        m_views.forEach( view -> view.tableChanged( change ) );
+        m_rowCount.set( getRowCount() - change.getCount() );
+        break;
+      case RELOAD:
+        m_views.forEach( view -> view.tableChanged( change ) );
+        break;
+    }
+
+    signal( Signal.TABLE_CHANGED, change );
   }
 
   /***************************************** redrawViews *****************************************/
   public void redrawViews()
   {
-    // redraw associated whole views in PARALLEL
-    m_views.parallelStream().forEach( view -> view.redraw() );
+    // redraw associated whole views
+    m_dispatcher.redraw();
   }
 
   /***************************************** redrawCell ******************************************/
   public void redrawCell( int columnIndex, int rowIndex )
   {
-    // redraw cell in associated views in PARALLEL
+    // redraw cell in associated views
     if ( isColumnIndexValid( columnIndex ) && isRowIndexValid( rowIndex ) )
-      m_views.parallelStream().forEach( view -> view.redrawCell( columnIndex, rowIndex ) );
+      m_dispatcher.redrawCell( columnIndex, rowIndex );
   }
 
   /***************************************** redrawColumn ****************************************/
   public void redrawColumn( int columnIndex )
   {
-    // redraw column in associated views in PARALLEL
+    // redraw column in associated views
     if ( isColumnIndexValid( columnIndex ) )
-      m_views.parallelStream().forEach( view -> view.redrawColumn( columnIndex ) );
+      m_dispatcher.redrawColumn( columnIndex );
   }
 
   /****************************************** redrawRow ******************************************/
   public void redrawRow( int rowIndex )
   {
-    // redraw row in associated views in PARALLEL
+    // redraw row in associated views
     if ( isRowIndexValid( rowIndex ) )
-      m_views.parallelStream().forEach( view -> view.redrawRow( rowIndex ) );
+      m_dispatcher.redrawRow( rowIndex );
+  }
+
+  /***************************************** redrawCells *****************************************/
+  public void redrawCells( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex )
+  {
+    // redraw range of cells inclusive in associated views, as rows or columns or whole views if large
+    int c1 = Math.max( minColumnIndex, HEADER );
+    int r1 = Math.max( minRowIndex, HEADER );
+    int c2 = Math.min( maxColumnIndex, getColumnCount() - 1 );
+    int r2 = Math.min( maxRowIndex, getRowCount() - 1 );
+    int columns = c2 - c1 + 1;
+    int rows = r2 - r1 + 1;
+    if ( columns <= 0 || rows <= 0 )
+      return;
+
+    if ( (long) columns * rows <= REDRAW_CELLS_MAX )
+      for ( int columnIndex = c1; columnIndex <= c2; columnIndex++ )
+        for ( int rowIndex = r1; rowIndex <= r2; rowIndex++ )
+          m_dispatcher.redrawCell( columnIndex, rowIndex );
+    else if ( rows <= REDRAW_CELLS_MAX && rows <= columns )
+      for ( int rowIndex = r1; rowIndex <= r2; rowIndex++ )
+        m_dispatcher.redrawRow( rowIndex );
+    else if ( columns <= REDRAW_CELLS_MAX )
+      for ( int columnIndex = c1; columnIndex <= c2; columnIndex++ )
+        m_dispatcher.redrawColumn( columnIndex );
+    else
+      m_dispatcher.redraw();
+  }
+
+  /***************************************** redrawRows ******************************************/
+  public void redrawRows( int[] rowIndexes )
+  {
+    // redraw rows in associated views, or whole views if many rows
+    if ( rowIndexes.length > REDRAW_CELLS_MAX )
+      m_dispatcher.redraw();
+    else
+      for ( int rowIndex : rowIndexes )
+        if ( isRowIndexValid( rowIndex ) )
+          m_dispatcher.redrawRow( rowIndex );
+  }
+
+  /**************************************** redrawColumns ****************************************/
+  public void redrawColumns( int[] columnIndexes )
+  {
+    // redraw columns in associated views, or whole views if many columns
+    if ( columnIndexes.length > REDRAW_CELLS_MAX )
+      m_dispatcher.redraw();
+    else
+      for ( int columnIndex : columnIndexes )
+        if ( isColumnIndexValid( columnIndex ) )
+          m_dispatcher.redrawColumn( columnIndex );
   }
 
   /************************************* isColumnIndexValid **************************************/
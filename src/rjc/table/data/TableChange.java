@@ -0,0 +1,183 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+/*************************************************************************************************/
+/**************** Description of a change to table data sent to views & listeners ****************/
+/*************************************************************************************************/
+
+public class TableChange
+{
+  // types of change, inserted & removed are structural changes that alter the column or row count
+  public enum Type
+  {
+    CELLS_UPDATED, COLUMNS_INSERTED, COLUMNS_REMOVED, ROWS_INSERTED, ROWS_REMOVED, RELOAD
+  }
+
+  private Type m_type;           // type of change
+  private int  m_minColumnIndex; // first column affected (inclusive)
+  private int  m_minRowIndex;    // first row affected (inclusive)
+  private int  m_maxColumnIndex; // last column affected (inclusive)
+  private int  m_maxRowIndex;    // last row affected (inclusive)
+
+  /**************************************** constructor ******************************************/
+  private TableChange( Type type, int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex )
+  {
+    // initialise private variables, use static factory methods to create
+    m_type = type;
+    m_minColumnIndex = minColumnIndex;
+    m_minRowIndex = minRowIndex;
+    m_maxColumnIndex = maxColumnIndex;
+    m_maxRowIndex = maxRowIndex;
+  }
+
+  /***************************************** cellUpdated *****************************************/
+  public static TableChange cellUpdated( int columnIndex, int rowIndex )
+  {
+    // return change for value updated in single cell
+    return cellsUpdated( columnIndex, rowIndex, columnIndex, rowIndex );
+  }
+
+  /**************************************** cellsUpdated *****************************************/
+  public static TableChange cellsUpdated( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex )
+  {
+    // return change for values updated in range of cells inclusive (header index allowed)
+    if ( minColumnIndex > maxColumnIndex || minRowIndex > maxRowIndex )
+      throw new IllegalArgumentException(
+          "Range=" + minColumnIndex + "," + minRowIndex + " to " + maxColumnIndex + "," + maxRowIndex );
+    return new TableChange( Type.CELLS_UPDATED, minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex );
+  }
+
+  /*************************************** columnsInserted ***************************************/
+  public static TableChange columnsInserted( int columnIndex, int count )
+  {
+    // return change for count columns inserted at index, later columns move count indexes up
+    check( columnIndex, count );
+    return new TableChange( Type.COLUMNS_INSERTED, columnIndex, TableBase.HEADER, columnIndex + count - 1,
+        Integer.MAX_VALUE );
+  }
+
+  /*************************************** columnsRemoved ****************************************/
+  public static TableChange columnsRemoved( int columnIndex, int count )
+  {
+    // return change for count columns removed from index, later columns move count indexes down
+    check( columnIndex, count );
+    return new TableChange( Type.COLUMNS_REMOVED, columnIndex, TableBase.HEADER, columnIndex + count - 1,
+        Integer.MAX_VALUE );
+  }
+
+  /**************************************** rowsInserted *****************************************/
+  public static TableChange rowsInserted( int rowIndex, int count )
+  {
+    // return change for count rows inserted at index, later rows move count indexes up
+    check( rowIndex, count );
+    return new TableChange( Type.ROWS_INSERTED, TableBase.HEADER, rowIndex, Integer.MAX_VALUE,
+        rowIndex + count - 1 );
+  }
+
+  /***************************************** rowsRemoved *****************************************/
+  public static TableChange rowsRemoved( int rowIndex, int count )
+  {
+    // return change for count rows removed from index, later rows move count indexes down
+    check( rowIndex, count );
+    return new TableChange( Type.ROWS_REMOVED, TableBase.HEADER, rowIndex, Integer.MAX_VALUE, rowIndex + count - 1 );
+  }
+
+  /******************************************* reload ********************************************/
+  public static TableChange reload()
+  {
+    // return change for all data replaced, views reset rather than update incrementally
+    return new TableChange( Type.RELOAD, TableBase.HEADER, TableBase.HEADER, Integer.MAX_VALUE, Integer.MAX_VALUE );
+  }
+
+  /******************************************** check ********************************************/
+  private static void check( int index, int count )
+  {
+    // check structural change index & count are valid
+    if ( index < 0 || count < 1 || (long) index + count > Integer.MAX_VALUE )
+      throw new IllegalArgumentException( "Index=" + index + " count=" + count );
+  }
+
+  /******************************************* getType *******************************************/
+  public Type getType()
+  {
+    // return type of change
+    return m_type;
+  }
+
+  /**************************************** isStructural *****************************************/
+  public boolean isStructural()
+  {
+    // return true if change alters the column or row count
+    return m_type != Type.CELLS_UPDATED && m_type != Type.RELOAD;
+  }
+
+  /******************************************* getIndex ******************************************/
+  public int getIndex()
+  {
+    // return first column or row index inserted or removed by structural change
+    return m_type == Type.COLUMNS_INSERTED || m_type == Type.COLUMNS_REMOVED ? m_minColumnIndex : m_minRowIndex;
+  }
+
+  /******************************************* getCount ******************************************/
+  public int getCount()
+  {
+    // return number of columns or rows inserted or removed by structural change
+    return m_type == Type.COLUMNS_INSERTED || m_type == Type.COLUMNS_REMOVED ? m_maxColumnIndex - m_minColumnIndex + 1
+        : m_maxRowIndex - m_minRowIndex + 1;
+  }
+
+  /************************************** getMinColumnIndex **************************************/
+  public int getMinColumnIndex()
+  {
+    // return first column affected by change
+    return m_minColumnIndex;
+  }
+
+  /*************************************** getMinRowIndex ****************************************/
+  public int getMinRowIndex()
+  {
+    // return first row affected by change
+    return m_minRowIndex;
+  }
+
+  /************************************** getMaxColumnIndex **************************************/
+  public int getMaxColumnIndex()
+  {
+    // return last column affected by change (max integer if all columns)
+    return m_maxColumnIndex;
+  }
+
+  /*************************************** getMaxRowIndex ****************************************/
+  public int getMaxRowIndex()
+  {
+    // return last row affected by change (max integer if all rows)
+    return m_maxRowIndex;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[" + m_type
+        + " " + m_minColumnIndex + "," + m_minRowIndex + " to " + m_maxColumnIndex + "," + m_maxRowIndex + "]";
+  }
+
+}
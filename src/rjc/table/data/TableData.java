@@ -18,12 +18,119 @@
 
 package rjc.table.data;
 
+import rjc.table.data.formula.Formulas;
+
 /*************************************************************************************************/
 /*********************** Table data source (with default implementations) ************************/
 /*************************************************************************************************/
 
 public class TableData extends TableBase
 {
+  // body cell value types, primitive typed columns support getters & setters that avoid boxing
+  public enum ColumnType
+  {
+    OBJECT, INTEGER, LONG, DOUBLE, BOOLEAN, DATE, TIME, DATETIME
+  }
+
+  private ColumnStatistics m_statistics; // per column statistics, created when first requested
+  private Aggregates       m_aggregates; // per column aggregates, created when first requested
+  private Formulas         m_formulas;   // cell & column formulas, created when first requested
+  private Versions         m_versions;   // older cell values kept for open snapshots, created when first taken
+
+  /**************************************** getStatistics ****************************************/
+  public ColumnStatistics getStatistics()
+  {
+    // return per column statistics service, created when first requested
+    if ( m_statistics == null )
+      m_statistics = new ColumnStatistics( this );
+    return m_statistics;
+  }
+
+  /**************************************** getAggregates ****************************************/
+  public Aggregates getAggregates()
+  {
+    // return per column aggregates service, created when first requested
+    if ( m_aggregates == null )
+      m_aggregates = new Aggregates( this );
+    return m_aggregates;
+  }
+
+  /***************************************** getFormulas *****************************************/
+  public Formulas getFormulas()
+  {
+    // return cell & column formulas service, created when first requested
+    if ( m_formulas == null )
+      m_formulas = new Formulas( this );
+    return m_formulas;
+  }
+
+  /***************************************** hasFormulas *****************************************/
+  public boolean hasFormulas()
+  {
+    // return true if formulas service exists, so callers can skip creating it just to look for formulas
+    return m_formulas != null;
+  }
+
+  /****************************************** snapshot *******************************************/
+  public TableSnapshot snapshot()
+  {
+    // return consistent read-only view of data as now for background jobs while edits continue, close when done
+    // take on the thread that edits (normally FX thread), stores that do not bracket their writes (see isVersioned)
+    // are read live so their snapshots are instead marked stale by any change signalled
+    if ( m_versions == null )
+    {
+      m_versions = new Versions( this );
+      if ( !isVersioned() )
+        addListener( objects ->
+        {
+          if ( objects.length > 0 && objects[0] == Signal.TABLE_CHANGED )
+            m_versions.invalidate();
+        } );
+    }
+    return new TableSnapshot( this, m_versions );
+  }
+
+  /***************************************** isVersioned *****************************************/
+  protected boolean isVersioned()
+  {
+    // return true if store brackets every write with beginWrite or beginBulkWrite and endWrite (override if so)
+    return false;
+  }
+
+  /***************************************** beginWrite ******************************************/
+  protected void beginWrite( int columnIndex, int rowIndex )
+  {
+    // stores call before changing a cell value so open snapshots keep the old value, and endWrite after
+    beginWrite( columnIndex, rowIndex, 1 );
+  }
+
+  /***************************************** beginWrite ******************************************/
+  protected void beginWrite( int columnIndex, int firstRow, int count )
+  {
+    // stores call before changing count cell values in column so open snapshots keep the old values
+    if ( m_versions != null )
+      m_versions.beginWrite( columnIndex, firstRow, count );
+  }
+
+  /*************************************** beginBulkWrite ****************************************/
+  protected void beginBulkWrite()
+  {
+    // stores call before changes too large to keep old values for (e.g. rows inserted) marking open snapshots stale
+    if ( m_versions != null )
+    {
+      m_versions.invalidate();
+      m_versions.beginWrite();
+    }
+  }
+
+  /****************************************** endWrite *******************************************/
+  protected void endWrite()
+  {
+    // stores call after changing cell values or structure
+    if ( m_versions != null )
+      m_versions.endWrite();
+  }
+
   /****************************************** getValue *******************************************/
   public Object getValue( int columnIndex, int rowIndex )
   {
@@ -43,6 +150,19 @@ public class TableData extends TableBase
     return "{" + columnIndex + "," + rowIndex + "}";
   }
 
+  /****************************************** getValues ******************************************/
+  public void getValues( int[] columnIndexes, int[] rowIndexes, Object[][] values )
+  {
+    // populate values[column][row] for block of specified cell indexes (override to fetch in one batch)
+    for ( int column = 0; column < columnIndexes.length; column++ )
+    {
+      int columnIndex = columnIndexes[column];
+      Object[] columnValues = values[column];
+      for ( int row = 0; row < rowIndexes.length; row++ )
+        columnValues[row] = getValue( columnIndex, rowIndexes[row] );
+    }
+  }
+
   /****************************************** setValue *******************************************/
   public boolean setValue( int columnIndex, int rowIndex, Object newValue )
   {
@@ -50,4 +170,174 @@ public class TableData extends TableBase
     return false;
   }
 
+  /**************************************** getColumnType ****************************************/
+  public ColumnType getColumnType( int columnIndex )
+  {
+    // return type of body cell values in column, override with typed getters to avoid boxing
+    return ColumnType.OBJECT;
+  }
+
+  /******************************************* isNull ********************************************/
+  public boolean isNull( int columnIndex, int rowIndex )
+  {
+    // return true if cell has no value (override for typed columns to avoid boxing)
+    return getValue( columnIndex, rowIndex ) == null;
+  }
+
+  /************************************** getPopulatedCount **************************************/
+  public long getPopulatedCount()
+  {
+    // return number of body cells with a value if known cheaply (override for sparse data), otherwise -1
+    return -1L;
+  }
+
+  /*************************************** forEachPopulated **************************************/
+  public void forEachPopulated( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex,
+      ICellVisitor visitor )
+  {
+    // visit body cells with a value in index range inclusive (override for sparse data to skip empty regions)
+    for ( int columnIndex = minColumnIndex; columnIndex <= maxColumnIndex; columnIndex++ )
+      for ( int rowIndex = minRowIndex; rowIndex <= maxRowIndex; rowIndex++ )
+        if ( !isNull( columnIndex, rowIndex ) && !visitor.visit( columnIndex, rowIndex ) )
+          return;
+  }
+
+  /******************************************* getInt ********************************************/
+  public int getInt( int columnIndex, int rowIndex )
+  {
+    // return cell value as int (epoch-day for dates, day milliseconds for times), zero if null
+    Object value = getValue( columnIndex, rowIndex );
+    if ( value instanceof Number )
+      return ( (Number) value ).intValue();
+    if ( value instanceof Date )
+      return ( (Date) value ).getEpochday();
+    if ( value instanceof Time )
+      return ( (Time) value ).getDayMilliseconds();
+    if ( value instanceof Boolean )
+      return (Boolean) value ? 1 : 0;
+    if ( value == null )
+      return 0;
+
+    throw new ClassCastException( "Not integer " + value.getClass() + " " + value );
+  }
+
+  /******************************************* getLong *******************************************/
+  public long getLong( int columnIndex, int rowIndex )
+  {
+    // return cell value as long (epoch milliseconds for date-times), zero if null
+    Object value = getValue( columnIndex, rowIndex );
+    if ( value instanceof Number )
+      return ( (Number) value ).longValue();
+    if ( value instanceof DateTime )
+      return ( (DateTime) value ).getMilliseconds();
+
+    return getInt( columnIndex, rowIndex );
+  }
+
+  /****************************************** getDouble ******************************************/
+  public double getDouble( int columnIndex, int rowIndex )
+  {
+    // return cell value as double, zero if null
+    Object value = getValue( columnIndex, rowIndex );
+    if ( value instanceof Number )
+      return ( (Number) value ).doubleValue();
+
+    return getLong( columnIndex, rowIndex );
+  }
+
+  /***************************************** getBoolean ******************************************/
+  public boolean getBoolean( int columnIndex, int rowIndex )
+  {
+    // return cell value as boolean, false if null
+    Object value = getValue( columnIndex, rowIndex );
+    if ( value instanceof Boolean )
+      return (Boolean) value;
+
+    return getLong( columnIndex, rowIndex ) != 0L;
+  }
+
+  /******************************************* setInt ********************************************/
+  public boolean setInt( int columnIndex, int rowIndex, int newValue )
+  {
+    // returns true if cell value successfully set (override for typed columns to avoid boxing)
+    switch ( getColumnType( columnIndex ) )
+    {
+      case DATE:
+        return setValue( columnIndex, rowIndex, new Date( newValue ) );
+      case TIME:
+        return setValue( columnIndex, rowIndex, Time.fromMilliseconds( newValue ) );
+      case LONG:
+        return setLong( columnIndex, rowIndex, newValue );
+      case DOUBLE:
+        return setDouble( columnIndex, rowIndex, newValue );
+      case BOOLEAN:
+        return setBoolean( columnIndex, rowIndex, newValue != 0 );
+      default:
+        return setValue( columnIndex, rowIndex, newValue );
+    }
+  }
+
+  /******************************************* setLong *******************************************/
+  public boolean setLong( int columnIndex, int rowIndex, long newValue )
+  {
+    // returns true if cell value successfully set (override for typed columns to avoid boxing)
+    switch ( getColumnType( columnIndex ) )
+    {
+      case DATETIME:
+        return setValue( columnIndex, rowIndex, new DateTime( newValue ) );
+      case INTEGER:
+      case DATE:
+      case TIME:
+        return newValue == (int) newValue && setInt( columnIndex, rowIndex, (int) newValue );
+      case DOUBLE:
+        return setDouble( columnIndex, rowIndex, newValue );
+      default:
+        return setValue( columnIndex, rowIndex, newValue );
+    }
+  }
+
+  /****************************************** setDouble ******************************************/
+  public boolean setDouble( int columnIndex, int rowIndex, double newValue )
+  {
+    // returns true if cell value successfully set (override for typed columns to avoid boxing)
+    return setValue( columnIndex, rowIndex, newValue );
+  }
+
+  /***************************************** setBoolean ******************************************/
+  public boolean setBoolean( int columnIndex, int rowIndex, boolean newValue )
+  {
+    // returns true if cell value successfully set (override for typed columns to avoid boxing)
+    return setValue( columnIndex, rowIndex, newValue );
+  }
+
+  /***************************************** insertRows ******************************************/
+  public boolean insertRows( int rowIndex, int count, Object payload )
+  {
+    // returns true if rows inserted at index (override to support, firing rows-inserted change)
+    // payload is null for empty rows, or as returned by removeRows to restore the removed rows
+    return false;
+  }
+
+  /***************************************** removeRows ******************************************/
+  public Object removeRows( int rowIndex, int count )
+  {
+    // returns payload of removed rows for undo, null if not removed (override to support, firing rows-removed change)
+    return null;
+  }
+
+  /**************************************** insertColumns ****************************************/
+  public boolean insertColumns( int columnIndex, int count, Object payload )
+  {
+    // returns true if columns inserted at index (override to support, firing columns-inserted change)
+    // payload is null for empty columns, or as returned by removeColumns to restore the removed columns
+    return false;
+  }
+
+  /**************************************** removeColumns ****************************************/
+  public Object removeColumns( int columnIndex, int count )
+  {
+    // returns payload of removed columns for undo, null if not removed (override to support, firing change)
+    return null;
+  }
+
 }
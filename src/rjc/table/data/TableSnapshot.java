@@ -0,0 +1,305 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.util.Arrays;
+
+/*************************************************************************************************/
+/******* Read-only consistent view of table data as it was when taken, for background jobs *******/
+/*************************************************************************************************/
+
+public class TableSnapshot extends TableData implements AutoCloseable
+{
+  private TableData        m_data;     // live table data
+  private Versions         m_versions; // older values of cells written since taken
+  private long             m_version;  // version of table data seen
+  private volatile boolean m_stale;    // true if values read may no longer be as when taken
+  private boolean          m_listed;   // true if live data lists populated cells cheaply (sparse data)
+
+  /**************************************** constructor ******************************************/
+  TableSnapshot( TableData data, Versions versions )
+  {
+    // take snapshot of table data, only via TableData.snapshot()
+    m_data = data;
+    m_versions = versions;
+    m_version = versions.open( this );
+    m_listed = data.getPopulatedCount() >= 0;
+    setColumnCount( data.getColumnCount() );
+    setRowCount( data.getRowCount() );
+  }
+
+  /******************************************** close ********************************************/
+  @Override
+  public void close()
+  {
+    // release snapshot so older values kept for it can be reclaimed, may be called from any thread
+    m_versions.close( this );
+  }
+
+  /******************************************* isStale *******************************************/
+  public boolean isStale()
+  {
+    // return true if columns or rows were inserted or removed since taken, so values read may be inconsistent,
+    // or for stores that do not keep older values (see TableData.isVersioned) if any change was signalled
+    return m_stale;
+  }
+
+  /****************************************** setStale *******************************************/
+  void setStale()
+  {
+    // mark snapshot stale as column or row indexes are changing, or unversioned data changed
+    m_stale = true;
+  }
+
+  /****************************************** getVersion *****************************************/
+  long getVersion()
+  {
+    // return version of table data seen
+    return m_version;
+  }
+
+  /******************************************* getData *******************************************/
+  public TableData getData()
+  {
+    // return live table data
+    return m_data;
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int columnIndex, int rowIndex )
+  {
+    // return cell value as it was when taken, retrying live reads that overlapped a write
+    while ( true )
+    {
+      long stamp = m_versions.stamp();
+      try
+      {
+        Object value = m_data.getValue( columnIndex, rowIndex );
+        if ( m_versions.validate( stamp ) )
+          return m_versions.value( columnIndex, rowIndex, m_version, value );
+      }
+      catch ( RuntimeException exception )
+      {
+        retry( stamp, exception );
+      }
+    }
+  }
+
+  /**************************************** getColumnType ****************************************/
+  @Override
+  public ColumnType getColumnType( int columnIndex )
+  {
+    // return type of body cell values in column
+    return m_data.getColumnType( columnIndex );
+  }
+
+  /******************************************* isNull ********************************************/
+  @Override
+  public boolean isNull( int columnIndex, int rowIndex )
+  {
+    // return true if cell had no value when taken
+    while ( true )
+    {
+      long stamp = m_versions.stamp();
+      try
+      {
+        boolean isNull = m_data.isNull( columnIndex, rowIndex );
+        if ( m_versions.validate( stamp ) )
+          return m_versions.isWritten( columnIndex, rowIndex, m_version ) ? super.isNull( columnIndex, rowIndex )
+              : isNull;
+      }
+      catch ( RuntimeException exception )
+      {
+        retry( stamp, exception );
+      }
+    }
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int columnIndex, int rowIndex )
+  {
+    // return cell value as int as it was when taken, converted from older value if written since
+    while ( true )
+    {
+      long stamp = m_versions.stamp();
+      try
+      {
+        int value = m_data.getInt( columnIndex, rowIndex );
+        if ( m_versions.validate( stamp ) )
+          return m_versions.isWritten( columnIndex, rowIndex, m_version ) ? super.getInt( columnIndex, rowIndex )
+              : value;
+      }
+      catch ( RuntimeException exception )
+      {
+        retry( stamp, exception );
+      }
+    }
+  }
+
+  /******************************************* getLong *******************************************/
+  @Override
+  public long getLong( int columnIndex, int rowIndex )
+  {
+    // return cell value as long as it was when taken, converted from older value if written since
+    while ( true )
+    {
+      long stamp = m_versions.stamp();
+      try
+      {
+        long value = m_data.getLong( columnIndex, rowIndex );
+        if ( m_versions.validate( stamp ) )
+          return m_versions.isWritten( columnIndex, rowIndex, m_version ) ? super.getLong( columnIndex, rowIndex )
+              : value;
+      }
+      catch ( RuntimeException exception )
+      {
+        retry( stamp, exception );
+      }
+    }
+  }
+
+  /****************************************** getDouble ******************************************/
+  @Override
+  public double getDouble( int columnIndex, int rowIndex )
+  {
+    // return cell value as double as it was when taken, converted from older value if written since
+    while ( true )
+    {
+      long stamp = m_versions.stamp();
+      try
+      {
+        double value = m_data.getDouble( columnIndex, rowIndex );
+        if ( m_versions.validate( stamp ) )
+          return m_versions.isWritten( columnIndex, rowIndex, m_version ) ? super.getDouble( columnIndex, rowIndex )
+              : value;
+      }
+      catch ( RuntimeException exception )
+      {
+        retry( stamp, exception );
+      }
+    }
+  }
+
+  /***************************************** getBoolean ******************************************/
+  @Override
+  public boolean getBoolean( int columnIndex, int rowIndex )
+  {
+    // return cell value as boolean as it was when taken, converted from older value if written since
+    while ( true )
+    {
+      long stamp = m_versions.stamp();
+      try
+      {
+        boolean value = m_data.getBoolean( columnIndex, rowIndex );
+        if ( m_versions.validate( stamp ) )
+          return m_versions.isWritten( columnIndex, rowIndex, m_version ) ? super.getBoolean( columnIndex, rowIndex )
+              : value;
+      }
+      catch ( RuntimeException exception )
+      {
+        retry( stamp, exception );
+      }
+    }
+  }
+
+  /*************************************** forEachPopulated **************************************/
+  @Override
+  public void forEachPopulated( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex,
+      ICellVisitor visitor )
+  {
+    // visit cells populated when taken, if live data lists its populated cells gather them between writes
+    if ( !m_listed )
+    {
+      super.forEachPopulated( minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex, visitor );
+      return;
+    }
+
+    long[][] cells = { new long[64] };
+    int[] count = { 0 };
+    ICellVisitor gather = ( columnIndex, rowIndex ) ->
+    {
+      if ( count[0] == cells[0].length )
+        cells[0] = Arrays.copyOf( cells[0], count[0] * 2 );
+      cells[0][count[0]++] = (long) columnIndex << 32 | rowIndex & 0xFFFFFFFFL;
+      return true;
+    };
+    while ( true )
+    {
+      long stamp = m_versions.stamp();
+      count[0] = 0;
+      try
+      {
+        m_data.forEachPopulated( minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex, gather );
+        if ( m_versions.validate( stamp ) )
+          break;
+      }
+      catch ( RuntimeException exception )
+      {
+        retry( stamp, exception );
+      }
+    }
+
+    // cells written since taken may have been populated then, so add them and visit those populated as taken
+    m_versions.forEachWritten( m_version, ( columnIndex, rowIndex ) ->
+    {
+      if ( columnIndex >= minColumnIndex && columnIndex <= maxColumnIndex && rowIndex >= minRowIndex
+          && rowIndex <= maxRowIndex )
+        gather.visit( columnIndex, rowIndex );
+      return true;
+    } );
+    Arrays.sort( cells[0], 0, count[0] );
+    for ( int index = 0; index < count[0]; index++ )
+    {
+      long cell = cells[0][index];
+      if ( index > 0 && cell == cells[0][index - 1] )
+        continue;
+      int columnIndex = (int) ( cell >>> 32 );
+      int rowIndex = (int) cell;
+      if ( !isNull( columnIndex, rowIndex ) && !visitor.visit( columnIndex, rowIndex ) )
+        return;
+    }
+  }
+
+  /**************************************** forEachWritten ***************************************/
+  public void forEachWritten( ICellVisitor visitor )
+  {
+    // visit cells written since taken (so live values may differ from those read), call on thread that writes
+    m_versions.forEachWritten( m_version, visitor );
+  }
+
+  /******************************************** retry ********************************************/
+  private void retry( long stamp, RuntimeException exception )
+  {
+    // live data may throw if read part way through a write, so only rethrow if no write overlapped
+    if ( m_versions.validate( stamp ) )
+      throw exception;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[" + m_data
+        + " version=" + m_version + ( m_stale ? " stale" : "" ) + "]";
+  }
+
+}
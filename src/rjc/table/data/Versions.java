@@ -0,0 +1,245 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data;
+
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*************************************************************************************************/
+/*************** Older cell values kept for open table snapshots (version chains) ****************/
+/*************************************************************************************************/
+
+/* Each snapshot sees the table as at its version. Before a cell is first written in a version its
+ * old value is pushed onto the cell's chain, so a snapshot reads the oldest chain entry written
+ * after its version, or the live value if none. Writes (all on one thread) are bracketed by
+ * started & finished counters so readers retry any live read that overlapped a write, never seeing
+ * it part done. */
+
+class Versions
+{
+  private TableData                         m_data;      // live table data
+  private ConcurrentHashMap<Long, Version>  m_chains;    // newest first older values keyed on (column << 32 | row)
+  private ArrayList<TableSnapshot>          m_snapshots; // open snapshots, oldest first
+  private volatile long                     m_version;   // version of writes, snapshots see earlier versions
+  private volatile int                      m_open;      // number of open snapshots
+  private AtomicLong                        m_started;   // number of writes started
+  private AtomicLong                        m_finished;  // number of writes finished
+
+  // older value of a cell, as it was before first written in version
+  private static class Version
+  {
+    final long    version;
+    final Object  value;
+    final Version older;
+
+    Version( long version, Object value, Version older )
+    {
+      this.version = version;
+      this.value = value;
+      this.older = older;
+    }
+  }
+
+  /**************************************** constructor ******************************************/
+  Versions( TableData data )
+  {
+    // initialise private variables
+    m_data = data;
+    m_chains = new ConcurrentHashMap<>();
+    m_snapshots = new ArrayList<>();
+    m_started = new AtomicLong();
+    m_finished = new AtomicLong();
+  }
+
+  /********************************************* open ********************************************/
+  synchronized long open( TableSnapshot snapshot )
+  {
+    // register snapshot returning its version, writes from now are in a later version
+    m_snapshots.add( snapshot );
+    m_open = m_snapshots.size();
+    return m_version++;
+  }
+
+  /******************************************** close ********************************************/
+  synchronized void close( TableSnapshot snapshot )
+  {
+    // unregister snapshot and reclaim older values no open snapshot can read
+    if ( !m_snapshots.remove( snapshot ) )
+      return;
+
+    m_open = m_snapshots.size();
+    if ( m_snapshots.isEmpty() )
+      m_chains.clear();
+    else
+    {
+      long oldest = m_snapshots.get( 0 ).getVersion();
+      for ( Long key : m_chains.keySet() )
+        m_chains.computeIfPresent( key, ( k, chain ) -> trim( chain, oldest ) );
+    }
+  }
+
+  /********************************************* trim ********************************************/
+  private static Version trim( Version chain, long oldest )
+  {
+    // return chain without entries written at or before oldest open snapshot version, null if none left
+    if ( chain == null || chain.version <= oldest )
+      return null;
+    Version older = trim( chain.older, oldest );
+    return older == chain.older ? chain : new Version( chain.version, chain.value, older );
+  }
+
+  /****************************************** invalidate *****************************************/
+  synchronized void invalidate()
+  {
+    // mark open snapshots as stale because column or row indexes are about to change, or unversioned data changed
+    for ( TableSnapshot snapshot : m_snapshots )
+      snapshot.setStale();
+  }
+
+  /****************************************** beginWrite *****************************************/
+  void beginWrite()
+  {
+    // record write started that keeps no old values, only needed while snapshots are open to read
+    if ( m_open > 0 )
+      m_started.incrementAndGet();
+  }
+
+  /****************************************** beginWrite *****************************************/
+  void beginWrite( int columnIndex, int firstRow, int count )
+  {
+    // record write started, keeping old values of cells if not already kept in this version
+    beginWrite();
+    if ( m_open > 0 )
+      for ( int rowIndex = firstRow; rowIndex < firstRow + count; rowIndex++ )
+        keep( columnIndex, rowIndex );
+  }
+
+  /********************************************* keep ********************************************/
+  private void keep( int columnIndex, int rowIndex )
+  {
+    // push old value of cell onto its chain if not already kept in this version
+    long version = m_version;
+    Long key = key( columnIndex, rowIndex );
+    Version head = m_chains.get( key );
+    if ( head != null && head.version == version )
+      return;
+
+    Object value = m_data.getValue( columnIndex, rowIndex );
+    m_chains.compute( key, ( k, chain ) -> chain != null && chain.version == version ? chain
+        : new Version( version, value, chain ) );
+  }
+
+  /******************************************* endWrite ******************************************/
+  void endWrite()
+  {
+    // record write finished if its start was recorded (writes are on one thread so counters only lag here)
+    if ( m_finished.get() != m_started.get() )
+      m_finished.incrementAndGet();
+  }
+
+  /******************************************** stamp ********************************************/
+  long stamp()
+  {
+    // return stamp for reading live data once no write is in progress
+    while ( true )
+    {
+      long finished = m_finished.get();
+      long started = m_started.get();
+      if ( started == finished )
+        return started;
+      Thread.onSpinWait();
+    }
+  }
+
+  /******************************************* validate ******************************************/
+  boolean validate( long stamp )
+  {
+    // return true if no write started since stamp so live values read since are consistent
+    VarHandle.acquireFence();
+    return m_started.get() == stamp;
+  }
+
+  /******************************************** find *********************************************/
+  private Version find( int columnIndex, int rowIndex, long version )
+  {
+    // return oldest chain entry written after version, or null if cell not written since
+    if ( m_chains.isEmpty() )
+      return null;
+
+    Version found = null;
+    for ( Version chain = m_chains.get( key( columnIndex, rowIndex ) ); chain != null
+        && chain.version > version; chain = chain.older )
+      found = chain;
+    return found;
+  }
+
+  /****************************************** isWritten ******************************************/
+  boolean isWritten( int columnIndex, int rowIndex, long version )
+  {
+    // return true if cell has been written since version
+    return find( columnIndex, rowIndex, version ) != null;
+  }
+
+  /******************************************** value ********************************************/
+  Object value( int columnIndex, int rowIndex, long version, Object live )
+  {
+    // return cell value as at version, given value read from live data
+    Version found = find( columnIndex, rowIndex, version );
+    return found == null ? live : found.value;
+  }
+
+  /**************************************** forEachWritten ***************************************/
+  void forEachWritten( long version, ICellVisitor visitor )
+  {
+    // visit cells written since version, in no particular order
+    for ( var entry : m_chains.entrySet() )
+      if ( entry.getValue().version > version )
+      {
+        long key = entry.getKey();
+        if ( !visitor.visit( (int) ( key >>> 32 ), (int) key ) )
+          return;
+      }
+  }
+
+  /********************************************* key *********************************************/
+  private static Long key( int columnIndex, int rowIndex )
+  {
+    // return chain key for cell, header row (-1) kept distinct from body rows
+    return (long) columnIndex << 32 | rowIndex & 0xFFFFFFFFL;
+  }
+
+  /****************************************** getCount *******************************************/
+  int getCount()
+  {
+    // return number of cells with older values kept
+    return m_chains.size();
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[version="
+        + m_version + " open=" + m_open + " cells=" + m_chains.size() + "]";
+  }
+
+}
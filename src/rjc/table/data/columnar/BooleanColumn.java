@@ -0,0 +1,133 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.util.Arrays;
+
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/************************* Column of boolean values stored as a bit set **************************/
+/*************************************************************************************************/
+
+public class BooleanColumn extends ColumnBase
+{
+  private long[] m_bits = new long[0]; // bit set for rows with value true, only meaningful where not null
+
+  /**************************************** constructor ******************************************/
+  public BooleanColumn( String name )
+  {
+    // create column for BOOLEAN values
+    super( name, ColumnType.BOOLEAN );
+  }
+
+  /******************************************* resize ********************************************/
+  @Override
+  protected void resize( int capacity )
+  {
+    // resize value storage
+    m_bits = Arrays.copyOf( m_bits, ( capacity + 63 ) >>> 6 );
+  }
+
+  /******************************************** move *********************************************/
+  @Override
+  protected void move( int from, int to, int count )
+  {
+    // move count row values within storage
+    moveBits( m_bits, from, from + count, to - from );
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int row )
+  {
+    // return row value as Boolean
+    return isNull( row ) ? null : getBoolean( row );
+  }
+
+  /****************************************** setValue *******************************************/
+  @Override
+  public boolean setValue( int row, Object value )
+  {
+    // set row value if null or a boolean
+    if ( value == null )
+      setNull( row );
+    else if ( value instanceof Boolean )
+      setBoolean( row, (Boolean) value );
+    else
+      return false;
+
+    return true;
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int row )
+  {
+    // return one for true, zero for false or null
+    return getBoolean( row ) ? 1 : 0;
+  }
+
+  /***************************************** getBoolean ******************************************/
+  @Override
+  public boolean getBoolean( int row )
+  {
+    // return row value, false if null
+    int word = row >>> 6;
+    return word < m_bits.length && !isNull( row ) && ( m_bits[word] & 1L << row ) != 0L;
+  }
+
+  /******************************************* setInt ********************************************/
+  @Override
+  public boolean setInt( int row, int value )
+  {
+    // set row value true if non-zero
+    return setBoolean( row, value != 0 );
+  }
+
+  /******************************************* setLong *******************************************/
+  @Override
+  public boolean setLong( int row, long value )
+  {
+    // set row value true if non-zero
+    return setBoolean( row, value != 0L );
+  }
+
+  /***************************************** setBoolean ******************************************/
+  @Override
+  public boolean setBoolean( int row, boolean value )
+  {
+    // set row value
+    setValid( row );
+    if ( value )
+      m_bits[row >>> 6] |= 1L << row;
+    else
+      m_bits[row >>> 6] &= ~( 1L << row );
+    return true;
+  }
+
+  /****************************************** getMemory ******************************************/
+  @Override
+  public long getMemory()
+  {
+    // return approximate bytes used by column storage
+    return super.getMemory() + 8L * m_bits.length;
+  }
+
+}
@@ -0,0 +1,270 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/************* Base class for a growable typed column with a null (validity) bitmap **************/
+/*************************************************************************************************/
+
+public abstract class ColumnBase
+{
+  private String           m_name;                      // column name shown in header
+  private ColumnType       m_type;                      // type of values stored
+  private long[]           m_valid        = new long[0]; // bit set for rows that have a non-null value
+  private int              m_capacity;                  // number of rows storage allocated for
+
+  final static private int MIN_CAPACITY = 64;
+
+  /**************************************** constructor ******************************************/
+  protected ColumnBase( String name, ColumnType type )
+  {
+    // initialise private variables
+    m_name = name;
+    m_type = type;
+  }
+
+  /******************************************* getName *******************************************/
+  public String getName()
+  {
+    // return column name
+    return m_name;
+  }
+
+  /******************************************* setName *******************************************/
+  public void setName( String name )
+  {
+    // set column name
+    m_name = name;
+  }
+
+  /******************************************* getType *******************************************/
+  public ColumnType getType()
+  {
+    // return type of values stored in column
+    return m_type;
+  }
+
+  /***************************************** getCapacity *****************************************/
+  public int getCapacity()
+  {
+    // return number of rows storage currently allocated for
+    return m_capacity;
+  }
+
+  /*************************************** ensureCapacity ****************************************/
+  public void ensureCapacity( int rows )
+  {
+    // grow storage by at least half again so appending rows is amortised constant time
+    if ( rows > m_capacity )
+    {
+      int capacity = (int) Math.min( Integer.MAX_VALUE - 8L,
+          Math.max( rows, Math.max( MIN_CAPACITY, m_capacity + ( m_capacity >> 1 ) ) ) );
+      resize( capacity );
+      m_valid = Arrays.copyOf( m_valid, ( capacity + 63 ) >>> 6 );
+      m_capacity = capacity;
+    }
+  }
+
+  /******************************************* isNull ********************************************/
+  public boolean isNull( int row )
+  {
+    // return true if row has no value (rows beyond capacity are null)
+    int word = row >>> 6;
+    return word >= m_valid.length || ( m_valid[word] & 1L << row ) == 0L;
+  }
+
+  /******************************************* setNull *******************************************/
+  public void setNull( int row )
+  {
+    // set row to have no value
+    if ( row < m_capacity )
+      m_valid[row >>> 6] &= ~( 1L << row );
+  }
+
+  /****************************************** setValid *******************************************/
+  protected void setValid( int row )
+  {
+    // mark row as having a value, growing storage if needed
+    ensureCapacity( row + 1 );
+    m_valid[row >>> 6] |= 1L << row;
+  }
+
+  /**************************************** setValidRange ****************************************/
+  protected void setValidRange( int firstRow, int count )
+  {
+    // mark rows as having values, growing storage if needed
+    ensureCapacity( firstRow + count );
+    for ( int row = firstRow; row < firstRow + count; row++ )
+      m_valid[row >>> 6] |= 1L << row;
+  }
+
+  /***************************************** insertRows ******************************************/
+  public void insertRows( int row, int count, int rowCount )
+  {
+    // shift rows at or after row up by count leaving inserted rows null, row-count is before insert
+    int end = Math.min( rowCount, m_capacity );
+    if ( row >= end )
+      return;
+
+    ensureCapacity( end + count );
+    move( row, row + count, end - row );
+    moveBits( m_valid, row, end, count );
+  }
+
+  /***************************************** removeRows ******************************************/
+  public void removeRows( int row, int count, int rowCount )
+  {
+    // shift rows after removed rows down by count, row-count is before removal
+    int end = Math.min( rowCount, m_capacity );
+    if ( row >= end )
+      return;
+
+    if ( row + count < end )
+    {
+      move( row + count, row, end - row - count );
+      moveBits( m_valid, row + count, end, -count );
+    }
+    else
+      for ( int removed = row; removed < end; removed++ )
+        setNull( removed );
+  }
+
+  /****************************************** moveBits *******************************************/
+  protected static void moveBits( long[] words, int from, int to, int delta )
+  {
+    // move bits from (inclusive) to (exclusive) by delta, clearing bits vacated, word at a time
+    BitSet bits = BitSet.valueOf( words );
+    long[] moved = bits.get( from, to ).toLongArray();
+    bits.clear( Math.min( from, from + delta ), Math.max( to, to + delta ) );
+    long[] cleared = bits.toLongArray();
+    System.arraycopy( cleared, 0, words, 0, cleared.length );
+    Arrays.fill( words, cleared.length, words.length, 0L );
+
+    for ( int index = 0; index < moved.length; index++ )
+    {
+      int bit = from + delta + ( index << 6 );
+      int word = bit >>> 6;
+      int shift = bit & 63;
+      words[word] |= moved[index] << shift;
+      if ( shift != 0 && word + 1 < words.length )
+        words[word + 1] |= moved[index] >>> ( 64 - shift );
+    }
+  }
+
+  /***************************************** getNullCount ****************************************/
+  public int getNullCount( int rowCount )
+  {
+    // return number of null rows in first row-count rows
+    int valid = 0;
+    int words = Math.min( rowCount >>> 6, m_valid.length );
+    for ( int word = 0; word < words; word++ )
+      valid += Long.bitCount( m_valid[word] );
+    for ( int row = words << 6; row < rowCount; row++ )
+      if ( !isNull( row ) )
+        valid++;
+
+    return rowCount - valid;
+  }
+
+  /****************************************** getMemory ******************************************/
+  public long getMemory()
+  {
+    // return approximate bytes used by column storage
+    return 8L * m_valid.length;
+  }
+
+  /******************************************* resize ********************************************/
+  protected abstract void resize( int capacity );
+
+  /******************************************** move *********************************************/
+  protected abstract void move( int from, int to, int count );
+
+  /****************************************** getValue *******************************************/
+  public abstract Object getValue( int row );
+
+  /****************************************** setValue *******************************************/
+  public abstract boolean setValue( int row, Object value );
+
+  /******************************************* getInt ********************************************/
+  public abstract int getInt( int row );
+
+  /******************************************* getLong *******************************************/
+  public long getLong( int row )
+  {
+    // return row value as long - by default widened from int
+    return getInt( row );
+  }
+
+  /****************************************** getDouble ******************************************/
+  public double getDouble( int row )
+  {
+    // return row value as double - by default widened from long
+    return getLong( row );
+  }
+
+  /***************************************** getBoolean ******************************************/
+  public boolean getBoolean( int row )
+  {
+    // return row value as boolean - by default non-zero long
+    return getLong( row ) != 0L;
+  }
+
+  /******************************************* setInt ********************************************/
+  public boolean setInt( int row, int value )
+  {
+    // set row value from int - by default boxed through setValue
+    return setValue( row, value );
+  }
+
+  /******************************************* setLong *******************************************/
+  public boolean setLong( int row, long value )
+  {
+    // set row value from long - by default boxed through setValue
+    return setValue( row, value );
+  }
+
+  /****************************************** setDouble ******************************************/
+  public boolean setDouble( int row, double value )
+  {
+    // set row value from double - by default boxed through setValue
+    return setValue( row, value );
+  }
+
+  /***************************************** setBoolean ******************************************/
+  public boolean setBoolean( int row, boolean value )
+  {
+    // set row value from boolean - by default boxed through setValue
+    return setValue( row, value );
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[" + m_name
+        + " " + m_type + " capacity=" + m_capacity + "]";
+  }
+
+}
@@ -0,0 +1,560 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import rjc.table.data.TableChange;
+import rjc.table.data.TableData;
+
+/*************************************************************************************************/
+/**************** Table data source storing each column as typed primitive arrays ****************/
+/*************************************************************************************************/
+
+public class ColumnarData extends TableData
+{
+  private ArrayList<ColumnBase> m_columns = new ArrayList<>(); // table columns in index order
+
+  /**************************************** constructor ******************************************/
+  public ColumnarData()
+  {
+    // start with empty table, columns and rows added by caller
+    setColumnCount( 0 );
+    setRowCount( 0 );
+  }
+
+  /**************************************** createColumn *****************************************/
+  public static ColumnBase createColumn( String name, ColumnType type )
+  {
+    // return new empty column able to store values of specified type
+    switch ( type )
+    {
+      case INTEGER:
+      case DATE:
+      case TIME:
+        return new IntColumn( name, type );
+      case LONG:
+      case DATETIME:
+        return new LongColumn( name, type );
+      case DOUBLE:
+        return new DoubleColumn( name );
+      case BOOLEAN:
+        return new BooleanColumn( name );
+      case OBJECT:
+        return new DictionaryColumn( name );
+      default:
+        throw new IllegalArgumentException( "Type=" + type );
+    }
+  }
+
+  /****************************************** addColumn ******************************************/
+  public ColumnBase addColumn( String name, ColumnType type )
+  {
+    // add new column after existing columns
+    return insertColumn( m_columns.size(), name, type );
+  }
+
+  /****************************************** addColumn ******************************************/
+  public ColumnBase addColumn( ColumnBase column )
+  {
+    // add existing column after existing columns
+    return insertColumn( m_columns.size(), column );
+  }
+
+  /**************************************** insertColumn *****************************************/
+  public ColumnBase insertColumn( int columnIndex, String name, ColumnType type )
+  {
+    // insert new column at specified index, later columns move one index up
+    return insertColumn( columnIndex, createColumn( name, type ) );
+  }
+
+  /**************************************** insertColumn *****************************************/
+  public ColumnBase insertColumn( int columnIndex, ColumnBase column )
+  {
+    // insert existing column at specified index, later columns move one index up
+    if ( columnIndex < 0 || columnIndex > m_columns.size() )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " count=" + m_columns.size() );
+
+    beginBulkWrite();
+    m_columns.add( columnIndex, column );
+    endWrite();
+    fireChange( TableChange.columnsInserted( columnIndex, 1 ) );
+    return column;
+  }
+
+  /**************************************** removeColumn *****************************************/
+  public ColumnBase removeColumn( int columnIndex )
+  {
+    // remove column at specified index, later columns move one index down
+    beginBulkWrite();
+    ColumnBase column = m_columns.remove( columnIndex );
+    endWrite();
+    fireChange( TableChange.columnsRemoved( columnIndex, 1 ) );
+    return column;
+  }
+
+  /****************************************** getColumn ******************************************/
+  public ColumnBase getColumn( int columnIndex )
+  {
+    // return column at specified index
+    return m_columns.get( columnIndex );
+  }
+
+  /****************************************** addRows ********************************************/
+  public void addRows( int count )
+  {
+    // increase row count, new rows are null until set (storage grows lazily when values set)
+    if ( count < 0 || (long) getRowCount() + count > Integer.MAX_VALUE - 8 )
+      throw new IllegalArgumentException( "Count=" + count + " rows=" + getRowCount() );
+    if ( count > 0 )
+      fireChange( TableChange.rowsInserted( getRowCount(), count ) );
+  }
+
+  /***************************************** appendRows ******************************************/
+  void appendRows( ColumnBase[] columns, ParsedChunk parsed, int firstRow )
+  {
+    // append parsed rows to columns beyond row count on FX thread, keeping no old values as rows not yet
+    // visible, but bracketed so snapshot reads overlapping column storage growth retry
+    try
+    {
+      beginWrite( 0, firstRow, 0 );
+      parsed.appendTo( columns, firstRow );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /***************************************** insertRows ******************************************/
+  @Override
+  public boolean insertRows( int rowIndex, int count, Object payload )
+  {
+    // insert rows shifting later rows up in every column, restoring values if payload from removeRows
+    int rowCount = getRowCount();
+    if ( rowIndex < 0 || rowIndex > rowCount || count < 1 || (long) rowCount + count > Integer.MAX_VALUE - 8 )
+      throw new IndexOutOfBoundsException( "Row index=" + rowIndex + " count=" + count + " rows=" + rowCount );
+
+    try
+    {
+      beginBulkWrite();
+      for ( ColumnBase column : m_columns )
+        column.insertRows( rowIndex, count, rowCount );
+
+      if ( payload instanceof Object[][] )
+      {
+        Object[][] values = (Object[][]) payload;
+        for ( int columnIndex = 0; columnIndex < values.length && columnIndex < m_columns.size(); columnIndex++ )
+          for ( int row = 0; row < count && row < values[columnIndex].length; row++ )
+            if ( values[columnIndex][row] != null )
+              m_columns.get( columnIndex ).setValue( rowIndex + row, values[columnIndex][row] );
+      }
+    }
+    finally
+    {
+      endWrite();
+    }
+
+    fireChange( TableChange.rowsInserted( rowIndex, count ) );
+    return true;
+  }
+
+  /***************************************** removeRows ******************************************/
+  @Override
+  public Object removeRows( int rowIndex, int count )
+  {
+    // remove rows shifting later rows down in every column, returning removed values [column][row]
+    checkRows( rowIndex, count );
+    if ( count < 1 )
+      throw new IndexOutOfBoundsException( "Row index=" + rowIndex + " count=" + count );
+
+    int rowCount = getRowCount();
+    Object[][] values = new Object[m_columns.size()][count];
+    try
+    {
+      beginBulkWrite();
+      for ( int columnIndex = 0; columnIndex < values.length; columnIndex++ )
+      {
+        ColumnBase column = m_columns.get( columnIndex );
+        for ( int row = 0; row < count; row++ )
+          values[columnIndex][row] = column.getValue( rowIndex + row );
+        column.removeRows( rowIndex, count, rowCount );
+      }
+    }
+    finally
+    {
+      endWrite();
+    }
+
+    fireChange( TableChange.rowsRemoved( rowIndex, count ) );
+    return values;
+  }
+
+  /**************************************** insertColumns ****************************************/
+  @Override
+  public boolean insertColumns( int columnIndex, int count, Object payload )
+  {
+    // insert columns removed earlier if payload from removeColumns, otherwise new empty object columns
+    if ( columnIndex < 0 || columnIndex > m_columns.size() || count < 1 )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " count=" + count );
+
+    ColumnBase[] columns = payload instanceof ColumnBase[] ? (ColumnBase[]) payload : new ColumnBase[count];
+    if ( columns.length != count )
+      throw new IllegalArgumentException( "Payload columns=" + columns.length + " count=" + count );
+    for ( int offset = 0; offset < count; offset++ )
+      if ( columns[offset] == null )
+        columns[offset] = createColumn( "New", ColumnType.OBJECT );
+
+    beginBulkWrite();
+    m_columns.addAll( columnIndex, Arrays.asList( columns ) );
+    endWrite();
+    fireChange( TableChange.columnsInserted( columnIndex, count ) );
+    return true;
+  }
+
+  /**************************************** removeColumns ****************************************/
+  @Override
+  public Object removeColumns( int columnIndex, int count )
+  {
+    // remove columns returning them for undo
+    if ( columnIndex < 0 || count < 1 || columnIndex + count > m_columns.size() )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " count=" + count );
+
+    var removed = m_columns.subList( columnIndex, columnIndex + count );
+    ColumnBase[] columns = removed.toArray( new ColumnBase[count] );
+    beginBulkWrite();
+    removed.clear();
+    endWrite();
+    fireChange( TableChange.columnsRemoved( columnIndex, count ) );
+    return columns;
+  }
+
+  /***************************************** isVersioned *****************************************/
+  @Override
+  protected boolean isVersioned()
+  {
+    // return true as every write is bracketed so open snapshots keep older values
+    return true;
+  }
+
+  /****************************************** getMemory ******************************************/
+  public long getMemory()
+  {
+    // return approximate bytes used by column storage
+    long bytes = 0L;
+    for ( ColumnBase column : m_columns )
+      bytes += column.getMemory();
+    return bytes;
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int columnIndex, int rowIndex )
+  {
+    // return header corner cell value
+    if ( columnIndex == HEADER && rowIndex == HEADER )
+      return null;
+
+    // return row value for specified row index
+    if ( columnIndex == HEADER )
+      return String.valueOf( rowIndex + 1 );
+
+    // return column value for specified column index
+    if ( rowIndex == HEADER )
+      return m_columns.get( columnIndex ).getName();
+
+    // return cell value for specified cell index
+    return m_columns.get( columnIndex ).getValue( rowIndex );
+  }
+
+  /****************************************** getValues ******************************************/
+  @Override
+  public void getValues( int[] columnIndexes, int[] rowIndexes, Object[][] values )
+  {
+    // populate values[column][row] looking up each column only once
+    for ( int column = 0; column < columnIndexes.length; column++ )
+    {
+      int columnIndex = columnIndexes[column];
+      Object[] columnValues = values[column];
+      if ( columnIndex == HEADER )
+        for ( int row = 0; row < rowIndexes.length; row++ )
+          columnValues[row] = getValue( HEADER, rowIndexes[row] );
+      else
+      {
+        ColumnBase data = m_columns.get( columnIndex );
+        for ( int row = 0; row < rowIndexes.length; row++ )
+          columnValues[row] = rowIndexes[row] == HEADER ? data.getName() : data.getValue( rowIndexes[row] );
+      }
+    }
+  }
+
+  /****************************************** setValue *******************************************/
+  @Override
+  public boolean setValue( int columnIndex, int rowIndex, Object newValue )
+  {
+    // set column name if header, otherwise cell value
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      if ( rowIndex == HEADER )
+      {
+        m_columns.get( columnIndex ).setName( newValue == null ? null : newValue.toString() );
+        return true;
+      }
+      return isRowIndexValid( rowIndex ) && m_columns.get( columnIndex ).setValue( rowIndex, newValue );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /**************************************** getColumnType ****************************************/
+  @Override
+  public ColumnType getColumnType( int columnIndex )
+  {
+    // return type of body cell values in column
+    return m_columns.get( columnIndex ).getType();
+  }
+
+  /******************************************* isNull ********************************************/
+  @Override
+  public boolean isNull( int columnIndex, int rowIndex )
+  {
+    // return true if cell has no value
+    return m_columns.get( columnIndex ).isNull( rowIndex );
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int columnIndex, int rowIndex )
+  {
+    // return cell value as int, zero if null
+    return m_columns.get( columnIndex ).getInt( rowIndex );
+  }
+
+  /******************************************* getLong *******************************************/
+  @Override
+  public long getLong( int columnIndex, int rowIndex )
+  {
+    // return cell value as long, zero if null
+    return m_columns.get( columnIndex ).getLong( rowIndex );
+  }
+
+  /****************************************** getDouble ******************************************/
+  @Override
+  public double getDouble( int columnIndex, int rowIndex )
+  {
+    // return cell value as double, zero if null
+    return m_columns.get( columnIndex ).getDouble( rowIndex );
+  }
+
+  /***************************************** getBoolean ******************************************/
+  @Override
+  public boolean getBoolean( int columnIndex, int rowIndex )
+  {
+    // return cell value as boolean, false if null
+    return m_columns.get( columnIndex ).getBoolean( rowIndex );
+  }
+
+  /******************************************* setInt ********************************************/
+  @Override
+  public boolean setInt( int columnIndex, int rowIndex, int newValue )
+  {
+    // returns true if cell value successfully set
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      return isRowIndexValid( rowIndex ) && m_columns.get( columnIndex ).setInt( rowIndex, newValue );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /******************************************* setLong *******************************************/
+  @Override
+  public boolean setLong( int columnIndex, int rowIndex, long newValue )
+  {
+    // returns true if cell value successfully set
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      return isRowIndexValid( rowIndex ) && m_columns.get( columnIndex ).setLong( rowIndex, newValue );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /****************************************** setDouble ******************************************/
+  @Override
+  public boolean setDouble( int columnIndex, int rowIndex, double newValue )
+  {
+    // returns true if cell value successfully set
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      return isRowIndexValid( rowIndex ) && m_columns.get( columnIndex ).setDouble( rowIndex, newValue );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /***************************************** setBoolean ******************************************/
+  @Override
+  public boolean setBoolean( int columnIndex, int rowIndex, boolean newValue )
+  {
+    // returns true if cell value successfully set
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      return isRowIndexValid( rowIndex ) && m_columns.get( columnIndex ).setBoolean( rowIndex, newValue );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /******************************************* getInts *******************************************/
+  public void getInts( int columnIndex, int firstRow, int[] values, int count )
+  {
+    // copy count cell values from column starting at first row into array (nulls as zero)
+    checkRows( firstRow, count );
+    ColumnBase column = m_columns.get( columnIndex );
+    if ( column instanceof IntColumn )
+      ( (IntColumn) column ).getInts( firstRow, values, count );
+    else
+      for ( int offset = 0; offset < count; offset++ )
+        values[offset] = column.getInt( firstRow + offset );
+  }
+
+  /******************************************* setInts *******************************************/
+  public void setInts( int columnIndex, int firstRow, int[] values, int count )
+  {
+    // set count cell values in column starting at first row from array
+    checkRows( firstRow, count );
+    try
+    {
+      beginWrite( columnIndex, firstRow, count );
+      ColumnBase column = m_columns.get( columnIndex );
+      if ( column instanceof IntColumn )
+        ( (IntColumn) column ).setInts( firstRow, values, count );
+      else
+        for ( int offset = 0; offset < count; offset++ )
+          column.setInt( firstRow + offset, values[offset] );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /****************************************** getLongs *******************************************/
+  public void getLongs( int columnIndex, int firstRow, long[] values, int count )
+  {
+    // copy count cell values from column starting at first row into array (nulls as zero)
+    checkRows( firstRow, count );
+    ColumnBase column = m_columns.get( columnIndex );
+    if ( column instanceof LongColumn )
+      ( (LongColumn) column ).getLongs( firstRow, values, count );
+    else
+      for ( int offset = 0; offset < count; offset++ )
+        values[offset] = column.getLong( firstRow + offset );
+  }
+
+  /****************************************** setLongs *******************************************/
+  public void setLongs( int columnIndex, int firstRow, long[] values, int count )
+  {
+    // set count cell values in column starting at first row from array
+    checkRows( firstRow, count );
+    try
+    {
+      beginWrite( columnIndex, firstRow, count );
+      ColumnBase column = m_columns.get( columnIndex );
+      if ( column instanceof LongColumn )
+        ( (LongColumn) column ).setLongs( firstRow, values, count );
+      else
+        for ( int offset = 0; offset < count; offset++ )
+          column.setLong( firstRow + offset, values[offset] );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /***************************************** getDoubles ******************************************/
+  public void getDoubles( int columnIndex, int firstRow, double[] values, int count )
+  {
+    // copy count cell values from column starting at first row into array (nulls as zero)
+    checkRows( firstRow, count );
+    ColumnBase column = m_columns.get( columnIndex );
+    if ( column instanceof DoubleColumn )
+      ( (DoubleColumn) column ).getDoubles( firstRow, values, count );
+    else
+      for ( int offset = 0; offset < count; offset++ )
+        values[offset] = column.getDouble( firstRow + offset );
+  }
+
+  /***************************************** setDoubles ******************************************/
+  public void setDoubles( int columnIndex, int firstRow, double[] values, int count )
+  {
+    // set count cell values in column starting at first row from array
+    checkRows( firstRow, count );
+    try
+    {
+      beginWrite( columnIndex, firstRow, count );
+      ColumnBase column = m_columns.get( columnIndex );
+      if ( column instanceof DoubleColumn )
+        ( (DoubleColumn) column ).setDoubles( firstRow, values, count );
+      else
+        for ( int offset = 0; offset < count; offset++ )
+          column.setDouble( firstRow + offset, values[offset] );
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /****************************************** checkRows ******************************************/
+  private void checkRows( int firstRow, int count )
+  {
+    // throw exception if row range not within table
+    if ( firstRow < 0 || count < 0 || (long) firstRow + count > getRowCount() )
+      throw new IndexOutOfBoundsException( "First row=" + firstRow + " count=" + count + " rows=" + getRowCount() );
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[columns="
+        + m_columns + " rows=" + getRowCount() + "]";
+  }
+
+}
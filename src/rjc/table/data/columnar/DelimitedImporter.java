@@ -0,0 +1,296 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Semaphore;
+
+import javafx.application.Platform;
+import rjc.table.Status;
+import rjc.table.Status.Level;
+import rjc.table.data.TableChange;
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/******* Thread for loading a CSV/TSV file into columnar data, parsing chunks in parallel ********/
+/*************************************************************************************************/
+
+public class DelimitedImporter extends Thread
+{
+  private Path                 m_path;      // file being loaded
+  private ColumnarData         m_data;      // data being loaded into
+  private Status               m_status;    // status for progress and result
+  private byte                 m_delimiter; // field delimiter
+  private boolean              m_header;    // true if first line holds column names
+  private ColumnBase[]         m_columns;   // columns being loaded
+  private ColumnType[]         m_types;     // inferred column types
+  private int                  m_rows;      // rows parsed and queued for appending to columns
+  private int                  m_published; // rows published to views
+  private int                  m_errors;    // values not matching column type, loaded as null
+  private Semaphore            m_appending; // limits parsed chunks queued for appending on FX thread
+
+  final static private int     CHUNK_SIZE   = 1 << 23;                // 8MB
+  final static private int     SAMPLE_ROWS  = 1000;                   // rows sampled for type inference
+  final static private long    UPDATE_NANOS = 1000L * 1000L * 100L;   // 0.1 seconds
+
+  // column types tried in order when inferring, first that parses every sampled value is used
+  final static private ColumnType[] INFER_ORDER = { ColumnType.BOOLEAN, ColumnType.INTEGER, ColumnType.LONG,
+      ColumnType.DOUBLE, ColumnType.DATE, ColumnType.TIME, ColumnType.DATETIME };
+
+  /**************************************** constructor ******************************************/
+  public DelimitedImporter( Path path, ColumnarData data, Status status )
+  {
+    // create importer for file, delimiter is tab for .tsv & .tab files otherwise comma
+    this( path, data, status, path.toString().toLowerCase().matches( ".*\\.(tsv|tab)" ) ? '\t' : ',', true );
+  }
+
+  /**************************************** constructor ******************************************/
+  public DelimitedImporter( Path path, ColumnarData data, Status status, char delimiter, boolean header )
+  {
+    // create importer for file into empty columnar data
+    if ( data.getColumnCount() != 0 )
+      throw new IllegalArgumentException( "Data not empty " + data );
+    if ( delimiter > 127 || delimiter == '"' || delimiter == '\n' || delimiter == '\r' )
+      throw new IllegalArgumentException( "Delimiter=" + (int) delimiter );
+
+    m_path = path;
+    m_data = data;
+    m_status = status;
+    m_delimiter = (byte) delimiter;
+    m_header = header;
+    m_appending = new Semaphore( 2 );
+    setName( "DelimitedImporter " + path.getFileName() );
+    setDaemon( true );
+  }
+
+  /********************************************* run *********************************************/
+  @Override
+  public void run()
+  {
+    // stream file in chunks split at line boundaries, parsing up to two chunks per core ahead of appending
+    m_status.update( Level.NORMAL, "Loading " + m_path.getFileName() + " ..." );
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    ArrayDeque<ForkJoinTask<ParsedChunk>> parsing = new ArrayDeque<>();
+    int maxParsing = 2 * pool.getParallelism();
+
+    try (FileChannel channel = FileChannel.open( m_path, StandardOpenOption.READ ))
+    {
+      long size = channel.size();
+      long read = 0L;
+      long updateNanos = System.nanoTime() + UPDATE_NANOS;
+      byte[] carry = new byte[0];
+      boolean eof = false;
+
+      while ( !eof )
+      {
+        // read next chunk following any incomplete line carried from previous chunk
+        byte[] chunk = Arrays.copyOf( carry, carry.length + CHUNK_SIZE );
+        ByteBuffer buffer = ByteBuffer.wrap( chunk, carry.length, CHUNK_SIZE );
+        while ( buffer.hasRemaining() && !eof )
+        {
+          int count = channel.read( buffer );
+          eof = count < 0;
+          read += Math.max( count, 0 );
+        }
+        int length = buffer.position();
+        int end = eof ? length : DelimitedTokenizer.lastLineEnd( chunk, length, m_delimiter );
+        carry = Arrays.copyOfRange( chunk, end, length );
+        if ( end == 0 && !eof )
+          continue;
+
+        // first chunk determines columns, then parse on fork-join pool
+        int start = m_columns == null ? createColumns( chunk, end ) : 0;
+        if ( end > start )
+          parsing.add( pool.submit( () -> parse( chunk, start, end ) ) );
+
+        // append parsed chunks in file order
+        while ( !parsing.isEmpty() && ( parsing.size() >= maxParsing || eof || parsing.peek().isDone() ) )
+          append( parsing.remove().join() );
+
+        // check if thread interrupted
+        if ( isInterrupted() )
+        {
+          parsing.forEach( task -> task.cancel( true ) );
+          publish();
+          m_status.update( Level.NORMAL, "Load cancelled after " + m_rows + " rows" );
+          return;
+        }
+
+        // periodically show loaded rows and update status
+        if ( System.nanoTime() > updateNanos || eof )
+        {
+          publish();
+          m_status.update( Level.NORMAL,
+              "Loading " + ( size == 0L ? 100L : 100L * read / size ) + "% (" + m_rows + " rows)" );
+          updateNanos = System.nanoTime() + UPDATE_NANOS;
+        }
+      }
+
+      if ( m_errors > 0 )
+        m_status.update( Level.WARNING, "Loaded " + m_rows + " rows, " + m_errors + " values not recognised" );
+      else
+        m_status.update( Level.NORMAL, "Loaded " + m_rows + " rows" );
+    }
+    catch ( IOException | IllegalStateException exception )
+    {
+      parsing.forEach( task -> task.cancel( true ) );
+      publish();
+      m_status.update( Level.ERROR, "Load failed after " + m_rows + " rows : " + exception.getMessage() );
+    }
+  }
+
+  /**************************************** createColumns ****************************************/
+  private int createColumns( byte[] chunk, int end )
+  {
+    // read column names from first line and infer column types from sample of following lines
+    var tokenizer = new DelimitedTokenizer( chunk, 0, end, m_delimiter );
+    var names = new ArrayList<String>();
+    while ( tokenizer.hasMore() && names.isEmpty() )
+      do
+      {
+        tokenizer.next();
+        names.add( new String( tokenizer.getField(), tokenizer.getFieldStart(),
+            tokenizer.getFieldEnd() - tokenizer.getFieldStart(), StandardCharsets.UTF_8 ) );
+      }
+      while ( !tokenizer.isLineEnd() );
+    int dataStart = m_header ? tokenizer.getPosition() : 0;
+
+    // start with every type as candidate, remove types that fail to parse sampled values
+    int columnCount = names.size();
+    int[] candidates = new int[columnCount];
+    boolean[] sampled = new boolean[columnCount];
+    Arrays.fill( candidates, ( 1 << INFER_ORDER.length ) - 1 );
+    var probe = new ParsedChunk( new ColumnType[0], 0 );
+    tokenizer = new DelimitedTokenizer( chunk, dataStart, end, m_delimiter );
+    for ( int row = 0; row < SAMPLE_ROWS && tokenizer.hasMore(); row++ )
+    {
+      int column = 0;
+      do
+      {
+        tokenizer.next();
+        int start = tokenizer.getFieldStart();
+        int fieldEnd = tokenizer.getFieldEnd();
+        if ( column < columnCount && fieldEnd > start )
+        {
+          sampled[column] = true;
+          for ( int type = 0; type < INFER_ORDER.length; type++ )
+            if ( ( candidates[column] & 1 << type ) != 0
+                && !probe.parse( INFER_ORDER[type], tokenizer.getField(), start, fieldEnd ) )
+              candidates[column] &= ~( 1 << type );
+        }
+        column++;
+      }
+      while ( !tokenizer.isLineEnd() );
+    }
+
+    // create columns and add them to data on the FX thread
+    m_columns = new ColumnBase[columnCount];
+    m_types = new ColumnType[columnCount];
+    for ( int column = 0; column < columnCount; column++ )
+    {
+      int candidate = Integer.numberOfTrailingZeros( candidates[column] );
+      m_types[column] = sampled[column] && candidate < INFER_ORDER.length ? INFER_ORDER[candidate] : ColumnType.OBJECT;
+      m_columns[column] = ColumnarData.createColumn( m_header ? names.get( column ) : "Column " + ( column + 1 ),
+          m_types[column] );
+    }
+    ColumnBase[] columns = m_columns;
+    Platform.runLater( () ->
+    {
+      for ( ColumnBase column : columns )
+        m_data.addColumn( column );
+    } );
+
+    return dataStart;
+  }
+
+  /******************************************** parse ********************************************/
+  private ParsedChunk parse( byte[] chunk, int start, int end )
+  {
+    // parse lines of chunk into typed arrays, run in parallel on fork-join pool
+    int columnCount = m_types.length;
+    var parsed = new ParsedChunk( m_types, ( end - start ) / Math.max( 8, 4 * columnCount ) );
+    var tokenizer = new DelimitedTokenizer( chunk, start, end, m_delimiter );
+    while ( tokenizer.hasMore() )
+    {
+      int row = parsed.addRow();
+      int column = 0;
+      do
+      {
+        tokenizer.next();
+        if ( column < columnCount )
+          parsed.store( column, row, tokenizer.getField(), tokenizer.getFieldStart(), tokenizer.getFieldEnd() );
+        column++;
+      }
+      while ( !tokenizer.isLineEnd() );
+
+      // missing trailing fields are null
+      for ( ; column < columnCount; column++ )
+        parsed.store( column, row, chunk, 0, 0 );
+    }
+    return parsed;
+  }
+
+  /******************************************* append ********************************************/
+  private void append( ParsedChunk parsed )
+  {
+    // queue parsed rows for appending to columns on the FX thread, as columns are already in the data and read
+    // there, waiting if FX thread is behind, rows only become visible to views when published
+    if ( (long) m_rows + parsed.getRows() > Integer.MAX_VALUE - 8 )
+      throw new IllegalStateException( "Too many rows" );
+
+    int firstRow = m_rows;
+    m_rows += parsed.getRows();
+    m_errors += parsed.getErrors();
+    m_appending.acquireUninterruptibly();
+    Platform.runLater( () ->
+    {
+      try
+      {
+        m_data.appendRows( m_columns, parsed, firstRow );
+      }
+      finally
+      {
+        m_appending.release();
+      }
+    } );
+  }
+
+  /******************************************* publish *******************************************/
+  private void publish()
+  {
+    // show rows loaded so far to views as an insertion after they are appended, so views update incrementally
+    if ( m_rows > m_published )
+    {
+      TableChange change = TableChange.rowsInserted( m_published, m_rows - m_published );
+      Platform.runLater( () -> m_data.fireChange( change ) );
+    }
+    m_published = m_rows;
+  }
+
+}
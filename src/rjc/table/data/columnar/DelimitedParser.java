@@ -0,0 +1,106 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+package rjc.table.data.columnar;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/******* Parses delimited text (e.g. pasted from a spreadsheet) into block of cell values ********/
+/*************************************************************************************************/
+
+public class DelimitedParser
+{
+  /******************************************** parse ********************************************/
+  public static Object[][] parse( byte[] bytes, char delimiter, ColumnType[] types, int maxRows,
+      BooleanSupplier cancelled, LongAdder progress )
+  {
+    // return values[column][row] for up to types-length columns & max-rows rows parsed in a single pass,
+    // fields parse as column type where possible otherwise kept as text, empty fields are null
+    if ( delimiter > 127 || delimiter == '"' || delimiter == '\n' || delimiter == '\r' )
+      throw new IllegalArgumentException( "Delimiter=" + (int) delimiter );
+
+    var tokenizer = new DelimitedTokenizer( bytes, 0, bytes.length, (byte) delimiter );
+    var probe = new ParsedChunk( new ColumnType[0], 0 );
+    var values = new Object[types.length][];
+    int columns = 0;
+    int rows = 0;
+    int capacity = 0;
+
+    // blank lines are kept as rows of empty fields so parsed rows stay aligned with lines of text
+    while ( tokenizer.hasMore( false ) && rows < maxRows )
+    {
+      // abandon parse if cancelled
+      if ( cancelled.getAsBoolean() )
+        throw new CancellationException();
+
+      // grow row capacity by half again when full
+      if ( rows == capacity )
+      {
+        capacity = Math.max( 16, capacity + ( capacity >> 1 ) );
+        for ( int column = 0; column < columns; column++ )
+          values[column] = Arrays.copyOf( values[column], capacity );
+      }
+
+      int start = tokenizer.getPosition();
+      int column = 0;
+      do
+      {
+        tokenizer.next();
+        if ( column < types.length )
+        {
+          if ( column >= columns )
+            values[columns++] = new Object[capacity];
+          values[column][rows] = value( probe, types[column], tokenizer );
+        }
+        column++;
+      }
+      while ( !tokenizer.isLineEnd() );
+
+      rows++;
+      progress.add( tokenizer.getPosition() - start );
+    }
+
+    // return values trimmed to columns & rows parsed
+    var trimmed = new Object[columns][];
+    for ( int column = 0; column < columns; column++ )
+      trimmed[column] = values[column].length == rows ? values[column] : Arrays.copyOf( values[column], rows );
+    return trimmed;
+  }
+
+  /******************************************** value ********************************************/
+  private static Object value( ParsedChunk probe, ColumnType type, DelimitedTokenizer tokenizer )
+  {
+    // return current field as value of column type if it parses, otherwise as text, or null if empty
+    byte[] field = tokenizer.getField();
+    int start = tokenizer.getFieldStart();
+    int end = tokenizer.getFieldEnd();
+    if ( start >= end )
+      return null;
+
+    if ( type != ColumnType.OBJECT && probe.parse( type, field, start, end ) )
+      return probe.getParsed( type );
+    return new String( field, start, end - start, StandardCharsets.UTF_8 );
+  }
+
+}
@@ -0,0 +1,192 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.util.Arrays;
+
+/*************************************************************************************************/
+/******* Splits delimited text bytes into fields, supporting quoted fields with "" escapes *******/
+/*************************************************************************************************/
+
+class DelimitedTokenizer
+{
+  private byte[]  m_bytes;      // text being tokenized
+  private int     m_position;   // position of next field
+  private int     m_end;        // position after last byte to tokenize
+  private byte    m_delimiter;  // field delimiter, typically comma or tab
+  private byte[]  m_unquoted;   // scratch for quoted field contents with escapes removed
+
+  private byte[]  m_field;      // array holding current field
+  private int     m_fieldStart; // start of current field
+  private int     m_fieldEnd;   // position after end of current field
+  private boolean m_lineEnd;    // true if current field is last on its line
+
+  /**************************************** constructor ******************************************/
+  DelimitedTokenizer( byte[] bytes, int start, int end, byte delimiter )
+  {
+    // initialise private variables
+    m_bytes = bytes;
+    m_position = start;
+    m_end = end;
+    m_delimiter = delimiter;
+    m_unquoted = new byte[256];
+  }
+
+  /******************************************* hasMore *******************************************/
+  boolean hasMore()
+  {
+    // return true if more lines to tokenize, skipping any blank lines
+    return hasMore( true );
+  }
+
+  /******************************************* hasMore *******************************************/
+  boolean hasMore( boolean skipBlankLines )
+  {
+    // return true if more lines to tokenize, if not skipping blank lines they tokenize as one empty field
+    if ( skipBlankLines )
+      while ( m_position < m_end && ( m_bytes[m_position] == '\n' || m_bytes[m_position] == '\r' ) )
+        m_position++;
+    return m_position < m_end;
+  }
+
+  /***************************************** getPosition *****************************************/
+  int getPosition()
+  {
+    // return position of next field
+    return m_position;
+  }
+
+  /******************************************** next *********************************************/
+  void next()
+  {
+    // move to next field on current line
+    if ( m_position < m_end && m_bytes[m_position] == '"' )
+    {
+      nextQuoted();
+      return;
+    }
+
+    int index = m_position;
+    while ( index < m_end && m_bytes[index] != m_delimiter && m_bytes[index] != '\n' )
+      index++;
+
+    m_field = m_bytes;
+    m_fieldStart = m_position;
+    m_fieldEnd = index;
+    m_lineEnd = index >= m_end || m_bytes[index] == '\n';
+    if ( m_lineEnd && m_fieldEnd > m_fieldStart && m_bytes[m_fieldEnd - 1] == '\r' )
+      m_fieldEnd--;
+    m_position = index + 1;
+  }
+
+  /***************************************** nextQuoted ******************************************/
+  private void nextQuoted()
+  {
+    // copy quoted field contents converting "" to " until closing quote
+    int length = 0;
+    int index = m_position + 1;
+    while ( index < m_end )
+    {
+      byte b = m_bytes[index++];
+      if ( b == '"' )
+      {
+        if ( index < m_end && m_bytes[index] == '"' )
+          index++;
+        else
+          break;
+      }
+      if ( length == m_unquoted.length )
+        m_unquoted = Arrays.copyOf( m_unquoted, length * 2 );
+      m_unquoted[length++] = b;
+    }
+
+    // ignore anything between closing quote and next delimiter
+    while ( index < m_end && m_bytes[index] != m_delimiter && m_bytes[index] != '\n' )
+      index++;
+
+    m_field = m_unquoted;
+    m_fieldStart = 0;
+    m_fieldEnd = length;
+    m_lineEnd = index >= m_end || m_bytes[index] == '\n';
+    m_position = index + 1;
+  }
+
+  /****************************************** getField *******************************************/
+  byte[] getField()
+  {
+    // return array holding current field
+    return m_field;
+  }
+
+  /**************************************** getFieldStart ****************************************/
+  int getFieldStart()
+  {
+    // return start of current field
+    return m_fieldStart;
+  }
+
+  /***************************************** getFieldEnd *****************************************/
+  int getFieldEnd()
+  {
+    // return position after end of current field
+    return m_fieldEnd;
+  }
+
+  /****************************************** isLineEnd ******************************************/
+  boolean isLineEnd()
+  {
+    // return true if current field is last on its line
+    return m_lineEnd;
+  }
+
+  /***************************************** lastLineEnd *****************************************/
+  static int lastLineEnd( byte[] bytes, int length, byte delimiter )
+  {
+    // return position after last newline not within a quoted field, or zero if none, quoting as next() does
+    // so a quote only opens a field at its start, "" is an escaped quote, and the closing quote ends it
+    boolean fieldStart = true;
+    int last = 0;
+    int index = 0;
+    while ( index < length )
+    {
+      byte b = bytes[index++];
+      if ( b == '"' && fieldStart )
+      {
+        while ( index < length )
+          if ( bytes[index++] == '"' )
+          {
+            if ( index < length && bytes[index] == '"' )
+              index++;
+            else
+              break;
+          }
+        fieldStart = false;
+      }
+      else if ( b == '\n' )
+      {
+        last = index;
+        fieldStart = true;
+      }
+      else
+        fieldStart = b == delimiter;
+    }
+    return last;
+  }
+
+}
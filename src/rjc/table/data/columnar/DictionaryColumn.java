@@ -0,0 +1,178 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/************* Column of objects (e.g. strings or enums) stored as dictionary codes **************/
+/*************************************************************************************************/
+
+public class DictionaryColumn extends ColumnBase
+{
+  private ArrayList<Object>        m_dictionary = new ArrayList<>(); // distinct values, position is code
+  private HashMap<Object, Integer> m_codes      = new HashMap<>();   // distinct value to code lookup
+
+  // codes are held in narrowest array able to index the dictionary, only one is non-null
+  private byte[]                   m_bytes      = new byte[0];
+  private short[]                  m_shorts;
+  private int[]                    m_ints;
+
+  /**************************************** constructor ******************************************/
+  public DictionaryColumn( String name )
+  {
+    // create column for OBJECT values
+    super( name, ColumnType.OBJECT );
+  }
+
+  /******************************************* resize ********************************************/
+  @Override
+  protected void resize( int capacity )
+  {
+    // resize code storage
+    if ( m_bytes != null )
+      m_bytes = Arrays.copyOf( m_bytes, capacity );
+    else if ( m_shorts != null )
+      m_shorts = Arrays.copyOf( m_shorts, capacity );
+    else
+      m_ints = Arrays.copyOf( m_ints, capacity );
+  }
+
+  /******************************************** move *********************************************/
+  @Override
+  protected void move( int from, int to, int count )
+  {
+    // move count row codes within storage
+    if ( m_bytes != null )
+      System.arraycopy( m_bytes, from, m_bytes, to, count );
+    else if ( m_shorts != null )
+      System.arraycopy( m_shorts, from, m_shorts, to, count );
+    else
+      System.arraycopy( m_ints, from, m_ints, to, count );
+  }
+
+  /******************************************* getCode *******************************************/
+  public int getCode( int row )
+  {
+    // return dictionary code for row, or -1 if null
+    if ( isNull( row ) )
+      return -1;
+    if ( m_bytes != null )
+      return m_bytes[row] & 0xFF;
+    if ( m_shorts != null )
+      return m_shorts[row] & 0xFFFF;
+    return m_ints[row];
+  }
+
+  /******************************************* setCode *******************************************/
+  private void setCode( int row, int code )
+  {
+    // widen code storage if needed, then set row code
+    setValid( row );
+    if ( m_bytes != null && code > 0xFF )
+    {
+      m_shorts = new short[m_bytes.length];
+      for ( int index = 0; index < m_bytes.length; index++ )
+        m_shorts[index] = (short) ( m_bytes[index] & 0xFF );
+      m_bytes = null;
+    }
+    if ( m_shorts != null && code > 0xFFFF )
+    {
+      m_ints = new int[m_shorts.length];
+      for ( int index = 0; index < m_shorts.length; index++ )
+        m_ints[index] = m_shorts[index] & 0xFFFF;
+      m_shorts = null;
+    }
+
+    if ( m_bytes != null )
+      m_bytes[row] = (byte) code;
+    else if ( m_shorts != null )
+      m_shorts[row] = (short) code;
+    else
+      m_ints[row] = code;
+  }
+
+  /**************************************** getDictionary ****************************************/
+  public Object getDictionary( int code )
+  {
+    // return distinct value for dictionary code
+    return m_dictionary.get( code );
+  }
+
+  /************************************** getDictionarySize **************************************/
+  public int getDictionarySize()
+  {
+    // return number of distinct values seen by column
+    return m_dictionary.size();
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int row )
+  {
+    // return row value from dictionary
+    int code = getCode( row );
+    return code < 0 ? null : m_dictionary.get( code );
+  }
+
+  /****************************************** setValue *******************************************/
+  @Override
+  public boolean setValue( int row, Object value )
+  {
+    // set row value, adding to dictionary if not seen before
+    if ( value == null )
+    {
+      setNull( row );
+      return true;
+    }
+
+    Integer code = m_codes.get( value );
+    if ( code == null )
+    {
+      code = m_dictionary.size();
+      m_dictionary.add( value );
+      m_codes.put( value, code );
+    }
+    setCode( row, code );
+    return true;
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int row )
+  {
+    // return row value as int if a number, zero otherwise
+    Object value = getValue( row );
+    return value instanceof Number ? ( (Number) value ).intValue() : 0;
+  }
+
+  /****************************************** getMemory ******************************************/
+  @Override
+  public long getMemory()
+  {
+    // return approximate bytes used by column code storage (excludes dictionary values)
+    long codes = m_bytes != null ? m_bytes.length : m_shorts != null ? 2L * m_shorts.length : 4L * m_ints.length;
+    return super.getMemory() + codes + 48L * m_dictionary.size();
+  }
+
+}
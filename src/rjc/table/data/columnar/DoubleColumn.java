@@ -0,0 +1,157 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.util.Arrays;
+
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/************************************ Column of double values ************************************/
+/*************************************************************************************************/
+
+public class DoubleColumn extends ColumnBase
+{
+  private double[] m_values = new double[0]; // column values, only meaningful where not null
+
+  /**************************************** constructor ******************************************/
+  public DoubleColumn( String name )
+  {
+    // create column for DOUBLE values
+    super( name, ColumnType.DOUBLE );
+  }
+
+  /******************************************* resize ********************************************/
+  @Override
+  protected void resize( int capacity )
+  {
+    // resize value storage
+    m_values = Arrays.copyOf( m_values, capacity );
+  }
+
+  /******************************************** move *********************************************/
+  @Override
+  protected void move( int from, int to, int count )
+  {
+    // move count row values within storage
+    System.arraycopy( m_values, from, m_values, to, count );
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int row )
+  {
+    // return row value as Double
+    return isNull( row ) ? null : m_values[row];
+  }
+
+  /****************************************** setValue *******************************************/
+  @Override
+  public boolean setValue( int row, Object value )
+  {
+    // set row value if null or a number
+    if ( value == null )
+      setNull( row );
+    else if ( value instanceof Number )
+      setDouble( row, ( (Number) value ).doubleValue() );
+    else
+      return false;
+
+    return true;
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int row )
+  {
+    // return row value truncated to int, zero if null
+    return (int) getDouble( row );
+  }
+
+  /******************************************* getLong *******************************************/
+  @Override
+  public long getLong( int row )
+  {
+    // return row value truncated to long, zero if null
+    return (long) getDouble( row );
+  }
+
+  /****************************************** getDouble ******************************************/
+  @Override
+  public double getDouble( int row )
+  {
+    // return row value, zero if null
+    return row < m_values.length && !isNull( row ) ? m_values[row] : 0.0;
+  }
+
+  /******************************************* setInt ********************************************/
+  @Override
+  public boolean setInt( int row, int value )
+  {
+    // set row value
+    return setDouble( row, value );
+  }
+
+  /******************************************* setLong *******************************************/
+  @Override
+  public boolean setLong( int row, long value )
+  {
+    // set row value
+    return setDouble( row, value );
+  }
+
+  /****************************************** setDouble ******************************************/
+  @Override
+  public boolean setDouble( int row, double value )
+  {
+    // set row value
+    setValid( row );
+    m_values[row] = value;
+    return true;
+  }
+
+  /***************************************** getDoubles ******************************************/
+  public void getDoubles( int firstRow, double[] values, int count )
+  {
+    // copy count row values starting at first row into array (nulls as zero)
+    int available = Math.max( 0, Math.min( count, m_values.length - firstRow ) );
+    System.arraycopy( m_values, firstRow, values, 0, available );
+    Arrays.fill( values, available, count, 0.0 );
+    for ( int offset = 0; offset < available; offset++ )
+      if ( isNull( firstRow + offset ) )
+        values[offset] = 0.0;
+  }
+
+  /***************************************** setDoubles ******************************************/
+  public void setDoubles( int firstRow, double[] values, int count )
+  {
+    // set count row values starting at first row from array
+    setValidRange( firstRow, count );
+    System.arraycopy( values, 0, m_values, firstRow, count );
+  }
+
+  /****************************************** getMemory ******************************************/
+  @Override
+  public long getMemory()
+  {
+    // return approximate bytes used by column storage
+    return super.getMemory() + 8L * m_values.length;
+  }
+
+}
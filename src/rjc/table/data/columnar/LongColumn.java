@@ -0,0 +1,155 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.util.Arrays;
+
+import rjc.table.data.DateTime;
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/************ Column of long values - long integers, date-times as epoch milliseconds ************/
+/*************************************************************************************************/
+
+public class LongColumn extends ColumnBase
+{
+  private long[] m_values = new long[0]; // column values, only meaningful where not null
+
+  /**************************************** constructor ******************************************/
+  public LongColumn( String name, ColumnType type )
+  {
+    // create column for LONG or DATETIME values
+    super( name, type );
+    if ( type != ColumnType.LONG && type != ColumnType.DATETIME )
+      throw new IllegalArgumentException( "Type=" + type );
+  }
+
+  /******************************************* resize ********************************************/
+  @Override
+  protected void resize( int capacity )
+  {
+    // resize value storage
+    m_values = Arrays.copyOf( m_values, capacity );
+  }
+
+  /******************************************** move *********************************************/
+  @Override
+  protected void move( int from, int to, int count )
+  {
+    // move count row values within storage
+    System.arraycopy( m_values, from, m_values, to, count );
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int row )
+  {
+    // return row value as object of column type
+    if ( isNull( row ) )
+      return null;
+    if ( getType() == ColumnType.DATETIME )
+      return new DateTime( m_values[row] );
+    return m_values[row];
+  }
+
+  /****************************************** setValue *******************************************/
+  @Override
+  public boolean setValue( int row, Object value )
+  {
+    // set row value if null or of suitable type
+    if ( value == null )
+      setNull( row );
+    else if ( getType() == ColumnType.DATETIME && value instanceof DateTime )
+      setLong( row, ( (DateTime) value ).getMilliseconds() );
+    else if ( getType() == ColumnType.LONG && value instanceof Number )
+    {
+      long number = ( (Number) value ).longValue();
+      if ( ( value instanceof Double || value instanceof Float ) && ( (Number) value ).doubleValue() != number )
+        return false;
+      setLong( row, number );
+    }
+    else
+      return false;
+
+    return true;
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int row )
+  {
+    // return row value truncated to int, zero if null
+    return (int) getLong( row );
+  }
+
+  /******************************************* getLong *******************************************/
+  @Override
+  public long getLong( int row )
+  {
+    // return row value, zero if null
+    return row < m_values.length && !isNull( row ) ? m_values[row] : 0L;
+  }
+
+  /******************************************* setInt ********************************************/
+  @Override
+  public boolean setInt( int row, int value )
+  {
+    // set row value
+    return setLong( row, value );
+  }
+
+  /******************************************* setLong *******************************************/
+  @Override
+  public boolean setLong( int row, long value )
+  {
+    // set row value
+    setValid( row );
+    m_values[row] = value;
+    return true;
+  }
+
+  /****************************************** getLongs *******************************************/
+  public void getLongs( int firstRow, long[] values, int count )
+  {
+    // copy count row values starting at first row into array (nulls as zero)
+    int available = Math.max( 0, Math.min( count, m_values.length - firstRow ) );
+    System.arraycopy( m_values, firstRow, values, 0, available );
+    Arrays.fill( values, available, count, 0L );
+    for ( int offset = 0; offset < available; offset++ )
+      if ( isNull( firstRow + offset ) )
+        values[offset] = 0L;
+  }
+
+  /****************************************** setLongs *******************************************/
+  public void setLongs( int firstRow, long[] values, int count )
+  {
+    // set count row values starting at first row from array
+    setValidRange( firstRow, count );
+    System.arraycopy( values, 0, m_values, firstRow, count );
+  }
+
+  /****************************************** getMemory ******************************************/
+  @Override
+  public long getMemory()
+  {
+    // return approximate bytes used by column storage
+    return super.getMemory() + 8L * m_values.length;
+  }
+
+}
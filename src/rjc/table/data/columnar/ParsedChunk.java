@@ -0,0 +1,433 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.columnar;
+
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import rjc.table.data.Date;
+import rjc.table.data.DateTime;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.data.Time;
+
+/*************************************************************************************************/
+/******* Block of delimited text rows parsed into typed arrays ready to append to columns ********/
+/*************************************************************************************************/
+
+class ParsedChunk
+{
+  private ColumnType[] m_types;    // column types
+  private Object[]     m_values;   // per column int[], long[], double[], boolean[] or String[]
+  private long[][]     m_nulls;    // per column bit set for rows without a value
+  private int          m_rows;     // rows parsed
+  private int          m_capacity; // rows typed arrays can hold
+  private int          m_errors;   // values not matching column type, loaded as null
+
+  private int          m_int;      // result of last successful int parse
+  private long         m_long;     // result of last successful long parse
+  private double       m_double;   // result of last successful double parse
+  private boolean      m_bool;     // result of last successful boolean parse
+
+  /**************************************** constructor ******************************************/
+  ParsedChunk( ColumnType[] types, int capacity )
+  {
+    // create typed arrays for expected number of rows
+    m_types = types;
+    m_values = new Object[types.length];
+    m_nulls = new long[types.length][];
+    resize( Math.max( capacity, 16 ) );
+  }
+
+  /******************************************* resize ********************************************/
+  private void resize( int capacity )
+  {
+    // resize typed arrays to hold capacity rows
+    m_capacity = capacity;
+    for ( int column = 0; column < m_types.length; column++ )
+    {
+      Object values = m_values[column];
+      switch ( m_types[column] )
+      {
+        case INTEGER:
+        case DATE:
+        case TIME:
+          m_values[column] = values == null ? new int[capacity] : Arrays.copyOf( (int[]) values, capacity );
+          break;
+        case LONG:
+        case DATETIME:
+          m_values[column] = values == null ? new long[capacity] : Arrays.copyOf( (long[]) values, capacity );
+          break;
+        case DOUBLE:
+          m_values[column] = values == null ? new double[capacity] : Arrays.copyOf( (double[]) values, capacity );
+          break;
+        case BOOLEAN:
+          m_values[column] = values == null ? new boolean[capacity] : Arrays.copyOf( (boolean[]) values, capacity );
+          break;
+        default:
+          m_values[column] = values == null ? new String[capacity] : Arrays.copyOf( (String[]) values, capacity );
+          break;
+      }
+      long[] nulls = m_nulls[column];
+      int words = ( capacity + 63 ) >>> 6;
+      m_nulls[column] = nulls == null ? new long[words] : Arrays.copyOf( nulls, words );
+    }
+  }
+
+  /******************************************* addRow ********************************************/
+  int addRow()
+  {
+    // return index of new row, growing arrays if needed
+    if ( m_rows >= m_capacity )
+      resize( m_rows + ( m_rows >> 1 ) );
+    return m_rows++;
+  }
+
+  /******************************************* getRows *******************************************/
+  int getRows()
+  {
+    // return number of rows parsed
+    return m_rows;
+  }
+
+  /****************************************** getErrors ******************************************/
+  int getErrors()
+  {
+    // return number of values not matching column type
+    return m_errors;
+  }
+
+  /******************************************** store ********************************************/
+  void store( int column, int row, byte[] bytes, int start, int end )
+  {
+    // parse field text into column typed array, empty or unparsable fields are null
+    if ( start >= end )
+    {
+      m_nulls[column][row >>> 6] |= 1L << row;
+      return;
+    }
+
+    ColumnType type = m_types[column];
+    if ( type == ColumnType.OBJECT )
+    {
+      ( (String[]) m_values[column] )[row] = new String( bytes, start, end - start, StandardCharsets.UTF_8 );
+      return;
+    }
+    if ( !parse( type, bytes, start, end ) )
+    {
+      m_nulls[column][row >>> 6] |= 1L << row;
+      m_errors++;
+      return;
+    }
+
+    switch ( type )
+    {
+      case INTEGER:
+      case DATE:
+      case TIME:
+        ( (int[]) m_values[column] )[row] = m_int;
+        break;
+      case LONG:
+      case DATETIME:
+        ( (long[]) m_values[column] )[row] = m_long;
+        break;
+      case DOUBLE:
+        ( (double[]) m_values[column] )[row] = m_double;
+        break;
+      case BOOLEAN:
+        ( (boolean[]) m_values[column] )[row] = m_bool;
+        break;
+      default:
+        throw new IllegalStateException( "Type=" + type );
+    }
+  }
+
+  /****************************************** appendTo *******************************************/
+  void appendTo( ColumnBase[] columns, int firstRow )
+  {
+    // append parsed rows to columns starting at first row
+    for ( int column = 0; column < columns.length; column++ )
+    {
+      ColumnBase target = columns[column];
+      Object values = m_values[column];
+      if ( target instanceof IntColumn )
+        ( (IntColumn) target ).setInts( firstRow, (int[]) values, m_rows );
+      else if ( target instanceof LongColumn )
+        ( (LongColumn) target ).setLongs( firstRow, (long[]) values, m_rows );
+      else if ( target instanceof DoubleColumn )
+        ( (DoubleColumn) target ).setDoubles( firstRow, (double[]) values, m_rows );
+      else if ( target instanceof BooleanColumn )
+        for ( int row = 0; row < m_rows; row++ )
+          target.setBoolean( firstRow + row, ( (boolean[]) values )[row] );
+      else
+        for ( int row = 0; row < m_rows; row++ )
+          target.setValue( firstRow + row, ( (String[]) values )[row] );
+
+      // clear validity of null rows
+      long[] nulls = m_nulls[column];
+      for ( int word = 0; word < nulls.length; word++ )
+        for ( long bits = nulls[word]; bits != 0L; bits &= bits - 1L )
+          target.setNull( firstRow + ( word << 6 ) + Long.numberOfTrailingZeros( bits ) );
+    }
+  }
+
+  /****************************************** getParsed ******************************************/
+  Object getParsed( ColumnType type )
+  {
+    // return result of last successful parse as object of column type
+    switch ( type )
+    {
+      case INTEGER:
+        return m_int;
+      case LONG:
+        return m_long;
+      case DOUBLE:
+        return m_double;
+      case BOOLEAN:
+        return m_bool;
+      case DATE:
+        return new Date( m_int );
+      case TIME:
+        return Time.fromMilliseconds( m_int );
+      case DATETIME:
+        return new DateTime( m_long );
+      default:
+        throw new IllegalStateException( "Type=" + type );
+    }
+  }
+
+  /******************************************** parse ********************************************/
+  boolean parse( ColumnType type, byte[] bytes, int start, int end )
+  {
+    // return true if field text parses as type, leaving result in scratch variables
+    switch ( type )
+    {
+      case INTEGER:
+        if ( !parseLong( bytes, start, end ) || m_long != (int) m_long )
+          return false;
+        m_int = (int) m_long;
+        return true;
+      case LONG:
+        return parseLong( bytes, start, end );
+      case DOUBLE:
+        return parseDouble( bytes, start, end );
+      case BOOLEAN:
+        return parseBoolean( bytes, start, end );
+      case DATE:
+        return parseDate( bytes, start, end );
+      case TIME:
+        return parseTime( bytes, start, end );
+      case DATETIME:
+        return parseDateTime( bytes, start, end );
+      default:
+        return true;
+    }
+  }
+
+  /****************************************** parseLong ******************************************/
+  private boolean parseLong( byte[] bytes, int start, int end )
+  {
+    // parse optionally signed decimal integer without creating any objects
+    boolean negative = bytes[start] == '-';
+    if ( negative || bytes[start] == '+' )
+      start++;
+    if ( start >= end || end - start > 18 )
+      return end - start > 18 && parseLongSlow( bytes, start - ( negative ? 1 : 0 ), end );
+
+    long value = 0L;
+    for ( int index = start; index < end; index++ )
+    {
+      int digit = bytes[index] - '0';
+      if ( digit < 0 || digit > 9 )
+        return false;
+      value = value * 10L + digit;
+    }
+    m_long = negative ? -value : value;
+    return true;
+  }
+
+  /**************************************** parseLongSlow ****************************************/
+  private boolean parseLongSlow( byte[] bytes, int start, int end )
+  {
+    // parse long integer with more than 18 digits that may overflow
+    try
+    {
+      m_long = Long.parseLong( new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 ) );
+      return true;
+    }
+    catch ( NumberFormatException exception )
+    {
+      return false;
+    }
+  }
+
+  /***************************************** parseDouble *****************************************/
+  private boolean parseDouble( byte[] bytes, int start, int end )
+  {
+    // parse decimal number, rejecting quickly anything with unexpected characters
+    boolean digits = false;
+    for ( int index = start; index < end; index++ )
+    {
+      byte b = bytes[index];
+      if ( b >= '0' && b <= '9' )
+        digits = true;
+      else if ( b != '.' && b != '-' && b != '+' && b != 'e' && b != 'E' )
+        return false;
+    }
+    if ( !digits )
+      return false;
+
+    try
+    {
+      m_double = Double.parseDouble( new String( bytes, start, end - start, StandardCharsets.ISO_8859_1 ) );
+      return true;
+    }
+    catch ( NumberFormatException exception )
+    {
+      return false;
+    }
+  }
+
+  /**************************************** parseBoolean *****************************************/
+  private boolean parseBoolean( byte[] bytes, int start, int end )
+  {
+    // parse true or false ignoring case
+    int length = end - start;
+    if ( length == 4 && ( bytes[start] | 0x20 ) == 't' && ( bytes[start + 1] | 0x20 ) == 'r'
+        && ( bytes[start + 2] | 0x20 ) == 'u' && ( bytes[start + 3] | 0x20 ) == 'e' )
+      m_bool = true;
+    else if ( length == 5 && ( bytes[start] | 0x20 ) == 'f' && ( bytes[start + 1] | 0x20 ) == 'a'
+        && ( bytes[start + 2] | 0x20 ) == 'l' && ( bytes[start + 3] | 0x20 ) == 's'
+        && ( bytes[start + 4] | 0x20 ) == 'e' )
+      m_bool = false;
+    else
+      return false;
+
+    return true;
+  }
+
+  /****************************************** parseDate ******************************************/
+  private boolean parseDate( byte[] bytes, int start, int end )
+  {
+    // parse date of form YYYY-MM-DD or YYYY/MM/DD into epoch-day
+    int[] parts = new int[3];
+    int part = 0;
+    int digits = 0;
+    byte separator = 0;
+    for ( int index = start; index < end; index++ )
+    {
+      byte b = bytes[index];
+      if ( b >= '0' && b <= '9' && digits < 4 )
+      {
+        parts[part] = parts[part] * 10 + b - '0';
+        digits++;
+      }
+      else if ( ( b == '-' || b == '/' ) && digits > 0 && part < 2 && ( separator == 0 || separator == b ) )
+      {
+        separator = b;
+        part++;
+        digits = 0;
+      }
+      else
+        return false;
+    }
+    if ( part != 2 || digits == 0 )
+      return false;
+
+    try
+    {
+      m_int = (int) LocalDate.of( parts[0], parts[1], parts[2] ).toEpochDay();
+      return true;
+    }
+    catch ( DateTimeException exception )
+    {
+      return false;
+    }
+  }
+
+  /****************************************** parseTime ******************************************/
+  private boolean parseTime( byte[] bytes, int start, int end )
+  {
+    // parse time of form H:MM, H:MM:SS or H:MM:SS.mmm into day milliseconds
+    int[] parts = new int[4];
+    int part = 0;
+    int digits = 0;
+    int msDigits = 0;
+    for ( int index = start; index < end; index++ )
+    {
+      byte b = bytes[index];
+      if ( b >= '0' && b <= '9' )
+      {
+        if ( part == 3 )
+        {
+          // only first three digits of fractional seconds are significant
+          if ( msDigits++ < 3 )
+            parts[3] = parts[3] * 10 + b - '0';
+        }
+        else if ( digits++ < 2 )
+          parts[part] = parts[part] * 10 + b - '0';
+        else
+          return false;
+      }
+      else if ( b == ':' && part < 2 && digits > 0 )
+      {
+        part++;
+        digits = 0;
+      }
+      else if ( b == '.' && part == 2 && digits > 0 )
+        part++;
+      else
+        return false;
+    }
+    if ( part < 1 || part < 3 && digits == 0 )
+      return false;
+    while ( msDigits < 3 && part == 3 )
+    {
+      parts[3] *= 10;
+      msDigits++;
+    }
+
+    int ms = parts[0] * Time.ONE_HOUR + parts[1] * Time.ONE_MINUTE + parts[2] * Time.ONE_SECOND + parts[3];
+    if ( parts[1] > 59 || parts[2] > 59 || ms > Time.MILLISECONDS_IN_DAY )
+      return false;
+    m_int = ms;
+    return true;
+  }
+
+  /**************************************** parseDateTime ****************************************/
+  private boolean parseDateTime( byte[] bytes, int start, int end )
+  {
+    // parse date-time of form date followed by 'T' or space and time into epoch milliseconds
+    for ( int index = start; index < end; index++ )
+      if ( bytes[index] == 'T' || bytes[index] == ' ' )
+      {
+        if ( !parseDate( bytes, start, index ) )
+          return false;
+        long epochday = m_int;
+        if ( !parseTime( bytes, index + 1, end ) )
+          return false;
+        m_long = epochday * Time.MILLISECONDS_IN_DAY + m_int;
+        return true;
+      }
+
+    return false;
+  }
+
+}
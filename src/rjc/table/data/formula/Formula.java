@@ -0,0 +1,203 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.formula;
+
+import java.util.Collections;
+import java.util.List;
+
+import rjc.table.data.TableData;
+
+/*************************************************************************************************/
+/************** Formula compiled once from text, evaluated for a row of table data ***************/
+/*************************************************************************************************/
+
+public class Formula
+{
+  // errors returned as cell value when formula cannot be evaluated
+  public enum Error
+  {
+    VALUE, DIV0, REF, NA, CYCLE;
+
+    @Override
+    public String toString()
+    {
+      // return error text as shown in cell
+      return this == DIV0 ? "#DIV/0!" : "#" + name() + "!";
+    }
+  }
+
+  // compiled expression node, must be safe to evaluate from multiple threads at once
+  interface Term
+  {
+    Object evaluate( TableData data, int rowIndex );
+  }
+
+  // block of cells referenced, relative references are to the row being evaluated
+  public static class Reference
+  {
+    public int     minColumnIndex; // first column referenced (inclusive)
+    public int     maxColumnIndex; // last column referenced (inclusive)
+    public int     minRowIndex;    // first row referenced (inclusive), ignored if relative
+    public int     maxRowIndex;    // last row referenced (inclusive, max integer for whole column)
+    public boolean relative;       // true if reference is to same row as cell being evaluated
+
+    /****************************************** covers *******************************************/
+    public boolean covers( int columnIndex, int rowIndex, int evaluatedRowIndex )
+    {
+      // return true if referenced block includes cell when evaluating specified row
+      if ( columnIndex < minColumnIndex || columnIndex > maxColumnIndex )
+        return false;
+      return relative ? rowIndex == evaluatedRowIndex : rowIndex >= minRowIndex && rowIndex <= maxRowIndex;
+    }
+
+    /***************************************** toString ******************************************/
+    @Override
+    public String toString()
+    {
+      // return as string
+      return getClass().getSimpleName() + "[" + minColumnIndex + "-" + maxColumnIndex
+          + ( relative ? " same row" : " " + minRowIndex + "-" + maxRowIndex ) + "]";
+    }
+  }
+
+  private String          m_text;       // formula text as entered
+  private Term            m_term;       // compiled expression
+  private List<Reference> m_references; // cells formula depends on
+  private List<int[]>     m_spans;      // start & end positions in text of each reference
+
+  /**************************************** constructor ******************************************/
+  Formula( String text, Term term, List<Reference> references, List<int[]> spans )
+  {
+    // initialise private variables, use compile to create
+    m_text = text;
+    m_term = term;
+    m_references = Collections.unmodifiableList( references );
+    m_spans = spans;
+  }
+
+  /******************************************* compile *******************************************/
+  public static Formula compile( String text )
+  {
+    // return formula compiled from text such as "=SUM(A1:A10) * B", throws IllegalArgumentException if invalid
+    return new FormulaParser( text ).parse();
+  }
+
+  /******************************************** shift ********************************************/
+  Formula shift( boolean columns, int index, int count, boolean removed )
+  {
+    // return formula with references moved for columns or rows inserted or removed at index, or itself if
+    // none moved, references only to removed cells become #REF!
+    StringBuilder text = new StringBuilder( m_text.length() + 16 );
+    int copied = 0;
+    boolean moved = false;
+    for ( int ref = 0; ref < m_references.size(); ref++ )
+    {
+      // references without row numbers are not moved by rows
+      Reference reference = m_references.get( ref );
+      if ( !columns && ( reference.relative || reference.maxRowIndex == Integer.MAX_VALUE ) )
+        continue;
+
+      int min = columns ? reference.minColumnIndex : reference.minRowIndex;
+      int max = columns ? reference.maxColumnIndex : reference.maxRowIndex;
+      int newMin = shift( min, index, count, removed, true );
+      int newMax = shift( max, index, count, removed, false );
+      if ( newMin == min && newMax == max )
+        continue;
+
+      int[] span = m_spans.get( ref );
+      text.append( m_text, copied, span[0] );
+      if ( newMax < newMin )
+        text.append( FormulaParser.REF );
+      else if ( columns )
+        text.append( FormulaParser.reference( m_text.substring( span[0], span[1] ), newMin, reference.minRowIndex,
+            newMax, reference.maxRowIndex ) );
+      else
+        text.append( FormulaParser.reference( m_text.substring( span[0], span[1] ), reference.minColumnIndex, newMin,
+            reference.maxColumnIndex, newMax ) );
+      copied = span[1];
+      moved = true;
+    }
+
+    if ( !moved )
+      return this;
+    text.append( m_text, copied, m_text.length() );
+    return compile( text.toString() );
+  }
+
+  /******************************************** shift ********************************************/
+  private static int shift( int position, int index, int count, boolean removed, boolean first )
+  {
+    // return first or last position of block after insert or removal, removed positions move to the block's
+    // remaining cells so a wholly removed block ends before it starts
+    if ( position < index )
+      return position;
+    if ( !removed )
+      return (int) Math.min( (long) position + count, Integer.MAX_VALUE - 1 );
+    if ( position >= index + count )
+      return position - count;
+    return first ? index : index - 1;
+  }
+
+  /****************************************** evaluate *******************************************/
+  public Object evaluate( TableData data, int rowIndex )
+  {
+    // return formula value for row, an Error if it cannot be evaluated
+    try
+    {
+      Object value = m_term.evaluate( data, rowIndex );
+      return value instanceof Range ? Error.VALUE : value;
+    }
+    catch ( FormulaException exception )
+    {
+      return exception.error;
+    }
+    catch ( IndexOutOfBoundsException exception )
+    {
+      return Error.REF;
+    }
+    catch ( RuntimeException exception )
+    {
+      return Error.VALUE;
+    }
+  }
+
+  /******************************************* getText *******************************************/
+  public String getText()
+  {
+    // return formula text as entered, with references moved for any columns or rows since inserted or removed
+    return m_text;
+  }
+
+  /**************************************** getReferences ****************************************/
+  public List<Reference> getReferences()
+  {
+    // return blocks of cells formula depends on
+    return m_references;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[" + m_text
+        + "]";
+  }
+
+}
@@ -0,0 +1,455 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.formula;
+
+import java.util.ArrayList;
+
+import rjc.table.data.formula.Formula.Reference;
+import rjc.table.data.formula.Formula.Term;
+
+/*************************************************************************************************/
+/******************* Recursive descent parser compiling formula text to terms ********************/
+/*************************************************************************************************/
+
+class FormulaParser
+{
+  private String               m_text;       // formula text being parsed
+  private int                  m_pos;        // current character position in text
+  private ArrayList<Reference> m_references; // references found so far
+  private ArrayList<int[]>     m_spans;      // start & end positions in text of references found so far
+
+  // comparison operators, longer before shorter so "<=" not read as "<"
+  final static private String[] COMPARISONS = { "<=", ">=", "<>", "=", "<", ">" };
+
+  // text replacing references whose cells were all removed
+  final static String           REF         = Formula.Error.REF.toString();
+
+  /**************************************** constructor ******************************************/
+  FormulaParser( String text )
+  {
+    // initialise private variables
+    m_text = text;
+    m_references = new ArrayList<>();
+    m_spans = new ArrayList<>();
+  }
+
+  /******************************************** parse ********************************************/
+  Formula parse()
+  {
+    // return compiled formula, optional leading '=' ignored
+    skipSpaces();
+    if ( m_pos < m_text.length() && m_text.charAt( m_pos ) == '=' )
+      m_pos++;
+    Term term = comparison();
+    skipSpaces();
+    if ( m_pos < m_text.length() )
+      throw error( "Unexpected '" + m_text.charAt( m_pos ) + "'" );
+
+    return new Formula( m_text, term, m_references, m_spans );
+  }
+
+  /***************************************** comparison ******************************************/
+  private Term comparison()
+  {
+    // comparison of concatenations, true or false
+    Term term = concatenation();
+    for ( String op = operator( COMPARISONS ); op != null; op = operator( COMPARISONS ) )
+    {
+      Term left = term;
+      Term right = concatenation();
+      switch ( op )
+      {
+        case "<=":
+          term = ( data, row ) -> Functions.compare( left.evaluate( data, row ), right.evaluate( data, row ) ) <= 0;
+          break;
+        case ">=":
+          term = ( data, row ) -> Functions.compare( left.evaluate( data, row ), right.evaluate( data, row ) ) >= 0;
+          break;
+        case "<>":
+          term = ( data, row ) -> Functions.compare( left.evaluate( data, row ), right.evaluate( data, row ) ) != 0;
+          break;
+        case "=":
+          term = ( data, row ) -> Functions.compare( left.evaluate( data, row ), right.evaluate( data, row ) ) == 0;
+          break;
+        case "<":
+          term = ( data, row ) -> Functions.compare( left.evaluate( data, row ), right.evaluate( data, row ) ) < 0;
+          break;
+        default:
+          term = ( data, row ) -> Functions.compare( left.evaluate( data, row ), right.evaluate( data, row ) ) > 0;
+          break;
+      }
+    }
+    return term;
+  }
+
+  /**************************************** concatenation ****************************************/
+  private Term concatenation()
+  {
+    // text concatenation of sums
+    Term term = additive();
+    while ( operator( "&" ) != null )
+    {
+      Term left = term;
+      Term right = additive();
+      term = ( data, row ) -> Functions.text( left.evaluate( data, row ) ) + Functions.text( right.evaluate( data, row ) );
+    }
+    return term;
+  }
+
+  /****************************************** additive *******************************************/
+  private Term additive()
+  {
+    // addition & subtraction of products
+    Term term = multiplicative();
+    for ( String op = operator( "+", "-" ); op != null; op = operator( "+", "-" ) )
+    {
+      Term left = term;
+      Term right = multiplicative();
+      if ( op.equals( "+" ) )
+        term = ( data, row ) -> Functions.number( left.evaluate( data, row ) )
+            + Functions.number( right.evaluate( data, row ) );
+      else
+        term = ( data, row ) -> Functions.number( left.evaluate( data, row ) )
+            - Functions.number( right.evaluate( data, row ) );
+    }
+    return term;
+  }
+
+  /*************************************** multiplicative ****************************************/
+  private Term multiplicative()
+  {
+    // multiplication & division of powers
+    Term term = power();
+    for ( String op = operator( "*", "/" ); op != null; op = operator( "*", "/" ) )
+    {
+      Term left = term;
+      Term right = power();
+      if ( op.equals( "*" ) )
+        term = ( data, row ) -> Functions.number( left.evaluate( data, row ) )
+            * Functions.number( right.evaluate( data, row ) );
+      else
+        term = ( data, row ) -> Functions.divide( Functions.number( left.evaluate( data, row ) ),
+            Functions.number( right.evaluate( data, row ) ) );
+    }
+    return term;
+  }
+
+  /******************************************** power ********************************************/
+  private Term power()
+  {
+    // exponentiation of unary terms
+    Term term = unary();
+    while ( operator( "^" ) != null )
+    {
+      Term left = term;
+      Term right = unary();
+      term = ( data, row ) -> Math.pow( Functions.number( left.evaluate( data, row ) ),
+          Functions.number( right.evaluate( data, row ) ) );
+    }
+    return term;
+  }
+
+  /******************************************** unary ********************************************/
+  private Term unary()
+  {
+    // optional sign before primary term
+    String op = operator( "-", "+" );
+    if ( op == null )
+      return primary();
+
+    Term term = unary();
+    if ( op.equals( "+" ) )
+      return ( data, row ) -> Functions.number( term.evaluate( data, row ) );
+    return ( data, row ) -> -Functions.number( term.evaluate( data, row ) );
+  }
+
+  /******************************************* primary *******************************************/
+  private Term primary()
+  {
+    // bracketed expression, number, text, boolean, function call or cell reference
+    skipSpaces();
+    if ( m_pos >= m_text.length() )
+      throw error( "Unexpected end" );
+
+    char ch = m_text.charAt( m_pos );
+    if ( ch == '(' )
+    {
+      m_pos++;
+      Term term = comparison();
+      expect( ')' );
+      return term;
+    }
+    if ( ch == '"' )
+      return constant( string() );
+    if ( Character.isDigit( ch ) || ch == '.' )
+      return constant( number() );
+    if ( m_text.startsWith( REF, m_pos ) )
+    {
+      // reference whose cells were all removed
+      m_pos += REF.length();
+      return ( data, row ) ->
+      {
+        throw new FormulaException( Formula.Error.REF );
+      };
+    }
+    if ( !Character.isLetter( ch ) && ch != '$' )
+      throw error( "Unexpected '" + ch + "'" );
+
+    // name is function if followed by bracket, otherwise boolean or reference
+    int start = m_pos;
+    String name = name();
+    skipSpaces();
+    if ( m_pos < m_text.length() && m_text.charAt( m_pos ) == '(' )
+    {
+      m_pos++;
+      ArrayList<Term> args = new ArrayList<>();
+      skipSpaces();
+      if ( m_pos < m_text.length() && m_text.charAt( m_pos ) == ')' )
+        m_pos++;
+      else
+      {
+        do
+          args.add( comparison() );
+        while ( operator( "," ) != null );
+        expect( ')' );
+      }
+      try
+      {
+        return Functions.call( name.toUpperCase(), args.toArray( new Term[args.size()] ) );
+      }
+      catch ( IllegalArgumentException exception )
+      {
+        m_pos = start;
+        throw error( exception.getMessage() );
+      }
+    }
+    if ( name.equalsIgnoreCase( "TRUE" ) )
+      return constant( Boolean.TRUE );
+    if ( name.equalsIgnoreCase( "FALSE" ) )
+      return constant( Boolean.FALSE );
+
+    m_pos = start;
+    return reference();
+  }
+
+  /****************************************** reference ******************************************/
+  private Term reference()
+  {
+    // cell "B3", same row column "B", block "A1:C9" or whole columns "A:C" ('$' markers ignored)
+    int start = m_pos;
+    int[] first = cell();
+    int[] last = first;
+    int end = m_pos;
+    skipSpaces();
+    boolean block = m_pos < m_text.length() && m_text.charAt( m_pos ) == ':';
+    if ( block )
+    {
+      m_pos++;
+      skipSpaces();
+      last = cell();
+      end = m_pos;
+      if ( ( first[1] < 0 ) != ( last[1] < 0 ) )
+      {
+        m_pos = start;
+        throw error( "Mixed block reference" );
+      }
+    }
+
+    Reference reference = new Reference();
+    reference.minColumnIndex = Math.min( first[0], last[0] );
+    reference.maxColumnIndex = Math.max( first[0], last[0] );
+    reference.relative = !block && first[1] < 0;
+    reference.minRowIndex = first[1] < 0 ? 0 : Math.min( first[1], last[1] );
+    reference.maxRowIndex = first[1] < 0 ? Integer.MAX_VALUE : Math.max( first[1], last[1] );
+    m_references.add( reference );
+    m_spans.add( new int[] { start, end } );
+
+    // single cells evaluate to their value, blocks to a range for functions
+    int columnIndex = reference.minColumnIndex;
+    if ( reference.relative )
+      return ( data, row ) -> Functions.value( data, columnIndex, row );
+    if ( !block )
+      return ( data, row ) -> Functions.value( data, columnIndex, reference.minRowIndex );
+    return ( data, row ) -> new Range( data, reference );
+  }
+
+  /******************************************** cell *********************************************/
+  private int[] cell()
+  {
+    // return column index & row index (-1 if no row number) of "$A$1" style cell reference
+    int start = m_pos;
+    if ( m_pos < m_text.length() && m_text.charAt( m_pos ) == '$' )
+      m_pos++;
+    long column = 0;
+    int letters = 0;
+    while ( m_pos < m_text.length() && Character.isLetter( m_text.charAt( m_pos ) ) && letters < 7 )
+    {
+      column = column * 26 + Character.toUpperCase( m_text.charAt( m_pos++ ) ) - 'A' + 1;
+      letters++;
+    }
+    if ( m_pos < m_text.length() && m_text.charAt( m_pos ) == '$' )
+      m_pos++;
+    long row = 0;
+    int digits = 0;
+    while ( m_pos < m_text.length() && Character.isDigit( m_text.charAt( m_pos ) ) && digits < 11 )
+    {
+      row = row * 10 + m_text.charAt( m_pos++ ) - '0';
+      digits++;
+    }
+
+    if ( letters == 0 || column > Integer.MAX_VALUE || row > Integer.MAX_VALUE || digits > 0 && row < 1
+        || m_pos < m_text.length() && Character.isLetterOrDigit( m_text.charAt( m_pos ) ) )
+    {
+      m_pos = start;
+      throw error( "Invalid reference" );
+    }
+    return new int[] { (int) column - 1, digits == 0 ? -1 : (int) row - 1 };
+  }
+
+  /****************************************** reference ******************************************/
+  static String reference( String text, int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex )
+  {
+    // return reference text with first cell of block replaced by min indexes and any last cell by max indexes,
+    // keeping '$' markers, spacing, and row numbers only where present
+    int colon = text.indexOf( ':' );
+    if ( colon < 0 )
+      return cell( text, minColumnIndex, minRowIndex );
+    return cell( text.substring( 0, colon ), minColumnIndex, minRowIndex ) + ":"
+        + cell( text.substring( colon + 1 ), maxColumnIndex, maxRowIndex );
+  }
+
+  /******************************************** cell *********************************************/
+  private static String cell( String text, int columnIndex, int rowIndex )
+  {
+    // return cell reference text with column letters and any row number replaced
+    StringBuilder letters = new StringBuilder();
+    for ( int column = columnIndex + 1; column > 0; column = ( column - 1 ) / 26 )
+      letters.insert( 0, (char) ( 'A' + ( column - 1 ) % 26 ) );
+    return text.replaceFirst( "[A-Za-z]+", letters.toString() ).replaceFirst( "[0-9]+",
+        Integer.toString( rowIndex + 1 ) );
+  }
+
+  /******************************************** name *********************************************/
+  private String name()
+  {
+    // return letters, digits, '$' & '.' starting at current position
+    int start = m_pos;
+    while ( m_pos < m_text.length() && ( Character.isLetterOrDigit( m_text.charAt( m_pos ) )
+        || m_text.charAt( m_pos ) == '$' || m_text.charAt( m_pos ) == '.' ) )
+      m_pos++;
+    return m_text.substring( start, m_pos );
+  }
+
+  /******************************************* number ********************************************/
+  private Double number()
+  {
+    // return number with optional fraction and exponent starting at current position
+    int start = m_pos;
+    while ( m_pos < m_text.length() && ( Character.isDigit( m_text.charAt( m_pos ) ) || m_text.charAt( m_pos ) == '.' ) )
+      m_pos++;
+    if ( m_pos < m_text.length() && Character.toUpperCase( m_text.charAt( m_pos ) ) == 'E' )
+    {
+      int exponent = ++m_pos;
+      if ( m_pos < m_text.length() && ( m_text.charAt( m_pos ) == '+' || m_text.charAt( m_pos ) == '-' ) )
+        m_pos++;
+      while ( m_pos < m_text.length() && Character.isDigit( m_text.charAt( m_pos ) ) )
+        m_pos++;
+      if ( m_pos == exponent )
+        m_pos--;
+    }
+
+    try
+    {
+      return Double.valueOf( m_text.substring( start, m_pos ) );
+    }
+    catch ( NumberFormatException exception )
+    {
+      m_pos = start;
+      throw error( "Invalid number" );
+    }
+  }
+
+  /******************************************* string ********************************************/
+  private String string()
+  {
+    // return text between double quotes starting at current position, doubled quote is a literal quote
+    StringBuilder text = new StringBuilder();
+    int start = m_pos++;
+    while ( m_pos < m_text.length() )
+    {
+      char ch = m_text.charAt( m_pos++ );
+      if ( ch != '"' )
+        text.append( ch );
+      else if ( m_pos < m_text.length() && m_text.charAt( m_pos ) == '"' )
+        text.append( m_text.charAt( m_pos++ ) );
+      else
+        return text.toString();
+    }
+
+    m_pos = start;
+    throw error( "Unterminated text" );
+  }
+
+  /****************************************** constant *******************************************/
+  private static Term constant( Object value )
+  {
+    // return term that always evaluates to value
+    return ( data, row ) -> value;
+  }
+
+  /****************************************** operator *******************************************/
+  private String operator( String... operators )
+  {
+    // return and consume first operator found at current position, otherwise null
+    skipSpaces();
+    for ( String op : operators )
+      if ( m_text.startsWith( op, m_pos ) )
+      {
+        m_pos += op.length();
+        return op;
+      }
+    return null;
+  }
+
+  /******************************************* expect ********************************************/
+  private void expect( char ch )
+  {
+    // consume expected character or throw exception
+    skipSpaces();
+    if ( m_pos >= m_text.length() || m_text.charAt( m_pos ) != ch )
+      throw error( "Expected '" + ch + "'" );
+    m_pos++;
+  }
+
+  /***************************************** skipSpaces ******************************************/
+  private void skipSpaces()
+  {
+    // advance current position past any white space
+    while ( m_pos < m_text.length() && Character.isWhitespace( m_text.charAt( m_pos ) ) )
+      m_pos++;
+  }
+
+  /******************************************** error ********************************************/
+  private IllegalArgumentException error( String message )
+  {
+    // return exception describing parse error at current position
+    return new IllegalArgumentException( message + " at position " + m_pos + " in formula: " + m_text );
+  }
+
+}
@@ -0,0 +1,574 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.formula;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import java.util.stream.IntStream;
+
+import rjc.table.data.TableBase;
+import rjc.table.data.TableBase.Signal;
+import rjc.table.data.TableChange;
+import rjc.table.data.TableData;
+import rjc.table.data.formula.Formula.Reference;
+import rjc.table.data.sparse.LongObjectMap;
+
+/*************************************************************************************************/
+/****** Cell & column formulas over table data, recalculated incrementally on data changes *******/
+/*************************************************************************************************/
+
+public class Formulas
+{
+  // formula registered against a column it references
+  private static class Dependent
+  {
+    Formula   formula;     // formula with the reference
+    int       columnIndex; // column of formula cell
+    int       rowIndex;    // row of formula cell, HEADER for column formula
+    Reference reference;   // reference to the column
+  }
+
+  // formula cell being recalculated
+  private static class Node
+  {
+    long      key;         // formula cell key
+    Formula   formula;     // formula evaluated
+    long[]    edges;       // keys of formula cells depending on this cell
+    int       inDegree;    // number of not yet evaluated nodes this node depends on
+    Object    value;       // evaluated value
+  }
+
+  private TableData                               m_data;       // table data formulas read & write
+  private LongObjectMap<Formula>                  m_cells;      // cell formulas by cell key
+  private HashMap<Integer, Formula>               m_columns;    // column formulas by column index
+  private HashMap<Integer, ArrayList<Dependent>>  m_dependents; // formulas by column index referenced
+  private Set<TableChange>                        m_fired;      // changes fired for recalculated values
+
+  final static private int                        HEADER         = TableBase.HEADER;
+  final static private int                        PARALLEL_MIN   = 256;  // evaluate level in parallel if this many
+  final static private int                        REDRAW_CELLS   = 1000; // fire one range change if more cells
+
+  /**************************************** constructor ******************************************/
+  public Formulas( TableData data )
+  {
+    // initialise private variables and listen to data changes
+    m_data = data;
+    m_cells = new LongObjectMap<>();
+    m_columns = new HashMap<>();
+    m_dependents = new HashMap<>();
+    m_fired = Collections.newSetFromMap( new IdentityHashMap<>() );
+    data.addListener( objects ->
+    {
+      if ( objects.length > 1 && objects[0] == Signal.TABLE_CHANGED )
+        changed( (TableChange) objects[1] );
+    } );
+  }
+
+  /********************************************* key *********************************************/
+  private static long key( int columnIndex, int rowIndex )
+  {
+    // return cell key for formula maps
+    return (long) columnIndex << 32 | rowIndex & 0xFFFFFFFFL;
+  }
+
+  /***************************************** getFormula ******************************************/
+  public Formula getFormula( int columnIndex, int rowIndex )
+  {
+    // return formula set for cell, or for column if row index is HEADER, null if none
+    return rowIndex == HEADER ? m_columns.get( columnIndex ) : m_cells.get( key( columnIndex, rowIndex ) );
+  }
+
+  /***************************************** isComputed ******************************************/
+  public boolean isComputed( int columnIndex, int rowIndex )
+  {
+    // return true if cell value is calculated by a cell or column formula
+    return formula( key( columnIndex, rowIndex ) ) != null;
+  }
+
+  /***************************************** setFormula ******************************************/
+  public void setFormula( int columnIndex, int rowIndex, String text )
+  {
+    // set formula for cell, or for whole column if row index is HEADER, null text to remove leaving values
+    if ( columnIndex < 0 || columnIndex >= m_data.getColumnCount() || rowIndex < HEADER
+        || rowIndex >= m_data.getRowCount() )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " row index=" + rowIndex );
+    Formula formula = text == null ? null : Formula.compile( text );
+
+    // replace previous formula and its dependencies
+    Formula old = rowIndex == HEADER ? m_columns.remove( columnIndex ) : m_cells.remove( key( columnIndex, rowIndex ) );
+    if ( old != null )
+      unregister( old );
+    if ( formula == null )
+      return;
+
+    if ( rowIndex == HEADER )
+      m_columns.put( columnIndex, formula );
+    else
+      m_cells.put( key( columnIndex, rowIndex ), formula );
+    register( formula, columnIndex, rowIndex );
+
+    // calculate the formula cells and everything depending on them
+    LongObjectMap<Node> nodes = new LongObjectMap<>();
+    if ( rowIndex == HEADER )
+      formulaCells( columnIndex, 0, columnIndex, m_data.getRowCount() - 1, key -> node( nodes, key ) );
+    else
+      node( nodes, key( columnIndex, rowIndex ) );
+    recalculate( nodes );
+  }
+
+  /***************************************** recalculate *****************************************/
+  public void recalculate()
+  {
+    // recalculate every formula cell
+    LongObjectMap<Node> nodes = new LongObjectMap<>();
+    formulaCells( 0, 0, m_data.getColumnCount() - 1, m_data.getRowCount() - 1, key -> node( nodes, key ) );
+    recalculate( nodes );
+  }
+
+  /*************************************** getFormulaCount ***************************************/
+  public int getFormulaCount()
+  {
+    // return number of cell & column formulas
+    return m_cells.size() + m_columns.size();
+  }
+
+  /******************************************* formula *******************************************/
+  private Formula formula( long key )
+  {
+    // return formula calculating cell, cell formula taking precedence over column formula
+    Formula formula = m_cells.get( key );
+    return formula != null ? formula : m_columns.get( (int) ( key >>> 32 ) );
+  }
+
+  /****************************************** register *******************************************/
+  private void register( Formula formula, int columnIndex, int rowIndex )
+  {
+    // record formula against each column it references
+    for ( Reference reference : formula.getReferences() )
+      for ( int column = reference.minColumnIndex; column <= reference.maxColumnIndex; column++ )
+      {
+        Dependent dependent = new Dependent();
+        dependent.formula = formula;
+        dependent.columnIndex = columnIndex;
+        dependent.rowIndex = rowIndex;
+        dependent.reference = reference;
+        m_dependents.computeIfAbsent( column, index -> new ArrayList<>() ).add( dependent );
+      }
+  }
+
+  /***************************************** unregister ******************************************/
+  private void unregister( Formula formula )
+  {
+    // remove formula from columns it references
+    for ( Reference reference : formula.getReferences() )
+      for ( int column = reference.minColumnIndex; column <= reference.maxColumnIndex; column++ )
+      {
+        ArrayList<Dependent> list = m_dependents.get( column );
+        if ( list != null )
+        {
+          list.removeIf( dependent -> dependent.formula == formula );
+          if ( list.isEmpty() )
+            m_dependents.remove( column );
+        }
+      }
+  }
+
+  /**************************************** formulaCells *****************************************/
+  private void formulaCells( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex,
+      LongConsumer consumer )
+  {
+    // pass key of each cell in block calculated by a formula to consumer, probing block if smaller than map
+    long cells = (long) ( maxColumnIndex - minColumnIndex + 1 ) * ( maxRowIndex - minRowIndex + 1 );
+    if ( cells < m_cells.size() )
+    {
+      for ( int columnIndex = minColumnIndex; columnIndex <= maxColumnIndex; columnIndex++ )
+        for ( int rowIndex = minRowIndex; rowIndex <= maxRowIndex; rowIndex++ )
+          if ( m_cells.containsKey( key( columnIndex, rowIndex ) ) )
+            consumer.accept( key( columnIndex, rowIndex ) );
+    }
+    else
+      for ( int slot = 0; slot < m_cells.getSlots(); slot++ )
+      {
+        long key = m_cells.getKey( slot );
+        int columnIndex = (int) ( key >>> 32 );
+        int rowIndex = (int) key;
+        if ( key != LongObjectMap.EMPTY && columnIndex >= minColumnIndex && columnIndex <= maxColumnIndex
+            && rowIndex >= minRowIndex && rowIndex <= maxRowIndex )
+          consumer.accept( key );
+      }
+
+    for ( int columnIndex : m_columns.keySet() )
+      if ( columnIndex >= minColumnIndex && columnIndex <= maxColumnIndex )
+        for ( int rowIndex = minRowIndex; rowIndex <= maxRowIndex; rowIndex++ )
+          if ( !m_cells.containsKey( key( columnIndex, rowIndex ) ) )
+            consumer.accept( key( columnIndex, rowIndex ) );
+  }
+
+  /****************************************** dependents *****************************************/
+  private void dependents( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex,
+      LongConsumer consumer )
+  {
+    // pass key of each formula cell referencing a cell in block to consumer (may repeat keys)
+    dependents( minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex, true, consumer );
+  }
+
+  /****************************************** dependents *****************************************/
+  private void dependents( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex,
+      boolean relative, LongConsumer consumer )
+  {
+    // pass key of each formula cell referencing a cell in block to consumer, optionally skipping same row references
+    int rowCount = m_data.getRowCount();
+    for ( int column = minColumnIndex; column <= maxColumnIndex; column++ )
+    {
+      ArrayList<Dependent> list = m_dependents.get( column );
+      if ( list == null )
+        continue;
+
+      for ( Dependent dependent : list )
+      {
+        Reference reference = dependent.reference;
+        boolean columnFormula = dependent.rowIndex == HEADER;
+        if ( reference.relative && !relative )
+          continue;
+        if ( reference.relative )
+        {
+          // same row reference, so only formula cells in changed rows affected
+          if ( columnFormula )
+            for ( int rowIndex = minRowIndex; rowIndex <= maxRowIndex; rowIndex++ )
+              columnCell( dependent.columnIndex, rowIndex, consumer );
+          else if ( dependent.rowIndex >= minRowIndex && dependent.rowIndex <= maxRowIndex )
+            consumer.accept( key( dependent.columnIndex, dependent.rowIndex ) );
+        }
+        else if ( reference.minRowIndex <= maxRowIndex && reference.maxRowIndex >= minRowIndex )
+        {
+          // block reference, so whole column formula affected
+          if ( columnFormula )
+            for ( int rowIndex = 0; rowIndex < rowCount; rowIndex++ )
+              columnCell( dependent.columnIndex, rowIndex, consumer );
+          else
+            consumer.accept( key( dependent.columnIndex, dependent.rowIndex ) );
+        }
+      }
+    }
+  }
+
+  /***************************************** columnCell ******************************************/
+  private void columnCell( int columnIndex, int rowIndex, LongConsumer consumer )
+  {
+    // pass key of cell to consumer if calculated by column formula rather than cell formula
+    long key = key( columnIndex, rowIndex );
+    if ( !m_cells.containsKey( key ) )
+      consumer.accept( key );
+  }
+
+  /******************************************** node *********************************************/
+  private Node node( LongObjectMap<Node> nodes, long key )
+  {
+    // return node for formula cell, creating it if not already present
+    Node node = nodes.get( key );
+    if ( node == null )
+    {
+      node = new Node();
+      node.key = key;
+      node.formula = formula( key );
+      nodes.put( key, node );
+    }
+    return node;
+  }
+
+  /***************************************** recalculate *****************************************/
+  private void recalculate( LongObjectMap<Node> nodes )
+  {
+    // discover every formula cell depending on the starting nodes, recording edges & in-degrees
+    ArrayList<Node> pending = new ArrayList<>();
+    for ( int slot = 0; slot < nodes.getSlots(); slot++ )
+      if ( nodes.getKey( slot ) != LongObjectMap.EMPTY )
+        pending.add( nodes.getValue( slot ) );
+
+    ArrayList<Node> all = new ArrayList<>();
+    long[] found = new long[16];
+    while ( !pending.isEmpty() )
+    {
+      Node node = pending.remove( pending.size() - 1 );
+      all.add( node );
+      int[] count = { 0 };
+      long[][] edges = { found };
+      int columnIndex = (int) ( node.key >>> 32 );
+      int rowIndex = (int) node.key;
+      dependents( columnIndex, rowIndex, columnIndex, rowIndex, key ->
+      {
+        if ( count[0] == edges[0].length )
+          edges[0] = Arrays.copyOf( edges[0], count[0] * 2 );
+        edges[0][count[0]++] = key;
+      } );
+      found = edges[0];
+      node.edges = Arrays.copyOf( found, count[0] );
+
+      for ( long key : node.edges )
+      {
+        Node target = nodes.get( key );
+        if ( target == null )
+        {
+          target = node( nodes, key );
+          pending.add( target );
+        }
+        target.inDegree++;
+      }
+    }
+
+    // evaluate in topological levels, nodes in a level are independent so evaluated in parallel
+    ArrayList<Node> level = new ArrayList<>();
+    for ( Node node : all )
+      if ( node.inDegree == 0 )
+        level.add( node );
+
+    ArrayList<Node> written = new ArrayList<>();
+    while ( !level.isEmpty() )
+    {
+      Node[] evaluate = level.toArray( new Node[level.size()] );
+      if ( evaluate.length >= PARALLEL_MIN )
+        IntStream.range( 0, evaluate.length ).parallel().forEach( index -> evaluate( evaluate[index] ) );
+      else
+        for ( Node node : evaluate )
+          evaluate( node );
+
+      level.clear();
+      for ( Node node : evaluate )
+      {
+        write( node, node.value );
+        written.add( node );
+        for ( long key : node.edges )
+        {
+          Node target = nodes.get( key );
+          if ( --target.inDegree == 0 )
+            level.add( target );
+        }
+      }
+    }
+
+    // nodes never reaching zero in-degree are in or depend on a reference cycle
+    for ( Node node : all )
+      if ( node.inDegree > 0 )
+      {
+        write( node, Formula.Error.CYCLE );
+        written.add( node );
+      }
+
+    fire( written );
+  }
+
+  /****************************************** evaluate *******************************************/
+  private void evaluate( Node node )
+  {
+    // evaluate node formula for its row
+    if ( node.formula != null )
+      node.value = node.formula.evaluate( m_data, (int) node.key );
+  }
+
+  /******************************************** write ********************************************/
+  private void write( Node node, Object value )
+  {
+    // write value to cell, empty if data does not accept the value
+    if ( node.formula == null )
+      return;
+
+    int columnIndex = (int) ( node.key >>> 32 );
+    int rowIndex = (int) node.key;
+    if ( !m_data.setValue( columnIndex, rowIndex, value ) )
+      m_data.setValue( columnIndex, rowIndex, null );
+  }
+
+  /******************************************** fire *********************************************/
+  private void fire( ArrayList<Node> written )
+  {
+    // notify views & listeners of recalculated cells, as one range if many
+    if ( written.isEmpty() )
+      return;
+
+    if ( written.size() <= REDRAW_CELLS )
+    {
+      for ( Node node : written )
+        fire( TableChange.cellUpdated( (int) ( node.key >>> 32 ), (int) node.key ) );
+      return;
+    }
+
+    int minColumnIndex = Integer.MAX_VALUE, minRowIndex = Integer.MAX_VALUE;
+    int maxColumnIndex = Integer.MIN_VALUE, maxRowIndex = Integer.MIN_VALUE;
+    for ( Node node : written )
+    {
+      minColumnIndex = Math.min( minColumnIndex, (int) ( node.key >>> 32 ) );
+      maxColumnIndex = Math.max( maxColumnIndex, (int) ( node.key >>> 32 ) );
+      minRowIndex = Math.min( minRowIndex, (int) node.key );
+      maxRowIndex = Math.max( maxRowIndex, (int) node.key );
+    }
+    fire( TableChange.cellsUpdated( minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex ) );
+  }
+
+  /******************************************** fire *********************************************/
+  private void fire( TableChange change )
+  {
+    // fire change remembering it so it does not itself trigger recalculation
+    m_fired.add( change );
+    m_data.fireChange( change );
+  }
+
+  /******************************************* changed *******************************************/
+  private void changed( TableChange change )
+  {
+    // recalculate formula cells affected by change (including formula cells overwritten)
+    if ( m_fired.remove( change ) || getFormulaCount() == 0 )
+      return;
+
+    switch ( change.getType() )
+    {
+      case CELLS_UPDATED:
+        int minColumnIndex = Math.max( change.getMinColumnIndex(), 0 );
+        int minRowIndex = Math.max( change.getMinRowIndex(), 0 );
+        int maxColumnIndex = Math.min( change.getMaxColumnIndex(), m_data.getColumnCount() - 1 );
+        int maxRowIndex = Math.min( change.getMaxRowIndex(), m_data.getRowCount() - 1 );
+        if ( minColumnIndex > maxColumnIndex || minRowIndex > maxRowIndex )
+          return;
+
+        LongObjectMap<Node> nodes = new LongObjectMap<>();
+        formulaCells( minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex, key -> node( nodes, key ) );
+        dependents( minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex, key -> node( nodes, key ) );
+        recalculate( nodes );
+        break;
+      case ROWS_INSERTED:
+      case ROWS_REMOVED:
+        rowsShifted( change, shift( change ) );
+        break;
+      case COLUMNS_INSERTED:
+      case COLUMNS_REMOVED:
+        shift( change );
+        recalculate();
+        break;
+      case RELOAD:
+        recalculate();
+        break;
+    }
+  }
+
+  /***************************************** rowsShifted *****************************************/
+  private void rowsShifted( TableChange change, LongObjectMap<Node> nodes )
+  {
+    // recalculate formula cells of inserted rows, rewritten formulas, and block references to rows that moved
+    // same row references move with their formula cell so are unaffected
+    int index = change.getIndex();
+    int maxColumnIndex = m_data.getColumnCount() - 1;
+    if ( change.getType() == TableChange.Type.ROWS_INSERTED )
+      formulaCells( 0, index, maxColumnIndex, index + change.getCount() - 1, key -> node( nodes, key ) );
+    dependents( 0, index, maxColumnIndex, Integer.MAX_VALUE, false, key -> node( nodes, key ) );
+    recalculate( nodes );
+  }
+
+  /******************************************** shift ********************************************/
+  private LongObjectMap<Node> shift( TableChange change )
+  {
+    // move formula cells with inserted & removed columns or rows, and move their references likewise
+    // returning nodes for formula cells whose references moved
+    boolean columns = change.getType() == TableChange.Type.COLUMNS_INSERTED
+        || change.getType() == TableChange.Type.COLUMNS_REMOVED;
+    boolean removed = change.getType() == TableChange.Type.COLUMNS_REMOVED
+        || change.getType() == TableChange.Type.ROWS_REMOVED;
+    int index = change.getIndex();
+    int count = change.getCount();
+
+    LongObjectMap<Formula> cells = new LongObjectMap<>();
+    for ( int slot = 0; slot < m_cells.getSlots(); slot++ )
+    {
+      long key = m_cells.getKey( slot );
+      if ( key == LongObjectMap.EMPTY )
+        continue;
+      int columnIndex = (int) ( key >>> 32 );
+      int rowIndex = (int) key;
+      int moved = shift( columns ? columnIndex : rowIndex, index, count, removed );
+      if ( moved >= 0 )
+        cells.put( columns ? key( moved, rowIndex ) : key( columnIndex, moved ), m_cells.getValue( slot ) );
+    }
+    m_cells = cells;
+
+    HashMap<Integer, Formula> shifted = new HashMap<>();
+    m_columns.forEach( ( columnIndex, formula ) ->
+    {
+      int moved = columns ? shift( columnIndex, index, count, removed ) : columnIndex;
+      if ( moved >= 0 )
+        shifted.put( moved, formula );
+    } );
+    m_columns = shifted;
+
+    // rewrite references of moved formulas, recalculating cells of those rewritten
+    LongObjectMap<Node> nodes = new LongObjectMap<>();
+    for ( int slot = 0; slot < m_cells.getSlots(); slot++ )
+      if ( m_cells.getKey( slot ) != LongObjectMap.EMPTY )
+      {
+        Formula formula = m_cells.getValue( slot );
+        Formula moved = formula.shift( columns, index, count, removed );
+        if ( moved != formula )
+        {
+          m_cells.put( m_cells.getKey( slot ), moved );
+          node( nodes, m_cells.getKey( slot ) );
+        }
+      }
+    ArrayList<Integer> rewritten = new ArrayList<>();
+    m_columns.replaceAll( ( columnIndex, formula ) ->
+    {
+      Formula moved = formula.shift( columns, index, count, removed );
+      if ( moved != formula )
+        rewritten.add( columnIndex );
+      return moved;
+    } );
+    for ( int columnIndex : rewritten )
+      formulaCells( columnIndex, 0, columnIndex, m_data.getRowCount() - 1, key -> node( nodes, key ) );
+
+    // rebuild dependencies for moved formula cells
+    m_dependents.clear();
+    for ( int slot = 0; slot < m_cells.getSlots(); slot++ )
+      if ( m_cells.getKey( slot ) != LongObjectMap.EMPTY )
+        register( m_cells.getValue( slot ), (int) ( m_cells.getKey( slot ) >>> 32 ), (int) m_cells.getKey( slot ) );
+    m_columns.forEach( ( columnIndex, formula ) -> register( formula, columnIndex, HEADER ) );
+    return nodes;
+  }
+
+  /******************************************** shift ********************************************/
+  private static int shift( int position, int index, int count, boolean removed )
+  {
+    // return position after insert or removal, -1 if removed
+    if ( position < index )
+      return position;
+    if ( !removed )
+      return position + count;
+    return position < index + count ? -1 : position - count;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[cells="
+        + m_cells.size() + " columns=" + m_columns.size() + "]";
+  }
+
+}
@@ -0,0 +1,271 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.formula;
+
+import java.util.function.DoubleConsumer;
+
+import rjc.table.data.TableData;
+import rjc.table.data.formula.Formula.Error;
+import rjc.table.data.formula.Formula.Term;
+
+/*************************************************************************************************/
+/******************* Value conversions and built-in functions used by formulas *******************/
+/*************************************************************************************************/
+
+class Functions
+{
+  /********************************************* call ********************************************/
+  static Term call( String name, Term[] args )
+  {
+    // return term for built-in function call, throws IllegalArgumentException if unknown or wrong arguments
+    switch ( name )
+    {
+      case "SUM":
+        return ( data, row ) ->
+        {
+          double[] sum = { 0.0 };
+          numbers( data, row, args, value -> sum[0] += value );
+          return sum[0];
+        };
+      case "COUNT":
+        return ( data, row ) ->
+        {
+          long[] count = { 0L };
+          numbers( data, row, args, value -> count[0]++ );
+          return (double) count[0];
+        };
+      case "AVERAGE":
+        return ( data, row ) ->
+        {
+          double[] total = { 0.0, 0.0 };
+          numbers( data, row, args, value ->
+          {
+            total[0] += value;
+            total[1]++;
+          } );
+          return divide( total[0], total[1] );
+        };
+      case "MIN":
+        return ( data, row ) ->
+        {
+          double[] min = { Double.POSITIVE_INFINITY };
+          numbers( data, row, args, value -> min[0] = Math.min( min[0], value ) );
+          return min[0] == Double.POSITIVE_INFINITY ? 0.0 : min[0];
+        };
+      case "MAX":
+        return ( data, row ) ->
+        {
+          double[] max = { Double.NEGATIVE_INFINITY };
+          numbers( data, row, args, value -> max[0] = Math.max( max[0], value ) );
+          return max[0] == Double.NEGATIVE_INFINITY ? 0.0 : max[0];
+        };
+      case "IF":
+        check( name, args, 2, 3 );
+        return ( data, row ) ->
+        {
+          if ( bool( args[0].evaluate( data, row ) ) )
+            return args[1].evaluate( data, row );
+          return args.length > 2 ? args[2].evaluate( data, row ) : Boolean.FALSE;
+        };
+      case "AND":
+        check( name, args, 1, Integer.MAX_VALUE );
+        return ( data, row ) ->
+        {
+          for ( Term arg : args )
+            if ( !bool( arg.evaluate( data, row ) ) )
+              return false;
+          return true;
+        };
+      case "OR":
+        check( name, args, 1, Integer.MAX_VALUE );
+        return ( data, row ) ->
+        {
+          for ( Term arg : args )
+            if ( bool( arg.evaluate( data, row ) ) )
+              return true;
+          return false;
+        };
+      case "NOT":
+        check( name, args, 1, 1 );
+        return ( data, row ) -> !bool( args[0].evaluate( data, row ) );
+      case "ABS":
+        check( name, args, 1, 1 );
+        return ( data, row ) -> Math.abs( number( args[0].evaluate( data, row ) ) );
+      case "SQRT":
+        check( name, args, 1, 1 );
+        return ( data, row ) ->
+        {
+          double value = number( args[0].evaluate( data, row ) );
+          if ( value < 0.0 )
+            throw new FormulaException( Error.VALUE );
+          return Math.sqrt( value );
+        };
+      case "ROUND":
+        check( name, args, 1, 2 );
+        return ( data, row ) ->
+        {
+          double scale = Math.pow( 10.0, args.length > 1 ? (int) number( args[1].evaluate( data, row ) ) : 0 );
+          return Math.round( number( args[0].evaluate( data, row ) ) * scale ) / scale;
+        };
+      case "LEN":
+        check( name, args, 1, 1 );
+        return ( data, row ) -> (double) text( args[0].evaluate( data, row ) ).length();
+      case "VLOOKUP":
+        check( name, args, 3, 3 );
+        return ( data, row ) -> lookup( args[0].evaluate( data, row ), range( args[1].evaluate( data, row ) ),
+            (int) number( args[2].evaluate( data, row ) ) );
+      default:
+        throw new IllegalArgumentException( "Unknown function " + name );
+    }
+  }
+
+  /******************************************** check ********************************************/
+  private static void check( String name, Term[] args, int min, int max )
+  {
+    // throw exception if wrong number of arguments for function
+    if ( args.length < min || args.length > max )
+      throw new IllegalArgumentException( "Wrong number of arguments for " + name );
+  }
+
+  /******************************************* numbers *******************************************/
+  private static void numbers( TableData data, int row, Term[] args, DoubleConsumer consumer )
+  {
+    // pass each number in arguments to consumer, ranges contribute their numeric cells
+    for ( Term arg : args )
+    {
+      Object value = arg.evaluate( data, row );
+      if ( value instanceof Range )
+        ( (Range) value ).forEachNumber( consumer );
+      else if ( value != null )
+        consumer.accept( number( value ) );
+    }
+  }
+
+  /******************************************* lookup ********************************************/
+  private static Object lookup( Object value, Range range, int column )
+  {
+    // return value in column (1 is first) of first range row whose first column equals value exactly
+    if ( column < 1 || column > range.getColumns() )
+      throw new FormulaException( Error.REF );
+    for ( int row = 0; row < range.getRows(); row++ )
+      if ( compare( value, range.get( 0, row ) ) == 0 )
+        return range.get( column - 1, row );
+    throw new FormulaException( Error.NA );
+  }
+
+  /******************************************** value ********************************************/
+  static Object value( TableData data, int columnIndex, int rowIndex )
+  {
+    // return cell value, throws IndexOutOfBoundsException if outside table
+    if ( columnIndex >= data.getColumnCount() || rowIndex < 0 || rowIndex >= data.getRowCount() )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " row index=" + rowIndex );
+    return data.getValue( columnIndex, rowIndex );
+  }
+
+  /******************************************** range ********************************************/
+  private static Range range( Object value )
+  {
+    // return value as range, error if not a block reference
+    if ( value instanceof Range )
+      return (Range) value;
+    throw new FormulaException( value instanceof Error ? (Error) value : Error.VALUE );
+  }
+
+  /******************************************* number ********************************************/
+  static double number( Object value )
+  {
+    // return value as number, empty is zero, errors & non-numeric text abandon evaluation
+    if ( value instanceof Number )
+      return ( (Number) value ).doubleValue();
+    if ( value == null )
+      return 0.0;
+    if ( value instanceof Boolean )
+      return (Boolean) value ? 1.0 : 0.0;
+    if ( value instanceof Error )
+      throw new FormulaException( (Error) value );
+    if ( value instanceof String )
+      try
+      {
+        return Double.parseDouble( ( (String) value ).trim() );
+      }
+      catch ( NumberFormatException exception )
+      {
+        // falls through to value error
+      }
+
+    throw new FormulaException( Error.VALUE );
+  }
+
+  /******************************************** bool *********************************************/
+  static boolean bool( Object value )
+  {
+    // return value as boolean, numbers are true if non-zero
+    if ( value instanceof Boolean )
+      return (Boolean) value;
+    if ( value instanceof String )
+    {
+      if ( ( (String) value ).equalsIgnoreCase( "TRUE" ) )
+        return true;
+      if ( ( (String) value ).equalsIgnoreCase( "FALSE" ) )
+        return false;
+    }
+    return number( value ) != 0.0;
+  }
+
+  /******************************************** text *********************************************/
+  static String text( Object value )
+  {
+    // return value as text, empty is empty text, whole numbers without fraction
+    if ( value == null )
+      return "";
+    if ( value instanceof Error )
+      throw new FormulaException( (Error) value );
+    if ( value instanceof Range )
+      throw new FormulaException( Error.VALUE );
+    if ( value instanceof Double && (Double) value == Math.rint( (Double) value ) && Math.abs( (Double) value ) < 1e15 )
+      return Long.toString( ( (Double) value ).longValue() );
+    return value.toString();
+  }
+
+  /******************************************* divide ********************************************/
+  static double divide( double dividend, double divisor )
+  {
+    // return quotient, error if dividing by zero
+    if ( divisor == 0.0 )
+      throw new FormulaException( Error.DIV0 );
+    return dividend / divisor;
+  }
+
+  /******************************************* compare *******************************************/
+  static int compare( Object value1, Object value2 )
+  {
+    // compare values as numbers if both numeric (empty as zero, -0 as 0), otherwise as text ignoring case
+    if ( value1 instanceof Error )
+      throw new FormulaException( (Error) value1 );
+    if ( value2 instanceof Error )
+      throw new FormulaException( (Error) value2 );
+
+    boolean numeric1 = value1 == null || value1 instanceof Number || value1 instanceof Boolean;
+    boolean numeric2 = value2 == null || value2 instanceof Number || value2 instanceof Boolean;
+    if ( numeric1 && numeric2 )
+      return Double.compare( number( value1 ) + 0.0, number( value2 ) + 0.0 );
+    return text( value1 ).compareToIgnoreCase( text( value2 ) );
+  }
+
+}
@@ -0,0 +1,101 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.formula;
+
+import java.util.function.DoubleConsumer;
+
+import rjc.table.data.TableData;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.data.formula.Formula.Reference;
+
+/*************************************************************************************************/
+/************ Block of cells referenced by a formula, clipped to the table when read *************/
+/*************************************************************************************************/
+
+class Range
+{
+  private TableData m_data;           // table data read
+  private int       m_minColumnIndex; // first column (inclusive)
+  private int       m_minRowIndex;    // first row (inclusive)
+  private int       m_maxColumnIndex; // last column (inclusive, clipped to table)
+  private int       m_maxRowIndex;    // last row (inclusive, clipped to table)
+
+  /**************************************** constructor ******************************************/
+  Range( TableData data, Reference reference )
+  {
+    // initialise private variables, throws IndexOutOfBoundsException if block starts outside table
+    if ( reference.minColumnIndex >= data.getColumnCount() || reference.minRowIndex >= data.getRowCount() )
+      throw new IndexOutOfBoundsException( reference.toString() );
+
+    m_data = data;
+    m_minColumnIndex = reference.minColumnIndex;
+    m_minRowIndex = reference.minRowIndex;
+    m_maxColumnIndex = Math.min( reference.maxColumnIndex, data.getColumnCount() - 1 );
+    m_maxRowIndex = Math.min( reference.maxRowIndex, data.getRowCount() - 1 );
+  }
+
+  /***************************************** getColumns ******************************************/
+  int getColumns()
+  {
+    // return number of columns in block
+    return m_maxColumnIndex - m_minColumnIndex + 1;
+  }
+
+  /******************************************* getRows *******************************************/
+  int getRows()
+  {
+    // return number of rows in block
+    return m_maxRowIndex - m_minRowIndex + 1;
+  }
+
+  /********************************************* get *********************************************/
+  Object get( int column, int row )
+  {
+    // return value of cell at offset within block
+    return m_data.getValue( m_minColumnIndex + column, m_minRowIndex + row );
+  }
+
+  /**************************************** forEachNumber ****************************************/
+  void forEachNumber( DoubleConsumer consumer )
+  {
+    // pass each numeric cell value to consumer (text, booleans & empty cells ignored), errors thrown
+    for ( int columnIndex = m_minColumnIndex; columnIndex <= m_maxColumnIndex; columnIndex++ )
+    {
+      ColumnType type = m_data.getColumnType( columnIndex );
+      boolean typed = type == ColumnType.INTEGER || type == ColumnType.LONG || type == ColumnType.DOUBLE;
+      for ( int rowIndex = m_minRowIndex; rowIndex <= m_maxRowIndex; rowIndex++ )
+      {
+        if ( typed )
+        {
+          // typed getters avoid boxing
+          if ( !m_data.isNull( columnIndex, rowIndex ) )
+            consumer.accept( m_data.getDouble( columnIndex, rowIndex ) );
+          continue;
+        }
+
+        Object value = m_data.getValue( columnIndex, rowIndex );
+        if ( value instanceof Number )
+          consumer.accept( ( (Number) value ).doubleValue() );
+        else if ( value instanceof Formula.Error )
+          throw new FormulaException( (Formula.Error) value );
+      }
+    }
+  }
+
+}
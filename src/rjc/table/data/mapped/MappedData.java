@@ -0,0 +1,513 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.mapped;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.HashMap;
+
+import rjc.table.data.Date;
+import rjc.table.data.DateTime;
+import rjc.table.data.TableData;
+import rjc.table.data.Time;
+
+/*************************************************************************************************/
+/********** Table data source reading a memory-mapped fixed-width binary columnar file ***********/
+/*************************************************************************************************/
+
+/* File layout (little-endian, every region 8 byte aligned) written by MappedDataWriter :
+ *   header   - int MAGIC, int VERSION, long row count, int column count, int unused
+ *   columns  - per column : int type ordinal, int name length, long data, long nulls, long heap
+ *              offsets, followed by UTF-8 name padded to 8 bytes
+ *   data     - per column : fixed-width values (int, long, double or byte for boolean) or for
+ *              OBJECT columns row count + 1 long offsets into the heap of UTF-8 strings
+ *   nulls    - per column : bitmap with bit set for rows that have a value */
+
+public class MappedData extends TableData
+{
+  private MappedFile            m_file;            // mapped file
+  private Mode                  m_mode;            // read-only or copy-on-write
+  private ColumnType[]          m_types;           // column types
+  private String[]              m_names;           // column names
+  private long[]                m_data;            // column data region file positions
+  private long[]                m_nulls;           // column null bitmap file positions
+  private long[]                m_heap;            // column string heap file positions
+  private HashMap<Long, String> m_edits;           // edited strings keyed on (column << 32 | row)
+
+  final static public int       MAGIC       = 0x5846544A;
+  final static public int       VERSION     = 1;
+  final static public int       HEADER_SIZE = 24;
+  final static public int       COLUMN_SIZE = 32;
+
+  public enum Mode
+  {
+    READ_ONLY, COPY_ON_WRITE // copy-on-write edits are held in private memory and never reach the file
+  }
+
+  /**************************************** constructor ******************************************/
+  public MappedData( Path path, Mode mode ) throws IOException
+  {
+    // map file and read header, no cell values are loaded onto the heap
+    m_file = new MappedFile( path, mode == Mode.COPY_ON_WRITE );
+    m_mode = mode;
+    m_edits = new HashMap<>();
+
+    if ( m_file.getSize() < HEADER_SIZE || m_file.getInt( 0 ) != MAGIC )
+      throw new IOException( "Not a mapped table file " + path );
+    if ( m_file.getInt( 4 ) != VERSION )
+      throw new IOException( "Unsupported version " + m_file.getInt( 4 ) + " " + path );
+
+    long rowCount = m_file.getLong( 8 );
+    int columnCount = m_file.getInt( 16 );
+    if ( rowCount < 0 || rowCount > Integer.MAX_VALUE - 8 || columnCount < 0 )
+      throw new IOException( "Invalid size " + columnCount + " x " + rowCount + " " + path );
+
+    m_types = new ColumnType[columnCount];
+    m_names = new String[columnCount];
+    m_data = new long[columnCount];
+    m_nulls = new long[columnCount];
+    m_heap = new long[columnCount];
+
+    long size = m_file.getSize();
+    long position = HEADER_SIZE;
+    for ( int column = 0; column < columnCount; column++ )
+    {
+      // check column descriptor and name lie within file before reading them
+      if ( position + COLUMN_SIZE > size )
+        throw new IOException( "Truncated column " + column + " " + path );
+      int ordinal = m_file.getInt( position );
+      int nameLength = m_file.getInt( position + 4 );
+      if ( ordinal < 0 || ordinal >= ColumnType.values().length || nameLength < 0
+          || position + COLUMN_SIZE + nameLength > size )
+        throw new IOException( "Invalid column " + column + " type=" + ordinal + " name=" + nameLength + " " + path );
+
+      m_types[column] = ColumnType.values()[ordinal];
+      m_data[column] = m_file.getLong( position + 8 );
+      m_nulls[column] = m_file.getLong( position + 16 );
+      m_heap[column] = m_file.getLong( position + 24 );
+      byte[] name = new byte[nameLength];
+      m_file.getBytes( position + COLUMN_SIZE, name, nameLength );
+      m_names[column] = new String( name, StandardCharsets.UTF_8 );
+      position += COLUMN_SIZE + align( nameLength );
+
+      // check data, nulls and (for strings) heap regions lie within file so reads are never out of range
+      if ( !validRegions( column, rowCount, size ) )
+        throw new IOException( "Invalid column " + column + " '" + m_names[column] + "' " + path );
+    }
+
+    setColumnCount( columnCount );
+    setRowCount( (int) rowCount );
+  }
+
+  /**************************************** validRegions *****************************************/
+  private boolean validRegions( int column, long rowCount, long size )
+  {
+    // return true if column data, nulls and heap regions are aligned and within file size
+    long data = m_data[column];
+    long nulls = m_nulls[column];
+    if ( data < HEADER_SIZE || nulls < HEADER_SIZE || ( ( data | nulls ) & 7L ) != 0L
+        || nulls + ( rowCount + 7 ) / 8 > size )
+      return false;
+
+    if ( m_types[column] != ColumnType.OBJECT )
+      return data + width( m_types[column] ) * rowCount <= size;
+
+    // string offset index must fit, start at zero and end within file from heap position
+    long heap = m_heap[column];
+    if ( data + 8L * ( rowCount + 1 ) > size || heap < HEADER_SIZE || heap > size )
+      return false;
+    long heapSize = m_file.getLong( data + 8L * rowCount );
+    return m_file.getLong( data ) == 0L && heapSize >= 0L && heapSize <= size - heap;
+  }
+
+  /******************************************** align ********************************************/
+  static long align( long size )
+  {
+    // return size rounded up to multiple of 8 bytes
+    return ( size + 7L ) & ~7L;
+  }
+
+  /******************************************** width ********************************************/
+  static int width( ColumnType type )
+  {
+    // return bytes per row of column data region
+    switch ( type )
+    {
+      case INTEGER:
+      case DATE:
+      case TIME:
+        return 4;
+      case BOOLEAN:
+        return 1;
+      default:
+        return 8;
+    }
+  }
+
+  /***************************************** isVersioned *****************************************/
+  @Override
+  protected boolean isVersioned()
+  {
+    // return true as every write is bracketed so open snapshots keep older values
+    return true;
+  }
+
+  /******************************************* getMode *******************************************/
+  public Mode getMode()
+  {
+    // return mapping mode
+    return m_mode;
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int columnIndex, int rowIndex )
+  {
+    // return header corner cell value
+    if ( columnIndex == HEADER && rowIndex == HEADER )
+      return null;
+
+    // return row value for specified row index
+    if ( columnIndex == HEADER )
+      return String.valueOf( rowIndex + 1 );
+
+    // return column value for specified column index
+    if ( rowIndex == HEADER )
+      return m_names[columnIndex];
+
+    // return cell value for specified cell index
+    if ( m_types[columnIndex] == ColumnType.OBJECT )
+      return getString( columnIndex, rowIndex );
+    if ( isNull( columnIndex, rowIndex ) )
+      return null;
+
+    switch ( m_types[columnIndex] )
+    {
+      case INTEGER:
+        return getInt( columnIndex, rowIndex );
+      case DATE:
+        return new Date( getInt( columnIndex, rowIndex ) );
+      case TIME:
+        return Time.fromMilliseconds( getInt( columnIndex, rowIndex ) );
+      case LONG:
+        return getLong( columnIndex, rowIndex );
+      case DATETIME:
+        return new DateTime( getLong( columnIndex, rowIndex ) );
+      case DOUBLE:
+        return getDouble( columnIndex, rowIndex );
+      case BOOLEAN:
+        return getBoolean( columnIndex, rowIndex );
+      default:
+        throw new IllegalStateException( "Type=" + m_types[columnIndex] );
+    }
+  }
+
+  /****************************************** getString ******************************************/
+  private String getString( int columnIndex, int rowIndex )
+  {
+    // return string from edits if changed, otherwise decode from heap via row offset index
+    if ( !m_edits.isEmpty() )
+    {
+      long key = (long) columnIndex << 32 | rowIndex;
+      if ( m_edits.containsKey( key ) )
+        return m_edits.get( key );
+    }
+    if ( isNull( columnIndex, rowIndex ) )
+      return null;
+
+    long start = m_file.getLong( m_data[columnIndex] + 8L * rowIndex );
+    long end = m_file.getLong( m_data[columnIndex] + 8L * rowIndex + 8L );
+    long heapSize = m_file.getLong( m_data[columnIndex] + 8L * getRowCount() );
+    if ( start < 0L || end < start || end > heapSize || end - start > Integer.MAX_VALUE )
+      throw new IllegalStateException( "Corrupt string offsets column=" + columnIndex + " row=" + rowIndex );
+    int length = (int) ( end - start );
+    byte[] bytes = new byte[length];
+    m_file.getBytes( m_heap[columnIndex] + start, bytes, length );
+    return new String( bytes, StandardCharsets.UTF_8 );
+  }
+
+  /****************************************** setValue *******************************************/
+  @Override
+  public boolean setValue( int columnIndex, int rowIndex, Object newValue )
+  {
+    // set cell value in private copy, not possible if read-only
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      if ( m_mode == Mode.READ_ONLY || rowIndex == HEADER || columnIndex == HEADER )
+        return false;
+
+      ColumnType type = m_types[columnIndex];
+      if ( type == ColumnType.OBJECT )
+      {
+        m_edits.put( (long) columnIndex << 32 | rowIndex, newValue == null ? null : newValue.toString() );
+        return true;
+      }
+      if ( newValue == null )
+      {
+        setValid( columnIndex, rowIndex, false );
+        return true;
+      }
+
+      if ( type == ColumnType.DATE && newValue instanceof Date )
+        return setInt( columnIndex, rowIndex, ( (Date) newValue ).getEpochday() );
+      if ( type == ColumnType.TIME && newValue instanceof Time )
+        return setInt( columnIndex, rowIndex, ( (Time) newValue ).getDayMilliseconds() );
+      if ( type == ColumnType.DATETIME && newValue instanceof DateTime )
+        return setLong( columnIndex, rowIndex, ( (DateTime) newValue ).getMilliseconds() );
+      if ( type == ColumnType.BOOLEAN && newValue instanceof Boolean )
+        return setBoolean( columnIndex, rowIndex, (Boolean) newValue );
+      if ( type == ColumnType.DOUBLE && newValue instanceof Number )
+        return setDouble( columnIndex, rowIndex, ( (Number) newValue ).doubleValue() );
+      if ( ( type == ColumnType.INTEGER || type == ColumnType.LONG ) && newValue instanceof Number )
+      {
+        long number = ( (Number) newValue ).longValue();
+        if ( ( newValue instanceof Double || newValue instanceof Float )
+            && ( (Number) newValue ).doubleValue() != number )
+          return false;
+        return setLong( columnIndex, rowIndex, number );
+      }
+
+      return false;
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /****************************************** setValid *******************************************/
+  private void setValid( int columnIndex, int rowIndex, boolean valid )
+  {
+    // set or clear null bitmap bit for cell in private copy
+    long position = m_nulls[columnIndex] + ( rowIndex >>> 3 );
+    int bits = m_file.getByte( position );
+    bits = valid ? bits | 1 << ( rowIndex & 7 ) : bits & ~( 1 << ( rowIndex & 7 ) );
+    m_file.putByte( position, (byte) bits );
+  }
+
+  /**************************************** getColumnType ****************************************/
+  @Override
+  public ColumnType getColumnType( int columnIndex )
+  {
+    // return type of body cell values in column
+    return m_types[columnIndex];
+  }
+
+  /******************************************* isNull ********************************************/
+  @Override
+  public boolean isNull( int columnIndex, int rowIndex )
+  {
+    // return true if cell has no value according to null bitmap (or string edits)
+    if ( m_types[columnIndex] == ColumnType.OBJECT && !m_edits.isEmpty() )
+    {
+      long key = (long) columnIndex << 32 | rowIndex;
+      if ( m_edits.containsKey( key ) )
+        return m_edits.get( key ) == null;
+    }
+    return ( m_file.getByte( m_nulls[columnIndex] + ( rowIndex >>> 3 ) ) & 1 << ( rowIndex & 7 ) ) == 0;
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int columnIndex, int rowIndex )
+  {
+    // return cell value as int read directly from mapping, zero if null
+    switch ( m_types[columnIndex] )
+    {
+      case INTEGER:
+      case DATE:
+      case TIME:
+        return isNull( columnIndex, rowIndex ) ? 0 : m_file.getInt( m_data[columnIndex] + 4L * rowIndex );
+      case LONG:
+      case DATETIME:
+        return (int) getLong( columnIndex, rowIndex );
+      case DOUBLE:
+        return (int) getDouble( columnIndex, rowIndex );
+      case BOOLEAN:
+        return getBoolean( columnIndex, rowIndex ) ? 1 : 0;
+      default:
+        return super.getInt( columnIndex, rowIndex );
+    }
+  }
+
+  /******************************************* getLong *******************************************/
+  @Override
+  public long getLong( int columnIndex, int rowIndex )
+  {
+    // return cell value as long read directly from mapping, zero if null
+    switch ( m_types[columnIndex] )
+    {
+      case LONG:
+      case DATETIME:
+        return isNull( columnIndex, rowIndex ) ? 0L : m_file.getLong( m_data[columnIndex] + 8L * rowIndex );
+      case DOUBLE:
+        return (long) getDouble( columnIndex, rowIndex );
+      case OBJECT:
+        return super.getLong( columnIndex, rowIndex );
+      default:
+        return getInt( columnIndex, rowIndex );
+    }
+  }
+
+  /****************************************** getDouble ******************************************/
+  @Override
+  public double getDouble( int columnIndex, int rowIndex )
+  {
+    // return cell value as double read directly from mapping, zero if null
+    switch ( m_types[columnIndex] )
+    {
+      case DOUBLE:
+        return isNull( columnIndex, rowIndex ) ? 0.0 : m_file.getDouble( m_data[columnIndex] + 8L * rowIndex );
+      case OBJECT:
+        return super.getDouble( columnIndex, rowIndex );
+      default:
+        return getLong( columnIndex, rowIndex );
+    }
+  }
+
+  /***************************************** getBoolean ******************************************/
+  @Override
+  public boolean getBoolean( int columnIndex, int rowIndex )
+  {
+    // return cell value as boolean read directly from mapping, false if null
+    switch ( m_types[columnIndex] )
+    {
+      case BOOLEAN:
+        return !isNull( columnIndex, rowIndex ) && m_file.getByte( m_data[columnIndex] + rowIndex ) != 0;
+      case OBJECT:
+        return super.getBoolean( columnIndex, rowIndex );
+      default:
+        return getLong( columnIndex, rowIndex ) != 0L;
+    }
+  }
+
+  /******************************************* setInt ********************************************/
+  @Override
+  public boolean setInt( int columnIndex, int rowIndex, int newValue )
+  {
+    // set cell value in private copy, not possible if read-only
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      switch ( m_types[columnIndex] )
+      {
+        case INTEGER:
+        case DATE:
+        case TIME:
+          if ( m_mode == Mode.READ_ONLY )
+            return false;
+          m_file.putInt( m_data[columnIndex] + 4L * rowIndex, newValue );
+          setValid( columnIndex, rowIndex, true );
+          return true;
+        default:
+          return super.setInt( columnIndex, rowIndex, newValue );
+      }
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /******************************************* setLong *******************************************/
+  @Override
+  public boolean setLong( int columnIndex, int rowIndex, long newValue )
+  {
+    // set cell value in private copy, not possible if read-only
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      switch ( m_types[columnIndex] )
+      {
+        case LONG:
+        case DATETIME:
+          if ( m_mode == Mode.READ_ONLY )
+            return false;
+          m_file.putLong( m_data[columnIndex] + 8L * rowIndex, newValue );
+          setValid( columnIndex, rowIndex, true );
+          return true;
+        default:
+          return super.setLong( columnIndex, rowIndex, newValue );
+      }
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /****************************************** setDouble ******************************************/
+  @Override
+  public boolean setDouble( int columnIndex, int rowIndex, double newValue )
+  {
+    // set cell value in private copy, not possible if read-only
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      if ( m_types[columnIndex] != ColumnType.DOUBLE )
+        return super.setDouble( columnIndex, rowIndex, newValue );
+      if ( m_mode == Mode.READ_ONLY )
+        return false;
+
+      m_file.putDouble( m_data[columnIndex] + 8L * rowIndex, newValue );
+      setValid( columnIndex, rowIndex, true );
+      return true;
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /***************************************** setBoolean ******************************************/
+  @Override
+  public boolean setBoolean( int columnIndex, int rowIndex, boolean newValue )
+  {
+    // set cell value in private copy, not possible if read-only
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      if ( m_types[columnIndex] != ColumnType.BOOLEAN )
+        return super.setBoolean( columnIndex, rowIndex, newValue );
+      if ( m_mode == Mode.READ_ONLY )
+        return false;
+
+      m_file.putByte( m_data[columnIndex] + rowIndex, (byte) ( newValue ? 1 : 0 ) );
+      setValid( columnIndex, rowIndex, true );
+      return true;
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[file="
+        + m_file + " mode=" + m_mode + " columns=" + getColumnCount() + " rows=" + getRowCount() + " edits="
+        + m_edits.size() + "]";
+  }
+
+}
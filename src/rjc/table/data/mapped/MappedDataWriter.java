@@ -0,0 +1,249 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.mapped;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import rjc.table.data.TableData;
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/********** Writes any table data to the binary columnar file format read by MappedData **********/
+/*************************************************************************************************/
+
+public class MappedDataWriter
+{
+  private FileChannel      m_channel;     // file being written
+  private ByteBuffer       m_buffer;      // buffered bytes waiting to be written
+  private long             m_position;    // file position of start of buffer
+
+  final static private int BUFFER_SIZE = 1 << 20;
+
+  /**************************************** constructor ******************************************/
+  private MappedDataWriter( FileChannel channel )
+  {
+    // prevent instantiation except by write
+    m_channel = channel;
+    m_buffer = ByteBuffer.allocateDirect( BUFFER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+  }
+
+  /******************************************** write ********************************************/
+  public static void write( TableData data, Path path ) throws IOException
+  {
+    // write table data to file one column at a time using typed getters to avoid boxing
+    try (FileChannel channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING ))
+    {
+      new MappedDataWriter( channel ).writeTable( data );
+    }
+  }
+
+  /***************************************** writeTable ******************************************/
+  private void writeTable( TableData data ) throws IOException
+  {
+    // calculate header size to find start of first column
+    int columnCount = data.getColumnCount();
+    int rowCount = data.getRowCount();
+    byte[][] names = new byte[columnCount][];
+    long position = MappedData.HEADER_SIZE;
+    for ( int column = 0; column < columnCount; column++ )
+    {
+      Object name = data.getValue( column, TableData.HEADER );
+      names[column] = ( name == null ? "" : name.toString() ).getBytes( StandardCharsets.UTF_8 );
+      position += MappedData.COLUMN_SIZE + MappedData.align( names[column].length );
+    }
+
+    // write each column data, nulls and heap regions
+    long[] dataPositions = new long[columnCount];
+    long[] nullPositions = new long[columnCount];
+    long[] heapPositions = new long[columnCount];
+    long nullsSize = MappedData.align( ( rowCount + 7L ) / 8L );
+    for ( int column = 0; column < columnCount; column++ )
+    {
+      ColumnType type = data.getColumnType( column );
+      dataPositions[column] = position;
+      if ( type == ColumnType.OBJECT )
+      {
+        nullPositions[column] = position + MappedData.align( 8L * ( rowCount + 1L ) );
+        heapPositions[column] = nullPositions[column] + nullsSize;
+        position = writeStrings( data, column, dataPositions[column], heapPositions[column] );
+      }
+      else
+      {
+        nullPositions[column] = position + MappedData.align( (long) MappedData.width( type ) * rowCount );
+        writeValues( data, column, type, position );
+        position = nullPositions[column] + nullsSize;
+      }
+      writeNulls( data, column, nullPositions[column] );
+    }
+
+    // finally write header now all column positions are known
+    start( 0L );
+    m_buffer.putInt( MappedData.MAGIC ).putInt( MappedData.VERSION ).putLong( rowCount ).putInt( columnCount )
+        .putInt( 0 );
+    for ( int column = 0; column < columnCount; column++ )
+    {
+      reserve( MappedData.COLUMN_SIZE + names[column].length + 8 );
+      m_buffer.putInt( data.getColumnType( column ).ordinal() ).putInt( names[column].length );
+      m_buffer.putLong( dataPositions[column] ).putLong( nullPositions[column] ).putLong( heapPositions[column] );
+      m_buffer.put( names[column] );
+      while ( ( m_buffer.position() & 7 ) != 0 )
+        m_buffer.put( (byte) 0 );
+    }
+    flush();
+  }
+
+  /***************************************** writeValues *****************************************/
+  private void writeValues( TableData data, int column, ColumnType type, long position ) throws IOException
+  {
+    // write fixed-width column values (nulls written as zero)
+    start( position );
+    int rowCount = data.getRowCount();
+    for ( int row = 0; row < rowCount; row++ )
+    {
+      reserve( 8 );
+      switch ( type )
+      {
+        case INTEGER:
+        case DATE:
+        case TIME:
+          m_buffer.putInt( data.getInt( column, row ) );
+          break;
+        case LONG:
+        case DATETIME:
+          m_buffer.putLong( data.getLong( column, row ) );
+          break;
+        case DOUBLE:
+          m_buffer.putDouble( data.getDouble( column, row ) );
+          break;
+        case BOOLEAN:
+          m_buffer.put( (byte) ( data.getBoolean( column, row ) ? 1 : 0 ) );
+          break;
+        default:
+          throw new IllegalArgumentException( "Type=" + type );
+      }
+    }
+    flush();
+  }
+
+  /**************************************** writeStrings *****************************************/
+  private long writeStrings( TableData data, int column, long offsetsPosition, long heapPosition )
+      throws IOException
+  {
+    // write string heap, collecting row offset index which is written afterwards
+    int rowCount = data.getRowCount();
+    long[] offsets = new long[BUFFER_SIZE / 8];
+    long offset = 0L;
+    start( heapPosition );
+    for ( int row = 0; row <= rowCount; row++ )
+    {
+      // offsets index is written in blocks to keep memory use flat
+      int slot = row % offsets.length;
+      offsets[slot] = offset;
+      if ( slot == offsets.length - 1 || row == rowCount )
+      {
+        flush();
+        long heapWritten = m_position;
+        start( offsetsPosition + 8L * ( row - slot ) );
+        for ( int index = 0; index <= slot; index++ )
+          m_buffer.putLong( offsets[index] );
+        flush();
+        start( heapWritten );
+      }
+      if ( row == rowCount )
+        break;
+
+      Object value = data.getValue( column, row );
+      if ( value != null )
+      {
+        byte[] bytes = value.toString().getBytes( StandardCharsets.UTF_8 );
+        for ( int done = 0; done < bytes.length; )
+        {
+          reserve( 1 );
+          int count = Math.min( bytes.length - done, m_buffer.remaining() );
+          m_buffer.put( bytes, done, count );
+          done += count;
+        }
+        offset += bytes.length;
+      }
+    }
+
+    return MappedData.align( heapPosition + offset );
+  }
+
+  /***************************************** writeNulls ******************************************/
+  private void writeNulls( TableData data, int column, long position ) throws IOException
+  {
+    // write null bitmap with bit set for rows with a value
+    start( position );
+    int rowCount = data.getRowCount();
+    int bits = 0;
+    for ( int row = 0; row < rowCount; row++ )
+    {
+      if ( !data.isNull( column, row ) )
+        bits |= 1 << ( row & 7 );
+      if ( ( row & 7 ) == 7 || row == rowCount - 1 )
+      {
+        reserve( 1 );
+        m_buffer.put( (byte) bits );
+        bits = 0;
+      }
+    }
+    flush();
+  }
+
+  /******************************************** start ********************************************/
+  private void start( long position )
+  {
+    // start buffering bytes to be written at file position
+    m_buffer.clear();
+    m_position = position;
+  }
+
+  /******************************************* reserve *******************************************/
+  private void reserve( int bytes ) throws IOException
+  {
+    // ensure buffer has space for bytes, writing out buffered bytes if needed
+    if ( m_buffer.remaining() < bytes )
+    {
+      long written = m_position + m_buffer.position();
+      flush();
+      start( written );
+    }
+  }
+
+  /******************************************** flush ********************************************/
+  private void flush() throws IOException
+  {
+    // write buffered bytes at file position
+    m_buffer.flip();
+    long position = m_position;
+    while ( m_buffer.hasRemaining() )
+      position += m_channel.write( m_buffer, position );
+    m_position = position;
+    m_buffer.clear();
+  }
+
+}
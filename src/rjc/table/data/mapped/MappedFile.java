@@ -0,0 +1,158 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.mapped;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/*************************************************************************************************/
+/************* File mapped into memory as 1GB segments, addressed by long positions **************/
+/*************************************************************************************************/
+
+public class MappedFile
+{
+  private ByteBuffer[]     m_segments;       // mapped segments, all full size except the last
+  private long             m_size;           // file size in bytes
+  private boolean          m_writable;       // true if mapped copy-on-write (writes never reach file)
+
+  final static private int SEGMENT_SHIFT = 30;
+  final static private int SEGMENT_MASK  = ( 1 << SEGMENT_SHIFT ) - 1;
+
+  /**************************************** constructor ******************************************/
+  public MappedFile( Path path, boolean copyOnWrite ) throws IOException
+  {
+    // map whole file read-only or private copy-on-write (needs write access though file never changed)
+    try (FileChannel channel = copyOnWrite
+        ? FileChannel.open( path, StandardOpenOption.READ, StandardOpenOption.WRITE )
+        : FileChannel.open( path, StandardOpenOption.READ ))
+    {
+      m_size = channel.size();
+      m_writable = copyOnWrite;
+      m_segments = new ByteBuffer[(int) ( ( m_size + SEGMENT_MASK ) >>> SEGMENT_SHIFT )];
+      for ( int segment = 0; segment < m_segments.length; segment++ )
+      {
+        long start = (long) segment << SEGMENT_SHIFT;
+        long length = Math.min( SEGMENT_MASK + 1L, m_size - start );
+        m_segments[segment] = channel.map( copyOnWrite ? MapMode.PRIVATE : MapMode.READ_ONLY, start, length )
+            .order( ByteOrder.LITTLE_ENDIAN );
+      }
+    }
+  }
+
+  /******************************************* getSize *******************************************/
+  public long getSize()
+  {
+    // return mapped file size in bytes
+    return m_size;
+  }
+
+  /***************************************** isWritable ******************************************/
+  public boolean isWritable()
+  {
+    // return true if mapping is copy-on-write
+    return m_writable;
+  }
+
+  /******************************************* getByte *******************************************/
+  public byte getByte( long position )
+  {
+    // return byte at file position
+    return m_segments[(int) ( position >>> SEGMENT_SHIFT )].get( (int) ( position & SEGMENT_MASK ) );
+  }
+
+  /******************************************* getInt ********************************************/
+  public int getInt( long position )
+  {
+    // return int at file position (must be 4 byte aligned so never spans segments)
+    return m_segments[(int) ( position >>> SEGMENT_SHIFT )].getInt( (int) ( position & SEGMENT_MASK ) );
+  }
+
+  /******************************************* getLong *******************************************/
+  public long getLong( long position )
+  {
+    // return long at file position (must be 8 byte aligned so never spans segments)
+    return m_segments[(int) ( position >>> SEGMENT_SHIFT )].getLong( (int) ( position & SEGMENT_MASK ) );
+  }
+
+  /****************************************** getDouble ******************************************/
+  public double getDouble( long position )
+  {
+    // return double at file position (must be 8 byte aligned so never spans segments)
+    return m_segments[(int) ( position >>> SEGMENT_SHIFT )].getDouble( (int) ( position & SEGMENT_MASK ) );
+  }
+
+  /****************************************** getBytes *******************************************/
+  public void getBytes( long position, byte[] bytes, int length )
+  {
+    // copy length bytes starting at file position into array, which may span segments
+    int done = 0;
+    while ( done < length )
+    {
+      long current = position + done;
+      ByteBuffer segment = m_segments[(int) ( current >>> SEGMENT_SHIFT )];
+      int offset = (int) ( current & SEGMENT_MASK );
+      int count = Math.min( length - done, segment.limit() - offset );
+      segment.get( offset, bytes, done, count );
+      done += count;
+    }
+  }
+
+  /******************************************* putByte *******************************************/
+  public void putByte( long position, byte value )
+  {
+    // set byte at file position in private copy
+    m_segments[(int) ( position >>> SEGMENT_SHIFT )].put( (int) ( position & SEGMENT_MASK ), value );
+  }
+
+  /******************************************* putInt ********************************************/
+  public void putInt( long position, int value )
+  {
+    // set int at file position in private copy
+    m_segments[(int) ( position >>> SEGMENT_SHIFT )].putInt( (int) ( position & SEGMENT_MASK ), value );
+  }
+
+  /******************************************* putLong *******************************************/
+  public void putLong( long position, long value )
+  {
+    // set long at file position in private copy
+    m_segments[(int) ( position >>> SEGMENT_SHIFT )].putLong( (int) ( position & SEGMENT_MASK ), value );
+  }
+
+  /****************************************** putDouble ******************************************/
+  public void putDouble( long position, double value )
+  {
+    // set double at file position in private copy
+    m_segments[(int) ( position >>> SEGMENT_SHIFT )].putDouble( (int) ( position & SEGMENT_MASK ), value );
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[size="
+        + m_size + " segments=" + m_segments.length + " writable=" + m_writable + "]";
+  }
+
+}
@@ -0,0 +1,38 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.paged;
+
+/*************************************************************************************************/
+/******************** Interface for slow data sources that are read in pages *********************/
+/*************************************************************************************************/
+
+public interface IPageSource
+{
+  // returns cell values [column][row] for block of cells, called on a background thread so may block,
+  // should return promptly (throwing InterruptedException if convenient) when thread is interrupted
+  public Object[][] fetch( int firstColumnIndex, int firstRowIndex, int columnCount, int rowCount )
+      throws Exception;
+
+  // returns column header value, by default the column number
+  default public Object getColumnHeader( int columnIndex )
+  {
+    return String.valueOf( columnIndex + 1 );
+  }
+
+}
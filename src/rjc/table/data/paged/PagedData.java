@@ -0,0 +1,358 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.paged;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.application.Platform;
+import rjc.table.Utils;
+import rjc.table.data.TableData;
+
+/*************************************************************************************************/
+/******** Table data source fetching pages of cells in background from a slow page source ********/
+/*************************************************************************************************/
+
+public class PagedData extends TableData
+{
+  private IPageSource                        m_source;      // slow source of cell values
+  private int                                m_pageColumns; // columns per page
+  private int                                m_pageRows;    // rows per page
+  private long                               m_maxCells;    // cache capacity in cells
+  private long                               m_cachedCells; // cells currently in cache
+  private LinkedHashMap<Long, Object[][]>    m_pages;       // least-recently-used page cache
+  private ConcurrentHashMap<Long, Future<?>> m_loading;     // pages being fetched
+  private ExecutorService                    m_executor;    // background fetch threads
+  private int                                m_lastColumn;  // first column index of previous viewport
+  private int                                m_lastRow;     // first row index of previous viewport
+
+  // returned for cells whose page has not yet arrived, drawn as placeholder text
+  final static public Object LOADING = new Object()
+  {
+    @Override
+    public String toString()
+    {
+      return "...";
+    }
+  };
+
+  final static private AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+  /**************************************** constructor ******************************************/
+  public PagedData( IPageSource source, int columnCount, int rowCount )
+  {
+    // create paged data with default 64 x 256 cell pages, four fetch threads and one million cell cache
+    this( source, columnCount, rowCount, 64, 256, 4, 1000000L );
+  }
+
+  /**************************************** constructor ******************************************/
+  public PagedData( IPageSource source, int columnCount, int rowCount, int pageColumns, int pageRows,
+      int fetchThreads, long maxCachedCells )
+  {
+    // initialise private variables
+    if ( pageColumns < 1 || pageRows < 1 || fetchThreads < 1 || maxCachedCells < (long) pageColumns * pageRows )
+      throw new IllegalArgumentException(
+          "Page=" + pageColumns + "x" + pageRows + " threads=" + fetchThreads + " cache=" + maxCachedCells );
+
+    m_source = source;
+    m_pageColumns = pageColumns;
+    m_pageRows = pageRows;
+    m_maxCells = maxCachedCells;
+    m_pages = new LinkedHashMap<>( 64, 0.75f, true );
+    m_loading = new ConcurrentHashMap<>();
+    m_executor = Executors.newFixedThreadPool( fetchThreads, runnable ->
+    {
+      Thread thread = new Thread( runnable, "PagedData-" + THREAD_COUNT.incrementAndGet() );
+      thread.setDaemon( true );
+      return thread;
+    } );
+    setColumnCount( columnCount );
+    setRowCount( rowCount );
+  }
+
+  /********************************************* key *********************************************/
+  private long key( int columnIndex, int rowIndex )
+  {
+    // return key of page containing cell
+    return (long) ( columnIndex / m_pageColumns ) << 32 | ( rowIndex / m_pageRows );
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int columnIndex, int rowIndex )
+  {
+    // return header corner cell value
+    if ( columnIndex == HEADER && rowIndex == HEADER )
+      return null;
+
+    // return row value for specified row index
+    if ( columnIndex == HEADER )
+      return String.valueOf( rowIndex + 1 );
+
+    // return column value for specified column index
+    if ( rowIndex == HEADER )
+      return m_source.getColumnHeader( columnIndex );
+
+    // return cell value if page cached, otherwise request page and return placeholder on FX thread
+    long key = key( columnIndex, rowIndex );
+    Object[][] page = getPage( key );
+    if ( page == null )
+    {
+      if ( Platform.isFxApplicationThread() )
+      {
+        request( key );
+        return LOADING;
+      }
+
+      // other threads (e.g. copy) can afford to wait for the page
+      page = loadNow( key );
+      if ( page == null )
+        return null;
+    }
+    return page[columnIndex % m_pageColumns][rowIndex % m_pageRows];
+  }
+
+  /****************************************** getValues ******************************************/
+  @Override
+  public void getValues( int[] columnIndexes, int[] rowIndexes, Object[][] values )
+  {
+    // block of more than one column and row on FX thread is a viewport, so prefetch & cancel around it
+    if ( columnIndexes.length > 1 && rowIndexes.length > 1 && Platform.isFxApplicationThread() )
+    {
+      int minColumn = Integer.MAX_VALUE, maxColumn = 0, minRow = Integer.MAX_VALUE, maxRow = 0;
+      for ( int columnIndex : columnIndexes )
+        if ( columnIndex >= 0 )
+        {
+          minColumn = Math.min( minColumn, columnIndex );
+          maxColumn = Math.max( maxColumn, columnIndex );
+        }
+      for ( int rowIndex : rowIndexes )
+        if ( rowIndex >= 0 )
+        {
+          minRow = Math.min( minRow, rowIndex );
+          maxRow = Math.max( maxRow, rowIndex );
+        }
+      if ( minColumn <= maxColumn && minRow <= maxRow )
+        viewport( minColumn, minRow, maxColumn, maxRow );
+    }
+
+    super.getValues( columnIndexes, rowIndexes, values );
+  }
+
+  /****************************************** viewport *******************************************/
+  private void viewport( int minColumn, int minRow, int maxColumn, int maxRow )
+  {
+    // extend wanted area by one viewport in direction of scrolling since previous viewport
+    int columnShift = Integer.signum( minColumn - m_lastColumn ) * ( maxColumn - minColumn + 1 );
+    int rowShift = Integer.signum( minRow - m_lastRow ) * ( maxRow - minRow + 1 );
+    m_lastColumn = minColumn;
+    m_lastRow = minRow;
+    int c1 = Math.max( 0, Math.min( minColumn, minColumn + columnShift ) );
+    int c2 = Math.min( getColumnCount() - 1, Math.max( maxColumn, maxColumn + columnShift ) );
+    int r1 = Math.max( 0, Math.min( minRow, minRow + rowShift ) );
+    int r2 = Math.min( getRowCount() - 1, Math.max( maxRow, maxRow + rowShift ) );
+
+    // request visible pages first, then prefetch pages
+    var wanted = new HashSet<Long>();
+    for ( int column = minColumn / m_pageColumns; column <= maxColumn / m_pageColumns; column++ )
+      for ( int row = minRow / m_pageRows; row <= maxRow / m_pageRows; row++ )
+      {
+        long key = (long) column << 32 | row;
+        wanted.add( key );
+        request( key );
+      }
+    for ( int column = c1 / m_pageColumns; column <= c2 / m_pageColumns; column++ )
+      for ( int row = r1 / m_pageRows; row <= r2 / m_pageRows; row++ )
+      {
+        long key = (long) column << 32 | row;
+        if ( wanted.add( key ) )
+          request( key );
+      }
+
+    // cancel fetches for pages scrolled out of view
+    m_loading.forEach( ( key, future ) ->
+    {
+      if ( !wanted.contains( key ) )
+      {
+        future.cancel( true );
+        m_loading.remove( key, future );
+      }
+    } );
+  }
+
+  /******************************************* request *******************************************/
+  private void request( long key )
+  {
+    // start fetching page in background if not already cached or being fetched
+    if ( m_loading.containsKey( key ) || getPage( key ) != null )
+      return;
+
+    // task removes only its own loading entry, not one for a later fetch of same page
+    FutureTask<?>[] task = new FutureTask<?>[1];
+    task[0] = new FutureTask<>( () ->
+    {
+      try
+      {
+        Object[][] page = fetch( key );
+        putPage( key, page );
+        redrawPage( key, page );
+      }
+      catch ( InterruptedException exception )
+      {
+        // fetch cancelled as page scrolled out of view
+      }
+      catch ( Exception exception )
+      {
+        Utils.stack( "WARNING: page fetch failed", key, exception );
+      }
+      finally
+      {
+        m_loading.remove( key, task[0] );
+      }
+    }, null );
+    if ( m_loading.putIfAbsent( key, task[0] ) == null )
+      m_executor.execute( task[0] );
+  }
+
+  /******************************************** fetch ********************************************/
+  private Object[][] fetch( long key ) throws Exception
+  {
+    // fetch page from source
+    int firstColumn = (int) ( key >>> 32 ) * m_pageColumns;
+    int firstRow = (int) key * m_pageRows;
+    int columns = Math.min( m_pageColumns, getColumnCount() - firstColumn );
+    int rows = Math.min( m_pageRows, getRowCount() - firstRow );
+    return m_source.fetch( firstColumn, firstRow, columns, rows );
+  }
+
+  /******************************************* loadNow *******************************************/
+  private Object[][] loadNow( long key )
+  {
+    // wait for page, fetching it on this thread if not already being fetched
+    try
+    {
+      Future<?> future = m_loading.get( key );
+      if ( future != null )
+        future.get();
+      Object[][] page = getPage( key );
+      if ( page == null )
+      {
+        page = fetch( key );
+        putPage( key, page );
+      }
+      return page;
+    }
+    catch ( CancellationException exception )
+    {
+      // fetch was cancelled, so fetch on this thread instead
+      return loadNow( key );
+    }
+    catch ( Exception exception )
+    {
+      Utils.stack( "WARNING: page fetch failed", key, exception );
+      return null;
+    }
+  }
+
+  /******************************************* getPage *******************************************/
+  private Object[][] getPage( long key )
+  {
+    // return cached page (marking as most recently used) or null if not cached
+    synchronized ( m_pages )
+    {
+      return m_pages.get( key );
+    }
+  }
+
+  /******************************************* putPage *******************************************/
+  private void putPage( long key, Object[][] page )
+  {
+    // add page to cache, evicting least recently used pages if over capacity
+    synchronized ( m_pages )
+    {
+      Object[][] old = m_pages.put( key, page );
+      m_cachedCells += cells( page ) - cells( old );
+      var iterator = m_pages.values().iterator();
+      while ( m_cachedCells > m_maxCells && m_pages.size() > 1 )
+      {
+        m_cachedCells -= cells( iterator.next() );
+        iterator.remove();
+      }
+    }
+  }
+
+  /******************************************** cells ********************************************/
+  private static long cells( Object[][] page )
+  {
+    // return number of cells in page
+    return page == null || page.length == 0 ? 0L : (long) page.length * page[0].length;
+  }
+
+  /***************************************** redrawPage ******************************************/
+  private void redrawPage( long key, Object[][] page )
+  {
+    // redraw cells of newly arrived page, notifications are batched onto FX thread
+    int firstColumn = (int) ( key >>> 32 ) * m_pageColumns;
+    int firstRow = (int) key * m_pageRows;
+    int rows = page.length == 0 ? 0 : page[0].length;
+    redrawCells( firstColumn, firstRow, firstColumn + page.length - 1, firstRow + rows - 1 );
+  }
+
+  /**************************************** getCachedCells ***************************************/
+  public long getCachedCells()
+  {
+    // return number of cells currently in cache
+    synchronized ( m_pages )
+    {
+      return m_cachedCells;
+    }
+  }
+
+  /****************************************** clearCache *****************************************/
+  public void clearCache()
+  {
+    // discard cached pages and cancel fetches so values are re-fetched from source
+    m_loading.values().forEach( future -> future.cancel( true ) );
+    m_loading.clear();
+    synchronized ( m_pages )
+    {
+      m_pages.clear();
+      m_cachedCells = 0L;
+    }
+    redrawViews();
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[columns="
+        + getColumnCount() + " rows=" + getRowCount() + " page=" + m_pageColumns + "x" + m_pageRows + " cached="
+        + getCachedCells() + " loading=" + m_loading.size() + "]";
+  }
+
+}
@@ -0,0 +1,207 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.sparse;
+
+import java.util.Arrays;
+
+/*************************************************************************************************/
+/********* Open-addressing hash map from primitive long keys to objects, without boxing **********/
+/*************************************************************************************************/
+
+public class LongObjectMap<V>
+{
+  private long[]            m_keys;   // keys, EMPTY where slot unused
+  private Object[]          m_values; // values for keys
+  private int               m_size;   // number of keys in map
+  private int               m_mask;   // slots - 1, slots is always a power of two
+  private int               m_shift;  // 64 - log2(slots), to take top bits of spread key as home slot
+
+  // key value reserved to mark unused slots
+  final static public long  EMPTY        = Long.MIN_VALUE;
+
+  final static private int  MIN_SLOTS    = 16;
+  final static private long PHI          = 0x9E3779B97F4A7C15L; // golden ratio multiplier to spread keys
+
+  /**************************************** constructor ******************************************/
+  public LongObjectMap()
+  {
+    // create empty map
+    clear();
+  }
+
+  /******************************************** clear ********************************************/
+  public void clear()
+  {
+    // remove all keys and shrink storage
+    m_keys = new long[MIN_SLOTS];
+    Arrays.fill( m_keys, EMPTY );
+    m_values = new Object[MIN_SLOTS];
+    m_mask = MIN_SLOTS - 1;
+    m_shift = 64 - Integer.numberOfTrailingZeros( MIN_SLOTS );
+    m_size = 0;
+  }
+
+  /******************************************** size *********************************************/
+  public int size()
+  {
+    // return number of keys in map
+    return m_size;
+  }
+
+  /******************************************** home *********************************************/
+  private int home( long key )
+  {
+    // return preferred slot for key
+    return (int) ( ( key * PHI ) >>> m_shift );
+  }
+
+  /******************************************** slot *********************************************/
+  private int slot( long key )
+  {
+    // return slot holding key, or empty slot where key would be inserted
+    int slot = home( key );
+    while ( m_keys[slot] != EMPTY && m_keys[slot] != key )
+      slot = ( slot + 1 ) & m_mask;
+    return slot;
+  }
+
+  /********************************************* get *********************************************/
+  @SuppressWarnings( "unchecked" )
+  public V get( long key )
+  {
+    // return value for key, or null if key not in map
+    return (V) m_values[slot( key )];
+  }
+
+  /**************************************** containsKey ******************************************/
+  public boolean containsKey( long key )
+  {
+    // return true if key is in map
+    return key != EMPTY && m_keys[slot( key )] == key;
+  }
+
+  /********************************************* put *********************************************/
+  @SuppressWarnings( "unchecked" )
+  public V put( long key, V value )
+  {
+    // set value for key returning previous value
+    if ( key == EMPTY )
+      throw new IllegalArgumentException( "Key reserved " + key );
+
+    int slot = slot( key );
+    Object old = m_values[slot];
+    m_values[slot] = value;
+    if ( m_keys[slot] == EMPTY )
+    {
+      m_keys[slot] = key;
+      if ( ++m_size > ( m_mask + 1 ) * 3 / 4 )
+        rehash( ( m_mask + 1 ) * 2 );
+    }
+    return (V) old;
+  }
+
+  /******************************************* remove ********************************************/
+  @SuppressWarnings( "unchecked" )
+  public V remove( long key )
+  {
+    // remove key returning its value, shifting back any following keys to keep probe chains intact
+    int slot = slot( key );
+    if ( key == EMPTY || m_keys[slot] == EMPTY )
+      return null;
+
+    Object old = m_values[slot];
+    int gap = slot;
+    for ( int next = ( gap + 1 ) & m_mask; m_keys[next] != EMPTY; next = ( next + 1 ) & m_mask )
+    {
+      int home = home( m_keys[next] );
+      if ( ( ( next - home ) & m_mask ) >= ( ( next - gap ) & m_mask ) )
+      {
+        m_keys[gap] = m_keys[next];
+        m_values[gap] = m_values[next];
+        gap = next;
+      }
+    }
+    m_keys[gap] = EMPTY;
+    m_values[gap] = null;
+    m_size--;
+
+    if ( m_mask + 1 > MIN_SLOTS && m_size < ( m_mask + 1 ) / 8 )
+      rehash( ( m_mask + 1 ) / 2 );
+    return (V) old;
+  }
+
+  /******************************************* rehash ********************************************/
+  private void rehash( int slots )
+  {
+    // move all keys into new storage with specified number of slots
+    long[] keys = m_keys;
+    Object[] values = m_values;
+    m_keys = new long[slots];
+    Arrays.fill( m_keys, EMPTY );
+    m_values = new Object[slots];
+    m_mask = slots - 1;
+    m_shift = 64 - Integer.numberOfTrailingZeros( slots );
+    for ( int index = 0; index < keys.length; index++ )
+      if ( keys[index] != EMPTY )
+      {
+        int slot = slot( keys[index] );
+        m_keys[slot] = keys[index];
+        m_values[slot] = values[index];
+      }
+  }
+
+  /******************************************* getSlots ******************************************/
+  public int getSlots()
+  {
+    // return number of slots, for iterating with getKey & getValue
+    return m_mask + 1;
+  }
+
+  /******************************************** getKey *******************************************/
+  public long getKey( int slot )
+  {
+    // return key in slot, or EMPTY if slot unused
+    return m_keys[slot];
+  }
+
+  /******************************************* getValue ******************************************/
+  @SuppressWarnings( "unchecked" )
+  public V getValue( int slot )
+  {
+    // return value in slot
+    return (V) m_values[slot];
+  }
+
+  /****************************************** getMemory ******************************************/
+  public long getMemory()
+  {
+    // return approximate bytes used by map storage (excludes values)
+    return 12L * ( m_mask + 1 );
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[size="
+        + m_size + " slots=" + ( m_mask + 1 ) + "]";
+  }
+
+}
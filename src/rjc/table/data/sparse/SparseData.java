@@ -0,0 +1,239 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.data.sparse;
+
+import java.util.Arrays;
+
+import rjc.table.data.ICellVisitor;
+import rjc.table.data.TableData;
+
+/*************************************************************************************************/
+/********* Table data source storing only cells with values, for huge mostly-empty grids *********/
+/*************************************************************************************************/
+
+public class SparseData extends TableData
+{
+  private LongObjectMap<Object> m_cells = new LongObjectMap<>(); // cell values keyed on (column << 32 | row)
+
+  /**************************************** constructor ******************************************/
+  public SparseData( int columnCount, int rowCount )
+  {
+    // create empty grid of specified size, memory used is proportional to cells with values
+    setColumnCount( columnCount );
+    setRowCount( rowCount );
+  }
+
+  /********************************************* key *********************************************/
+  private static long key( int columnIndex, int rowIndex )
+  {
+    // return hash-map key for cell
+    return (long) columnIndex << 32 | rowIndex;
+  }
+
+  /****************************************** getValue *******************************************/
+  @Override
+  public Object getValue( int columnIndex, int rowIndex )
+  {
+    // return header corner cell value
+    if ( columnIndex == HEADER && rowIndex == HEADER )
+      return null;
+
+    // return row value for specified row index
+    if ( columnIndex == HEADER )
+      return String.valueOf( rowIndex + 1 );
+
+    // return column value for specified column index
+    if ( rowIndex == HEADER )
+      return String.valueOf( columnIndex + 1 );
+
+    // return cell value for specified cell index
+    return m_cells.get( key( columnIndex, rowIndex ) );
+  }
+
+  /****************************************** getValues ******************************************/
+  @Override
+  public void getValues( int[] columnIndexes, int[] rowIndexes, Object[][] values )
+  {
+    // if block has more cells than populated, fill with nulls and only visit populated cells
+    long blockCells = (long) columnIndexes.length * rowIndexes.length;
+    if ( blockCells <= m_cells.size() || columnIndexes.length == 0 || rowIndexes.length == 0 )
+    {
+      super.getValues( columnIndexes, rowIndexes, values );
+      return;
+    }
+
+    for ( Object[] columnValues : values )
+      Arrays.fill( columnValues, 0, rowIndexes.length, null );
+    long[] columnLookup = lookup( columnIndexes );
+    long[] rowLookup = lookup( rowIndexes );
+    int minColumn = (int) ( columnLookup[0] >> 32 );
+    int maxColumn = (int) ( columnLookup[columnLookup.length - 1] >> 32 );
+    int minRow = (int) ( rowLookup[0] >> 32 );
+    int maxRow = (int) ( rowLookup[rowLookup.length - 1] >> 32 );
+
+    // headers are not held in hash-map so fetch individually
+    if ( minColumn == HEADER || minRow == HEADER )
+      for ( int column = 0; column < columnIndexes.length; column++ )
+        for ( int row = 0; row < rowIndexes.length; row++ )
+          if ( columnIndexes[column] == HEADER || rowIndexes[row] == HEADER )
+            values[column][row] = getValue( columnIndexes[column], rowIndexes[row] );
+
+    forEachPopulated( Math.max( minColumn, 0 ), Math.max( minRow, 0 ), maxColumn, maxRow, ( columnIndex, rowIndex ) ->
+    {
+      int column = offset( columnLookup, columnIndex );
+      int row = column < 0 ? -1 : offset( rowLookup, rowIndex );
+      if ( row >= 0 )
+        values[column][row] = m_cells.get( key( columnIndex, rowIndex ) );
+      return true;
+    } );
+  }
+
+  /******************************************* lookup ********************************************/
+  private static long[] lookup( int[] indexes )
+  {
+    // return sorted index to block offset lookup
+    long[] lookup = new long[indexes.length];
+    for ( int offset = 0; offset < indexes.length; offset++ )
+      lookup[offset] = (long) indexes[offset] << 32 | offset;
+    Arrays.sort( lookup );
+    return lookup;
+  }
+
+  /******************************************* offset ********************************************/
+  private static int offset( long[] lookup, int index )
+  {
+    // return block offset for index, or -1 if not in block
+    int found = Arrays.binarySearch( lookup, (long) index << 32 );
+    int insert = found < 0 ? -found - 1 : found;
+    return insert < lookup.length && (int) ( lookup[insert] >> 32 ) == index ? (int) lookup[insert] : -1;
+  }
+
+  /****************************************** setValue *******************************************/
+  @Override
+  public boolean setValue( int columnIndex, int rowIndex, Object newValue )
+  {
+    // set cell value, null values are removed so take no memory
+    if ( columnIndex < 0 || rowIndex < 0 || columnIndex >= getColumnCount() || rowIndex >= getRowCount() )
+      return false;
+
+    try
+    {
+      beginWrite( columnIndex, rowIndex );
+      if ( newValue == null )
+        m_cells.remove( key( columnIndex, rowIndex ) );
+      else
+        m_cells.put( key( columnIndex, rowIndex ), newValue );
+      return true;
+    }
+    finally
+    {
+      endWrite();
+    }
+  }
+
+  /******************************************* isNull ********************************************/
+  @Override
+  public boolean isNull( int columnIndex, int rowIndex )
+  {
+    // return true if cell has no value
+    return !m_cells.containsKey( key( columnIndex, rowIndex ) );
+  }
+
+  /************************************** getPopulatedCount **************************************/
+  @Override
+  public long getPopulatedCount()
+  {
+    // return number of body cells with a value
+    return m_cells.size();
+  }
+
+  /*************************************** forEachPopulated **************************************/
+  @Override
+  public void forEachPopulated( int minColumnIndex, int minRowIndex, int maxColumnIndex, int maxRowIndex,
+      ICellVisitor visitor )
+  {
+    // visit whichever is smaller, every cell in range or every populated cell
+    long rangeCells = ( maxColumnIndex - minColumnIndex + 1L ) * ( maxRowIndex - minRowIndex + 1L );
+    if ( rangeCells <= m_cells.getSlots() )
+    {
+      super.forEachPopulated( minColumnIndex, minRowIndex, maxColumnIndex, maxRowIndex, visitor );
+      return;
+    }
+
+    // collect keys in range first so visitor can safely change values
+    long[] keys = new long[Math.min( m_cells.size(), 1024 )];
+    int count = 0;
+    for ( int slot = 0; slot < m_cells.getSlots(); slot++ )
+    {
+      long key = m_cells.getKey( slot );
+      if ( key == LongObjectMap.EMPTY )
+        continue;
+      int columnIndex = (int) ( key >>> 32 );
+      int rowIndex = (int) key;
+      if ( columnIndex >= minColumnIndex && columnIndex <= maxColumnIndex && rowIndex >= minRowIndex
+          && rowIndex <= maxRowIndex )
+      {
+        if ( count == keys.length )
+          keys = Arrays.copyOf( keys, count * 2 );
+        keys[count++] = key;
+      }
+    }
+
+    // visit in column then row order, same as dense iteration
+    Arrays.sort( keys, 0, count );
+    for ( int index = 0; index < count; index++ )
+      if ( !visitor.visit( (int) ( keys[index] >>> 32 ), (int) keys[index] ) )
+        return;
+  }
+
+  /********************************************* clear *******************************************/
+  public void clear()
+  {
+    // remove all cell values
+    beginBulkWrite();
+    m_cells.clear();
+    endWrite();
+    redrawViews();
+  }
+
+  /***************************************** isVersioned *****************************************/
+  @Override
+  protected boolean isVersioned()
+  {
+    // return true as every write is bracketed so open snapshots keep older values
+    return true;
+  }
+
+  /****************************************** getMemory ******************************************/
+  public long getMemory()
+  {
+    // return approximate bytes used by cell storage (excludes values)
+    return m_cells.getMemory();
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[columns="
+        + getColumnCount() + " rows=" + getRowCount() + " cells=" + m_cells + "]";
+  }
+
+}
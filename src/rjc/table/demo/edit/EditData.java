@@ -183,4 +183,122 @@ public class EditData extends TableData
     }
   }
 
+  /**************************************** getColumnType ****************************************/
+  @Override
+  public ColumnType getColumnType( int columnIndex )
+  {
+    // return type of body cell values in column so numeric cells are drawn without boxing
+    switch ( columnIndex )
+    {
+      case SECTION_INTEGER:
+        return ColumnType.INTEGER;
+      case SECTION_DOUBLE:
+        return ColumnType.DOUBLE;
+      case SECTION_DATE:
+        return ColumnType.DATE;
+      case SECTION_TIME:
+        return ColumnType.TIME;
+      case SECTION_DATETIME:
+        return ColumnType.DATETIME;
+      default:
+        return ColumnType.OBJECT;
+    }
+  }
+
+  /******************************************* isNull ********************************************/
+  @Override
+  public boolean isNull( int columnIndex, int rowIndex )
+  {
+    // return true if cell has no value, primitive columns always have a value
+    switch ( columnIndex )
+    {
+      case SECTION_INTEGER:
+      case SECTION_DOUBLE:
+        return rowIndex == HEADER;
+      case SECTION_DATE:
+        return rowIndex == HEADER || m_date[rowIndex] == null;
+      case SECTION_TIME:
+        return rowIndex == HEADER || m_time[rowIndex] == null;
+      case SECTION_DATETIME:
+        return rowIndex == HEADER || m_datetime[rowIndex] == null;
+      default:
+        return super.isNull( columnIndex, rowIndex );
+    }
+  }
+
+  /******************************************* getInt ********************************************/
+  @Override
+  public int getInt( int columnIndex, int rowIndex )
+  {
+    // return body cell value as int without boxing
+    if ( rowIndex != HEADER )
+      switch ( columnIndex )
+      {
+        case SECTION_INTEGER:
+          return m_integer[rowIndex];
+        case SECTION_DATE:
+          return m_date[rowIndex] == null ? 0 : m_date[rowIndex].getEpochday();
+        case SECTION_TIME:
+          return m_time[rowIndex] == null ? 0 : m_time[rowIndex].getDayMilliseconds();
+        default:
+          break;
+      }
+
+    return super.getInt( columnIndex, rowIndex );
+  }
+
+  /******************************************* getLong *******************************************/
+  @Override
+  public long getLong( int columnIndex, int rowIndex )
+  {
+    // return body cell value as long without boxing
+    if ( rowIndex != HEADER && columnIndex == SECTION_DATETIME )
+      return m_datetime[rowIndex] == null ? 0L : m_datetime[rowIndex].getMilliseconds();
+    if ( rowIndex != HEADER && columnIndex != SECTION_DOUBLE && getColumnType( columnIndex ) != ColumnType.OBJECT )
+      return getInt( columnIndex, rowIndex );
+
+    return super.getLong( columnIndex, rowIndex );
+  }
+
+  /****************************************** getDouble ******************************************/
+  @Override
+  public double getDouble( int columnIndex, int rowIndex )
+  {
+    // return body cell value as double without boxing
+    if ( rowIndex != HEADER && columnIndex == SECTION_DOUBLE )
+      return m_double[rowIndex];
+    if ( rowIndex != HEADER && getColumnType( columnIndex ) != ColumnType.OBJECT )
+      return getLong( columnIndex, rowIndex );
+
+    return super.getDouble( columnIndex, rowIndex );
+  }
+
+  /******************************************* setInt ********************************************/
+  @Override
+  public boolean setInt( int columnIndex, int rowIndex, int newValue )
+  {
+    // set integer body cell value without boxing
+    if ( columnIndex == SECTION_INTEGER && rowIndex != HEADER )
+    {
+      m_integer[rowIndex] = newValue;
+      return true;
+    }
+
+    return super.setInt( columnIndex, rowIndex, newValue );
+  }
+
+  /****************************************** setDouble ******************************************/
+  @Override
+  public boolean setDouble( int columnIndex, int rowIndex, double newValue )
+  {
+    // set double body cell value without boxing
+    if ( columnIndex == SECTION_DOUBLE && rowIndex != HEADER )
+    {
+      m_double[rowIndex] = newValue;
+      return true;
+    }
+
+    return super.setDouble( columnIndex, rowIndex, newValue );
+  }
+
 }
@@ -0,0 +1,110 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.undo;
+
+import javafx.geometry.Orientation;
+import rjc.table.data.TableData;
+
+/*************************************************************************************************/
+/************************ UndoCommand for inserting TableData columns or rows ********************/
+/*************************************************************************************************/
+
+public class CommandInsert implements IUndoCommand
+{
+  private TableData   m_data;        // table data model
+  private Orientation m_orientation; // columns (horizontal) or rows (vertical) inserted
+  private int         m_index;       // index of first inserted
+  private int         m_count;       // number inserted
+  private Object      m_payload;     // inserted columns or rows as removed by undo, restored by redo
+  private String      m_text;        // text describing command
+
+  /**************************************** constructor ******************************************/
+  public CommandInsert( TableData data, Orientation orientation, int index, int count )
+  {
+    // insert empty columns or rows, command only valid if data model supports inserting
+    m_orientation = orientation;
+    m_index = index;
+    m_count = count;
+    if ( insert( data ) )
+      m_data = data;
+  }
+
+  /******************************************* insert ********************************************/
+  private boolean insert( TableData data )
+  {
+    // insert columns or rows returning true if successful
+    if ( m_orientation == Orientation.HORIZONTAL )
+      return data.insertColumns( m_index, m_count, m_payload );
+    return data.insertRows( m_index, m_count, m_payload );
+  }
+
+  /******************************************* redo **********************************************/
+  @Override
+  public void redo()
+  {
+    // action command
+    insert( m_data );
+  }
+
+  /******************************************* undo **********************************************/
+  @Override
+  public void undo()
+  {
+    // revert command, keeping removed payload so redo restores the same columns or rows
+    if ( m_orientation == Orientation.HORIZONTAL )
+      m_payload = m_data.removeColumns( m_index, m_count );
+    else
+      m_payload = m_data.removeRows( m_index, m_count );
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write columns or rows inserted (with any restored values) or removed
+    if ( !redo )
+      record.remove( m_orientation, m_index, m_count );
+    else if ( m_payload == null )
+      record.insert( m_orientation, m_index, m_count );
+    else
+      record.inserted( m_data, m_orientation, m_index, m_count );
+    return true;
+  }
+
+  /******************************************* text **********************************************/
+  @Override
+  public String text()
+  {
+    // command description
+    if ( m_text == null )
+      m_text = "Inserted " + m_count + ( m_orientation == Orientation.HORIZONTAL ? " column" : " row" )
+          + ( m_count > 1 ? "s" : "" );
+
+    return m_text;
+  }
+
+  /******************************************* isValid *******************************************/
+  @Override
+  public boolean isValid()
+  {
+    // command is only ready and valid when pointer to data is set
+    return m_data != null;
+  }
+
+}
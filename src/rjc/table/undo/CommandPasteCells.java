@@ -18,11 +18,12 @@
 
 package rjc.table.undo;
 
-import java.util.HashMap;
+import java.util.Arrays;
 
-import rjc.table.Utils;
+import rjc.table.data.TableChange;
 import rjc.table.data.TableData;
 import rjc.table.view.TableView;
+import rjc.table.view.cell.CellContext;
 
 /*************************************************************************************************/
 /************* UndoCommand for settings multiple cell values at table-view position **************/
@@ -30,39 +31,60 @@ import rjc.table.view.TableView;
 
 public class CommandPasteCells implements IUndoCommand
 {
-  private TableData                m_data;        // table data model
-  private int                      m_columnCount; // used to hash column & row indexes
-  private HashMap<Integer, Object> m_oldValues;   // cell value before paste
-  private HashMap<Integer, Object> m_newValues;   // cell value after paste
-  private String                   m_text;        // text describing command
+  private TableData           m_data;          // table data model
+  private int[]               m_columnIndexes; // column index for each pasted block column
+  private int[]               m_rowIndexes;    // row index for each pasted block row
+  private Object[][]          m_newValues;     // cell value after paste [column][row]
+  private Object[][]          m_oldValues;     // cell value before paste [column][row], NOT_PASTED if not pasted
+  private int                 m_count;         // number of cells pasted
+  private int                 m_rejected;      // number of cells not pasted as read-only, invalid or refused
+  private String              m_text;          // text describing command
+
+  final static private Object NOT_PASTED = new Object();
 
   /**************************************** constructor ******************************************/
-  public CommandPasteCells( TableView view, int columnPos, int rowPos, Object[] array, String string )
+  public CommandPasteCells( TableView view, int[] columnIndexes, int[] rowIndexes, Object[][] values )
   {
-    // initialise private variables
+    // paste block of values[column][row] to cells at indexes, skipping and counting cells rejected
     m_data = view.getData();
-    m_columnCount = m_data.getColumnCount();
-    m_oldValues = new HashMap<>();
-    m_newValues = new HashMap<>();
-
-    // xxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxxx
+    m_columnIndexes = columnIndexes;
+    m_rowIndexes = rowIndexes;
+    m_newValues = values;
+    m_oldValues = new Object[columnIndexes.length][rowIndexes.length];
 
-    if ( array != null )
+    CellContext cell = new CellContext();
+    for ( int col = 0; col < columnIndexes.length; col++ )
     {
-      Utils.trace( "Contains JTABLEFX !!!" );
-      for ( int col = 0; col < array.length; col++ )
-        Utils.trace( "Column " + col, array[col] );
+      int columnIndex = columnIndexes[col];
+      Object[] oldValues = m_oldValues[col];
+      Arrays.fill( oldValues, NOT_PASTED );
+      for ( int row = 0; row < rowIndexes.length; row++ )
+      {
+        // each cell needs its own editor (cells without are read-only) that allows the value
+        int rowIndex = rowIndexes[row];
+        cell.setIndex( view, columnIndex, rowIndex );
+        var editor = view.getCellEditor( cell );
+        Object value = values[col][row];
+        if ( editor == null || !editor.isValueValid( value ) )
+        {
+          m_rejected++;
+          continue;
+        }
+
+        // convert value as editor would commit it (e.g. text to choice) then set if data accepts
+        value = editor.parseValue( value );
+        values[col][row] = value;
+        Object oldValue = m_data.getValue( columnIndex, rowIndex );
+        if ( m_data.setValue( columnIndex, rowIndex, value ) )
+        {
+          oldValues[row] = oldValue;
+          m_count++;
+        }
+        else
+          m_rejected++;
+      }
+      fireChange( col );
     }
-
-    // convert string into array
-    var stringArray = convertToArray( string );
-
-  }
-
-  private Object convertToArray( String string )
-  {
-    // TODO Auto-generated method stub
-    return null;
   }
 
   /******************************************* redo **********************************************/
@@ -70,13 +92,7 @@ public class CommandPasteCells implements IUndoCommand
   public void redo()
   {
     // set pasted cells to their new values
-    m_newValues.forEach( ( hash, newValue ) ->
-    {
-      int col = hash % m_columnCount;
-      int row = hash / m_columnCount;
-      m_data.setValue( col, row, newValue );
-      m_data.redrawCell( col, row );
-    } );
+    set( m_newValues );
   }
 
   /******************************************* undo **********************************************/
@@ -84,13 +100,50 @@ public class CommandPasteCells implements IUndoCommand
   public void undo()
   {
     // set pasted cells back to their original values
-    m_oldValues.forEach( ( hash, oldValue ) ->
+    set( m_oldValues );
+  }
+
+  /********************************************* set *********************************************/
+  private void set( Object[][] values )
+  {
+    // set pasted cells to values, with one change per column
+    for ( int col = 0; col < m_columnIndexes.length; col++ )
     {
-      int col = hash % m_columnCount;
-      int row = hash / m_columnCount;
-      m_data.setValue( col, row, oldValue );
-      m_data.redrawCell( col, row );
-    } );
+      for ( int row = 0; row < m_rowIndexes.length; row++ )
+        if ( m_oldValues[col][row] != NOT_PASTED )
+          m_data.setValue( m_columnIndexes[col], m_rowIndexes[row], values[col][row] );
+      fireChange( col );
+    }
+  }
+
+  /****************************************** fireChange *****************************************/
+  private void fireChange( int col )
+  {
+    // signal cells pasted in block column as one change covering their row index range
+    int min = Integer.MAX_VALUE;
+    int max = -1;
+    for ( int row = 0; row < m_rowIndexes.length; row++ )
+      if ( m_oldValues[col][row] != NOT_PASTED )
+      {
+        min = Math.min( min, m_rowIndexes[row] );
+        max = Math.max( max, m_rowIndexes[row] );
+      }
+
+    if ( max >= 0 )
+      m_data.fireChange( TableChange.cellsUpdated( m_columnIndexes[col], min, m_columnIndexes[col], max ) );
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write cell values after command redone or undone
+    Object[][] values = redo ? m_newValues : m_oldValues;
+    for ( int col = 0; col < m_columnIndexes.length; col++ )
+      for ( int row = 0; row < m_rowIndexes.length; row++ )
+        if ( m_oldValues[col][row] != NOT_PASTED )
+          record.cell( m_columnIndexes[col], m_rowIndexes[row], values[col][row] );
+    return true;
   }
 
   /******************************************* text **********************************************/
@@ -99,16 +152,23 @@ public class CommandPasteCells implements IUndoCommand
   {
     // command description
     if ( m_text == null )
-      m_text = "Pasted " + m_oldValues.size() + " cell" + ( m_oldValues.size() == 1 ? "" : "s" );
+      m_text = "Pasted " + m_count + " cell" + ( m_count == 1 ? "" : "s" );
     return m_text;
   }
 
+  /***************************************** getRejected *****************************************/
+  public int getRejected()
+  {
+    // return number of cells not pasted as read-only, not allowed by editor or refused by data
+    return m_rejected;
+  }
+
   /******************************************* isValid *******************************************/
   @Override
   public boolean isValid()
   {
-    // command is only ready and valid when old-values is not empty
-    return !m_oldValues.isEmpty();
+    // command is only ready and valid when at least one cell pasted
+    return m_count > 0;
   }
 
 }
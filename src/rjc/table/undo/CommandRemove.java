@@ -0,0 +1,129 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.undo;
+
+import java.util.ArrayList;
+
+import javafx.geometry.Orientation;
+import rjc.table.data.TableData;
+
+/*************************************************************************************************/
+/************************ UndoCommand for removing TableData columns or rows *********************/
+/*************************************************************************************************/
+
+public class CommandRemove implements IUndoCommand
+{
+  private TableData         m_data;        // table data model
+  private Orientation       m_orientation; // columns (horizontal) or rows (vertical) removed
+  private ArrayList<int[]>  m_runs;        // contiguous {index, count} runs removed, in descending index order
+  private ArrayList<Object> m_payloads;    // removed payload for each run, only thing kept for undo
+  private int               m_count;       // total number removed
+  private int               m_restored;    // number of runs re-inserted by last undo
+  private String            m_text;        // text describing command
+
+  /**************************************** constructor ******************************************/
+  public CommandRemove( TableData data, Orientation orientation, int[] indexes )
+  {
+    // remove columns or rows at sorted unique indexes, command only valid if data model supports removing
+    m_orientation = orientation;
+    m_runs = new ArrayList<>();
+    for ( int end = indexes.length; end > 0; )
+    {
+      int start = end - 1;
+      while ( start > 0 && indexes[start - 1] == indexes[start] - 1 )
+        start--;
+      m_runs.add( new int[] { indexes[start], end - start } );
+      m_count += end - start;
+      end = start;
+    }
+
+    m_data = data;
+    redo();
+    if ( m_payloads.isEmpty() || m_payloads.get( 0 ) == null )
+      m_data = null;
+  }
+
+  /******************************************* redo **********************************************/
+  @Override
+  public void redo()
+  {
+    // action command, removing runs from highest index so lower indexes are unaffected
+    m_payloads = new ArrayList<>();
+    for ( int[] run : m_runs )
+    {
+      Object payload = m_orientation == Orientation.HORIZONTAL ? m_data.removeColumns( run[0], run[1] )
+          : m_data.removeRows( run[0], run[1] );
+      if ( payload == null )
+        break;
+      m_payloads.add( payload );
+    }
+  }
+
+  /******************************************* undo **********************************************/
+  @Override
+  public void undo()
+  {
+    // revert command, re-inserting runs from lowest index with their payloads
+    for ( int run = m_payloads.size() - 1; run >= 0; run-- )
+    {
+      int[] removed = m_runs.get( run );
+      if ( m_orientation == Orientation.HORIZONTAL )
+        m_data.insertColumns( removed[0], removed[1], m_payloads.get( run ) );
+      else
+        m_data.insertRows( removed[0], removed[1], m_payloads.get( run ) );
+    }
+    m_restored = m_payloads.size();
+    m_payloads = null;
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write runs removed, or runs re-inserted with their restored values
+    if ( redo )
+      for ( int run = 0; run < m_payloads.size(); run++ )
+        record.remove( m_orientation, m_runs.get( run )[0], m_runs.get( run )[1] );
+    else
+      for ( int run = m_restored - 1; run >= 0; run-- )
+        record.inserted( m_data, m_orientation, m_runs.get( run )[0], m_runs.get( run )[1] );
+    return true;
+  }
+
+  /******************************************* text **********************************************/
+  @Override
+  public String text()
+  {
+    // command description
+    if ( m_text == null )
+      m_text = "Removed " + m_count + ( m_orientation == Orientation.HORIZONTAL ? " column" : " row" )
+          + ( m_count > 1 ? "s" : "" );
+
+    return m_text;
+  }
+
+  /******************************************* isValid *******************************************/
+  @Override
+  public boolean isValid()
+  {
+    // command is only ready and valid when pointer to data is set
+    return m_data != null;
+  }
+
+}
@@ -56,6 +56,10 @@ public class CommandReorder implements IUndoCommand
     TableAxis axis = m_orientation == Orientation.HORIZONTAL ? m_view.getColumnsAxis() : m_view.getRowsAxis();
     axis.movePositions( m_positions, m_newPos );
 
+    // rows moved by hand are no longer kept sorted
+    if ( m_orientation == Orientation.VERTICAL )
+      m_view.getLiveSort().clear();
+
     // redraw table in this view only
     m_view.redraw();
   }
@@ -64,8 +68,20 @@ public class CommandReorder implements IUndoCommand
   @Override
   public void undo()
   {
-    // revert command
+    // revert command, moving columns or rows back to their prior positions
     TableAxis axis = m_orientation == Orientation.HORIZONTAL ? m_view.getColumnsAxis() : m_view.getRowsAxis();
+    int[] moves = undoMoves();
+    for ( int move = 0; move < moves.length; move += 2 )
+      axis.movePosition( moves[move], moves[move + 1] );
+
+    // redraw table in this view only
+    m_view.redraw();
+  }
+
+  /****************************************** undoMoves ******************************************/
+  private int[] undoMoves()
+  {
+    // return (from, to) position pairs of single moves that revert command
     int newOffset = Reorder.countBefore( m_positions, m_newPos );
     int oldOffset = m_positions.size() - newOffset;
 
@@ -74,21 +90,39 @@ public class CommandReorder implements IUndoCommand
     for ( int pos : m_positions )
       list.add( pos );
 
-    // move columns or rows back to their prior positions
+    int[] moves = new int[2 * list.size()];
+    int move = 0;
     for ( int oldPos : list )
       if ( m_newPos > oldPos )
       {
-        axis.movePosition( m_newPos - newOffset, oldPos );
+        moves[move++] = m_newPos - newOffset;
+        moves[move++] = oldPos;
         newOffset--;
       }
       else
       {
-        axis.movePosition( m_newPos, oldPos + oldOffset );
+        moves[move++] = m_newPos;
+        moves[move++] = oldPos + oldOffset;
         oldOffset--;
       }
 
-    // redraw table in this view only
-    m_view.redraw();
+    return moves;
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write view moves after command redone or undone
+    if ( redo )
+      record.moveAll( m_orientation, m_positions, m_newPos );
+    else
+    {
+      int[] moves = undoMoves();
+      for ( int move = 0; move < moves.length; move += 2 )
+        record.move( m_orientation, moves[move], moves[move + 1] );
+    }
+    return true;
   }
 
   /******************************************* text **********************************************/
@@ -20,6 +20,7 @@ package rjc.table.undo;
 
 import java.util.HashMap;
 
+import javafx.geometry.Orientation;
 import rjc.table.view.TableSelection.SelectedSet;
 import rjc.table.view.TableView;
 import rjc.table.view.axis.TableAxis;
@@ -118,6 +119,41 @@ public class CommandResize implements IUndoCommand
     m_view.redraw();
   }
 
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write view sizes after command redone or undone
+    Orientation orientation = m_axis == m_view.getColumnsAxis() ? Orientation.HORIZONTAL : Orientation.VERTICAL;
+    if ( redo )
+    {
+      if ( m_indexes.all )
+      {
+        record.defaultSize( orientation, m_newSize );
+        record.clearSizes( orientation );
+      }
+      else
+        for ( var index : m_indexes.set )
+          record.size( orientation, index, m_newSize );
+      return true;
+    }
+
+    if ( m_indexes.all )
+      record.defaultSize( orientation, m_oldDefault );
+    m_oldExceptions.forEach( ( index, size ) ->
+    {
+      if ( size == NO_EXCEPTION )
+        record.clearSize( orientation, index );
+      else
+      {
+        record.size( orientation, index, Math.abs( size ) );
+        if ( size < 0 )
+          record.hide( orientation, index );
+      }
+    } );
+    return true;
+  }
+
   /******************************************* text **********************************************/
   @Override
   public String text()
@@ -0,0 +1,151 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.undo;
+
+import rjc.table.data.TableChange;
+import rjc.table.data.TableData;
+import rjc.table.data.formula.Formula;
+import rjc.table.data.formula.Formulas;
+import rjc.table.view.axis.AxisBase;
+
+/*************************************************************************************************/
+/************ UndoCommand for setting or removing a cell or column formula, or value *************/
+/*************************************************************************************************/
+
+public class CommandSetFormula implements IUndoCommand
+{
+  private TableData m_data;
+  private int       m_columnIndex;
+  private int       m_rowIndex;    // HEADER for column formula
+  private String    m_newFormula;  // formula text after command, null if none
+  private String    m_oldFormula;  // formula text before command, null if none
+  private Object    m_newValue;    // value set after command if no new formula
+  private Object[]  m_oldValues;   // values before command if no old formula (whole column for column formula)
+  private String    m_text;        // text describing command
+
+  /**************************************** constructor ******************************************/
+  public CommandSetFormula( TableData tableData, int columnIndex, int rowIndex, Object input )
+  {
+    // input text starting '=' sets formula, other input removes formula and sets value (kept for column)
+    Formulas formulas = tableData.getFormulas();
+    Formula old = formulas.getFormula( columnIndex, rowIndex );
+    m_oldFormula = old == null ? null : old.getText();
+    if ( input instanceof String && ( (String) input ).startsWith( "=" ) )
+    {
+      // abort creating command if formula invalid or unchanged
+      m_newFormula = (String) input;
+      try
+      {
+        Formula.compile( m_newFormula );
+      }
+      catch ( IllegalArgumentException exception )
+      {
+        return;
+      }
+      if ( m_newFormula.equals( m_oldFormula ) )
+        return;
+    }
+    else if ( old == null )
+      return;
+    else
+      m_newValue = input;
+
+    // record values to restore if there was no old formula to recalculate them
+    if ( old == null )
+    {
+      int first = rowIndex == AxisBase.HEADER ? 0 : rowIndex;
+      int last = rowIndex == AxisBase.HEADER ? tableData.getRowCount() - 1 : rowIndex;
+      m_oldValues = new Object[last - first + 1];
+      for ( int row = first; row <= last; row++ )
+        m_oldValues[row - first] = tableData.getValue( columnIndex, row );
+    }
+
+    // initialise private variables and action command
+    m_data = tableData;
+    m_columnIndex = columnIndex;
+    m_rowIndex = rowIndex;
+    redo();
+  }
+
+  /******************************************* redo **********************************************/
+  @Override
+  public void redo()
+  {
+    // action command
+    m_data.getFormulas().setFormula( m_columnIndex, m_rowIndex, m_newFormula );
+    if ( m_newFormula == null && m_rowIndex != AxisBase.HEADER )
+    {
+      m_data.setValue( m_columnIndex, m_rowIndex, m_newValue );
+      m_data.fireChange( TableChange.cellUpdated( m_columnIndex, m_rowIndex ) );
+    }
+  }
+
+  /******************************************* undo **********************************************/
+  @Override
+  public void undo()
+  {
+    // revert command, restoring old values if there was no old formula
+    m_data.getFormulas().setFormula( m_columnIndex, m_rowIndex, m_oldFormula );
+    if ( m_oldFormula == null )
+    {
+      int first = m_rowIndex == AxisBase.HEADER ? 0 : m_rowIndex;
+      for ( int row = 0; row < m_oldValues.length; row++ )
+        m_data.setValue( m_columnIndex, first + row, m_oldValues[row] );
+      m_data.fireChange( TableChange.cellsUpdated( m_columnIndex, first, m_columnIndex, first + m_oldValues.length - 1 ) );
+    }
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write formula and any values set after command redone or undone
+    record.formula( m_columnIndex, m_rowIndex, redo ? m_newFormula : m_oldFormula );
+    if ( redo && m_newFormula == null && m_rowIndex != AxisBase.HEADER )
+      record.cell( m_columnIndex, m_rowIndex, m_newValue );
+    if ( !redo && m_oldFormula == null )
+    {
+      int first = m_rowIndex == AxisBase.HEADER ? 0 : m_rowIndex;
+      for ( int row = 0; row < m_oldValues.length; row++ )
+        record.cell( m_columnIndex, first + row, m_oldValues[row] );
+    }
+    return true;
+  }
+
+  /******************************************* text **********************************************/
+  @Override
+  public String text()
+  {
+    // command description
+    if ( m_text == null )
+      m_text = m_data.getValue( m_columnIndex, AxisBase.HEADER ) + " " + m_data.getValue( AxisBase.HEADER, m_rowIndex )
+          + " = " + ( m_newFormula == null ? m_newValue : m_newFormula );
+
+    return m_text;
+  }
+
+  /******************************************* isValid *******************************************/
+  @Override
+  public boolean isValid()
+  {
+    // command is only ready and valid when pointer to data is set
+    return m_data != null;
+  }
+
+}
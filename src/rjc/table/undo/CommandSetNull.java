@@ -18,6 +18,7 @@
 
 package rjc.table.undo;
 
+import java.util.Arrays;
 import java.util.HashMap;
 
 import rjc.table.data.TableData;
@@ -29,46 +30,70 @@ import rjc.table.view.TableView;
 
 public class CommandSetNull implements IUndoCommand
 {
-  private TableData                m_data;        // table data model
-  private int                      m_columnCount; // used to hash column & row indexes
-  private HashMap<Integer, Object> m_oldValues;   // cells location and old value before setting to null
-  private String                   m_text;        // text describing command
+  private TableData             m_data;       // table data model
+  private HashMap<Long, Object> m_oldValues;  // cells location (column << 32 | row) and old value before nulled
+  private String                m_text;       // text describing command
+  private long[]                m_added;      // cells nulled by add() not yet signalled
+  private int                   m_addedCount; // number of cells nulled by add() not yet signalled
 
   /**************************************** constructor ******************************************/
   public CommandSetNull( TableView view )
   {
     // initialise private variables - after creating command use add() method populate old-values hash-map
+    // then fireChanges() to signal the cells nulled
     m_data = view.getData();
-    m_columnCount = m_data.getColumnCount();
     m_oldValues = new HashMap<>();
+    m_added = new long[64];
   }
 
   /******************************************* redo **********************************************/
   @Override
   public void redo()
   {
-    // set value to null of selected cells
-    m_oldValues.keySet().forEach( hash ->
-    {
-      int col = hash % m_columnCount;
-      int row = hash / m_columnCount;
-      m_data.setValue( col, row, null );
-      m_data.redrawCell( col, row );
-    } );
+    // set value to null of selected cells, signalling changes in bands of rows
+    m_oldValues.keySet().forEach( hash -> m_data.setValue( (int) ( hash >>> 32 ), hash.intValue(), null ) );
+    fireChanges( cells() );
   }
 
   /******************************************* undo **********************************************/
   @Override
   public void undo()
   {
-    // set deleted cells back to their original values
-    m_oldValues.forEach( ( hash, oldValue ) ->
-    {
-      int col = hash % m_columnCount;
-      int row = hash / m_columnCount;
-      m_data.setValue( col, row, oldValue );
-      m_data.redrawCell( col, row );
-    } );
+    // set deleted cells back to their original values, signalling changes in bands of rows
+    m_oldValues.forEach( ( hash, oldValue ) -> m_data.setValue( (int) ( hash >>> 32 ), hash.intValue(), oldValue ) );
+    fireChanges( cells() );
+  }
+
+  /******************************************** cells ********************************************/
+  private long[] cells()
+  {
+    // return locations of cells nulled by command
+    return m_oldValues.keySet().stream().mapToLong( Long::longValue ).toArray();
+  }
+
+  /***************************************** fireChanges *****************************************/
+  private void fireChanges( long[] cells )
+  {
+    // signal cells changed as one change per band of near rows in each column
+    m_data.fireCellsUpdated( cells, cells.length );
+  }
+
+  /***************************************** fireChanges *****************************************/
+  public void fireChanges()
+  {
+    // signal cells nulled by add() since last called, as one change per band of near rows in each column
+    m_data.fireCellsUpdated( m_added, m_addedCount );
+    m_addedCount = 0;
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write cell values after command redone or undone
+    m_oldValues.forEach( ( hash, oldValue ) -> record.cell( (int) ( hash >>> 32 ), hash.intValue(),
+        redo ? null : oldValue ) );
+    return true;
   }
 
   /******************************************* text **********************************************/
@@ -92,13 +117,15 @@ public class CommandSetNull implements IUndoCommand
   /********************************************* add *********************************************/
   public void add( int columnIndex, int rowIndex )
   {
-    // if can successfully set cell value to null, store old value in hash-map
+    // if can successfully set cell value to null, store old value in hash-map, signalled by fireChanges()
     Object oldValue = m_data.getValue( columnIndex, rowIndex );
     if ( oldValue != null && m_data.setValue( columnIndex, rowIndex, null ) )
     {
-      int hash = rowIndex * m_columnCount + columnIndex;
+      long hash = (long) columnIndex << 32 | rowIndex & 0xFFFFFFFFL;
       m_oldValues.put( hash, oldValue );
-      m_data.redrawCell( columnIndex, rowIndex );
+      if ( m_addedCount == m_added.length )
+        m_added = Arrays.copyOf( m_added, m_addedCount * 2 );
+      m_added[m_addedCount++] = hash;
       m_text = null;
     }
   }
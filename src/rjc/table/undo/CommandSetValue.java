@@ -20,6 +20,7 @@ package rjc.table.undo;
 
 import java.util.Objects;
 
+import rjc.table.data.TableChange;
 import rjc.table.data.TableData;
 import rjc.table.view.axis.AxisBase;
 
@@ -51,11 +52,11 @@ public class CommandSetValue implements IUndoCommand
     if ( Objects.equals( m_oldValue, m_newValue ) )
       return;
 
-    // initialise private variables and redraw call as set was successful
+    // initialise private variables and notify change as set was successful
     m_data = tableData;
     m_columnIndex = columnIndex;
     m_rowIndex = rowIndex;
-    m_data.redrawCell( m_columnIndex, m_rowIndex );
+    m_data.fireChange( TableChange.cellUpdated( m_columnIndex, m_rowIndex ) );
   }
 
   /******************************************* redo **********************************************/
@@ -64,7 +65,7 @@ public class CommandSetValue implements IUndoCommand
   {
     // action command
     m_data.setValue( m_columnIndex, m_rowIndex, m_newValue );
-    m_data.redrawCell( m_columnIndex, m_rowIndex );
+    m_data.fireChange( TableChange.cellUpdated( m_columnIndex, m_rowIndex ) );
   }
 
   /******************************************* undo **********************************************/
@@ -73,7 +74,16 @@ public class CommandSetValue implements IUndoCommand
   {
     // revert command
     m_data.setValue( m_columnIndex, m_rowIndex, m_oldValue );
-    m_data.redrawCell( m_columnIndex, m_rowIndex );
+    m_data.fireChange( TableChange.cellUpdated( m_columnIndex, m_rowIndex ) );
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write cell value after command redone or undone
+    record.cell( m_columnIndex, m_rowIndex, redo ? m_newValue : m_oldValue );
+    return true;
   }
 
   /******************************************* text **********************************************/
@@ -0,0 +1,107 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.undo;
+
+import java.util.Arrays;
+import java.util.List;
+
+import javafx.geometry.Orientation;
+import rjc.table.view.TableView;
+import rjc.table.view.actions.Sort;
+import rjc.table.view.actions.Sort.Key;
+import rjc.table.view.axis.TableAxis;
+
+/*************************************************************************************************/
+/*********************** UndoCommand for sorting the rows of a table view ************************/
+/*************************************************************************************************/
+
+public class CommandSort implements IUndoCommand
+{
+  private TableView m_view;     // table view
+  private int[]     m_oldOrder; // row order before sort
+  private int[]     m_newOrder; // row order after sort
+  private String    m_text;     // text describing command
+  private List<Key> m_oldKeys;  // keys rows kept sorted by before sort, empty if none
+  private List<Key> m_newKeys;  // keys rows kept sorted by after sort
+
+  /**************************************** constructor ******************************************/
+  public CommandSort( TableView view, int[] oldOrder, int[] newOrder, String text, List<Key> oldKeys,
+      List<Key> newKeys )
+  {
+    // prepare sort command
+    m_view = view;
+    m_oldOrder = oldOrder;
+    m_newOrder = newOrder;
+    m_text = text;
+    m_oldKeys = oldKeys;
+    m_newKeys = newKeys;
+  }
+
+  /******************************************* redo **********************************************/
+  @Override
+  public void redo()
+  {
+    // action command
+    setOrder( m_newOrder, m_newKeys );
+  }
+
+  /******************************************* undo **********************************************/
+  @Override
+  public void undo()
+  {
+    // revert command
+    setOrder( m_oldOrder, m_oldKeys );
+  }
+
+  /****************************************** setOrder *******************************************/
+  private void setOrder( int[] order, List<Key> keys )
+  {
+    // install row order fitted to current row count, and keys rows are then kept sorted by
+    TableAxis axis = m_view.getRowsAxis();
+    axis.setOrder( Sort.fit( order, axis.getCount() ) );
+    m_view.getLiveSort().setKeys( keys );
+    m_view.redraw();
+  }
+
+  /****************************************** journal ********************************************/
+  @Override
+  public boolean journal( JournalRecord record, boolean redo )
+  {
+    // write row order after command redone or undone (keys rows are kept sorted by are not journaled)
+    record.order( Orientation.VERTICAL, redo ? m_newOrder : m_oldOrder );
+    return true;
+  }
+
+  /******************************************* text **********************************************/
+  @Override
+  public String text()
+  {
+    // command description
+    return m_text;
+  }
+
+  /****************************************** isValid ********************************************/
+  @Override
+  public boolean isValid()
+  {
+    // command is only valid if order changes
+    return !Arrays.equals( m_oldOrder, m_newOrder );
+  }
+
+}
@@ -38,4 +38,10 @@ public interface IUndoCommand
   {
     return true;
   }
+
+  // writes effect of command just redone (or undone) to journal record, returns false if not journaled
+  default public boolean journal( JournalRecord record, boolean redo )
+  {
+    return false;
+  }
 }
\ No newline at end of file
@@ -0,0 +1,557 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.undo;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.function.Consumer;
+
+import javafx.geometry.Orientation;
+import rjc.table.data.TableChange;
+import rjc.table.data.TableData;
+import rjc.table.view.TableView;
+import rjc.table.view.actions.Sort;
+import rjc.table.view.axis.TableAxis;
+
+/*************************************************************************************************/
+/****** Write-ahead journal of undo stack command effects for recovering edits after crash *******/
+/*************************************************************************************************/
+
+/* File is int MAGIC, int VERSION, followed by JournalRecord frames (int length, int CRC32C, ops).
+ * Records are appended from the FX thread without blocking, a background writer takes every record
+ * waiting as one group, writes them with a single gathering write and forces them to disk once. A
+ * torn or corrupt frame at the end (crash part way through a write) is truncated when reopened. */
+
+public class Journal
+{
+  private Path                   m_path;       // journal file
+  private FileChannel            m_channel;    // journal file channel, only written by writer thread once open
+  private long                   m_replayEnd;  // file size of valid records found when opened
+  private ArrayDeque<ByteBuffer> m_pending;    // framed records and checkpoint/compact markers waiting for writer
+  private long                   m_appended;   // number of pending entries ever added
+  private long                   m_written;    // number of pending entries written and forced by writer
+  private IOException            m_failure;    // first writer failure, after which records are discarded
+  private boolean                m_closed;     // true when closed, writer finishes pending then stops
+  private Thread                 m_writer;     // background writer thread
+
+  final static public int        MAGIC       = 0x4C4A544A;
+  final static public int        VERSION     = 1;
+  final static public int        HEADER_SIZE = 8;
+
+  // markers on pending queue for writer to truncate or compact journal after preceding records are written
+  final static private ByteBuffer CHECKPOINT = ByteBuffer.allocate( 0 );
+  final static private ByteBuffer COMPACT    = ByteBuffer.allocate( 0 );
+
+  /**************************************** constructor ******************************************/
+  public Journal( Path path ) throws IOException
+  {
+    // open journal creating if needed, truncating any torn record at end, and start writer thread
+    m_path = path;
+    m_pending = new ArrayDeque<>();
+    m_channel = FileChannel.open( path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+        StandardOpenOption.WRITE );
+
+    try
+    {
+      if ( m_channel.size() == 0L )
+        writeHeader( m_channel );
+      else
+      {
+        ByteBuffer header = read( m_channel, 0L, HEADER_SIZE );
+        if ( header == null || header.getInt() != MAGIC )
+          throw new IOException( "Not a journal file " + path );
+        if ( header.getInt() != VERSION )
+          throw new IOException( "Unsupported version " + header.getInt( 4 ) + " " + path );
+      }
+
+      m_replayEnd = forEachRecord( m_channel, m_channel.size(), ops -> {} );
+      if ( m_replayEnd < m_channel.size() )
+      {
+        m_channel.truncate( m_replayEnd );
+        m_channel.force( true );
+      }
+      m_channel.position( m_replayEnd );
+    }
+    catch ( IOException exception )
+    {
+      m_channel.close();
+      throw exception;
+    }
+
+    m_writer = new Thread( this::write, "Journal " + path.getFileName() );
+    m_writer.setDaemon( true );
+    m_writer.start();
+  }
+
+  /******************************************* replay ********************************************/
+  public int replay( TableData data, TableView view ) throws IOException
+  {
+    // apply records found when journal opened to data, and view if not null, returning number of records
+    // cell values that could not be set are skipped, then reported by exception once all else is replayed
+    int[] count = new int[1];
+    int[] failed = new int[1];
+    boolean[] viewChanged = new boolean[1];
+    forEachRecord( m_channel, m_replayEnd, ops ->
+    {
+      viewChanged[0] |= apply( ops, data, view, failed );
+      count[0]++;
+    } );
+
+    if ( viewChanged[0] )
+    {
+      view.layoutDisplay();
+      view.redraw();
+    }
+    if ( failed[0] > 0 )
+      throw new IOException( "Replayed " + count[0] + " records but " + failed[0] + " cell values could not be set" );
+    return count[0];
+  }
+
+  /******************************************* append ********************************************/
+  public void append( IUndoCommand command, boolean redo )
+  {
+    // queue effect of command just redone (or undone) for writer, commands not journaled are ignored
+    JournalRecord record = new JournalRecord();
+    try
+    {
+      if ( command.journal( record, redo ) && !record.isEmpty() )
+        enqueue( record.frame() );
+    }
+    catch ( IllegalArgumentException exception )
+    {
+      // value could not be journaled, so journal can no longer replay edits and later records are discarded
+      synchronized ( this )
+      {
+        if ( m_failure == null )
+          m_failure = new IOException( "Not journaled " + command.text(), exception );
+        notifyAll();
+      }
+    }
+  }
+
+  /***************************************** checkpoint ******************************************/
+  public void checkpoint()
+  {
+    // queue truncation of journal once preceding records are written, e.g. after table saved elsewhere
+    enqueue( CHECKPOINT );
+  }
+
+  /******************************************* compact *******************************************/
+  public void compact()
+  {
+    // queue rewrite of journal keeping only latest value of cells edited repeatedly
+    enqueue( COMPACT );
+  }
+
+  /******************************************** flush ********************************************/
+  public void flush() throws IOException
+  {
+    // wait until everything queued so far is forced to disk
+    long target;
+    synchronized ( this )
+    {
+      target = m_appended;
+      while ( m_written < target && m_failure == null )
+        waitForWriter();
+
+      if ( m_failure != null )
+        throw m_failure;
+    }
+  }
+
+  /******************************************** close ********************************************/
+  public void close() throws IOException
+  {
+    // write everything queued so far then stop writer and close file
+    synchronized ( this )
+    {
+      m_closed = true;
+      notifyAll();
+    }
+    try
+    {
+      m_writer.join();
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+    }
+
+    m_channel.close();
+    if ( m_failure != null )
+      throw m_failure;
+  }
+
+  /******************************************* getPath *******************************************/
+  public Path getPath()
+  {
+    // return journal file path
+    return m_path;
+  }
+
+  /******************************************* enqueue *******************************************/
+  private synchronized void enqueue( ByteBuffer entry )
+  {
+    // add entry to pending queue and wake writer
+    if ( m_closed )
+      throw new IllegalStateException( "Journal closed " + m_path );
+
+    m_pending.add( entry );
+    m_appended++;
+    notifyAll();
+  }
+
+  /**************************************** waitForWriter ****************************************/
+  private void waitForWriter()
+  {
+    // wait for writer to signal progress, caller holds the lock
+    try
+    {
+      wait();
+    }
+    catch ( InterruptedException exception )
+    {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException( exception );
+    }
+  }
+
+  /******************************************** write ********************************************/
+  private void write()
+  {
+    // writer thread, taking all pending records as one group written with a single force
+    ArrayList<ByteBuffer> group = new ArrayList<>();
+    while ( true )
+    {
+      ByteBuffer marker = null;
+      synchronized ( this )
+      {
+        while ( m_pending.isEmpty() && !m_closed )
+          waitForWriter();
+        if ( m_pending.isEmpty() )
+          return;
+
+        while ( !m_pending.isEmpty() && marker == null )
+        {
+          ByteBuffer entry = m_pending.poll();
+          if ( entry == CHECKPOINT || entry == COMPACT )
+            marker = entry;
+          else
+            group.add( entry );
+        }
+      }
+
+      // write group then perform any checkpoint or compact, records are discarded after a failure
+      try
+      {
+        if ( m_failure == null )
+        {
+          ByteBuffer[] buffers = group.toArray( new ByteBuffer[group.size()] );
+          long bytes = 0L;
+          for ( ByteBuffer buffer : buffers )
+            bytes += buffer.remaining();
+          while ( bytes > 0L )
+            bytes -= m_channel.write( buffers );
+          m_channel.force( false );
+
+          if ( marker == CHECKPOINT )
+          {
+            m_channel.truncate( HEADER_SIZE );
+            m_channel.force( true );
+          }
+          if ( marker == COMPACT )
+            rewrite();
+        }
+      }
+      catch ( IOException exception )
+      {
+        m_failure = exception;
+      }
+
+      synchronized ( this )
+      {
+        m_written += group.size() + ( marker == null ? 0 : 1 );
+        notifyAll();
+      }
+      group.clear();
+    }
+  }
+
+  /******************************************* rewrite *******************************************/
+  private void rewrite() throws IOException
+  {
+    // write compacted copy of journal alongside then atomically replace journal with it
+    Path temp = m_path.resolveSibling( m_path.getFileName() + ".tmp" );
+    try (FileChannel channel = FileChannel.open( temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING ))
+    {
+      writeHeader( channel );
+      compact( m_channel, channel );
+      channel.force( true );
+    }
+
+    m_channel.close();
+    Files.move( temp, m_path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+    m_channel = FileChannel.open( m_path, StandardOpenOption.READ, StandardOpenOption.WRITE );
+    m_channel.position( m_channel.size() );
+  }
+
+  /******************************************* compact *******************************************/
+  private static void compact( FileChannel from, FileChannel to ) throws IOException
+  {
+    // copy records, coalescing cell values between structural changes so each cell is written once
+    LinkedHashMap<Long, Object> cells = new LinkedHashMap<>();
+    JournalRecord[] out = { new JournalRecord() };
+    IOException[] failure = new IOException[1];
+    forEachRecord( from, from.size(), ops ->
+    {
+      while ( ops.hasRemaining() && failure[0] == null )
+      {
+        int start = ops.position();
+        byte op = ops.get();
+        if ( op == JournalRecord.CELL )
+        {
+          long key = (long) ops.getInt() << 32 | ops.getInt() & 0xFFFFFFFFL;
+          cells.put( key, JournalRecord.getValue( ops ) );
+          continue;
+        }
+
+        // formulas, inserts & removes change which values cells hold so cells before them are written first
+        if ( op == JournalRecord.FORMULA || op == JournalRecord.INSERT || op == JournalRecord.REMOVE )
+        {
+          cells.forEach( ( key, value ) -> out[0].cell( (int) ( key >> 32 ), key.intValue(), value ) );
+          cells.clear();
+        }
+
+        ops.position( start );
+        JournalRecord.skip( ops );
+        out[0].putOps( ops.duplicate().limit( ops.position() ).position( start ) );
+        try
+        {
+          out[0] = writeIfFull( to, out[0] );
+        }
+        catch ( IOException exception )
+        {
+          failure[0] = exception;
+        }
+      }
+    } );
+    if ( failure[0] != null )
+      throw failure[0];
+
+    cells.forEach( ( key, value ) -> out[0].cell( (int) ( key >> 32 ), key.intValue(), value ) );
+    if ( !out[0].isEmpty() )
+      writeFully( to, out[0].frame() );
+  }
+
+  /***************************************** writeIfFull *****************************************/
+  private static JournalRecord writeIfFull( FileChannel channel, JournalRecord record ) throws IOException
+  {
+    // write record if grown large returning new empty record, otherwise return record to keep filling
+    if ( record.getSize() < 1 << 20 )
+      return record;
+
+    writeFully( channel, record.frame() );
+    return new JournalRecord();
+  }
+
+  /***************************************** writeFully ******************************************/
+  private static void writeFully( FileChannel channel, ByteBuffer buffer ) throws IOException
+  {
+    // write all remaining bytes of buffer at channel position
+    while ( buffer.hasRemaining() )
+      channel.write( buffer );
+  }
+
+  /***************************************** writeHeader *****************************************/
+  private static void writeHeader( FileChannel channel ) throws IOException
+  {
+    // write journal file header and force to disk
+    ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+    header.putInt( MAGIC ).putInt( VERSION ).flip();
+    writeFully( channel, header );
+    channel.force( true );
+  }
+
+  /******************************************** read *********************************************/
+  private static ByteBuffer read( FileChannel channel, long position, int length ) throws IOException
+  {
+    // return bytes read from file position, or null if file ends first
+    ByteBuffer buffer = ByteBuffer.allocate( length ).order( ByteOrder.LITTLE_ENDIAN );
+    while ( buffer.hasRemaining() )
+      if ( channel.read( buffer, position + buffer.position() ) < 0 )
+        return null;
+    return buffer.flip();
+  }
+
+  /**************************************** forEachRecord ****************************************/
+  private static long forEachRecord( FileChannel channel, long end, Consumer<ByteBuffer> action )
+      throws IOException
+  {
+    // pass ops of each valid record before end to action, returning position after last valid record
+    long position = HEADER_SIZE;
+    while ( position + JournalRecord.FRAME_HEADER <= end )
+    {
+      ByteBuffer frame = read( channel, position, JournalRecord.FRAME_HEADER );
+      int length = frame.getInt();
+      int checksum = frame.getInt();
+      if ( length <= 0 || position + JournalRecord.FRAME_HEADER + length > end )
+        break;
+
+      ByteBuffer ops = read( channel, position + JournalRecord.FRAME_HEADER, length );
+      if ( ops == null || JournalRecord.checksum( ops, 0, length ) != checksum )
+        break;
+
+      action.accept( ops );
+      position += JournalRecord.FRAME_HEADER + length;
+    }
+
+    return position;
+  }
+
+  /******************************************** apply ********************************************/
+  private static boolean apply( ByteBuffer ops, TableData data, TableView view, int[] failed )
+  {
+    // apply record ops to data, and view if not null, counting cell values not set, returning true if view changed
+    boolean viewChanged = false;
+    while ( ops.hasRemaining() )
+    {
+      int start = ops.position();
+      byte op = ops.get();
+      switch ( op )
+      {
+        case JournalRecord.CELL:
+          int columnIndex = ops.getInt();
+          int rowIndex = ops.getInt();
+          try
+          {
+            if ( data.setValue( columnIndex, rowIndex, JournalRecord.getValue( ops ) ) )
+              data.fireChange( TableChange.cellUpdated( columnIndex, rowIndex ) );
+            else
+              failed[0]++;
+          }
+          catch ( IllegalArgumentException | IndexOutOfBoundsException exception )
+          {
+            failed[0]++;
+          }
+          break;
+        case JournalRecord.FORMULA:
+          columnIndex = ops.getInt();
+          rowIndex = ops.getInt();
+          data.getFormulas().setFormula( columnIndex, rowIndex, JournalRecord.getString( ops ) );
+          break;
+        case JournalRecord.INSERT:
+          boolean columns = ops.get() == Orientation.HORIZONTAL.ordinal();
+          int index = ops.getInt();
+          int count = ops.getInt();
+          if ( columns )
+            data.insertColumns( index, count, null );
+          else
+            data.insertRows( index, count, null );
+          break;
+        case JournalRecord.REMOVE:
+          columns = ops.get() == Orientation.HORIZONTAL.ordinal();
+          index = ops.getInt();
+          count = ops.getInt();
+          if ( columns )
+            data.removeColumns( index, count );
+          else
+            data.removeRows( index, count );
+          break;
+        default:
+          // remaining ops are for the view, skipped if no view
+          if ( view == null )
+          {
+            ops.position( start );
+            JournalRecord.skip( ops );
+          }
+          else
+            applyView( op, ops, view );
+          viewChanged |= view != null;
+      }
+    }
+
+    return viewChanged;
+  }
+
+  /****************************************** applyView ******************************************/
+  private static void applyView( byte op, ByteBuffer ops, TableView view )
+  {
+    // apply view columns or rows size or order op
+    Orientation orientation = Orientation.values()[ops.get()];
+    TableAxis axis = orientation == Orientation.HORIZONTAL ? view.getColumnsAxis() : view.getRowsAxis();
+    switch ( op )
+    {
+      case JournalRecord.DEFAULT_SIZE:
+        axis.setDefaultSize( ops.getInt() );
+        break;
+      case JournalRecord.CLEAR_SIZES:
+        axis.clearSizeExceptions();
+        break;
+      case JournalRecord.SIZE:
+        axis.setCellSize( ops.getInt(), ops.getInt() );
+        break;
+      case JournalRecord.CLEAR_SIZE:
+        axis.clearCellSize( ops.getInt() );
+        break;
+      case JournalRecord.HIDE:
+        axis.hideIndex( ops.getInt() );
+        break;
+      case JournalRecord.MOVE:
+        axis.movePosition( ops.getInt(), ops.getInt() );
+        break;
+      case JournalRecord.MOVE_ALL:
+        HashSet<Integer> positions = new HashSet<>();
+        for ( int count = ops.getInt(); count > 0; count-- )
+          positions.add( ops.getInt() );
+        axis.movePositions( positions, ops.getInt() );
+        if ( orientation == Orientation.VERTICAL )
+          view.getLiveSort().clear();
+        break;
+      case JournalRecord.ORDER:
+        int[] order = new int[ops.getInt()];
+        for ( int index = 0; index < order.length; index++ )
+          order[index] = ops.getInt();
+        axis.setOrder( Sort.fit( order, axis.getCount() ) );
+        break;
+      default:
+        throw new IllegalStateException( "Op=" + op );
+    }
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[" + m_path
+        + " appended=" + m_appended + " written=" + m_written + "]";
+  }
+
+}
@@ -0,0 +1,428 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.undo;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+import java.util.zip.CRC32C;
+
+import javafx.geometry.Orientation;
+import rjc.table.data.Date;
+import rjc.table.data.DateTime;
+import rjc.table.data.TableData;
+import rjc.table.data.Time;
+
+/*************************************************************************************************/
+/************ Compact binary encoding of the effect of an undo command for the Journal ***********/
+/*************************************************************************************************/
+
+/* Record is a sequence of operations (little-endian), each an op byte followed by its fields :
+ *   CELL          - int column, int row, value (type byte then int, long, double, byte or UTF-8,
+ *                   enum as UTF-8 class name then UTF-8 constant name)
+ *   FORMULA       - int column, int row, UTF-8 text (length -1 to remove formula)
+ *   INSERT/REMOVE - byte orientation, int index, int count
+ *   view sizes    - byte orientation, then int size and/or int index as needed by op
+ *   MOVE          - byte orientation, int old position, int new position
+ *   MOVE_ALL      - byte orientation, int count, count int positions, int new position
+ *   ORDER         - byte orientation, int count, count int indexes
+ * When written to the journal file each record is framed by int length and int CRC32C checksum. */
+
+public class JournalRecord
+{
+  private ByteBuffer        m_buffer;          // encoded operations
+
+  final static byte         CELL         = 1;
+  final static byte         FORMULA      = 2;
+  final static byte         INSERT       = 3;
+  final static byte         REMOVE       = 4;
+  final static byte         DEFAULT_SIZE = 5;
+  final static byte         CLEAR_SIZES  = 6;
+  final static byte         SIZE         = 7;
+  final static byte         CLEAR_SIZE   = 8;
+  final static byte         HIDE         = 9;
+  final static byte         MOVE         = 10;
+  final static byte         MOVE_ALL     = 11;
+  final static byte         ORDER        = 12;
+
+  final static private byte NULL         = 0;
+  final static private byte STRING       = 1;
+  final static private byte INTEGER      = 2;
+  final static private byte LONG         = 3;
+  final static private byte DOUBLE       = 4;
+  final static private byte BOOLEAN      = 5;
+  final static private byte DATE         = 6;
+  final static private byte TIME         = 7;
+  final static private byte DATETIME     = 8;
+  final static private byte ENUM         = 9;
+
+  final static int          FRAME_HEADER = 8;
+
+  /**************************************** constructor ******************************************/
+  public JournalRecord()
+  {
+    // initialise private variables, leaving space for frame header
+    m_buffer = ByteBuffer.allocate( 64 ).order( ByteOrder.LITTLE_ENDIAN );
+    m_buffer.position( FRAME_HEADER );
+  }
+
+  /******************************************* isEmpty *******************************************/
+  public boolean isEmpty()
+  {
+    // return true if no operations have been written
+    return m_buffer.position() == FRAME_HEADER;
+  }
+
+  /********************************************* cell ********************************************/
+  public void cell( int columnIndex, int rowIndex, Object value )
+  {
+    // write cell (or header if row is HEADER) value set, throws IllegalArgumentException if type not supported
+    reserve( 9 );
+    m_buffer.put( CELL ).putInt( columnIndex ).putInt( rowIndex );
+    putValue( value );
+  }
+
+  /******************************************* formula *******************************************/
+  public void formula( int columnIndex, int rowIndex, String text )
+  {
+    // write cell (or column if row is HEADER) formula set, null text if removed
+    reserve( 9 );
+    m_buffer.put( FORMULA ).putInt( columnIndex ).putInt( rowIndex );
+    putString( text );
+  }
+
+  /******************************************* insert ********************************************/
+  public void insert( Orientation orientation, int index, int count )
+  {
+    // write empty columns or rows inserted
+    axis( INSERT, orientation, index, count );
+  }
+
+  /****************************************** inserted *******************************************/
+  public void inserted( TableData data, Orientation orientation, int index, int count )
+  {
+    // write columns or rows inserted followed by the values they were restored with
+    insert( orientation, index, count );
+    boolean columns = orientation == Orientation.HORIZONTAL;
+    if ( columns )
+      for ( int columnIndex = index; columnIndex < index + count; columnIndex++ )
+        cell( columnIndex, TableData.HEADER, data.getValue( columnIndex, TableData.HEADER ) );
+
+    data.forEachPopulated( columns ? index : 0, columns ? 0 : index,
+        columns ? index + count - 1 : data.getColumnCount() - 1, columns ? data.getRowCount() - 1 : index + count - 1,
+        ( columnIndex, rowIndex ) ->
+        {
+          cell( columnIndex, rowIndex, data.getValue( columnIndex, rowIndex ) );
+          return true;
+        } );
+  }
+
+  /******************************************* remove ********************************************/
+  public void remove( Orientation orientation, int index, int count )
+  {
+    // write columns or rows removed
+    axis( REMOVE, orientation, index, count );
+  }
+
+  /***************************************** defaultSize *****************************************/
+  public void defaultSize( Orientation orientation, int size )
+  {
+    // write view columns or rows default size set
+    axis( DEFAULT_SIZE, orientation, size );
+  }
+
+  /***************************************** clearSizes ******************************************/
+  public void clearSizes( Orientation orientation )
+  {
+    // write view columns or rows size exceptions cleared
+    reserve( 2 );
+    m_buffer.put( CLEAR_SIZES ).put( (byte) orientation.ordinal() );
+  }
+
+  /******************************************** size *********************************************/
+  public void size( Orientation orientation, int index, int size )
+  {
+    // write view column or row size set
+    axis( SIZE, orientation, index, size );
+  }
+
+  /****************************************** clearSize ******************************************/
+  public void clearSize( Orientation orientation, int index )
+  {
+    // write view column or row size exception cleared
+    axis( CLEAR_SIZE, orientation, index );
+  }
+
+  /******************************************** hide *********************************************/
+  public void hide( Orientation orientation, int index )
+  {
+    // write view column or row hidden
+    axis( HIDE, orientation, index );
+  }
+
+  /******************************************** move *********************************************/
+  public void move( Orientation orientation, int oldPosition, int newPosition )
+  {
+    // write view column or row moved from old position to new position
+    axis( MOVE, orientation, oldPosition, newPosition );
+  }
+
+  /******************************************* moveAll *******************************************/
+  public void moveAll( Orientation orientation, Set<Integer> positions, int newPosition )
+  {
+    // write view columns or rows at positions moved together to new position
+    reserve( 10 + 4 * positions.size() );
+    m_buffer.put( MOVE_ALL ).put( (byte) orientation.ordinal() ).putInt( positions.size() );
+    for ( int position : positions )
+      m_buffer.putInt( position );
+    m_buffer.putInt( newPosition );
+  }
+
+  /******************************************** order ********************************************/
+  public void order( Orientation orientation, int[] order )
+  {
+    // write view columns or rows order set
+    reserve( 6 + 4 * order.length );
+    m_buffer.put( ORDER ).put( (byte) orientation.ordinal() ).putInt( order.length );
+    for ( int index : order )
+      m_buffer.putInt( index );
+  }
+
+  /******************************************** axis *********************************************/
+  private void axis( byte op, Orientation orientation, int... values )
+  {
+    // write op for columns or rows with int values
+    reserve( 2 + 4 * values.length );
+    m_buffer.put( op ).put( (byte) orientation.ordinal() );
+    for ( int value : values )
+      m_buffer.putInt( value );
+  }
+
+  /****************************************** putValue *******************************************/
+  private void putValue( Object value )
+  {
+    // write type byte and value, other types are rejected as they could not be restored when replayed
+    reserve( 9 );
+    if ( value == null )
+      m_buffer.put( NULL );
+    else if ( value instanceof Integer )
+      m_buffer.put( INTEGER ).putInt( (Integer) value );
+    else if ( value instanceof Long )
+      m_buffer.put( LONG ).putLong( (Long) value );
+    else if ( value instanceof Double )
+      m_buffer.put( DOUBLE ).putDouble( (Double) value );
+    else if ( value instanceof Boolean )
+      m_buffer.put( BOOLEAN ).put( (byte) ( (Boolean) value ? 1 : 0 ) );
+    else if ( value instanceof Date )
+      m_buffer.put( DATE ).putInt( ( (Date) value ).getEpochday() );
+    else if ( value instanceof Time )
+      m_buffer.put( TIME ).putInt( ( (Time) value ).getDayMilliseconds() );
+    else if ( value instanceof DateTime )
+      m_buffer.put( DATETIME ).putLong( ( (DateTime) value ).getMilliseconds() );
+    else if ( value instanceof String )
+    {
+      m_buffer.put( STRING );
+      putString( (String) value );
+    }
+    else if ( value instanceof Enum )
+    {
+      m_buffer.put( ENUM );
+      putString( ( (Enum<?>) value ).getDeclaringClass().getName() );
+      putString( ( (Enum<?>) value ).name() );
+    }
+    else
+      throw new IllegalArgumentException( "Value type not supported by journal " + value.getClass().getName() );
+  }
+
+  /****************************************** getValue *******************************************/
+  static Object getValue( ByteBuffer buffer )
+  {
+    // read value written by putValue, throws IllegalArgumentException if enum no longer exists (value skipped)
+    byte type = buffer.get();
+    switch ( type )
+    {
+      case NULL:
+        return null;
+      case STRING:
+        return getString( buffer );
+      case INTEGER:
+        return buffer.getInt();
+      case LONG:
+        return buffer.getLong();
+      case DOUBLE:
+        return buffer.getDouble();
+      case BOOLEAN:
+        return buffer.get() != 0;
+      case DATE:
+        return new Date( buffer.getInt() );
+      case TIME:
+        return Time.fromMilliseconds( buffer.getInt() );
+      case DATETIME:
+        return new DateTime( buffer.getLong() );
+      case ENUM:
+        return getEnum( getString( buffer ), getString( buffer ) );
+      default:
+        throw new IllegalStateException( "Type=" + type );
+    }
+  }
+
+  /******************************************* getEnum *******************************************/
+  private static Object getEnum( String className, String name )
+  {
+    // return enum constant from its class and constant names
+    try
+    {
+      Object[] constants = Class.forName( className ).getEnumConstants();
+      if ( constants != null )
+        for ( Object constant : constants )
+          if ( ( (Enum<?>) constant ).name().equals( name ) )
+            return constant;
+    }
+    catch ( ClassNotFoundException exception )
+    {
+      // fall through to report enum not found
+    }
+
+    throw new IllegalArgumentException( "Enum not found " + className + "." + name );
+  }
+
+  /****************************************** putString ******************************************/
+  private void putString( String text )
+  {
+    // write UTF-8 length and bytes, length -1 for null
+    byte[] bytes = text == null ? null : text.getBytes( StandardCharsets.UTF_8 );
+    reserve( 4 + ( bytes == null ? 0 : bytes.length ) );
+    m_buffer.putInt( bytes == null ? -1 : bytes.length );
+    if ( bytes != null )
+      m_buffer.put( bytes );
+  }
+
+  /****************************************** getString ******************************************/
+  static String getString( ByteBuffer buffer )
+  {
+    // read string written by putString
+    int length = buffer.getInt();
+    if ( length < 0 )
+      return null;
+
+    byte[] bytes = new byte[length];
+    buffer.get( bytes );
+    return new String( bytes, StandardCharsets.UTF_8 );
+  }
+
+  /******************************************** skip *********************************************/
+  static void skip( ByteBuffer buffer )
+  {
+    // move buffer position past the next operation
+    byte op = buffer.get();
+    switch ( op )
+    {
+      case CELL:
+        buffer.position( buffer.position() + 8 );
+        getValue( buffer );
+        break;
+      case FORMULA:
+        buffer.position( buffer.position() + 8 );
+        getString( buffer );
+        break;
+      case CLEAR_SIZES:
+        buffer.get();
+        break;
+      case DEFAULT_SIZE:
+      case CLEAR_SIZE:
+      case HIDE:
+        buffer.position( buffer.position() + 5 );
+        break;
+      case INSERT:
+      case REMOVE:
+      case SIZE:
+      case MOVE:
+        buffer.position( buffer.position() + 9 );
+        break;
+      case MOVE_ALL:
+        buffer.get();
+        buffer.position( buffer.position() + 4 * buffer.getInt() + 4 );
+        break;
+      case ORDER:
+        buffer.get();
+        buffer.position( buffer.position() + 4 * buffer.getInt() );
+        break;
+      default:
+        throw new IllegalStateException( "Op=" + op );
+    }
+  }
+
+  /******************************************* putOps ********************************************/
+  void putOps( ByteBuffer ops )
+  {
+    // write operations already encoded by another record
+    reserve( ops.remaining() );
+    m_buffer.put( ops );
+  }
+
+  /******************************************* getSize *******************************************/
+  int getSize()
+  {
+    // return number of bytes of operations written
+    return m_buffer.position() - FRAME_HEADER;
+  }
+
+  /******************************************* reserve *******************************************/
+  private void reserve( int bytes )
+  {
+    // ensure buffer has space for bytes, doubling capacity as needed
+    if ( m_buffer.remaining() < bytes )
+    {
+      int capacity = Math.max( m_buffer.capacity() * 2, m_buffer.position() + bytes );
+      ByteBuffer buffer = ByteBuffer.allocate( capacity ).order( ByteOrder.LITTLE_ENDIAN );
+      m_buffer.flip();
+      m_buffer = buffer.put( m_buffer );
+    }
+  }
+
+  /******************************************** frame ********************************************/
+  ByteBuffer frame()
+  {
+    // return record framed with length and checksum ready for writing to journal file
+    ByteBuffer frame = m_buffer.duplicate().order( ByteOrder.LITTLE_ENDIAN ).flip();
+    int length = frame.limit() - FRAME_HEADER;
+    frame.putInt( 0, length ).putInt( 4, checksum( frame, FRAME_HEADER, length ) );
+    return frame;
+  }
+
+  /****************************************** checksum *******************************************/
+  static int checksum( ByteBuffer buffer, int offset, int length )
+  {
+    // return CRC32C checksum of buffer bytes
+    CRC32C crc = new CRC32C();
+    crc.update( buffer.duplicate().limit( offset + length ).position( offset ) );
+    return (int) crc.getValue();
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[bytes="
+        + getSize() + "]";
+  }
+
+}
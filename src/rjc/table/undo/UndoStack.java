@@ -31,6 +31,7 @@ public class UndoStack implements ISignal
   private ArrayList<IUndoCommand> m_stack;      // list of undo commands
   private int                     m_index;      // executed commands index
   private int                     m_cleanIndex; // index when declared clean
+  private Journal                 m_journal;    // journal commands are written to, null if none
 
   /**************************************** constructor ******************************************/
   public UndoStack()
@@ -52,8 +53,10 @@ public class UndoStack implements ISignal
   /****************************************** setClean *******************************************/
   public void setClean()
   {
-    // declare current index position as being clean (for example after file saved)
+    // declare current index position as being clean (for example after file saved) so journal not needed
     m_cleanIndex = m_index;
+    if ( m_journal != null )
+      m_journal.checkpoint();
     signal();
   }
 
@@ -98,6 +101,7 @@ public class UndoStack implements ISignal
     // add new command to stack, do it, and update stack index
     m_stack.add( command );
     m_index = m_stack.size();
+    journal( command, true );
     signal();
 
     // return true command was successfully added to stack
@@ -112,6 +116,7 @@ public class UndoStack implements ISignal
     {
       m_index--;
       m_stack.get( m_index ).undo();
+      journal( m_stack.get( m_index ), false );
       signal();
     }
   }
@@ -123,11 +128,34 @@ public class UndoStack implements ISignal
     if ( m_index < m_stack.size() )
     {
       m_stack.get( m_index ).redo();
+      journal( m_stack.get( m_index ), true );
       m_index++;
       signal();
     }
   }
 
+  /****************************************** setJournal *****************************************/
+  public void setJournal( Journal journal )
+  {
+    // set journal that commands are written to as they are pushed, undone or redone, null for none
+    m_journal = journal;
+  }
+
+  /****************************************** getJournal *****************************************/
+  public Journal getJournal()
+  {
+    // return journal that commands are written to, null if none
+    return m_journal;
+  }
+
+  /******************************************* journal *******************************************/
+  private void journal( IUndoCommand command, boolean redo )
+  {
+    // write effect of command just redone or undone to journal if set
+    if ( m_journal != null )
+      m_journal.append( command, redo );
+  }
+
   /**************************************** getUndoCommand ***************************************/
   public IUndoCommand getUndoCommand()
   {
@@ -173,10 +201,12 @@ public class UndoStack implements ISignal
       {
         m_index--;
         m_stack.get( m_index ).undo();
+        journal( m_stack.get( m_index ), false );
       }
       while ( index > m_index && m_index < m_stack.size() )
       {
         m_stack.get( m_index ).redo();
+        journal( m_stack.get( m_index ), true );
         m_index++;
       }
 
@@ -28,6 +28,8 @@ import javafx.scene.text.FontSmoothingType;
 import rjc.table.Colors;
 import rjc.table.view.axis.TableAxis;
 import rjc.table.view.cell.CellDraw;
+import rjc.table.view.cell.CellValues;
+import rjc.table.view.cell.FooterDraw;
 
 /*************************************************************************************************/
 /************************ Base canvas for table-views with redraw methods ************************/
@@ -40,10 +42,12 @@ public class CanvasBase extends Canvas
 
   private AtomicBoolean    m_redrawIsRequested;                      // flag if redraw has been scheduled
   private boolean          m_fullRedraw;                             // full view redraw (headers & body)
+  private boolean          m_footerRedraw;                           // footer rows redraw
   private HashSet<Integer> m_columns;                                // requested column indexes
   private HashSet<Integer> m_rows;                                   // requested row indexes
   private HashSet<Long>    m_cells;                                  // long = (long) column << 32 | row & 0xFFFFFFFFL
   private int              m_redrawCount;                            // count to ensure canvas cleared periodically
+  private CellValues       m_values;                                 // cell values pre-fetched for current redraw
 
   // column & row index starts at 0 for table body, index of -1 is for axis header
   final static public int  INVALID             = TableAxis.INVALID;
@@ -115,6 +119,16 @@ public class CanvasBase extends Canvas
     schedule();
   }
 
+  /***************************************** redrawFooter ****************************************/
+  public void redrawFooter()
+  {
+    // request redraw of footer rows
+    if ( m_fullRedraw || m_footerRedraw )
+      return;
+    m_footerRedraw = true;
+    schedule();
+  }
+
   /****************************************** schedule *******************************************/
   private void schedule()
   {
@@ -150,10 +164,13 @@ public class CanvasBase extends Canvas
         redrawColumnNow( columnIndex );
       for ( int rowIndex : m_rows )
         redrawRowNow( rowIndex );
+      if ( m_footerRedraw )
+        redrawFooterNow();
     }
 
     // clear requests
     m_fullRedraw = false;
+    m_footerRedraw = false;
     m_columns.clear();
     m_rows.clear();
     m_cells.clear();
@@ -213,6 +230,11 @@ public class CanvasBase extends Canvas
         if ( maxRowPos > max )
           maxRowPos = max;
 
+        // fetch column cell values in one call unless already pre-fetched
+        if ( columnIndex > HEADER )
+          cell.setValues( m_values != null ? m_values
+              : new CellValues( m_view, cell.columnPos, minRowPos, cell.columnPos, maxRowPos ) );
+
         cell.y = m_view.getYStartFromRowPos( minRowPos );
         for ( cell.rowPos = minRowPos; cell.rowPos <= maxRowPos; cell.rowPos++ )
         {
@@ -226,12 +248,60 @@ public class CanvasBase extends Canvas
         }
       }
 
-      // redraw column header
+      // redraw column header & footer
       cell.rowIndex = HEADER;
       cell.rowPos = HEADER;
       cell.y = 0.0;
       cell.h = m_view.getHeaderHeight();
       cell.draw();
+      redrawFooterNow( columnIndex, cell.columnPos, cell.x, cell.w );
+    }
+  }
+
+  /*************************************** redrawFooterNow ***************************************/
+  public void redrawFooterNow()
+  {
+    // redraw footer rows for visible columns and row header
+    if ( isVisible() && !m_view.getFooter().isEmpty() )
+    {
+      int minColumnPos = Math.max( m_view.getColumnPositionAtX( m_view.getHeaderWidth() ), FIRSTCELL );
+      int maxColumnPos = Math.min( m_view.getColumnPositionAtX( (int) getWidth() ),
+          m_view.getData().getColumnCount() - 1 );
+      for ( int pos = minColumnPos; pos <= maxColumnPos; pos++ )
+      {
+        int x = m_view.getXStartFromColumnPos( pos );
+        int w = m_view.getXStartFromColumnPos( pos + 1 ) - x;
+        if ( w > 0 )
+          redrawFooterNow( m_view.getColumnsAxis().getIndexFromPosition( pos ), pos, x, w );
+      }
+      redrawFooterNow( HEADER, HEADER, 0.0, m_view.getHeaderWidth() );
+    }
+  }
+
+  /*************************************** redrawFooterNow ***************************************/
+  private void redrawFooterNow( int columnIndex, int columnPos, double x, double w )
+  {
+    // redraw footer cells of column pinned to bottom of canvas
+    var footer = m_view.getFooter();
+    if ( footer.isEmpty() || w <= 0.0 )
+      return;
+
+    FooterDraw cell = m_view.getFooterDrawer();
+    cell.view = m_view;
+    cell.gc = getGraphicsContext2D();
+    cell.columnIndex = columnIndex;
+    cell.columnPos = columnPos;
+    cell.rowIndex = AFTER;
+    cell.rowPos = AFTER;
+    cell.x = x;
+    cell.w = w;
+    cell.h = m_view.getFooterHeight() / footer.size();
+    cell.y = getHeight() - m_view.getFooterHeight();
+    for ( var function : footer )
+    {
+      cell.function = function;
+      cell.draw();
+      cell.y += cell.h;
     }
   }
 
@@ -262,6 +332,11 @@ public class CanvasBase extends Canvas
         if ( maxColumnPos > max )
           maxColumnPos = max;
 
+        // fetch row cell values in one call unless already pre-fetched
+        if ( rowIndex > HEADER )
+          cell.setValues( m_values != null ? m_values
+              : new CellValues( m_view, minColumnPos, cell.rowPos, maxColumnPos, cell.rowPos ) );
+
         cell.x = m_view.getXStartFromColumnPos( minColumnPos );
         for ( cell.columnPos = minColumnPos; cell.columnPos <= maxColumnPos; cell.columnPos++ )
         {
@@ -296,8 +371,14 @@ public class CanvasBase extends Canvas
       if ( maxColumnPos > max )
         maxColumnPos = max;
 
+      // fetch visible cell values for all the columns in one call
+      int minRowPos = Math.max( m_view.getRowPositionAtY( m_view.getHeaderHeight() ), FIRSTCELL );
+      int maxRowPos = Math.min( m_view.getRowPositionAtY( (int) getHeight() ), m_view.getData().getRowCount() - 1 );
+      m_values = new CellValues( m_view, minColumnPos, minRowPos, maxColumnPos, maxRowPos );
+
       for ( int pos = minColumnPos; pos <= maxColumnPos; pos++ )
         redrawColumnNow( m_view.getColumnsAxis().getIndexFromPosition( pos ) );
+      m_values = null;
     }
   }
 
@@ -313,8 +394,15 @@ public class CanvasBase extends Canvas
       if ( maxRowPos > max )
         maxRowPos = max;
 
+      // fetch visible cell values for all the rows in one call
+      int minColumnPos = Math.max( m_view.getColumnPositionAtX( m_view.getHeaderWidth() ), FIRSTCELL );
+      int maxColumnPos = Math.min( m_view.getColumnPositionAtX( (int) getWidth() ),
+          m_view.getData().getColumnCount() - 1 );
+      m_values = new CellValues( m_view, minColumnPos, minRowPos, maxColumnPos, maxRowPos );
+
       for ( int pos = minRowPos; pos <= maxRowPos; pos++ )
         redrawRowNow( m_view.getRowsAxis().getIndexFromPosition( pos ) );
+      m_values = null;
     }
   }
 
@@ -343,7 +431,8 @@ public class CanvasBase extends Canvas
       // clip drawing to table body
       gc.save();
       gc.beginPath();
-      gc.rect( m_view.getHeaderWidth() - 1, m_view.getHeaderHeight() - 1, getWidth(), getHeight() );
+      gc.rect( m_view.getHeaderWidth() - 1, m_view.getHeaderHeight() - 1, getWidth(),
+          getHeight() - m_view.getFooterHeight() - m_view.getHeaderHeight() + 1 );
       gc.clip();
 
       // draw special border
@@ -65,6 +65,13 @@ public class TableCanvas extends CanvasBase
   /**************************************** heightChange *****************************************/
   public void heightChange( int oldH, int newH )
   {
+    // footer rows are pinned to bottom so move with it
+    if ( !m_view.getFooter().isEmpty() )
+    {
+      redrawNow();
+      return;
+    }
+
     // only need to draw if new height is larger than old height
     if ( newH > oldH && isVisible() && oldH < m_view.getTableHeight() && getWidth() > 0.0 )
     {
@@ -354,6 +354,59 @@ public class TableSelection implements ISignal
     m_view.getSelectCell().setPosition( TableAxis.AFTER, TableAxis.AFTER );
   }
 
+  /**************************************** shiftColumns *****************************************/
+  public void shiftColumns( int position, int delta )
+  {
+    // adjust selected areas for columns inserted (+ve delta) or removed (-ve delta) at position
+    boolean changed = false;
+    for ( var it = m_selected.iterator(); it.hasNext(); )
+    {
+      Selected area = it.next();
+      int c1 = shift( area.c1, position, delta, false );
+      int c2 = shift( area.c2, position, delta, true );
+      changed = changed || c1 != area.c1 || c2 != area.c2;
+      if ( c2 < c1 )
+        it.remove();
+      area.c1 = c1;
+      area.c2 = c2;
+    }
+
+    if ( changed )
+      signal( m_selected.size() );
+  }
+
+  /****************************************** shiftRows ******************************************/
+  public void shiftRows( int position, int delta )
+  {
+    // adjust selected areas for rows inserted (+ve delta) or removed (-ve delta) at position
+    boolean changed = false;
+    for ( var it = m_selected.iterator(); it.hasNext(); )
+    {
+      Selected area = it.next();
+      int r1 = shift( area.r1, position, delta, false );
+      int r2 = shift( area.r2, position, delta, true );
+      changed = changed || r1 != area.r1 || r2 != area.r2;
+      if ( r2 < r1 )
+        it.remove();
+      area.r1 = r1;
+      area.r2 = r2;
+    }
+
+    if ( changed )
+      signal( m_selected.size() );
+  }
+
+  /******************************************** shift ********************************************/
+  private static int shift( int pos, int position, int delta, boolean end )
+  {
+    // return area edge adjusted for insertion or removal, removed edges move to edge of remaining area
+    if ( pos == AFTER || pos < position )
+      return pos;
+    if ( delta > 0 || pos >= position - delta )
+      return pos + delta;
+    return end ? position - 1 : position;
+  }
+
   /****************************************** toString *******************************************/
   @Override
   public String toString()
@@ -18,22 +18,32 @@
 
 package rjc.table.view;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import javafx.geometry.Orientation;
 import javafx.scene.SnapshotParameters;
 import javafx.scene.canvas.Canvas;
 import javafx.scene.control.ScrollBar;
 import javafx.scene.image.Image;
 import rjc.table.Status;
+import rjc.table.data.Aggregate.Function;
+import rjc.table.data.TableBase.Signal;
+import rjc.table.data.TableChange;
 import rjc.table.data.TableData;
 import rjc.table.signal.ObservableDouble;
 import rjc.table.undo.UndoStack;
 import rjc.table.view.TableScrollBar.Animation;
+import rjc.table.view.actions.Find;
+import rjc.table.view.actions.LiveSort;
 import rjc.table.view.actions.Reorder;
 import rjc.table.view.actions.Resize;
+import rjc.table.view.actions.RowFilter;
 import rjc.table.view.axis.TableAxis;
 import rjc.table.view.cell.CellContext;
 import rjc.table.view.cell.CellDraw;
 import rjc.table.view.cell.CellStyle;
+import rjc.table.view.cell.FooterDraw;
 import rjc.table.view.cell.MousePosition;
 import rjc.table.view.cell.ViewPosition;
 import rjc.table.view.cell.editor.CellEditorBase;
@@ -68,6 +78,10 @@ public class TableView extends TableParent
   protected TableSelection   m_selection;
   protected UndoStack        m_undostack;
   protected Status           m_status;
+  protected LiveSort         m_liveSort;           // keeps rows sorted as data changes
+  protected RowFilter        m_rowFilter;          // hides rows not meeting column conditions
+  protected Find             m_find;               // finds cells matching a query
+  protected List<Function>   m_footer;             // aggregate functions shown in footer rows
 
   protected ViewPosition     m_focusCell;
   protected ViewPosition     m_selectCell;
@@ -99,6 +113,10 @@ public class TableView extends TableParent
 
     m_selection = new TableSelection( this );
     m_status = new Status();
+    m_liveSort = new LiveSort( this );
+    m_rowFilter = new RowFilter( this );
+    m_find = new Find( this );
+    m_footer = new ArrayList<>();
 
     m_focusCell = new ViewPosition( this );
     m_selectCell = new ViewPosition( this );
@@ -146,6 +164,13 @@ public class TableView extends TableParent
       redraw();
     } );
 
+    // react to data changes that may change footer aggregates
+    m_data.addListener( objects ->
+    {
+      if ( objects.length > 1 && objects[0] == Signal.TABLE_CHANGED && !m_footer.isEmpty() )
+        getCanvas().redrawFooter();
+    } );
+
     // react to losing & gaining focus and visibility
     focusedProperty().addListener( ( observable, oldF, newF ) -> redraw() );
     visibleProperty().addListener( ( observable, oldF, newF ) -> redraw() );
@@ -163,6 +188,80 @@ public class TableView extends TableParent
     getRowsAxis().reset();
     getRowsAxis().setDefaultSize( 20 );
     getRowsAxis().setHeaderSize( 20 );
+    m_liveSort.clear();
+    m_rowFilter.clear();
+    m_find.cancel();
+  }
+
+  /**************************************** tableChanged *****************************************/
+  public void tableChanged( TableChange change )
+  {
+    // update axes, selection & focus incrementally for structural change to data, or reset if reload
+    int columnPos = Integer.MAX_VALUE;
+    int rowPos = Integer.MAX_VALUE;
+    switch ( change.getType() )
+    {
+      case COLUMNS_INSERTED:
+        columnPos = getColumnsAxis().indexesInserted( change.getIndex(), change.getCount() );
+        shiftColumns( columnPos, change.getCount() );
+        break;
+      case COLUMNS_REMOVED:
+        columnPos = getColumnsAxis().indexesRemoved( change.getIndex(), change.getCount() );
+        shiftColumns( columnPos, -change.getCount() );
+        break;
+      case ROWS_INSERTED:
+        rowPos = getRowsAxis().indexesInserted( change.getIndex(), change.getCount() );
+        shiftRows( rowPos, change.getCount() );
+        break;
+      case ROWS_REMOVED:
+        rowPos = getRowsAxis().indexesRemoved( change.getIndex(), change.getCount() );
+        shiftRows( rowPos, -change.getCount() );
+        break;
+      case RELOAD:
+        reset();
+        columnPos = TableAxis.FIRSTCELL;
+        break;
+      default:
+        return;
+    }
+
+    // re-layout scroll bars, and redraw if change at or before last visible column or row
+    layoutDisplay();
+    m_mouseCell.checkXY();
+    if ( columnPos <= getColumnPositionAtX( (int) getCanvas().getWidth() )
+        || rowPos <= getRowPositionAtY( (int) getCanvas().getHeight() ) )
+      redraw();
+  }
+
+  /**************************************** shiftColumns *****************************************/
+  private void shiftColumns( int position, int delta )
+  {
+    // adjust selection, focus & select cell column positions for columns inserted or removed
+    m_selection.shiftColumns( position, delta );
+    int max = getColumnsAxis().getCount() - 1;
+    m_focusCell.setColumnPos( shiftPosition( m_focusCell.getColumnPos(), position, delta, max ) );
+    m_selectCell.setColumnPos( shiftPosition( m_selectCell.getColumnPos(), position, delta, max ) );
+  }
+
+  /****************************************** shiftRows ******************************************/
+  private void shiftRows( int position, int delta )
+  {
+    // adjust selection, focus & select cell row positions for rows inserted or removed
+    m_selection.shiftRows( position, delta );
+    int max = getRowsAxis().getCount() - 1;
+    m_focusCell.setRowPos( shiftPosition( m_focusCell.getRowPos(), position, delta, max ) );
+    m_selectCell.setRowPos( shiftPosition( m_selectCell.getRowPos(), position, delta, max ) );
+  }
+
+  /**************************************** shiftPosition ****************************************/
+  private static int shiftPosition( int pos, int position, int delta, int max )
+  {
+    // return body position adjusted for insertion (+ve delta) or removal (-ve delta) at position
+    if ( pos < TableAxis.FIRSTCELL || pos == TableAxis.AFTER || pos < position )
+      return pos;
+    if ( delta > 0 || pos >= position - delta )
+      return pos + delta;
+    return Math.min( position, max );
   }
 
   /****************************************** getData ********************************************/
@@ -251,6 +350,27 @@ public class TableView extends TableParent
     m_status = status;
   }
 
+  /***************************************** getLiveSort *****************************************/
+  public LiveSort getLiveSort()
+  {
+    // return live sort that keeps table-view rows sorted as data changes
+    return m_liveSort;
+  }
+
+  /**************************************** getRowFilter *****************************************/
+  public RowFilter getRowFilter()
+  {
+    // return row filter that hides table-view rows not meeting column conditions
+    return m_rowFilter;
+  }
+
+  /******************************************* getFind *******************************************/
+  public Find getFind()
+  {
+    // return cell finder for this view
+    return m_find;
+  }
+
   /**************************************** getFocusCell *****************************************/
   public ViewPosition getFocusCell()
   {
@@ -286,6 +406,36 @@ public class TableView extends TableParent
     return null;
   }
 
+  /*************************************** getFooterDrawer ***************************************/
+  public FooterDraw getFooterDrawer()
+  {
+    // return new instance of class that draws footer cells (override to use different drawer)
+    return new FooterDraw();
+  }
+
+  /****************************************** getFooter ******************************************/
+  public List<Function> getFooter()
+  {
+    // return aggregate functions shown in footer rows pinned to bottom of table-view
+    return m_footer;
+  }
+
+  /****************************************** setFooter ******************************************/
+  public void setFooter( Function... functions )
+  {
+    // set aggregate functions shown in footer rows, none to remove footer
+    m_footer = List.of( functions );
+    layoutDisplay();
+    redraw();
+  }
+
+  /*************************************** getFooterHeight ***************************************/
+  public int getFooterHeight()
+  {
+    // return height in pixels of footer rows (taking zoom into account)
+    return m_footer.size() * (int) ( getRowsAxis().getDefaultSize() * getZoom().get() );
+  }
+
   /***************************************** openEditor ******************************************/
   public void openEditor( Object value )
   {
@@ -403,8 +553,8 @@ public class TableView extends TableParent
   /**************************************** layoutDisplay ****************************************/
   public void layoutDisplay()
   {
-    // determine which scroll-bars should be visible
-    int tableH = getTableHeight();
+    // determine which scroll-bars should be visible, footer rows add to height so last row not hidden
+    int tableH = getTableHeight() + getFooterHeight();
     int tableW = getTableWidth();
     int scrollbarSize = (int) getVerticalScrollBar().getWidth();
 
@@ -0,0 +1,99 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+package rjc.table.view.actions;
+
+import java.util.ArrayList;
+
+/*************************************************************************************************/
+/******************* Text built in compact chunks to avoid large buffer growth *******************/
+/*************************************************************************************************/
+
+public class ChunkedText
+{
+  private ArrayList<String> m_chunks    = new ArrayList<>();          // completed chunks, compact if Latin-1
+  private StringBuilder     m_chunk     = new StringBuilder( CHUNK ); // chunk being appended to
+  private long              m_length;                                 // total length of text
+
+  final static private int  CHUNK       = 1 << 20;                    // characters per chunk
+  final static public long  MAX_LENGTH  = Integer.MAX_VALUE - 8L;     // longest text a string can hold
+
+  /******************************************* append ********************************************/
+  public void append( String text )
+  {
+    // append text to current chunk completing chunk when full, or as its own chunk if long
+    m_length += text.length();
+    if ( text.length() >= CHUNK )
+    {
+      if ( m_chunk.length() > 0 )
+        complete();
+      m_chunks.add( text );
+      return;
+    }
+
+    m_chunk.append( text );
+    if ( m_chunk.length() >= CHUNK )
+      complete();
+  }
+
+  /******************************************* append ********************************************/
+  public void append( char character )
+  {
+    // append character to current chunk, completing chunk when full
+    m_chunk.append( character );
+    m_length++;
+    if ( m_chunk.length() >= CHUNK )
+      complete();
+  }
+
+  /****************************************** complete *******************************************/
+  private void complete()
+  {
+    // move current chunk to completed list as a string, reusing builder for next chunk
+    m_chunks.add( m_chunk.toString() );
+    m_chunk.setLength( 0 );
+  }
+
+  /******************************************* length ********************************************/
+  public long length()
+  {
+    // return total length of text
+    return m_length;
+  }
+
+  /****************************************** isTooLong ******************************************/
+  public boolean isTooLong()
+  {
+    // return true if text is too long to be held as one string
+    return m_length > MAX_LENGTH;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return text as one string sized exactly in a single copy, releasing chunks as no longer needed
+    if ( isTooLong() )
+      throw new IllegalStateException( "Text too long " + m_length );
+    complete();
+    String text = String.join( "", m_chunks );
+    m_chunks.clear();
+    m_chunks.add( text );
+    return text;
+  }
+
+}
@@ -18,14 +18,20 @@
 
 package rjc.table.view.actions;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import javafx.geometry.Orientation;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
-import javafx.scene.control.ButtonType;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.DataFormat;
 import rjc.table.Status.Level;
 import rjc.table.Utils;
-import rjc.table.undo.CommandPasteCells;
+import rjc.table.undo.CommandInsert;
+import rjc.table.undo.CommandRemove;
 import rjc.table.undo.CommandSetNull;
 import rjc.table.view.TableView;
 import rjc.table.view.axis.TableAxis;
@@ -37,15 +43,58 @@ import rjc.table.view.cell.CellContext;
 
 public class Content
 {
-  final static private long      WAIT_MILLISECONDS = 2000L;                                                // 2 seconds
-
-  final static public DataFormat JTABLEFX          = new DataFormat( "application/jtablefx-object-array" );
+  final static public DataFormat JTABLEFX = new DataFormat( "application/jtablefx-object-array" );
 
   /******************************************* insert ********************************************/
   public static void insert( TableView view )
   {
-    // TODO Auto-generated method stub
-    Utils.trace( "TODO" );
+    // insert as many columns as whole columns selected, otherwise as many rows as selected, before first
+    var columns = view.getSelection().getSelectedColumns();
+    var rows = view.getSelection().getSelectedRows();
+    boolean horizontal = !columns.all && !columns.set.isEmpty();
+    var selected = horizontal ? columns.set : rows.all ? new HashSet<Integer>() : rows.set;
+    TableAxis axis = horizontal ? view.getColumnsAxis() : view.getRowsAxis();
+
+    // insert position is first selected, or focus row if no rows selected
+    int count = Math.max( selected.size(), 1 );
+    int position = selected.isEmpty() ? view.getFocusCell().getRowPos() : Collections.min( selected );
+    int index = position < TableAxis.FIRSTCELL || position >= axis.getCount() ? axis.getCount()
+        : axis.getIndexFromPosition( position );
+
+    // push command onto stack and update status
+    var command = new CommandInsert( view.getData(), horizontal ? Orientation.HORIZONTAL : Orientation.VERTICAL,
+        index, count );
+    if ( view.getUndoStack().push( command ) )
+      view.getStatus().update( Level.NORMAL, command.text() );
+    else
+      view.getStatus().update( Level.WARNING, "Table does not support inserting" );
+  }
+
+  /******************************************* remove ********************************************/
+  public static void remove( TableView view )
+  {
+    // remove whole columns or rows selected
+    var columns = view.getSelection().getSelectedColumns();
+    var rows = view.getSelection().getSelectedRows();
+    boolean horizontal = !columns.all && !columns.set.isEmpty();
+    if ( !horizontal && ( rows.all || rows.set.isEmpty() ) )
+    {
+      view.getStatus().update( Level.WARNING, "Select whole columns or rows to remove" );
+      return;
+    }
+
+    // convert selected positions to sorted unique indexes
+    TableAxis axis = horizontal ? view.getColumnsAxis() : view.getRowsAxis();
+    int[] indexes = ( horizontal ? columns.set : rows.set ).stream().filter( pos -> pos < axis.getCount() )
+        .mapToInt( axis::getIndexFromPosition ).sorted().toArray();
+
+    // push command onto stack and update status
+    var command = new CommandRemove( view.getData(), horizontal ? Orientation.HORIZONTAL : Orientation.VERTICAL,
+        indexes );
+    if ( view.getUndoStack().push( command ) )
+      view.getStatus().update( Level.NORMAL, command.text() );
+    else
+      view.getStatus().update( Level.WARNING, "Table does not support removing" );
   }
 
   /******************************************* delete ********************************************/
@@ -67,9 +116,17 @@ public class Content
       int c2 = Utils.clamp( selected[2], TableAxis.FIRSTCELL, maxC );
       int r2 = Utils.clamp( selected[3], TableAxis.FIRSTCELL, maxR );
 
-      // generate list of selected visible indexes
-      var columnIndexes = view.getColumnsAxis().getVisibleIndexes( c1, c2 );
-      var rowIndexes = view.getRowsAxis().getVisibleIndexes( r1, r2 );
+      // generate arrays of selected visible indexes
+      var columnIndexes = view.getColumnsAxis().getVisibleIndexesArray( c1, c2 );
+      var rowIndexes = view.getRowsAxis().getVisibleIndexesArray( r1, r2 );
+
+      // if data knows it has fewer populated cells than selected, only visit the populated cells
+      long populated = data.getPopulatedCount();
+      if ( populated >= 0 && populated < (long) columnIndexes.length * rowIndexes.length )
+      {
+        deletePopulated( view, command, columnIndexes, rowIndexes );
+        continue;
+      }
 
       // for each visible selected cell if cell has editor and successfully deleted, add to command
       for ( int row : rowIndexes )
@@ -78,11 +135,39 @@ public class Content
             command.add( col, row );
     }
 
-    // push command onto stack and update status
+    // signal deleted cells, push command onto stack and update status
+    command.fireChanges();
     view.getUndoStack().push( command );
     view.getStatus().update( Level.NORMAL, command.text() );
   }
 
+  /*************************************** deletePopulated ***************************************/
+  private static void deletePopulated( TableView view, CommandSetNull command, int[] columnIndexes,
+      int[] rowIndexes )
+  {
+    // collect populated cells within selected visible indexes, skipping empty regions
+    int[] columns = columnIndexes.clone();
+    int[] rows = rowIndexes.clone();
+    Arrays.sort( columns );
+    Arrays.sort( rows );
+    if ( columns.length == 0 || rows.length == 0 )
+      return;
+
+    var cells = new ArrayList<long[]>();
+    view.getData().forEachPopulated( columns[0], rows[0], columns[columns.length - 1], rows[rows.length - 1],
+        ( col, row ) ->
+        {
+          if ( Arrays.binarySearch( columns, col ) >= 0 && Arrays.binarySearch( rows, row ) >= 0 )
+            cells.add( new long[] { col, row } );
+          return true;
+        } );
+
+    // delete collected cells after visiting so data is not modified while being visited
+    for ( long[] cell : cells )
+      if ( view.getCellEditor( new CellContext( view, (int) cell[0], (int) cell[1] ) ) != null )
+        command.add( (int) cell[0], (int) cell[1] );
+  }
+
   /****************************************** fillDown *******************************************/
   public static void fillDown( TableView view )
   {
@@ -93,18 +178,15 @@ public class Content
   /******************************************* paste *********************************************/
   public static void paste( TableView view )
   {
-    // attempt to paste system clipboard contents to table-view
-    var string = Clipboard.getSystemClipboard().getString();
+    // start thread to parse system clipboard contents and paste to table-view at focus position
     var array = getClipboardArray();
-
-    // paste cell values to view at focus position via undo command
-    int columnPos = view.getFocusCell().getColumnPos();
-    int rowPos = view.getFocusCell().getRowPos();
-    var command = new CommandPasteCells( view, columnPos, rowPos, array, string );
-
-    // push command onto stack and update status
-    view.getUndoStack().push( command );
-    view.getStatus().update( Level.NORMAL, command.text() );
+    var string = Clipboard.getSystemClipboard().getString();
+    if ( array == null && string == null )
+    {
+      view.getStatus().update( Level.WARNING, "Nothing to paste" );
+      return;
+    }
+    new PasteThread( view, array, string ).start();
   }
 
   /************************************** getClipboardArray **************************************/
@@ -139,38 +221,8 @@ public class Content
       return;
     }
 
-    // prepare alert to give user option to cancel long running copy operations
-    Alert alert = new Alert( AlertType.INFORMATION );
-    alert.setTitle( "Copy" );
-    alert.initOwner( view.getScene().getWindow() );
-    alert.getButtonTypes().setAll( ButtonType.CANCEL );
-    alert.setHeaderText( "Copy is taking a long time.\nPress 'Cancel' to terminate the copying." );
-    alert.setContentText( "Preparing ..." );
-
-    // create and start thread to copy the selected table view cells
-    CopyThread copy = new CopyThread( view, alert );
-    copy.start();
-
-    // if copying the data is taking too long, give user option to cancel
-    while ( copy.isAlive() && !copy.isInterrupted() )
-    {
-      try
-      {
-        // give the copy thread some time to complete before showing alert
-        copy.join( WAIT_MILLISECONDS );
-      }
-      catch ( InterruptedException exception )
-      {
-        // don't expect this thread to get interrupted
-        Utils.stack( exception );
-      }
-
-      // if copy thread is still alive after waiting, show alert allowing user to cancel
-      if ( copy.isAlive() && !copy.isInterrupted() )
-        if ( alert.showAndWait().isPresent() )
-          copy.interrupt();
-    }
-
+    // start thread to copy the selected table view cells, if taking a long time it offers user option to cancel
+    new CopyThread( view ).start();
   }
 
   /******************************************** cut **********************************************/
@@ -18,118 +18,266 @@
 
 package rjc.table.view.actions;
 
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
 import javafx.application.Platform;
-import javafx.scene.control.Alert;
 import javafx.scene.input.Clipboard;
 import javafx.scene.input.ClipboardContent;
 import rjc.table.Status.Level;
 import rjc.table.Utils;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.data.TableSnapshot;
 import rjc.table.view.TableView;
 import rjc.table.view.axis.TableAxis;
+import rjc.table.view.cell.CellDraw;
+import rjc.table.view.cell.CellValues;
 
 /*************************************************************************************************/
 /************************** Thread for multi-cell copying to clipboard ***************************/
 /*************************************************************************************************/
 
-public class CopyThread extends Thread
+public class CopyThread extends ViewTask
 {
-  private TableView         m_view;
-  private Alert             m_alert;
-  private int               m_cellsCopied;
+  private TableSnapshot        m_data;          // data as when copy started, unaffected by edits while copying
+  private int                  m_c1;            // selected area first column position
+  private int                  m_r1;            // selected area first row position
+  private int                  m_c2;            // selected area last column position
+  private int                  m_r2;            // selected area last row position
+  private int[]                m_columnIndexes; // visible column indexes in selected area
+  private int[]                m_rowIndexes;    // visible row indexes in selected area
+  private ArrayDeque<CellDraw> m_drawers;       // drawers prepared on FX thread, one per band being formatted
 
-  final static private long UPDATE_NANOS = 1000L * 1000L * 100L; // 0.1 seconds
-  final static private long MAX_COPY     = 1000L * 1000L * 5L;   // five million
+  final static private long    MAX_COPY        = 1000L * 1000L * 500L; // five hundred million
+  final static private long    MAX_PAYLOAD     = 1000L * 1000L;        // one million, beyond only text is copied
+  final static private long    MAX_IMAGE       = 1000L * 10L;          // ten thousand, beyond no image is copied
+  final static private int     BAND_CELLS      = 1 << 16;              // cells fetched from data per band of rows
 
   /**************************************** constructor ******************************************/
-  public CopyThread( TableView view, Alert alert )
+  public CopyThread( TableView view )
   {
-    // create a copy thread for specified view
-    m_view = view;
-    m_alert = alert;
-    setName( "CopyThread " + view.toString() );
+    // create a copy thread for specified view, reading a snapshot of data taken now on the FX thread
+    super( view, "Copy" );
+    m_data = view.getData().snapshot();
+    setAlert( "Copy", "Copy is taking a long time.\nPress 'Cancel' to terminate the copying." );
+
+    // capture selected area and its visible indexes now as view state is only read on FX thread
+    var selected = view.getSelection().getSelected( 0 );
+    int maxC = m_data.getColumnCount() - 1;
+    int maxR = m_data.getRowCount() - 1;
+    m_c1 = Utils.clamp( selected[0], TableAxis.FIRSTCELL, maxC );
+    m_r1 = Utils.clamp( selected[1], TableAxis.FIRSTCELL, maxR );
+    m_c2 = Utils.clamp( selected[2], TableAxis.FIRSTCELL, maxC );
+    m_r2 = Utils.clamp( selected[3], TableAxis.FIRSTCELL, maxR );
+    m_columnIndexes = view.getColumnsAxis().getVisibleIndexesArray( m_c1, m_c2 );
+    m_rowIndexes = view.getRowsAxis().getVisibleIndexesArray( m_r1, m_r2 );
+
+    // prepare a drawer for each band that can be formatting at once
+    m_drawers = new ArrayDeque<>();
+    for ( int count = 0; count < maxFormatting(); count++ )
+    {
+      var drawer = view.getCellDrawer();
+      drawer.setIndex( view, 0, 0 );
+      drawer.setData( m_data );
+      m_drawers.add( drawer );
+    }
   }
 
-  /********************************************* run *********************************************/
-  public void run()
+  /**************************************** maxFormatting ****************************************/
+  private static int maxFormatting()
+  {
+    // return most bands formatted at once, two per core so cores stay busy while bands are appended
+    return 2 * ForkJoinPool.commonPool().getParallelism();
+  }
+
+  /******************************************* compute *******************************************/
+  @Override
+  protected void compute()
+  {
+    // copy selected area contents, releasing snapshot when finished
+    try
+    {
+      copy();
+    }
+    catch ( RuntimeException exception )
+    {
+      // reading a stale snapshot can fail if columns or rows were removed while copying
+      if ( !m_data.isStale() || isCancelled() )
+        throw exception;
+      abandon();
+    }
+    finally
+    {
+      m_data.close();
+    }
+  }
+
+  /******************************************* abandon *******************************************/
+  private void abandon()
+  {
+    // report copy abandoned because columns or rows were inserted or removed while copying
+    publish( Level.ERROR, "Copy abandoned as columns or rows changed while copying" );
+  }
+
+  /******************************************** copy *********************************************/
+  private void copy()
   {
     // copy selected area contents
-    m_view.getStatus().update( Level.NORMAL, "Copying ..." );
-    var selected = m_view.getSelection().getSelected( 0 );
-    int maxC = m_view.getData().getColumnCount() - 1;
-    int maxR = m_view.getData().getRowCount() - 1;
-    int c1 = Utils.clamp( selected[0], TableAxis.FIRSTCELL, maxC );
-    int r1 = Utils.clamp( selected[1], TableAxis.FIRSTCELL, maxR );
-    int c2 = Utils.clamp( selected[2], TableAxis.FIRSTCELL, maxC );
-    int r2 = Utils.clamp( selected[3], TableAxis.FIRSTCELL, maxR );
-
-    // generate list of selected visible indexes
-    var columnIndexes = m_view.getColumnsAxis().getVisibleIndexes( c1, c2 );
-    var rowIndexes = m_view.getRowsAxis().getVisibleIndexes( r1, r2 );
+    publish( Level.NORMAL, "Copying ..." );
+    var columnIndexes = m_columnIndexes;
+    var rowIndexes = m_rowIndexes;
 
     // calculate number of cells to be copied
-    long cellsCount = (long) columnIndexes.size() * (long) rowIndexes.size();
+    long cellsCount = (long) columnIndexes.length * (long) rowIndexes.length;
     if ( cellsCount > MAX_COPY )
     {
-      m_view.getStatus().update( Level.ERROR, "Copy area too large " + cellsCount + " cells" );
+      publish( Level.ERROR, "Copy area too large " + cellsCount + " cells" );
       return;
     }
 
-    // storage for the copied data
-    var copyText = new StringBuilder();
-    var copyValues = new Object[columnIndexes.size()][rowIndexes.size()];
+    // object array payload for pasting into tables only if not too large, otherwise just text
+    var copyValues = cellsCount > MAX_PAYLOAD ? null : new Object[columnIndexes.length][rowIndexes.length];
+    var objectColumns = objectColumns( columnIndexes );
+    var copyText = new ChunkedText();
 
-    // copy selected visible cells
-    long updateNanos = System.nanoTime() + UPDATE_NANOS;
-    var drawer = m_view.getCellDrawer();
-    drawer.setIndex( m_view, 0, 0 );
+    // format bands of rows in parallel on fork-join pool, up to two per core ahead of appending in order
+    ForkJoinPool pool = ForkJoinPool.commonPool();
+    ArrayDeque<ForkJoinTask<String>> formatting = new ArrayDeque<>();
+    ArrayDeque<CellDraw> drawing = new ArrayDeque<>();
+    int maxFormatting = maxFormatting();
+    int bandRows = Math.max( 1, BAND_CELLS / Math.max( 1, columnIndexes.length ) );
+    setPhase( "Copying", cellsCount );
+    boolean first = true;
 
-    for ( int rowNum = 0; rowNum < rowIndexes.size(); rowNum++ )
+    try
     {
-      int rowIndex = rowIndexes.get( rowNum );
-      for ( int colNum = 0; colNum < columnIndexes.size(); colNum++ )
+      for ( int bandStart = 0; bandStart < rowIndexes.length; bandStart += bandRows )
       {
-        int columnIndex = columnIndexes.get( colNum );
-
-        // collect cell value and text
-        copyValues[colNum][rowNum] = m_view.getData().getValue( columnIndex, rowIndex );
-        copyText.append( drawer.getText( columnIndex, rowIndex ) );
-        copyText.append( '\t' );
-        m_cellsCopied++;
+        // take a free drawer prepared on FX thread, then submit band to be formatted
+        var drawer = m_drawers.remove();
+        drawing.add( drawer );
+        int from = bandStart;
+        int to = Math.min( rowIndexes.length, bandStart + bandRows );
+        formatting.add( pool.submit( () -> format( drawer, columnIndexes, objectColumns, rowIndexes, from, to,
+            copyValues ) ) );
 
-        // check if thread interrupted
-        if ( isInterrupted() )
+        // append formatted bands in row order
+        boolean last = to == rowIndexes.length;
+        while ( !formatting.isEmpty() && ( formatting.size() >= maxFormatting || last || formatting.peek().isDone() ) )
         {
-          m_view.getStatus().update( Level.NORMAL, "Copy cancelled" );
-          return;
+          String text = formatting.remove().join();
+          m_drawers.add( drawing.remove() );
+          if ( text != null )
+          {
+            if ( !first )
+              copyText.append( '\n' );
+            copyText.append( text );
+            first = false;
+          }
         }
 
-        // periodically update alert text
-        if ( System.nanoTime() > updateNanos )
+        // check if copy cancelled
+        if ( isCancelled() )
+          throw new CancellationException();
+
+        // check text can still be held as a string
+        if ( copyText.isTooLong() )
         {
-          Platform.runLater( () -> m_alert.setContentText(
-              "Copied " + ( 100L * m_cellsCopied / cellsCount ) + "% (" + m_cellsCopied + " of " + cellsCount + ")" ) );
-          updateNanos = System.nanoTime() + UPDATE_NANOS;
+          publish( Level.ERROR, "Copy text too large " + copyText.length() + " characters" );
+          return;
         }
       }
-      copyText.deleteCharAt( copyText.length() - 1 );
-      copyText.append( '\n' );
     }
-    copyText.deleteCharAt( copyText.length() - 1 );
-    Platform.runLater( () -> m_alert.setContentText( "Finishing ..." ) );
+    finally
+    {
+      formatting.forEach( task -> task.cancel( true ) );
+    }
+
+    if ( m_data.isStale() )
+    {
+      abandon();
+      return;
+    }
+    setPhase( "Copy finishing", 0L );
 
-    // put copied contents on system clipboard
+    // put copied contents on system clipboard, with image only if small enough to draw quickly
     var content = new ClipboardContent();
     content.putString( copyText.toString() );
-    content.put( Content.JTABLEFX, copyValues );
+    if ( copyValues != null )
+      content.put( Content.JTABLEFX, copyValues );
 
     Platform.runLater( () ->
     {
-      content.putImage( m_view.snapshot( c1, r1, c2, r2, false ) );
+      if ( cellsCount <= MAX_IMAGE )
+        content.putImage( m_view.snapshot( m_c1, m_r1, m_c2, m_r2, false ) );
       Clipboard.getSystemClipboard().setContent( content );
-      m_alert.hide();
     } );
 
-    m_view.getStatus().update( Level.NORMAL, "Copied " + cellsCount + " cell" + ( cellsCount == 1 ? "" : "s" ) );
+    publish( Level.NORMAL, "Copied " + cellsCount + " cell" + ( cellsCount == 1 ? "" : "s" ) );
+  }
+
+  /******************************************* format ********************************************/
+  private String format( CellDraw drawer, int[] columnIndexes, int[] objectColumns, int[] rowIndexes, int from,
+      int to, Object[][] copyValues )
+  {
+    // return text for band of rows, columns tab and rows newline separated, or null if copy cancelled
+    var bandIndexes = Arrays.copyOfRange( rowIndexes, from, to );
+    var values = new CellValues( m_data, copyValues == null ? objectColumns : columnIndexes, bandIndexes );
+    drawer.setValues( values );
+    if ( copyValues != null )
+      for ( int colNum = 0; colNum < columnIndexes.length; colNum++ )
+        System.arraycopy( values.getArray()[colNum], 0, copyValues[colNum], from, bandIndexes.length );
+
+    var text = new StringBuilder();
+    for ( int rowNum = 0; rowNum < bandIndexes.length; rowNum++ )
+    {
+      // stop early if copy cancelled
+      if ( isCancelled() )
+        return null;
+
+      // collect cell text, empty cells contribute nothing
+      if ( rowNum > 0 )
+        text.append( '\n' );
+      for ( int colNum = 0; colNum < columnIndexes.length; colNum++ )
+      {
+        if ( colNum > 0 )
+          text.append( '\t' );
+        var cellText = drawer.getText( columnIndexes[colNum], bandIndexes[rowNum] );
+        if ( cellText != null )
+          append( text, cellText );
+      }
+      getProgress().add( columnIndexes.length );
+    }
+
+    return text.toString();
+  }
+
+  /******************************************* append ********************************************/
+  private static void append( StringBuilder text, String cellText )
+  {
+    // append cell text, quoted with "" escapes if it would otherwise be split or unquoted when pasted
+    boolean quote = !cellText.isEmpty() && cellText.charAt( 0 ) == '"';
+    for ( int index = 0; index < cellText.length() && !quote; index++ )
+    {
+      char character = cellText.charAt( index );
+      quote = character == '\t' || character == '\n' || character == '\r';
+    }
+
+    if ( quote )
+      text.append( '"' ).append( cellText.replace( "\"", "\"\"" ) ).append( '"' );
+    else
+      text.append( cellText );
+  }
+
+  /**************************************** objectColumns ****************************************/
+  private int[] objectColumns( int[] columnIndexes )
+  {
+    // return column indexes excluding primitive typed columns whose text is got via typed getters without boxing
+    return Arrays.stream( columnIndexes ).filter( index -> m_data.getColumnType( index ) == ColumnType.OBJECT )
+        .toArray();
   }
 
 }
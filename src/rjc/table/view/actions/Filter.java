@@ -0,0 +1,114 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+import rjc.table.data.TableData;
+import rjc.table.data.TableData.ColumnType;
+
+/*************************************************************************************************/
+/******************** Conditions that table view rows must meet to be shown **********************/
+/*************************************************************************************************/
+
+public class Filter
+{
+  // condition on one column cell value, must be safe to test from multiple threads at once
+  public interface Condition
+  {
+    boolean test( TableData data, int columnIndex, int rowIndex );
+  }
+
+  /******************************************* equalTo *******************************************/
+  public static Condition equalTo( Object value )
+  {
+    // rows whose value equals specified value (null matches rows with no value)
+    if ( value == null )
+      return ( data, columnIndex, rowIndex ) -> data.isNull( columnIndex, rowIndex );
+    return ( data, columnIndex, rowIndex ) -> value.equals( data.getValue( columnIndex, rowIndex ) );
+  }
+
+  /******************************************* between *******************************************/
+  public static Condition between( double min, double max )
+  {
+    // rows whose numeric value is between min and max inclusive, read via typed getters where possible
+    return ( data, columnIndex, rowIndex ) ->
+    {
+      if ( data.isNull( columnIndex, rowIndex ) )
+        return false;
+
+      ColumnType type = data.getColumnType( columnIndex );
+      double number;
+      if ( type == ColumnType.OBJECT || type == ColumnType.BOOLEAN )
+      {
+        Object value = data.getValue( columnIndex, rowIndex );
+        if ( !( value instanceof Number ) )
+          return false;
+        number = ( (Number) value ).doubleValue();
+      }
+      else
+        number = data.getDouble( columnIndex, rowIndex );
+
+      return number >= min && number <= max;
+    };
+  }
+
+  /****************************************** contains *******************************************/
+  public static Condition contains( String text )
+  {
+    // rows whose value as text contains specified text ignoring case
+    Objects.requireNonNull( text );
+    return ( data, columnIndex, rowIndex ) ->
+    {
+      Object value = data.getValue( columnIndex, rowIndex );
+      if ( value == null )
+        return false;
+
+      String string = value.toString();
+      for ( int start = 0; start <= string.length() - text.length(); start++ )
+        if ( string.regionMatches( true, start, text, 0, text.length() ) )
+          return true;
+      return false;
+    };
+  }
+
+  /******************************************* matches *******************************************/
+  public static Condition matches( String regex )
+  {
+    // rows whose value as text contains a match for regular expression
+    Pattern pattern = Pattern.compile( regex );
+    return ( data, columnIndex, rowIndex ) ->
+    {
+      Object value = data.getValue( columnIndex, rowIndex );
+      return value != null && pattern.matcher( value.toString() ).find();
+    };
+  }
+
+  /********************************************* in **********************************************/
+  public static Condition in( Collection<?> values )
+  {
+    // rows whose value is one of specified values (null in values matches rows with no value)
+    HashSet<Object> set = new HashSet<>( values );
+    return ( data, columnIndex, rowIndex ) -> set.contains( data.getValue( columnIndex, rowIndex ) );
+  }
+
+}
@@ -0,0 +1,722 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+import javafx.application.Platform;
+import rjc.table.Utils;
+import rjc.table.data.TableBase.Signal;
+import rjc.table.data.TableChange;
+import rjc.table.data.TableChange.Type;
+import rjc.table.data.TableSnapshot;
+import rjc.table.signal.ISignal;
+import rjc.table.view.TableView;
+import rjc.table.view.actions.Filter.Condition;
+import rjc.table.view.axis.TableAxis;
+import rjc.table.view.cell.CellStyle;
+
+/*************************************************************************************************/
+/******** Finds table view cells matching a query, scanning in parallel and streaming hits *******/
+/*************************************************************************************************/
+
+public class Find implements ISignal
+{
+  // test applied to each searched cell, style provides data & displayed text and is private to calling thread
+  private interface CellTest
+  {
+    boolean test( CellStyle style, int columnIndex, int rowIndex );
+  }
+
+  // snapshot of data read by group of workers with a cell style each, snapshot released by last to finish
+  private static class Reading
+  {
+    final TableSnapshot    data;                    // data as when workers started
+    final AtomicInteger    workers;                 // workers yet to finish
+    final ConcurrentLinkedQueue<CellStyle> styles;  // styles prepared on FX thread, one taken by each worker
+
+    Reading( TableView view, int workers )
+    {
+      // take snapshot and prepare styles on FX thread as drawers read view state
+      data = view.getData().snapshot();
+      this.workers = new AtomicInteger( workers );
+      styles = new ConcurrentLinkedQueue<>();
+      for ( int worker = 0; worker < workers; worker++ )
+      {
+        CellStyle style = view.getCellDrawer();
+        style.setIndex( view, 0, 0 );
+        style.setData( data );
+        styles.add( style );
+      }
+    }
+
+    void finished()
+    {
+      if ( workers.decrementAndGet() == 0 )
+        data.close();
+    }
+  }
+
+  // one search of a query over snapshot of view order, abandoned when cancelled
+  private static class Search
+  {
+    CellTest               test;                    // query applied to each cell
+    int[]                  columnIndexes;           // searched column indexes in view order
+    int[]                  columnPositions;         // searched column positions in view order
+    int[]                  rowIndexes;              // visible row indexes in view order
+    int[]                  rowPositions;            // visible row positions in view order
+    int[]                  columnSlots;             // offset in searched columns for each column index, or -1
+    int[]                  rowSlots;                // offset in visible rows for each row index, or -1
+    boolean                populated;               // true if only populated cells visited, fewer than searched
+    int                    chunks;                  // number of row chunks
+    int                    firstChunk;              // chunk scanned first, containing focus row
+    AtomicInteger          next = new AtomicInteger(); // count of chunks claimed by workers
+    long[][]               hits;                    // per chunk hits (row-pos << 32 | column-pos) once scanned
+    AtomicIntegerArray     generation;              // per chunk rescans started, older scan results ignored
+    int                    scanned;                 // number of chunks scanned
+    int                    hitCount;                // number of hits in scanned chunks
+    BitSet                 failed = new BitSet();   // chunks whose scan failed, retried once unless data changed
+    volatile boolean       cancelled;               // true when search superseded or cancelled
+  }
+
+  private TableView        m_view;                  // view whose cells are searched
+  private int[]            m_columns;               // column indexes to search, null for all
+  private Search           m_search;                // current search, null if none
+  private int              m_pending;               // focus move waiting on unscanned chunk: +1 next, -1 previous
+  private boolean          m_inclusive;             // pending move may land on focus cell itself
+  private BitSet           m_dirty = new BitSet();  // chunks of current search with cells changed since scanned
+  private boolean          m_restart;               // true if data changed too much to only rescan changed chunks
+  private boolean          m_scheduled;             // true if update of search for data changes scheduled
+
+  final static private int CHUNK_ROWS = 4096;       // rows scanned per task, small so first hits arrive quickly
+  final static private int RESCAN_MAX = 64;         // most changed chunks rescanned, beyond search is restarted
+
+  /**************************************** constructor ******************************************/
+  public Find( TableView view )
+  {
+    // initialise private variables and update search when table data changes
+    m_view = view;
+    view.getData().addListener( objects ->
+    {
+      if ( objects.length > 1 && objects[0] == Signal.TABLE_CHANGED && m_search != null )
+        changed( (TableChange) objects[1] );
+    } );
+  }
+
+  /******************************************* changed *******************************************/
+  private void changed( TableChange change )
+  {
+    // note chunks whose cells changed, search updated together once per pulse
+    if ( change.getType() == Type.CELLS_UPDATED )
+      changed( m_search, change );
+    else
+      m_restart = true;
+    schedule();
+  }
+
+  /****************************************** schedule *******************************************/
+  private void schedule()
+  {
+    // schedule update of search for changed chunks once per pulse
+    if ( !m_scheduled && ( m_restart || !m_dirty.isEmpty() ) )
+    {
+      m_scheduled = true;
+      Platform.runLater( () -> update() );
+    }
+  }
+
+  /******************************************* changed *******************************************/
+  private void changed( Search search, TableChange change )
+  {
+    // mark chunks holding searched cells in changed range, or restart if too many
+    int minColumn = Math.max( change.getMinColumnIndex(), 0 );
+    int maxColumn = Math.min( change.getMaxColumnIndex(), search.columnSlots.length - 1 );
+    int from = Math.max( change.getMinRowIndex(), 0 );
+    int to = Math.min( change.getMaxRowIndex(), search.rowSlots.length - 1 );
+    if ( m_restart || from > to || !searched( search, minColumn, maxColumn ) )
+      return;
+
+    if ( to - from >= RESCAN_MAX * CHUNK_ROWS )
+    {
+      m_restart = true;
+      return;
+    }
+    for ( int index = from; index <= to; index++ )
+      if ( search.rowSlots[index] >= 0 )
+        m_dirty.set( search.rowSlots[index] / CHUNK_ROWS );
+    if ( m_dirty.cardinality() > RESCAN_MAX )
+      m_restart = true;
+  }
+
+  /****************************************** searched *******************************************/
+  private static boolean searched( Search search, int minColumn, int maxColumn )
+  {
+    // return true if any searched column index is within range inclusive
+    if ( maxColumn - minColumn < search.columnIndexes.length )
+    {
+      for ( int index = minColumn; index <= maxColumn; index++ )
+        if ( search.columnSlots[index] >= 0 )
+          return true;
+      return false;
+    }
+
+    for ( int index : search.columnIndexes )
+      if ( index >= minColumn && index <= maxColumn )
+        return true;
+    return false;
+  }
+
+  /******************************************* update ********************************************/
+  private void update()
+  {
+    // restart search if data changed too much, otherwise rescan only the changed chunks
+    m_scheduled = false;
+    Search search = m_search;
+    boolean restart = m_restart;
+    m_restart = false;
+    if ( search == null )
+    {
+      m_dirty.clear();
+      return;
+    }
+    if ( restart )
+    {
+      m_dirty.clear();
+      start( search.test, 0, false );
+      return;
+    }
+
+    Reading reading = new Reading( m_view, m_dirty.cardinality() );
+    m_dirty.stream().forEach( chunk -> rescan( search, chunk, reading ) );
+    m_dirty.clear();
+    signal( search.hitCount, search.scanned == search.chunks );
+  }
+
+  /******************************************* rescan ********************************************/
+  private void rescan( Search search, int chunk, Reading reading )
+  {
+    // discard chunk hits and scan it again, results of any scan of it already under way are ignored
+    int generation = search.generation.incrementAndGet( chunk );
+    if ( search.hits[chunk] != null )
+    {
+      search.hitCount -= search.hits[chunk].length;
+      search.hits[chunk] = null;
+      search.scanned--;
+    }
+
+    ForkJoinPool.commonPool().execute( () ->
+    {
+      try
+      {
+        long[] hits = scan( search, reading.styles.remove(), chunk, new long[64] );
+        Platform.runLater( () -> scanned( search, chunk, generation, hits, reading.data.isStale() ) );
+      }
+      finally
+      {
+        reading.finished();
+      }
+    } );
+  }
+
+  /****************************************** setColumns *****************************************/
+  public void setColumns( int... columnIndexes )
+  {
+    // set column indexes to search for subsequent queries, none for all visible columns
+    m_columns = columnIndexes == null || columnIndexes.length == 0 ? null : columnIndexes.clone();
+  }
+
+  /****************************************** getColumns *****************************************/
+  public int[] getColumns()
+  {
+    // return column indexes searched, null for all visible columns
+    return m_columns == null ? null : m_columns.clone();
+  }
+
+  /************************************* setColumnsSelected **************************************/
+  public void setColumnsSelected()
+  {
+    // set columns to search to those currently selected, all visible columns if none or all selected
+    var selected = m_view.getSelection().getSelectedColumns();
+    if ( selected.all || selected.set.isEmpty() )
+      m_columns = null;
+    else
+      m_columns = selected.set.stream().mapToInt( m_view.getColumnsAxis()::getIndexFromPosition ).toArray();
+  }
+
+  /******************************************** find *********************************************/
+  public void find( String text, boolean ignoreCase, boolean displayed )
+  {
+    // find cells whose displayed or raw value text contains specified text, focusing first at or after focus
+    Objects.requireNonNull( text );
+    if ( displayed )
+      find( string -> contains( string, text, ignoreCase ), true );
+    else if ( ignoreCase )
+      find( Filter.contains( text ) );
+    else
+      find( string -> string.contains( text ), false );
+  }
+
+  /******************************************** find *********************************************/
+  public void find( Pattern pattern, boolean displayed )
+  {
+    // find cells whose displayed or raw value text contains a match for regular expression
+    Objects.requireNonNull( pattern );
+    find( string -> pattern.matcher( string ).find(), displayed );
+  }
+
+  /****************************************** findValue ******************************************/
+  public void findValue( Object value )
+  {
+    // find cells whose raw value equals specified typed value
+    find( Filter.equalTo( value ) );
+  }
+
+  /******************************************** find *********************************************/
+  public void find( Condition condition )
+  {
+    // find cells whose raw value meets condition, which must be safe to test from multiple threads
+    Objects.requireNonNull( condition );
+    start( ( style, columnIndex, rowIndex ) -> condition.test( style.getData(), columnIndex, rowIndex ), 1, true );
+  }
+
+  /******************************************** find *********************************************/
+  private void find( Predicate<String> predicate, boolean displayed )
+  {
+    // find cells whose displayed text (as drawn) or raw value text meets predicate
+    if ( displayed )
+      start( ( style, columnIndex, rowIndex ) ->
+      {
+        String text = style.getText( columnIndex, rowIndex );
+        return text != null && predicate.test( text );
+      }, 1, true );
+    else
+      start( ( style, columnIndex, rowIndex ) ->
+      {
+        Object value = style.getData().getValue( columnIndex, rowIndex );
+        return value != null && predicate.test( value.toString() );
+      }, 1, true );
+  }
+
+  /****************************************** contains *******************************************/
+  private static boolean contains( String string, String text, boolean ignoreCase )
+  {
+    // return true if string contains text, optionally ignoring case
+    if ( !ignoreCase )
+      return string.contains( text );
+    for ( int start = 0; start <= string.length() - text.length(); start++ )
+      if ( string.regionMatches( true, start, text, 0, text.length() ) )
+        return true;
+    return false;
+  }
+
+  /******************************************* findNext ******************************************/
+  public boolean findNext()
+  {
+    // move focus to next hit after focus wrapping at end, returns false if none yet (moves when found)
+    return focus( 1, false );
+  }
+
+  /***************************************** findPrevious ****************************************/
+  public boolean findPrevious()
+  {
+    // move focus to previous hit before focus wrapping at start, returns false if none yet (moves when found)
+    return focus( -1, false );
+  }
+
+  /******************************************* cancel ********************************************/
+  public void cancel()
+  {
+    // stop any search in progress and discard its hits
+    if ( m_search != null )
+      m_search.cancelled = true;
+    m_search = null;
+    m_pending = 0;
+    m_dirty.clear();
+    m_restart = false;
+  }
+
+  /***************************************** getHitCount *****************************************/
+  public int getHitCount()
+  {
+    // return number of hits found so far
+    return m_search == null ? 0 : m_search.hitCount;
+  }
+
+  /***************************************** isComplete ******************************************/
+  public boolean isComplete()
+  {
+    // return true if no search in progress
+    return m_search == null || m_search.scanned == m_search.chunks;
+  }
+
+  /******************************************** start ********************************************/
+  private void start( CellTest test, int pending, boolean inclusive )
+  {
+    // cancel previous search, snapshot view order, and scan row chunks starting at focus row
+    cancel();
+    m_pending = pending;
+    m_inclusive = inclusive;
+    Search search = new Search();
+    search.test = test;
+    snapshot( search );
+    search.chunks = ( search.rowIndexes.length + CHUNK_ROWS - 1 ) / CHUNK_ROWS;
+    search.hits = new long[search.chunks][];
+    search.generation = new AtomicIntegerArray( search.chunks );
+    search.firstChunk = search.chunks == 0 ? 0 : slot( search, m_view.getFocusCell().getRowPos() ) / CHUNK_ROWS;
+    if ( search.firstChunk >= search.chunks )
+      search.firstChunk = 0;
+    m_search = search;
+
+    // if data has fewer populated cells than searched, visit only those in one pass over search area
+    long populated = m_view.getData().getPopulatedCount();
+    search.populated = populated >= 0 && populated < (long) search.columnIndexes.length * search.rowIndexes.length;
+    if ( search.populated && search.chunks > 0 )
+    {
+      Reading reading = new Reading( m_view, 1 );
+      ForkJoinPool.commonPool().execute( () -> scanPopulated( search, reading ) );
+      signal( 0, false );
+      return;
+    }
+
+    // each worker claims chunks in order from focus row wrapping at end, so nearest hits arrive first
+    int workers = Math.min( search.chunks, ForkJoinPool.getCommonPoolParallelism() );
+    if ( workers == 0 )
+    {
+      signal( 0, true );
+      return;
+    }
+    Reading reading = new Reading( m_view, workers );
+    for ( int worker = 0; worker < workers; worker++ )
+      ForkJoinPool.commonPool().execute( () -> scan( search, reading ) );
+    signal( 0, false );
+  }
+
+  /****************************************** snapshot *******************************************/
+  private void snapshot( Search search )
+  {
+    // record visible searched columns and visible rows in view order, so workers only read arrays
+    TableAxis columns = m_view.getColumnsAxis();
+    int count = 0;
+    int[] indexes = new int[columns.getCount()];
+    int[] positions = new int[indexes.length];
+    search.columnSlots = new int[indexes.length];
+    Arrays.fill( search.columnSlots, -1 );
+    for ( int pos = 0; pos < indexes.length; pos++ )
+    {
+      int index = columns.getIndexFromPosition( pos );
+      if ( columns.getCellSize( index ) > 0 && ( m_columns == null || contains( m_columns, index ) ) )
+      {
+        search.columnSlots[index] = count;
+        indexes[count] = index;
+        positions[count++] = pos;
+      }
+    }
+    search.columnIndexes = Arrays.copyOf( indexes, count );
+    search.columnPositions = Arrays.copyOf( positions, count );
+
+    TableAxis rows = m_view.getRowsAxis();
+    count = 0;
+    indexes = new int[rows.getCount()];
+    positions = new int[indexes.length];
+    search.rowSlots = new int[indexes.length];
+    Arrays.fill( search.rowSlots, -1 );
+    for ( int pos = 0; pos < indexes.length; pos++ )
+    {
+      int index = rows.getIndexFromPosition( pos );
+      if ( rows.getCellSize( index ) > 0 )
+      {
+        search.rowSlots[index] = count;
+        indexes[count] = index;
+        positions[count++] = pos;
+      }
+    }
+    search.rowIndexes = Arrays.copyOf( indexes, count );
+    search.rowPositions = Arrays.copyOf( positions, count );
+  }
+
+  /****************************************** contains *******************************************/
+  private static boolean contains( int[] array, int value )
+  {
+    // return true if array contains value
+    for ( int element : array )
+      if ( element == value )
+        return true;
+    return false;
+  }
+
+  /******************************************** slot *********************************************/
+  private static int slot( Search search, int rowPos )
+  {
+    // return offset of first visible row at or after row position
+    int slot = Arrays.binarySearch( search.rowPositions, rowPos );
+    return slot < 0 ? -slot - 1 : slot;
+  }
+
+  /******************************************** scan *********************************************/
+  private void scan( Search search, Reading reading )
+  {
+    // worker claiming and scanning chunks until none left or search cancelled
+    try
+    {
+      CellStyle style = reading.styles.remove();
+      long[] found = new long[64];
+
+      for ( int claim = search.next.getAndIncrement(); claim < search.chunks
+          && !search.cancelled; claim = search.next.getAndIncrement() )
+      {
+        int chunk = ( search.firstChunk + claim ) % search.chunks;
+        int generation = search.generation.get( chunk );
+        long[] hits = scan( search, style, chunk, found );
+        Platform.runLater( () -> scanned( search, chunk, generation, hits, reading.data.isStale() ) );
+      }
+    }
+    finally
+    {
+      reading.finished();
+    }
+  }
+
+  /******************************************** scan *********************************************/
+  private static long[] scan( Search search, CellStyle style, int chunk, long[] found )
+  {
+    // return sorted hits in chunk, visiting only populated cells if search is of populated cells, null if failed
+    int start = chunk * CHUNK_ROWS;
+    int end = Math.min( search.rowIndexes.length, start + CHUNK_ROWS );
+    if ( search.populated )
+      return walk( search, style, start, end );
+
+    int columns = search.columnIndexes.length;
+    int count = 0;
+    try
+    {
+      for ( int slot = start; slot < end && !search.cancelled; slot++ )
+      {
+        int rowIndex = search.rowIndexes[slot];
+        for ( int column = 0; column < columns; column++ )
+          if ( search.test.test( style, search.columnIndexes[column], rowIndex ) )
+          {
+            if ( count == found.length )
+              found = Arrays.copyOf( found, count * 2 );
+            found[count++] = (long) search.rowPositions[slot] << 32 | search.columnPositions[column];
+          }
+      }
+    }
+    catch ( RuntimeException exception )
+    {
+      // data changed shape or could not be read while scanning, so chunk to be scanned again
+      Utils.stack( "WARNING: find scan failed", chunk, exception );
+      return null;
+    }
+
+    return Arrays.copyOf( found, count );
+  }
+
+  /******************************************** walk *********************************************/
+  private static long[] walk( Search search, CellStyle style, int start, int end )
+  {
+    // return sorted hits among populated cells of visible rows start to end (exclusive) in searched columns,
+    // null if failed
+    int minRow = Integer.MAX_VALUE;
+    int maxRow = -1;
+    for ( int slot = start; slot < end; slot++ )
+    {
+      minRow = Math.min( minRow, search.rowIndexes[slot] );
+      maxRow = Math.max( maxRow, search.rowIndexes[slot] );
+    }
+    int minColumn = Arrays.stream( search.columnIndexes ).min().orElse( 0 );
+    int maxColumn = Arrays.stream( search.columnIndexes ).max().orElse( -1 );
+
+    long[][] found = { new long[64] };
+    int[] count = { 0 };
+    try
+    {
+      style.getData().forEachPopulated( minColumn, minRow, maxColumn, maxRow, ( columnIndex, rowIndex ) ->
+      {
+        int column = search.columnSlots[columnIndex];
+        int slot = search.rowSlots[rowIndex];
+        if ( column >= 0 && slot >= start && slot < end && search.test.test( style, columnIndex, rowIndex ) )
+        {
+          if ( count[0] == found[0].length )
+            found[0] = Arrays.copyOf( found[0], count[0] * 2 );
+          found[0][count[0]++] = (long) search.rowPositions[slot] << 32 | search.columnPositions[column];
+        }
+        return !search.cancelled;
+      } );
+    }
+    catch ( RuntimeException exception )
+    {
+      // data changed shape or could not be read while scanning, so rows to be scanned again
+      Utils.stack( "WARNING: find scan failed", start, end, exception );
+      return null;
+    }
+
+    long[] hits = Arrays.copyOf( found[0], count[0] );
+    Arrays.sort( hits );
+    return hits;
+  }
+
+  /**************************************** scanPopulated ****************************************/
+  private void scanPopulated( Search search, Reading reading )
+  {
+    // worker visiting populated cells of whole search area in one pass, then giving each chunk its hits
+    int[] generations = new int[search.chunks];
+    for ( int chunk = 0; chunk < search.chunks; chunk++ )
+      generations[chunk] = search.generation.get( chunk );
+    long[] hits;
+    try
+    {
+      hits = walk( search, reading.styles.remove(), 0, search.rowIndexes.length );
+    }
+    finally
+    {
+      reading.finished();
+    }
+    if ( search.cancelled )
+      return;
+    if ( hits == null )
+    {
+      Platform.runLater( () ->
+      {
+        for ( int chunk = 0; chunk < search.chunks; chunk++ )
+          scanned( search, chunk, generations[chunk], null, reading.data.isStale() );
+      } );
+      return;
+    }
+
+    // hits are sorted by row position, so each chunk's hits follow the previous chunk's
+    long[][] chunkHits = new long[search.chunks][];
+    int from = 0;
+    for ( int chunk = 0; chunk < search.chunks; chunk++ )
+    {
+      int last = Math.min( search.rowIndexes.length, ( chunk + 1 ) * CHUNK_ROWS ) - 1;
+      long limit = (long) search.rowPositions[last] + 1L << 32;
+      int to = from;
+      while ( to < hits.length && hits[to] < limit )
+        to++;
+      chunkHits[chunk] = Arrays.copyOfRange( hits, from, to );
+      from = to;
+    }
+
+    Platform.runLater( () ->
+    {
+      for ( int chunk = 0; chunk < search.chunks; chunk++ )
+        scanned( search, chunk, generations[chunk], chunkHits[chunk], false );
+    } );
+  }
+
+  /******************************************* scanned *******************************************/
+  private void scanned( Search search, int chunk, int generation, long[] hits, boolean stale )
+  {
+    // on FX thread record chunk hits, completing any pending focus move, and signal progress
+    if ( search != m_search || search.hits[chunk] != null || search.generation.get( chunk ) != generation )
+      return;
+
+    // failed chunk is scanned again from a new snapshot if data changed, otherwise retried once then left empty
+    if ( hits == null )
+    {
+      if ( stale || !search.failed.get( chunk ) )
+      {
+        search.failed.set( chunk );
+        m_dirty.set( chunk );
+        schedule();
+        return;
+      }
+      hits = new long[0];
+    }
+
+    search.hits[chunk] = hits;
+    search.scanned++;
+    search.hitCount += hits.length;
+    if ( m_pending != 0 )
+      focus( m_pending, m_inclusive );
+    signal( search.hitCount, search.scanned == search.chunks );
+  }
+
+  /******************************************** focus ********************************************/
+  private boolean focus( int direction, boolean inclusive )
+  {
+    // move focus to nearest hit in direction, or leave move pending if it may be in unscanned chunk
+    Search search = m_search;
+    m_pending = 0;
+    if ( search == null || search.chunks == 0 )
+      return false;
+
+    int columnPos = m_view.getFocusCell().getColumnPos();
+    int rowPos = m_view.getFocusCell().getRowPos();
+    long key = (long) rowPos << 32 | Math.max( columnPos, 0 ) & 0xFFFFFFFFL;
+    int slot = slot( search, rowPos );
+    int first = Math.min( slot / CHUNK_ROWS, search.chunks - 1 );
+    if ( direction < 0 && ( slot == search.rowIndexes.length || search.rowPositions[slot] != rowPos ) )
+      first = Math.max( slot - 1, 0 ) / CHUNK_ROWS;
+
+    // visit chunks from focus chunk in direction, finishing back at focus chunk to wrap
+    for ( int step = 0; step <= search.chunks; step++ )
+    {
+      int chunk = Math.floorMod( first + direction * step, search.chunks );
+      long[] hits = search.hits[chunk];
+      if ( hits == null )
+      {
+        m_pending = direction;
+        m_inclusive = inclusive;
+        return false;
+      }
+      if ( hits.length == 0 )
+        continue;
+
+      long hit;
+      if ( step == 0 )
+      {
+        int found = Arrays.binarySearch( hits, key );
+        int index = found >= 0 ? ( inclusive ? found : found + direction ) : ( direction > 0 ? -found - 1 : -found - 2 );
+        if ( index < 0 || index >= hits.length )
+          continue;
+        hit = hits[index];
+      }
+      else
+        hit = direction > 0 ? hits[0] : hits[hits.length - 1];
+
+      // same selection behaviour as keyboard navigation
+      m_view.getSelectCell().setPosition( (int) hit, (int) ( hit >>> 32 ) );
+      m_view.getFocusCell().setPosition( m_view.getSelectCell() );
+      return true;
+    }
+
+    return false;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    Search search = m_search;
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[hits="
+        + ( search == null ? 0 : search.hitCount ) + " scanned=" + ( search == null ? 0 : search.scanned ) + "/"
+        + ( search == null ? 0 : search.chunks ) + "]";
+  }
+
+}
@@ -0,0 +1,345 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import javafx.application.Platform;
+import rjc.table.data.TableBase.Signal;
+import rjc.table.data.TableChange;
+import rjc.table.data.TableData;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.view.TableView;
+import rjc.table.view.actions.Sort.Key;
+import rjc.table.view.actions.Sort.NullOrder;
+import rjc.table.view.axis.TableAxis;
+
+/*************************************************************************************************/
+/******** Keeps a sorted view in order as cells are edited and rows appended or inserted *********/
+/*************************************************************************************************/
+
+public class LiveSort
+{
+  private TableView        m_view;         // view whose rows are kept sorted
+  private Key[]            m_keys;         // current sort keys, empty if view not sorted
+  private ColumnType[]     m_types;        // column types of sort keys
+  private BitSet           m_dirty;        // row indexes whose sorted position may be wrong
+  private boolean          m_scheduled;    // true if processing of dirty rows scheduled
+  private SortThread       m_resort;       // full re-sort in progress, otherwise null
+  private boolean          m_resortValid;  // false if rows inserted or removed during full re-sort
+
+  final static private int RESORT_MIN     = 10000; // dirty rows needed before full re-sort considered
+  final static private int RESORT_DIVISOR = 8;     // full re-sort if more than this fraction of rows dirty
+
+  /**************************************** constructor ******************************************/
+  public LiveSort( TableView view )
+  {
+    // initialise private variables and listen to data changes
+    m_view = view;
+    m_keys = new Key[0];
+    m_types = new ColumnType[0];
+    m_dirty = new BitSet();
+    view.getData().addListener( objects ->
+    {
+      if ( objects.length > 1 && objects[0] == Signal.TABLE_CHANGED )
+        changed( (TableChange) objects[1] );
+    } );
+  }
+
+  /******************************************* getKeys *******************************************/
+  public List<Key> getKeys()
+  {
+    // return current sort keys, empty if view not sorted
+    return List.of( m_keys );
+  }
+
+  /******************************************* setKeys *******************************************/
+  public void setKeys( List<Key> keys )
+  {
+    // set keys view rows are currently sorted by, null or empty if not sorted
+    m_keys = keys == null ? new Key[0] : keys.toArray( new Key[keys.size()] );
+    m_types = new ColumnType[m_keys.length];
+    for ( int key = 0; key < m_keys.length; key++ )
+      m_types[key] = m_view.getData().getColumnType( m_keys[key].columnIndex );
+    if ( m_keys.length == 0 )
+      m_dirty.clear();
+  }
+
+  /******************************************** clear ********************************************/
+  public void clear()
+  {
+    // view no longer sorted, for example after rows manually re-ordered
+    setKeys( null );
+  }
+
+  /****************************************** isSorted *******************************************/
+  public boolean isSorted()
+  {
+    // return true if view rows are being kept sorted
+    return m_keys.length > 0;
+  }
+
+  /******************************************* changed *******************************************/
+  private void changed( TableChange change )
+  {
+    // note rows whose sorted position may have changed, processed together once per pulse
+    if ( !isSorted() )
+      return;
+
+    switch ( change.getType() )
+    {
+      case CELLS_UPDATED:
+        for ( Key key : m_keys )
+          if ( key.columnIndex >= change.getMinColumnIndex() && key.columnIndex <= change.getMaxColumnIndex() )
+          {
+            int from = Math.max( change.getMinRowIndex(), TableAxis.FIRSTCELL );
+            int to = Math.min( change.getMaxRowIndex(), m_view.getData().getRowCount() - 1 );
+            if ( from <= to )
+              m_dirty.set( from, to + 1 );
+            break;
+          }
+        break;
+      case ROWS_INSERTED:
+        shift( m_dirty, change.getIndex(), change.getCount() );
+        m_dirty.set( change.getIndex(), change.getIndex() + change.getCount() );
+        if ( change.getIndex() + change.getCount() != m_view.getData().getRowCount() )
+          m_resortValid = false;
+        break;
+      case ROWS_REMOVED:
+        shift( m_dirty, change.getIndex(), -change.getCount() );
+        m_resortValid = false;
+        return;
+      case COLUMNS_INSERTED:
+      case COLUMNS_REMOVED:
+        shiftKeys( change );
+        return;
+      default:
+        clear();
+        return;
+    }
+
+    schedule();
+  }
+
+  /****************************************** setDirty *******************************************/
+  public void setDirty( BitSet rowIndexes )
+  {
+    // note rows whose sorted position may be wrong, for example edited while a background sort read older values
+    if ( !isSorted() || rowIndexes.isEmpty() )
+      return;
+    m_dirty.or( rowIndexes );
+    schedule();
+  }
+
+  /****************************************** schedule *******************************************/
+  private void schedule()
+  {
+    // schedule processing of dirty rows once per pulse
+    if ( !m_scheduled && !m_dirty.isEmpty() )
+    {
+      m_scheduled = true;
+      Platform.runLater( () -> process() );
+    }
+  }
+
+  /******************************************** shift ********************************************/
+  static void shift( BitSet bits, int index, int delta )
+  {
+    // move set bits for rows inserted (+ve delta) or removed (-ve delta) at index
+    int length = bits.length();
+    if ( length <= index )
+      return;
+
+    int from = delta > 0 ? index : index - delta;
+    BitSet moved = bits.get( Math.min( from, length ), length );
+    bits.clear( index, length );
+    moved.stream().forEach( bit -> bits.set( from + delta + bit ) );
+  }
+
+  /****************************************** shiftKeys ******************************************/
+  private void shiftKeys( TableChange change )
+  {
+    // move key column indexes for columns inserted or removed, no longer sorted if key column removed
+    boolean inserted = change.getType() == TableChange.Type.COLUMNS_INSERTED;
+    int index = change.getIndex();
+    int count = change.getCount();
+    Key[] keys = new Key[m_keys.length];
+    for ( int k = 0; k < keys.length; k++ )
+    {
+      Key key = m_keys[k];
+      int columnIndex = key.columnIndex;
+      if ( !inserted && columnIndex >= index && columnIndex < index + count )
+      {
+        clear();
+        return;
+      }
+      if ( columnIndex >= index )
+        columnIndex += inserted ? count : -count;
+      keys[k] = new Key( columnIndex, key.ascending, key.nulls, key.comparator );
+    }
+    m_keys = keys;
+  }
+
+  /******************************************* process *******************************************/
+  private void process()
+  {
+    // re-position dirty rows in sorted order, unless full re-sort in progress
+    m_scheduled = false;
+    if ( !isSorted() || m_resort != null || m_dirty.isEmpty() )
+      return;
+
+    // if many rows dirty, re-sort all in background and handle rows changed meanwhile afterwards
+    TableAxis axis = m_view.getRowsAxis();
+    int count = axis.getCount();
+    int dirtyCount = m_dirty.cardinality();
+    if ( dirtyCount >= RESORT_MIN && dirtyCount > count / RESORT_DIVISOR )
+    {
+      m_dirty.clear();
+      m_resortValid = true;
+      m_resort = new SortThread( m_view, List.of( m_keys ), axis.getOrder(), "Re-sort", order -> resorted( order ) );
+      m_resort.start();
+      return;
+    }
+
+    // sort dirty rows, and remove them from current order leaving the other rows still in order
+    int[] dirty = m_dirty.stream().filter( index -> index < count ).toArray();
+    ParallelSort.sort( dirty, this::compare, () -> false, new LongAdder() );
+    int[] kept = new int[count - dirty.length];
+    int keptCount = 0;
+    for ( int position = 0; position < count; position++ )
+    {
+      int index = axis.getIndexFromPosition( position );
+      if ( !m_dirty.get( index ) )
+        kept[keptCount++] = index;
+    }
+    m_dirty.clear();
+
+    // merge by binary searching where each dirty row goes, searching only after previous one
+    int[] order = new int[count];
+    int write = 0;
+    int from = 0;
+    for ( int index : dirty )
+    {
+      int to = upperBound( kept, from, index );
+      System.arraycopy( kept, from, order, write, to - from );
+      write += to - from;
+      from = to;
+      order[write++] = index;
+    }
+    System.arraycopy( kept, from, order, write, kept.length - from );
+
+    axis.setOrder( order );
+    m_view.redraw();
+  }
+
+  /***************************************** upperBound ******************************************/
+  private int upperBound( int[] sorted, int from, int index )
+  {
+    // return first position at or after from whose row sorts after specified row
+    int low = from;
+    int high = sorted.length;
+    while ( low < high )
+    {
+      int mid = ( low + high ) >>> 1;
+      if ( compare( sorted[mid], index ) <= 0 )
+        low = mid + 1;
+      else
+        high = mid;
+    }
+    return low;
+  }
+
+  /****************************************** resorted *******************************************/
+  private void resorted( int[] order )
+  {
+    // install full re-sort result unless abandoned, then process rows changed while it ran
+    m_resort = null;
+    if ( order != null && m_resortValid && isSorted() )
+    {
+      TableAxis axis = m_view.getRowsAxis();
+      axis.setOrder( Sort.fit( order, axis.getCount() ) );
+      m_view.redraw();
+    }
+    else if ( isSorted() )
+      m_dirty.set( 0, m_view.getRowsAxis().getCount() );
+
+    process();
+  }
+
+  /******************************************* compare *******************************************/
+  public int compare( int rowIndex1, int rowIndex2 )
+  {
+    // compare two rows by each key in turn using current data values
+    TableData data = m_view.getData();
+    for ( int k = 0; k < m_keys.length; k++ )
+    {
+      Key key = m_keys[k];
+      int columnIndex = key.columnIndex;
+      boolean null1 = data.isNull( columnIndex, rowIndex1 );
+      boolean null2 = data.isNull( columnIndex, rowIndex2 );
+      if ( null1 || null2 )
+      {
+        if ( null1 == null2 )
+          continue;
+        return null1 == ( key.nulls == NullOrder.FIRST ) ? -1 : 1;
+      }
+
+      int result;
+      switch ( m_types[k] )
+      {
+        case OBJECT:
+          result = key.comparator.compare( data.getValue( columnIndex, rowIndex1 ),
+              data.getValue( columnIndex, rowIndex2 ) );
+          break;
+        case LONG:
+        case DATETIME:
+          result = Long.compare( data.getLong( columnIndex, rowIndex1 ), data.getLong( columnIndex, rowIndex2 ) );
+          break;
+        case DOUBLE:
+          result = Double.compare( data.getDouble( columnIndex, rowIndex1 ),
+              data.getDouble( columnIndex, rowIndex2 ) );
+          break;
+        case BOOLEAN:
+          result = Boolean.compare( data.getBoolean( columnIndex, rowIndex1 ),
+              data.getBoolean( columnIndex, rowIndex2 ) );
+          break;
+        default:
+          result = Integer.compare( data.getInt( columnIndex, rowIndex1 ), data.getInt( columnIndex, rowIndex2 ) );
+          break;
+      }
+
+      if ( result != 0 )
+        return key.ascending ? Integer.signum( result ) : -Integer.signum( result );
+    }
+
+    return 0;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[keys="
+        + m_keys.length + " dirty=" + m_dirty.cardinality() + " resort=" + ( m_resort != null ) + "]";
+  }
+
+}
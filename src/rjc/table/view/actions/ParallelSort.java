@@ -0,0 +1,141 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntBinaryOperator;
+
+/*************************************************************************************************/
+/******************** Stable parallel merge sort of int arrays with comparator *******************/
+/*************************************************************************************************/
+
+public class ParallelSort
+{
+  final static private int PARALLEL_MIN  = 8192; // ranges no bigger than this are sorted sequentially
+  final static private int INSERTION_MAX = 32;   // ranges no bigger than this are insertion sorted
+
+  // fork-join task sorting a range by sorting halves in parallel then merging
+  private static class MergeTask extends RecursiveAction
+  {
+    private static final long serialVersionUID = 1L;
+
+    private int[]             m_values;
+    private int[]             m_buffer;
+    private int               m_from;
+    private int               m_to;
+    private IntBinaryOperator m_comparator;
+    private BooleanSupplier   m_cancelled;
+    private LongAdder         m_progress;
+
+    private MergeTask( int[] values, int[] buffer, int from, int to, IntBinaryOperator comparator,
+        BooleanSupplier cancelled, LongAdder progress )
+    {
+      m_values = values;
+      m_buffer = buffer;
+      m_from = from;
+      m_to = to;
+      m_comparator = comparator;
+      m_cancelled = cancelled;
+      m_progress = progress;
+    }
+
+    @Override
+    protected void compute()
+    {
+      // abandon sort if cancelled, otherwise sort small ranges here and split larger ranges
+      if ( m_cancelled.getAsBoolean() )
+        throw new CancellationException();
+
+      if ( m_to - m_from <= PARALLEL_MIN )
+        sequential( m_values, m_buffer, m_from, m_to, m_comparator );
+      else
+      {
+        int mid = ( m_from + m_to ) >>> 1;
+        ForkJoinTask.invokeAll(
+            new MergeTask( m_values, m_buffer, m_from, mid, m_comparator, m_cancelled, m_progress ),
+            new MergeTask( m_values, m_buffer, mid, m_to, m_comparator, m_cancelled, m_progress ) );
+        merge( m_values, m_buffer, m_from, mid, m_to, m_comparator );
+      }
+      m_progress.add( m_to - m_from );
+    }
+  }
+
+  /******************************************** sort *********************************************/
+  public static void sort( int[] values, IntBinaryOperator comparator, BooleanSupplier cancelled,
+      LongAdder progress )
+  {
+    // sort values using all cores, equal values keep their relative order, throws if cancelled
+    new MergeTask( values, new int[values.length], 0, values.length, comparator, cancelled, progress ).invoke();
+  }
+
+  /******************************************** work *********************************************/
+  public static long work( int length )
+  {
+    // return total progress units a sort of specified length will report when complete
+    long work = length;
+    for ( int size = length; size > PARALLEL_MIN; size = ( size + 1 ) >>> 1 )
+      work += length;
+
+    return work;
+  }
+
+  /***************************************** sequential ******************************************/
+  private static void sequential( int[] values, int[] buffer, int from, int to, IntBinaryOperator comparator )
+  {
+    // sort range on this thread, insertion sort for small ranges otherwise merge sorted halves
+    if ( to - from <= INSERTION_MAX )
+    {
+      for ( int i = from + 1; i < to; i++ )
+      {
+        int value = values[i];
+        int j = i;
+        while ( j > from && comparator.applyAsInt( values[j - 1], value ) > 0 )
+          values[j] = values[--j];
+        values[j] = value;
+      }
+      return;
+    }
+
+    int mid = ( from + to ) >>> 1;
+    sequential( values, buffer, from, mid, comparator );
+    sequential( values, buffer, mid, to, comparator );
+    merge( values, buffer, from, mid, to, comparator );
+  }
+
+  /******************************************** merge ********************************************/
+  private static void merge( int[] values, int[] buffer, int from, int mid, int to, IntBinaryOperator comparator )
+  {
+    // merge two adjacent sorted ranges, taking from the left range when equal to keep stable
+    if ( comparator.applyAsInt( values[mid - 1], values[mid] ) <= 0 )
+      return;
+
+    System.arraycopy( values, from, buffer, from, mid - from );
+    int left = from;
+    int right = mid;
+    int write = from;
+    while ( left < mid && right < to )
+      values[write++] = comparator.applyAsInt( buffer[left], values[right] ) <= 0 ? buffer[left++] : values[right++];
+    System.arraycopy( buffer, left, values, write, mid - left );
+  }
+
+}
@@ -0,0 +1,135 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+package rjc.table.view.actions;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import javafx.application.Platform;
+import rjc.table.Status.Level;
+import rjc.table.data.TableData;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.data.columnar.DelimitedParser;
+import rjc.table.undo.CommandPasteCells;
+import rjc.table.view.TableView;
+import rjc.table.view.axis.TableAxis;
+
+/*************************************************************************************************/
+/************ Thread parsing clipboard contents then pasting them at view focus cell *************/
+/*************************************************************************************************/
+
+public class PasteThread extends ViewTask
+{
+  private Object[]     m_array;         // JTABLEFX column arrays if on clipboard, otherwise null
+  private String       m_string;        // clipboard text, parsed as tab delimited if no array
+  private int          m_columnPos;     // column position pasted to
+  private int          m_rowPos;        // row position pasted to
+  private int          m_columnCount;   // data column count when paste started
+  private int          m_rowCount;      // data row count when paste started
+  private int[]        m_columnIndexes; // visible column indexes from focus onwards when paste started
+  private int[]        m_rowIndexes;    // visible row indexes from focus onwards when paste started
+  private ColumnType[] m_types;         // types of visible columns from focus onwards
+
+  /**************************************** constructor ******************************************/
+  public PasteThread( TableView view, Object[] array, String string )
+  {
+    // create a paste thread for specified view, pasting to focus cell position as now
+    super( view, "Paste" );
+    m_array = array;
+    m_string = string;
+    m_columnPos = Math.max( view.getFocusCell().getColumnPos(), TableAxis.FIRSTCELL );
+    m_rowPos = Math.max( view.getFocusCell().getRowPos(), TableAxis.FIRSTCELL );
+    m_columnCount = view.getData().getColumnCount();
+    m_rowCount = view.getData().getRowCount();
+    setAlert( "Paste", "Paste is taking a long time.\nPress 'Cancel' to terminate the pasting." );
+
+    // pasted block maps to visible columns & rows from focus onwards, captured now as view state is read on FX thread
+    m_columnIndexes = view.getColumnsAxis().getVisibleIndexesArray( m_columnPos, m_columnCount - 1 );
+    m_rowIndexes = view.getRowsAxis().getVisibleIndexesArray( m_rowPos, m_rowCount - 1 );
+    m_types = new ColumnType[m_columnIndexes.length];
+    for ( int col = 0; col < m_types.length; col++ )
+      m_types[col] = view.getData().getColumnType( m_columnIndexes[col] );
+  }
+
+  /******************************************* compute *******************************************/
+  @Override
+  protected void compute()
+  {
+    // values from array if pasting from a table, otherwise parsed from text as types of target columns
+    publish( Level.NORMAL, "Pasting ..." );
+    TableData data = m_view.getData();
+    Object[][] values;
+    if ( m_array != null )
+      values = Arrays.stream( m_array ).limit( m_columnIndexes.length ).map( column -> (Object[]) column )
+          .toArray( Object[][]::new );
+    else
+    {
+      byte[] bytes = m_string == null ? new byte[0] : m_string.getBytes( StandardCharsets.UTF_8 );
+      setPhase( "Paste reading", bytes.length );
+      values = DelimitedParser.parse( bytes, '\t', m_types, m_rowIndexes.length, this::isCancelled, getProgress() );
+    }
+
+    // trim target indexes to block pasted
+    int columns = values.length;
+    int rows = Math.min( columns == 0 ? 0 : values[0].length, m_rowIndexes.length );
+    if ( columns == 0 || rows == 0 )
+    {
+      publish( Level.WARNING, "Nothing to paste" );
+      return;
+    }
+    int[] pasteColumns = Arrays.copyOf( m_columnIndexes, columns );
+    int[] pasteRows = Arrays.copyOf( m_rowIndexes, rows );
+
+    // paste on FX thread via undoable command, unless target columns or rows changed while parsing
+    setPhase( "Paste applying", 0L );
+    Platform.runLater( () ->
+    {
+      if ( data.getColumnCount() != m_columnCount || data.getRowCount() != m_rowCount
+          || !unchanged( m_view.getColumnsAxis(), m_columnPos, pasteColumns )
+          || !unchanged( m_view.getRowsAxis(), m_rowPos, pasteRows ) )
+      {
+        publish( Level.WARNING, "Paste abandoned as columns or rows changed" );
+        return;
+      }
+
+      var command = new CommandPasteCells( m_view, pasteColumns, pasteRows, values );
+      int rejected = command.getRejected();
+      String text = rejected == 0 ? "" : ", " + rejected + " rejected";
+      if ( !m_view.getUndoStack().push( command ) )
+        publish( Level.WARNING, "No cells pasted" + text );
+      else
+        publish( rejected == 0 ? Level.NORMAL : Level.WARNING, command.text() + text );
+    } );
+  }
+
+  /****************************************** unchanged ******************************************/
+  private static boolean unchanged( TableAxis axis, int position, int[] indexes )
+  {
+    // return true if visible indexes from position still start with those captured, stopping at first difference
+    int found = 0;
+    for ( int pos = position; found < indexes.length && pos < axis.getCount(); pos++ )
+    {
+      int index = axis.getIndexFromPosition( pos );
+      if ( axis.getCellSize( index ) > 0 && indexes[found++] != index )
+        return false;
+    }
+
+    return found == indexes.length;
+  }
+
+}
@@ -0,0 +1,247 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import javafx.application.Platform;
+import rjc.table.data.TableBase.Signal;
+import rjc.table.data.TableChange;
+import rjc.table.data.TableData;
+import rjc.table.view.TableView;
+import rjc.table.view.actions.Filter.Condition;
+import rjc.table.view.axis.TableAxis;
+
+/*************************************************************************************************/
+/********* Hides table view rows not meeting column conditions, kept up to date on edits *********/
+/*************************************************************************************************/
+
+public class RowFilter
+{
+  private TableView                   m_view;       // view whose rows are filtered
+  private TreeMap<Integer, Condition> m_conditions; // condition by column index, rows must meet all
+  private BitSet                      m_dirty;      // row indexes needing re-testing
+  private boolean                     m_scheduled;  // true if re-testing of dirty rows scheduled
+
+  final static private int            CHUNK_ROWS    = 65536; // rows tested per parallel task, multiple of 64
+  final static private int            FULL_DIVISOR  = 8;     // re-test all if more than this fraction dirty
+
+  /**************************************** constructor ******************************************/
+  public RowFilter( TableView view )
+  {
+    // initialise private variables and listen to data changes
+    m_view = view;
+    m_conditions = new TreeMap<>();
+    m_dirty = new BitSet();
+    view.getData().addListener( objects ->
+    {
+      if ( objects.length > 1 && objects[0] == Signal.TABLE_CHANGED )
+        changed( (TableChange) objects[1] );
+    } );
+  }
+
+  /**************************************** getConditions ****************************************/
+  public Map<Integer, Condition> getConditions()
+  {
+    // return conditions by column index
+    return Collections.unmodifiableMap( m_conditions );
+  }
+
+  /**************************************** setCondition *****************************************/
+  public void setCondition( int columnIndex, Condition condition )
+  {
+    // set condition for column (null to remove) and re-filter all rows
+    TableData data = m_view.getData();
+    if ( columnIndex < 0 || columnIndex >= data.getColumnCount() )
+      throw new IndexOutOfBoundsException( "Column index=" + columnIndex + " count=" + data.getColumnCount() );
+
+    if ( condition == null )
+      m_conditions.remove( columnIndex );
+    else
+      m_conditions.put( columnIndex, condition );
+    filter();
+  }
+
+  /******************************************** clear ********************************************/
+  public void clear()
+  {
+    // remove all conditions showing all rows
+    boolean filtering = isFiltering();
+    m_conditions.clear();
+    m_dirty.clear();
+    if ( filtering )
+      filter();
+  }
+
+  /***************************************** isFiltering *****************************************/
+  public boolean isFiltering()
+  {
+    // return true if any conditions set
+    return !m_conditions.isEmpty();
+  }
+
+  /******************************************* filter ********************************************/
+  public void filter()
+  {
+    // test all rows in parallel chunks, each chunk setting its own words of bit set, then hide in bulk
+    m_dirty.clear();
+    TableAxis axis = m_view.getRowsAxis();
+    int count = axis.getCount();
+    long[] words = new long[isFiltering() ? ( count + 63 ) >>> 6 : 0];
+    if ( words.length > 0 )
+    {
+      int[] columns = columns();
+      Condition[] conditions = m_conditions.values().toArray( new Condition[columns.length] );
+      IntStream.range( 0, ( count + CHUNK_ROWS - 1 ) / CHUNK_ROWS ).parallel().forEach( chunk ->
+      {
+        int end = (int) Math.min( count, (long) ( chunk + 1 ) * CHUNK_ROWS );
+        for ( int rowIndex = chunk * CHUNK_ROWS; rowIndex < end; rowIndex++ )
+          if ( !meets( columns, conditions, rowIndex ) )
+            words[rowIndex >>> 6] |= 1L << rowIndex;
+      } );
+    }
+
+    axis.setFiltered( BitSet.valueOf( words ) );
+    m_view.layoutDisplay();
+    m_view.redraw();
+  }
+
+  /******************************************* columns *******************************************/
+  private int[] columns()
+  {
+    // return column indexes of conditions in map order
+    return m_conditions.keySet().stream().mapToInt( Integer::intValue ).toArray();
+  }
+
+  /******************************************** meets ********************************************/
+  private boolean meets( int[] columns, Condition[] conditions, int rowIndex )
+  {
+    // return true if row meets all conditions
+    TableData data = m_view.getData();
+    for ( int index = 0; index < columns.length; index++ )
+      if ( !conditions[index].test( data, columns[index], rowIndex ) )
+        return false;
+    return true;
+  }
+
+  /******************************************* changed *******************************************/
+  private void changed( TableChange change )
+  {
+    // note rows needing re-testing, which are processed together once per pulse
+    if ( !isFiltering() )
+      return;
+
+    switch ( change.getType() )
+    {
+      case CELLS_UPDATED:
+        var touched = m_conditions.subMap( change.getMinColumnIndex(), true, change.getMaxColumnIndex(), true );
+        int from = Math.max( change.getMinRowIndex(), TableAxis.FIRSTCELL );
+        int to = Math.min( change.getMaxRowIndex(), m_view.getRowsAxis().getCount() - 1 );
+        if ( touched.isEmpty() || from > to )
+          return;
+        m_dirty.set( from, to + 1 );
+        break;
+      case ROWS_INSERTED:
+        LiveSort.shift( m_dirty, change.getIndex(), change.getCount() );
+        m_dirty.set( change.getIndex(), change.getIndex() + change.getCount() );
+        break;
+      case ROWS_REMOVED:
+        LiveSort.shift( m_dirty, change.getIndex(), -change.getCount() );
+        return;
+      case COLUMNS_INSERTED:
+      case COLUMNS_REMOVED:
+        shiftConditions( change );
+        return;
+      default:
+        m_conditions.clear();
+        m_dirty.clear();
+        return;
+    }
+
+    if ( !m_scheduled )
+    {
+      m_scheduled = true;
+      Platform.runLater( () -> process() );
+    }
+  }
+
+  /*************************************** shiftConditions ***************************************/
+  private void shiftConditions( TableChange change )
+  {
+    // move conditions for columns inserted or removed, conditions on removed columns are dropped
+    boolean inserted = change.getType() == TableChange.Type.COLUMNS_INSERTED;
+    int index = change.getIndex();
+    int count = change.getCount();
+    TreeMap<Integer, Condition> conditions = new TreeMap<>();
+    boolean dropped = false;
+    for ( var entry : m_conditions.entrySet() )
+    {
+      int columnIndex = entry.getKey();
+      if ( !inserted && columnIndex >= index && columnIndex < index + count )
+        dropped = true;
+      else
+        conditions.put( columnIndex >= index ? columnIndex + ( inserted ? count : -count ) : columnIndex,
+            entry.getValue() );
+    }
+
+    m_conditions = conditions;
+    if ( dropped )
+      filter();
+  }
+
+  /******************************************* process *******************************************/
+  private void process()
+  {
+    // re-test dirty rows, or all rows if many dirty, hiding or showing them in one geometry update
+    m_scheduled = false;
+    TableAxis axis = m_view.getRowsAxis();
+    int dirtyCount = m_dirty.cardinality();
+    if ( !isFiltering() || dirtyCount == 0 )
+      return;
+    if ( dirtyCount > axis.getCount() / FULL_DIVISOR )
+    {
+      filter();
+      return;
+    }
+
+    int[] columns = columns();
+    Condition[] conditions = m_conditions.values().toArray( new Condition[columns.length] );
+    BitSet filtered = new BitSet();
+    m_dirty.stream().filter( rowIndex -> !meets( columns, conditions, rowIndex ) ).forEach( filtered::set );
+    axis.setFiltered( m_dirty, filtered );
+    m_dirty.clear();
+
+    m_view.layoutDisplay();
+    m_view.redraw();
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[conditions="
+        + m_conditions.keySet() + " dirty=" + m_dirty.cardinality() + "]";
+  }
+
+}
@@ -0,0 +1,132 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.Comparator;
+import java.util.List;
+
+import rjc.table.data.TableData;
+import rjc.table.view.TableView;
+
+/*************************************************************************************************/
+/*************************** Sort table view rows by one or more columns *************************/
+/*************************************************************************************************/
+
+public class Sort
+{
+  // whether rows with no value sort before or after rows with values, regardless of direction
+  public enum NullOrder
+  {
+    FIRST, LAST
+  }
+
+  // class represents one sort key column
+  public static class Key
+  {
+    final public int                columnIndex; // column index to sort on
+    final public boolean            ascending;   // true for ascending, false for descending
+    final public NullOrder          nulls;       // position of rows with no value
+    final public Comparator<Object> comparator;  // comparator for object typed column values
+
+    public Key( int columnIndex, boolean ascending )
+    {
+      this( columnIndex, ascending, NullOrder.LAST, NATURAL );
+    }
+
+    public Key( int columnIndex, boolean ascending, NullOrder nulls, Comparator<Object> comparator )
+    {
+      if ( nulls == null || comparator == null )
+        throw new NullPointerException( "Null order and comparator must not be null" );
+      this.columnIndex = columnIndex;
+      this.ascending = ascending;
+      this.nulls = nulls;
+      this.comparator = comparator;
+    }
+
+    @Override
+    public String toString()
+    {
+      return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "["
+          + columnIndex + ( ascending ? " ascending" : " descending" ) + " nulls " + nulls + "]";
+    }
+  }
+
+  // comparator for object values, comparable values of same class in natural order otherwise by text
+  @SuppressWarnings( { "unchecked", "rawtypes" } )
+  final static public Comparator<Object> NATURAL = ( value1, value2 ) ->
+  {
+    if ( value1 instanceof Comparable && value1.getClass() == value2.getClass() )
+      return ( (Comparable) value1 ).compareTo( value2 );
+    return value1.toString().compareTo( value2.toString() );
+  };
+
+  /******************************************** sort *********************************************/
+  public static SortThread sort( TableView view, int columnIndex, boolean ascending )
+  {
+    // sort view rows on single column
+    return sort( view, List.of( new Key( columnIndex, ascending ) ) );
+  }
+
+  /******************************************** sort *********************************************/
+  public static SortThread sort( TableView view, List<Key> keys )
+  {
+    // check keys are valid
+    TableData data = view.getData();
+    if ( keys.isEmpty() )
+      throw new IllegalArgumentException( "No sort keys" );
+    for ( Key key : keys )
+      if ( key.columnIndex < 0 || key.columnIndex >= data.getColumnCount() )
+        throw new IndexOutOfBoundsException( "Column index=" + key.columnIndex + " count=" + data.getColumnCount() );
+
+    // start thread to sort rows in background, rows with equal keys keep their current relative order
+    SortThread thread = new SortThread( view, keys, view.getRowsAxis().getOrder(), text( data, keys ) );
+    thread.start();
+    return thread;
+  }
+
+  /********************************************* fit *********************************************/
+  public static int[] fit( int[] order, int count )
+  {
+    // return row order for count rows, rows added since order taken follow in index order and removed dropped
+    if ( order.length == count )
+      return order;
+
+    int[] fitted = new int[count];
+    int position = 0;
+    for ( int index : order )
+      if ( index < count )
+        fitted[position++] = index;
+    for ( int index = order.length; index < count; index++ )
+      fitted[position++] = index;
+    return fitted;
+  }
+
+  /******************************************** text *********************************************/
+  private static String text( TableData data, List<Key> keys )
+  {
+    // return description of sort for undo-stack
+    StringBuilder text = new StringBuilder( "Sort" );
+    for ( Key key : keys )
+      text.append( text.length() == 4 ? " " : ", " ).append( data.getValue( key.columnIndex, TableData.HEADER ) )
+          .append( key.ascending ? "" : " descending" );
+
+    return text.toString();
+  }
+
+}
@@ -0,0 +1,225 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BooleanSupplier;
+import java.util.stream.IntStream;
+
+import rjc.table.data.TableData;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.view.actions.Sort.Key;
+import rjc.table.view.actions.Sort.NullOrder;
+
+/*************************************************************************************************/
+/********* Sort key values extracted from table data for all rows, compared by row index *********/
+/*************************************************************************************************/
+
+class SortKeys
+{
+  private Key[]            m_keys;    // sort keys in priority order
+  private long[][]         m_values;  // per key sortable primitive values by row index, null for object keys
+  private Object[][]       m_objects; // per key object values by row index, null for primitive keys
+  private long[][]         m_nulls;   // per key bit set of rows with no value
+
+  final static private int CHUNK = 1 << 16; // rows extracted per parallel task, multiple of 64
+
+  /**************************************** constructor ******************************************/
+  SortKeys( TableData data, List<Key> keys, int rowCount, BooleanSupplier cancelled, LongAdder progress )
+  {
+    // extract key values for all rows in parallel using typed getters to avoid boxing primitives
+    m_keys = keys.toArray( new Key[keys.size()] );
+    m_values = new long[m_keys.length][];
+    m_objects = new Object[m_keys.length][];
+    m_nulls = new long[m_keys.length][( rowCount + 63 ) >>> 6];
+
+    for ( int k = 0; k < m_keys.length; k++ )
+    {
+      int key = k;
+      ColumnType type = data.getColumnType( m_keys[k].columnIndex );
+      if ( type == ColumnType.OBJECT )
+        m_objects[k] = new Object[rowCount];
+      else
+        m_values[k] = new long[rowCount];
+
+      IntStream.range( 0, ( rowCount + CHUNK - 1 ) / CHUNK ).parallel().forEach( chunk ->
+      {
+        if ( cancelled.getAsBoolean() )
+          throw new CancellationException();
+        int from = chunk * CHUNK;
+        int to = Math.min( from + CHUNK, rowCount );
+        if ( type == ColumnType.OBJECT )
+          extractObjects( data, key, from, to );
+        else
+          extractValues( data, key, type, from, to );
+        progress.add( to - from );
+      } );
+    }
+  }
+
+  /*************************************** extractValues *****************************************/
+  private void extractValues( TableData data, int key, ColumnType type, int from, int to )
+  {
+    // extract primitive values as longs that order the same way, inverted if descending
+    int columnIndex = m_keys[key].columnIndex;
+    long[] values = m_values[key];
+    long[] nulls = m_nulls[key];
+    long invert = m_keys[key].ascending ? 0L : -1L;
+
+    for ( int rowIndex = from; rowIndex < to; rowIndex++ )
+    {
+      if ( data.isNull( columnIndex, rowIndex ) )
+      {
+        nulls[rowIndex >>> 6] |= 1L << rowIndex;
+        continue;
+      }
+
+      long value;
+      switch ( type )
+      {
+        case LONG:
+        case DATETIME:
+          value = data.getLong( columnIndex, rowIndex );
+          break;
+        case DOUBLE:
+          long bits = Double.doubleToLongBits( data.getDouble( columnIndex, rowIndex ) );
+          value = bits ^ ( bits >> 63 & Long.MAX_VALUE );
+          break;
+        case BOOLEAN:
+          value = data.getBoolean( columnIndex, rowIndex ) ? 1L : 0L;
+          break;
+        default:
+          value = data.getInt( columnIndex, rowIndex );
+          break;
+      }
+      values[rowIndex] = value ^ invert;
+    }
+  }
+
+  /*************************************** extractObjects ****************************************/
+  private void extractObjects( TableData data, int key, int from, int to )
+  {
+    // extract object values in one bulk call for the range
+    int[] rowIndexes = IntStream.range( from, to ).toArray();
+    Object[][] values = new Object[1][rowIndexes.length];
+    data.getValues( new int[] { m_keys[key].columnIndex }, rowIndexes, values );
+    System.arraycopy( values[0], 0, m_objects[key], from, rowIndexes.length );
+
+    long[] nulls = m_nulls[key];
+    for ( int rowIndex = from; rowIndex < to; rowIndex++ )
+      if ( values[0][rowIndex - from] == null )
+        nulls[rowIndex >>> 6] |= 1L << rowIndex;
+  }
+
+  /******************************************* isNull ********************************************/
+  private boolean isNull( int key, int rowIndex )
+  {
+    // return true if row has no value for key
+    return ( m_nulls[key][rowIndex >>> 6] & 1L << rowIndex ) != 0L;
+  }
+
+  /******************************************* compare *******************************************/
+  int compare( int rowIndex1, int rowIndex2 )
+  {
+    // compare two rows by each key in turn
+    for ( int key = 0; key < m_keys.length; key++ )
+    {
+      boolean null1 = isNull( key, rowIndex1 );
+      boolean null2 = isNull( key, rowIndex2 );
+      if ( null1 || null2 )
+      {
+        if ( null1 == null2 )
+          continue;
+        return null1 == ( m_keys[key].nulls == NullOrder.FIRST ) ? -1 : 1;
+      }
+
+      int result;
+      if ( m_values[key] != null )
+        result = Long.compare( m_values[key][rowIndex1], m_values[key][rowIndex2] );
+      else if ( m_keys[key].ascending )
+        result = m_keys[key].comparator.compare( m_objects[key][rowIndex1], m_objects[key][rowIndex2] );
+      else
+        result = m_keys[key].comparator.compare( m_objects[key][rowIndex2], m_objects[key][rowIndex1] );
+
+      if ( result != 0 )
+        return result;
+    }
+
+    return 0;
+  }
+
+  /****************************************** isPacked *******************************************/
+  boolean isPacked()
+  {
+    // return true if single primitive key so rows can be sorted as packed longs
+    return m_keys.length == 1 && m_values[0] != null;
+  }
+
+  /***************************************** sortPacked ******************************************/
+  int[] sortPacked( int[] order )
+  {
+    // sort single primitive key as (key rank << 31 | position) longs, null rows kept in current order
+    long[] values = m_values[0];
+    int[] nullRows = new int[order.length];
+    long[] packed = new long[order.length];
+    int nullCount = 0;
+    int count = 0;
+    long min = Long.MAX_VALUE;
+    long max = Long.MIN_VALUE;
+    for ( int position = 0; position < order.length; position++ )
+      if ( isNull( 0, order[position] ) )
+        nullRows[nullCount++] = order[position];
+      else
+      {
+        long value = values[order[position]];
+        min = Math.min( min, value );
+        max = Math.max( max, value );
+        packed[count++] = position;
+      }
+
+    // key fits in 32 bits relative to minimum, otherwise replace by rank among sorted values
+    long[] ranks = null;
+    if ( count > 0 && Long.compareUnsigned( max - min, 1L << 32 ) >= 0 )
+    {
+      ranks = new long[count];
+      for ( int i = 0; i < count; i++ )
+        ranks[i] = values[order[(int) packed[i]]];
+      Arrays.parallelSort( ranks );
+    }
+    for ( int i = 0; i < count; i++ )
+    {
+      long value = values[order[(int) packed[i]]];
+      long key = ranks == null ? value - min : Arrays.binarySearch( ranks, value );
+      packed[i] |= key << 31;
+    }
+    Arrays.parallelSort( packed, 0, count );
+
+    // assemble sorted row order with nulls first or last
+    int[] sorted = new int[order.length];
+    int offset = m_keys[0].nulls == NullOrder.FIRST ? nullCount : 0;
+    for ( int i = 0; i < count; i++ )
+      sorted[offset + i] = order[(int) ( packed[i] & Integer.MAX_VALUE )];
+    System.arraycopy( nullRows, 0, sorted, offset == 0 ? count : 0, nullCount );
+    return sorted;
+  }
+
+}
@@ -0,0 +1,206 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.actions;
+
+import java.util.BitSet;
+import java.util.List;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+import rjc.table.Status.Level;
+import rjc.table.data.TableSnapshot;
+import rjc.table.undo.CommandSort;
+import rjc.table.view.TableView;
+import rjc.table.view.actions.Sort.Key;
+import rjc.table.view.axis.TableAxis;
+
+/*************************************************************************************************/
+/*********** Thread sorting view rows on fork-join pool, reporting progress to status ************/
+/*************************************************************************************************/
+
+public class SortThread extends ViewTask
+{
+  private TableSnapshot   m_data;     // data as when sort started, read while sorting
+  private List<Key>       m_keys;     // sort keys in priority order
+  private int[]           m_oldOrder; // row order when sort started
+  private String          m_text;     // description of sort for undo-stack
+  private Consumer<int[]> m_complete; // if not null, given order on FX thread instead of undo command
+
+  /**************************************** constructor ******************************************/
+  public SortThread( TableView view, List<Key> keys, int[] oldOrder, String text )
+  {
+    // create a sort thread for specified view, reading a snapshot of data taken now on the FX thread
+    super( view, "Sort" );
+    m_data = view.getData().snapshot();
+    m_keys = List.copyOf( keys );
+    m_oldOrder = oldOrder;
+    m_text = text;
+  }
+
+  /**************************************** constructor ******************************************/
+  public SortThread( TableView view, List<Key> keys, int[] oldOrder, String text, Consumer<int[]> complete )
+  {
+    // create a sort thread that gives sorted order (or null if cancelled or failed) to consumer on FX thread
+    this( view, keys, oldOrder, text );
+    m_complete = complete;
+  }
+
+  /******************************************* compute *******************************************/
+  @Override
+  protected void compute()
+  {
+    // compute sorted order using fork-join pool, progress is shown by view task until complete or cancelled
+    publish( Level.NORMAL, m_text + " ..." );
+    try
+    {
+      apply( computeOrder() );
+    }
+    catch ( RuntimeException exception )
+    {
+      // reading a stale snapshot can fail if columns or rows were removed while sorting
+      if ( !m_data.isStale() || isCancelled() )
+        throw exception;
+      apply( null );
+    }
+    finally
+    {
+      // release snapshot on FX thread after result has been checked against it
+      Platform.runLater( () -> m_data.close() );
+    }
+  }
+
+  /****************************************** cancelled ******************************************/
+  @Override
+  protected void cancelled()
+  {
+    // report sort cancelled
+    publish( Level.NORMAL, "Sort cancelled" );
+    complete( null );
+  }
+
+  /******************************************* failed ********************************************/
+  @Override
+  protected void failed( RuntimeException exception )
+  {
+    // report sort failed
+    publish( Level.ERROR, "Sort failed : " + exception );
+    complete( null );
+  }
+
+  /**************************************** computeOrder *****************************************/
+  private int[] computeOrder()
+  {
+    // extract key values for all rows in parallel
+    int rowCount = m_oldOrder.length;
+    setPhase( "Sort reading", (long) rowCount * m_keys.size() );
+    SortKeys keys = new SortKeys( m_data, m_keys, rowCount, this::isCancelled, getProgress() );
+
+    // single primitive key sorts as packed longs, otherwise parallel merge sort comparing rows
+    if ( keys.isPacked() )
+    {
+      setPhase( "Sorting", 0L );
+      return keys.sortPacked( m_oldOrder );
+    }
+
+    setPhase( "Sorting", ParallelSort.work( rowCount ) );
+    int[] order = m_oldOrder.clone();
+    ParallelSort.sort( order, keys::compare, this::isCancelled, getProgress() );
+    return order;
+  }
+
+  /******************************************* complete ******************************************/
+  private void complete( int[] order )
+  {
+    // give sorted order (or null) to consumer on FX thread if one was specified, null if data changed meanwhile
+    if ( m_complete != null )
+      Platform.runLater( () -> m_complete.accept( m_data.isStale() ? null : order ) );
+  }
+
+  /******************************************** apply ********************************************/
+  private void apply( int[] order )
+  {
+    // give sorted order (null if snapshot could not be read) to consumer if specified
+    if ( m_complete != null )
+    {
+      complete( order );
+      publish( Level.NORMAL, m_text + ( order == null ? " abandoned" : " complete" ) );
+      return;
+    }
+
+    // install sorted order on FX thread via undoable command, unless data or row order changed while sorting
+    Platform.runLater( () ->
+    {
+      if ( order == null || m_data.isStale() )
+      {
+        publish( Level.WARNING, "Sort abandoned as data changed" );
+        return;
+      }
+      if ( !isOrder( m_view.getRowsAxis(), m_oldOrder ) )
+      {
+        publish( Level.WARNING, "Sort abandoned as rows changed" );
+        return;
+      }
+
+      if ( isOrder( m_view.getRowsAxis(), order ) )
+      {
+        m_view.getLiveSort().setKeys( m_keys );
+        publish( Level.NORMAL, "Already sorted" );
+      }
+      else
+      {
+        CommandSort command = new CommandSort( m_view, m_oldOrder, order, m_text, m_view.getLiveSort().getKeys(),
+            m_keys );
+        command.redo();
+        m_view.getUndoStack().push( command );
+        publish( Level.NORMAL, "Sorted " + order.length + " row" + ( order.length == 1 ? "" : "s" ) );
+      }
+
+      // rows with key cells edited while sorting were sorted by older values, so live sort re-positions them
+      m_view.getLiveSort().setDirty( edited() );
+    } );
+  }
+
+  /******************************************* isOrder *******************************************/
+  private static boolean isOrder( TableAxis axis, int[] order )
+  {
+    // return true if axis position to index mapping is specified order
+    if ( axis.getCount() != order.length )
+      return false;
+    for ( int position = 0; position < order.length; position++ )
+      if ( axis.getIndexFromPosition( position ) != order[position] )
+        return false;
+    return true;
+  }
+
+  /******************************************* edited ********************************************/
+  private BitSet edited()
+  {
+    // return indexes of rows with key cells written since snapshot taken
+    BitSet rows = new BitSet();
+    m_data.forEachWritten( ( columnIndex, rowIndex ) ->
+    {
+      for ( Key key : m_keys )
+        if ( key.columnIndex == columnIndex && rowIndex >= 0 )
+          rows.set( rowIndex );
+      return true;
+    } );
+    return rows;
+  }
+
+}
@@ -0,0 +1,233 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+package rjc.table.view.actions;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.LongAdder;
+
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
+import javafx.application.Platform;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
+import javafx.scene.control.ButtonType;
+import javafx.stage.Modality;
+import javafx.util.Duration;
+import rjc.table.Status.Level;
+import rjc.table.view.TableView;
+
+/*************************************************************************************************/
+/******** Background task for a table view, progress shown on FX thread without blocking *********/
+/*************************************************************************************************/
+
+public abstract class ViewTask extends Thread
+{
+  protected TableView       m_view;       // view the task is for
+  private LongAdder         m_progress;   // work completed in current phase
+  private volatile long     m_work;       // total work in current phase, zero if unknown
+  private volatile String   m_phase;      // description of current phase
+  private volatile boolean  m_cancelled;  // true if task cancelled
+  private volatile boolean  m_finished;   // true when task has finished, successfully or not
+  private Timeline          m_ticker;     // shows progress periodically on FX thread
+  private Alert             m_alert;      // non-modal progress with cancel, if wanted for long tasks
+  private String            m_title;      // title of alert, null if no alert wanted
+  private String            m_header;     // header text of alert
+  private long              m_alertNanos; // time after which alert is shown if task not finished
+
+  final static private long UPDATE_MILLIS = 100L;  // 0.1 seconds
+  final static private long ALERT_MILLIS  = 2000L; // 2 seconds
+
+  /**************************************** constructor ******************************************/
+  protected ViewTask( TableView view, String name )
+  {
+    // create a background task for specified view
+    m_view = view;
+    m_progress = new LongAdder();
+    m_phase = name;
+    setName( name + " " + view.toString() );
+    setDaemon( true );
+  }
+
+  /****************************************** setAlert *******************************************/
+  protected void setAlert( String title, String header )
+  {
+    // show non-modal alert with progress and cancel button if task is still running after a delay
+    m_title = title;
+    m_header = header;
+  }
+
+  /******************************************** start ********************************************/
+  @Override
+  public void start()
+  {
+    // start task, with progress shown periodically on FX thread until task finished
+    if ( Platform.isFxApplicationThread() )
+      startTicker();
+    else
+      Platform.runLater( () -> startTicker() );
+    super.start();
+  }
+
+  /***************************************** startTicker *****************************************/
+  private void startTicker()
+  {
+    // start periodic progress updates on FX thread, unless task already finished
+    if ( m_finished )
+      return;
+
+    m_ticker = new Timeline( new KeyFrame( Duration.millis( UPDATE_MILLIS ), event -> tick() ) );
+    m_ticker.setCycleCount( Animation.INDEFINITE );
+    m_ticker.play();
+    m_alertNanos = System.nanoTime() + ALERT_MILLIS * 1000L * 1000L;
+  }
+
+  /******************************************** tick *********************************************/
+  private void tick()
+  {
+    // show progress of current phase in status, and in alert if running long enough to want one
+    if ( m_finished )
+      return;
+
+    long work = m_work;
+    long percent = work > 0L ? Math.min( 99L, 100L * m_progress.sum() / work ) : -1L;
+    String text = m_phase + ( percent < 0L ? " ..." : " " + percent + "%" );
+    m_view.getStatus().update( Level.NORMAL, text );
+
+    if ( m_title != null && m_alert == null && System.nanoTime() > m_alertNanos )
+    {
+      // alert is non-modal so view stays usable, closing it by any means cancels task
+      m_alert = new Alert( AlertType.INFORMATION );
+      m_alert.initModality( Modality.NONE );
+      m_alert.initOwner( m_view.getScene().getWindow() );
+      m_alert.setTitle( m_title );
+      m_alert.setHeaderText( m_header );
+      m_alert.getButtonTypes().setAll( ButtonType.CANCEL );
+      m_alert.setOnHidden( event -> cancel() );
+      m_alert.show();
+    }
+    if ( m_alert != null )
+      m_alert.setContentText( text );
+  }
+
+  /******************************************** run **********************************************/
+  @Override
+  public final void run()
+  {
+    // run task, reporting cancellation or failure, then end progress updates on FX thread
+    try
+    {
+      compute();
+    }
+    catch ( CancellationException exception )
+    {
+      cancelled();
+    }
+    catch ( RuntimeException exception )
+    {
+      if ( isCancelled() )
+        cancelled();
+      else
+        failed( exception );
+    }
+    finally
+    {
+      m_finished = true;
+      Platform.runLater( () -> finished() );
+    }
+  }
+
+  /****************************************** finished *******************************************/
+  private void finished()
+  {
+    // stop progress updates and remove alert, on FX thread
+    if ( m_ticker != null )
+      m_ticker.stop();
+    if ( m_alert != null )
+      m_alert.hide();
+  }
+
+  /******************************************* compute *******************************************/
+  protected abstract void compute();
+
+  /****************************************** cancelled ******************************************/
+  protected void cancelled()
+  {
+    // called on task thread if task cancelled, override to report or tidy up
+    publish( Level.NORMAL, m_phase + " cancelled" );
+  }
+
+  /******************************************* failed ********************************************/
+  protected void failed( RuntimeException exception )
+  {
+    // called on task thread if task failed, override to report or tidy up
+    publish( Level.ERROR, m_phase + " failed : " + exception );
+  }
+
+  /******************************************* publish *******************************************/
+  protected void publish( Level severity, String msg )
+  {
+    // update view status on FX thread, as status listeners update controls
+    if ( Platform.isFxApplicationThread() )
+      m_view.getStatus().update( severity, msg );
+    else
+      Platform.runLater( () -> m_view.getStatus().update( severity, msg ) );
+  }
+
+  /****************************************** setPhase *******************************************/
+  protected void setPhase( String phase, long work )
+  {
+    // start new phase of task with total work (zero if unknown) for progress percentage
+    m_progress.reset();
+    m_work = work;
+    m_phase = phase;
+  }
+
+  /***************************************** getProgress *****************************************/
+  protected LongAdder getProgress()
+  {
+    // return work completed in current phase, added to by any thread
+    return m_progress;
+  }
+
+  /******************************************* cancel ********************************************/
+  public void cancel()
+  {
+    // cancel task, which stops at its next check of cancelled
+    if ( !m_finished )
+    {
+      m_cancelled = true;
+      interrupt();
+    }
+  }
+
+  /**************************************** isCancelled ******************************************/
+  public boolean isCancelled()
+  {
+    // return true if task has been cancelled or interrupted
+    return m_cancelled || isInterrupted();
+  }
+
+  /***************************************** isFinished ******************************************/
+  public boolean isFinished()
+  {
+    // return true if task has finished, successfully or not
+    return m_finished;
+  }
+
+}
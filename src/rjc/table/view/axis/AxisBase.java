@@ -18,7 +18,7 @@
 
 package rjc.table.view.axis;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Set;
 import java.util.TreeSet;
 
@@ -30,31 +30,38 @@ import rjc.table.signal.ObservableInteger.ReadOnlyInteger;
 
 public class AxisBase
 {
-  // count of body cells on axis
-  private ReadOnlyInteger          m_count;
+  // count of body cells on axis, and count property from table data
+  private int             m_count;
+  private ReadOnlyInteger m_countProperty;
 
-  // array mapping from position to index
-  final private ArrayList<Integer> m_indexFromPosition = new ArrayList<>();
+  // arrays mapping from position to index and back, only first mapping-size entries used (identity beyond)
+  // arrays give O(1) lookups for painting, so insert & remove cost one pass over mapping (none if not re-ordered)
+  private int[]           m_indexFromPosition = new int[0];
+  private int[]           m_positionFromIndex = new int[0];
+  private int             m_mappingSize;
 
   // axis index starts at 0 for table body, index of -1 is for axis header
-  final static public int          INVALID             = -2;
-  final static public int          HEADER              = -1;
-  final static public int          FIRSTCELL           = 0;
-  final static public int          BEFORE              = Integer.MIN_VALUE + 1;
-  final static public int          AFTER               = Integer.MAX_VALUE - 1;
+  final static public int INVALID             = -2;
+  final static public int HEADER              = -1;
+  final static public int FIRSTCELL           = 0;
+  final static public int BEFORE              = Integer.MIN_VALUE + 1;
+  final static public int AFTER               = Integer.MAX_VALUE - 1;
 
   /**************************************** constructor ******************************************/
   public AxisBase( ReadOnlyInteger count )
   {
-    // store private variable
-    m_count = count;
+    // store private variables
+    m_count = count.get();
+    m_countProperty = count;
 
-    // if axis count changes
+    // if axis count changes other than by structural change already applied, indexes added or removed at end
     count.addListener( x ->
     {
-      // truncate position to index mapping if size greater than new count
-      if ( m_indexFromPosition.size() > getCount() )
-        m_indexFromPosition.subList( getCount(), m_indexFromPosition.size() ).clear();
+      int newCount = m_countProperty.get();
+      if ( newCount > m_count )
+        indexesInserted( m_count, newCount - m_count );
+      else if ( newCount < m_count )
+        indexesRemoved( newCount, m_count - newCount );
     } );
   }
 
@@ -62,22 +69,95 @@ public class AxisBase
   final public int getCount()
   {
     // return count of body cells on axis
-    return m_count.get();
+    return m_count;
+  }
+
+  /*************************************** indexesInserted ***************************************/
+  public int indexesInserted( int index, int count )
+  {
+    // shift later indexes up and insert new indexes into mapping in one pass, return position of first inserted
+    int size = m_mappingSize;
+    int position = index;
+    if ( index < size )
+    {
+      position = m_positionFromIndex[index];
+      ensureMapping( size + count );
+      for ( int pos = size - 1; pos >= 0; pos-- )
+      {
+        int value = m_indexFromPosition[pos];
+        if ( value >= index )
+          value += count;
+        int moved = pos < position ? pos : pos + count;
+        m_indexFromPosition[moved] = value;
+        m_positionFromIndex[value] = moved;
+      }
+
+      for ( int offset = 0; offset < count; offset++ )
+      {
+        m_indexFromPosition[position + offset] = index + offset;
+        m_positionFromIndex[index + offset] = position + offset;
+      }
+      trim();
+    }
+
+    m_count += count;
+    return position;
+  }
+
+  /*************************************** indexesRemoved ****************************************/
+  public int indexesRemoved( int index, int count )
+  {
+    // remove indexes from mapping and shift later indexes down in one pass, return lowest position removed
+    int size = m_mappingSize;
+    int position = index;
+    if ( index < size )
+    {
+      // find lowest position removed, and if removed indexes are exactly the last positions of mapping
+      int end = Math.min( index + count, size );
+      position = size;
+      for ( int removed = index; removed < end; removed++ )
+        position = Math.min( position, m_positionFromIndex[removed] );
+
+      if ( end == size && position == size - ( end - index ) )
+        m_mappingSize = position;
+      else
+      {
+        // compact mapping skipping removed indexes
+        int write = 0;
+        for ( int read = 0; read < size; read++ )
+        {
+          int value = m_indexFromPosition[read];
+          if ( value >= index && value < index + count )
+            continue;
+          if ( value >= index + count )
+            value -= count;
+          m_indexFromPosition[write] = value;
+          m_positionFromIndex[value] = write++;
+        }
+        m_mappingSize = write;
+      }
+      trim();
+    }
+
+    m_count -= count;
+    return position;
   }
 
   /******************************************** reset ********************************************/
   public void reset()
   {
     // clear all axis position to index re-ordering
-    m_indexFromPosition.clear();
+    m_indexFromPosition = new int[0];
+    m_positionFromIndex = new int[0];
+    m_mappingSize = 0;
   }
 
   /************************************ getPositionFromIndex *************************************/
   final public int getPositionFromIndex( int index )
   {
-    // return axis position from index using mapping (slower)
-    if ( index >= FIRSTCELL && index < m_indexFromPosition.size() )
-      return m_indexFromPosition.indexOf( index );
+    // return axis position from index using reverse mapping
+    if ( index >= FIRSTCELL && index < m_mappingSize )
+      return m_positionFromIndex[index];
 
     // if not in mapping but within count, then return index as not re-ordered
     if ( index >= INVALID && index < getCount() )
@@ -90,9 +170,9 @@ public class AxisBase
   /************************************ getIndexFromPosition *************************************/
   final public int getIndexFromPosition( int position )
   {
-    // return axis index from position using mapping (faster)
-    if ( position >= FIRSTCELL && position < m_indexFromPosition.size() )
-      return m_indexFromPosition.get( position );
+    // return axis index from position using mapping
+    if ( position >= FIRSTCELL && position < m_mappingSize )
+      return m_indexFromPosition[position];
 
     // if not in mapping but within count, then return position as not re-ordered
     if ( position >= INVALID && position < getCount() )
@@ -105,40 +185,116 @@ public class AxisBase
   /**************************************** movePositions ****************************************/
   public void movePositions( Set<Integer> positions, int newPosition )
   {
-    // create reverse ordered set by using negative value
-    TreeSet<Integer> list = new TreeSet<>();
-    for ( int pos : positions )
-      list.add( -pos );
+    // create ordered set of positions to be moved
+    TreeSet<Integer> list = new TreeSet<>( positions );
 
     // make sure index from position mapping is big enough
-    int max = Math.max( -list.first(), newPosition );
-    while ( m_indexFromPosition.size() <= max )
-      m_indexFromPosition.add( m_indexFromPosition.size() );
-
-    // remove list from mapping
-    int offset = 0;
-    ArrayList<Integer> toBeMoved = new ArrayList<>();
-    for ( int pos : list )
+    int size = Math.max( m_mappingSize, Math.max( list.last(), newPosition ) + 1 );
+    ensureMapping( size );
+
+    // split mapping into indexes being moved and remaining, in position order
+    int[] moved = new int[list.size()];
+    int[] remaining = new int[size - moved.length];
+    int movedCount = 0;
+    int remainingCount = 0;
+    int before = 0;
+    for ( int pos = 0; pos < size; pos++ )
+      if ( list.contains( pos ) )
+      {
+        moved[movedCount++] = m_indexFromPosition[pos];
+        if ( pos < newPosition )
+          before++;
+      }
+      else
+        remaining[remainingCount++] = m_indexFromPosition[pos];
+
+    // re-insert moved indexes into mapping at new position
+    int insert = newPosition - before;
+    System.arraycopy( remaining, 0, m_indexFromPosition, 0, insert );
+    System.arraycopy( moved, 0, m_indexFromPosition, insert, moved.length );
+    System.arraycopy( remaining, insert, m_indexFromPosition, insert + moved.length, remaining.length - insert );
+    reverse( 0, size );
+    trim();
+  }
+
+  /****************************************** getOrder *******************************************/
+  public int[] getOrder()
+  {
+    // return copy of position to index mapping covering whole axis
+    int[] order = new int[getCount()];
+    for ( int position = 0; position < order.length; position++ )
+      order[position] = getIndexFromPosition( position );
+
+    return order;
+  }
+
+  /****************************************** setOrder *******************************************/
+  public void setOrder( int[] order )
+  {
+    // replace position to index mapping in one step, order must be a permutation of all indexes
+    if ( order.length != getCount() )
+      throw new IllegalArgumentException( "Order length=" + order.length + " but count=" + getCount() );
+
+    int[] reverse = new int[order.length];
+    Arrays.fill( reverse, INVALID );
+    for ( int position = 0; position < order.length; position++ )
     {
-      toBeMoved.add( 0, m_indexFromPosition.remove( -pos ) );
-      if ( -pos < newPosition )
-        offset--;
+      int index = order[position];
+      if ( index < FIRSTCELL || index >= order.length || reverse[index] != INVALID )
+        throw new IllegalArgumentException( "Not a permutation, index=" + index + " at position=" + position );
+      reverse[index] = position;
     }
 
-    // re-add list into mapping at new position
-    m_indexFromPosition.addAll( newPosition + offset, toBeMoved );
+    m_indexFromPosition = order.clone();
+    m_positionFromIndex = reverse;
+    m_mappingSize = order.length;
+    trim();
   }
 
   /**************************************** orderHashcode ****************************************/
   public int orderHashcode()
   {
-    // make sure index from position mapping is complete to ensure consistent hash code
-    int max = getCount();
-    while ( m_indexFromPosition.size() <= max )
-      m_indexFromPosition.add( m_indexFromPosition.size() );
+    // returns the hash code for cell position mapping over whole axis (to support confirming changes)
+    int hash = 1;
+    for ( int position = 0; position < getCount(); position++ )
+      hash = 31 * hash + getIndexFromPosition( position );
 
-    // returns the hash code for cell position mapping (to support confirming changes)
-    return m_indexFromPosition.hashCode();
+    return hash;
+  }
+
+  /**************************************** ensureMapping ****************************************/
+  private void ensureMapping( int size )
+  {
+    // grow mapping arrays if needed and extend mapping with not re-ordered entries up to size
+    if ( size > m_indexFromPosition.length )
+    {
+      int capacity = Math.max( size, m_indexFromPosition.length + ( m_indexFromPosition.length >> 1 ) );
+      m_indexFromPosition = Arrays.copyOf( m_indexFromPosition, capacity );
+      m_positionFromIndex = Arrays.copyOf( m_positionFromIndex, capacity );
+    }
+
+    for ( int position = m_mappingSize; position < size; position++ )
+    {
+      m_indexFromPosition[position] = position;
+      m_positionFromIndex[position] = position;
+    }
+    m_mappingSize = Math.max( m_mappingSize, size );
+  }
+
+  /******************************************* reverse *******************************************/
+  private void reverse( int fromPosition, int toPosition )
+  {
+    // update index to position mapping for positions in range
+    for ( int position = fromPosition; position < toPosition; position++ )
+      m_positionFromIndex[m_indexFromPosition[position]] = position;
+  }
+
+  /******************************************** trim *********************************************/
+  private void trim()
+  {
+    // drop not re-ordered entries from end of mapping so appends beyond it need no mapping work
+    while ( m_mappingSize > 0 && m_indexFromPosition[m_mappingSize - 1] == m_mappingSize - 1 )
+      m_mappingSize--;
   }
 
 }
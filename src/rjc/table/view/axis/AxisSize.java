@@ -19,8 +19,9 @@
 package rjc.table.view.axis;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -35,39 +36,28 @@ import rjc.table.signal.ObservableInteger.ReadOnlyInteger;
 public class AxisSize extends AxisBase
 {
   // variables defining default & minimum cell size (width or height) equals pixels if zoom is 1.0
-  private int                         m_defaultSize;
-  private int                         m_minimumSize;
-  private int                         m_headerSize;
-  private double                      m_zoom                   = 1.0;
+  private int                             m_defaultSize;
+  private int                             m_minimumSize;
+  private int                             m_headerSize;
+  private double                          m_zoom                   = 1.0;
 
-  // exceptions to default size, -ve means hidden
-  final private Map<Integer, Integer> m_sizeExceptions         = new HashMap<>();
+  // exceptions to default size, -ve means hidden, keys shifted in O(log n) on insert & remove
+  final private IndexMap                  m_sizeExceptions         = new IndexMap();
+
+  // indexes hidden by filtering, kept separate so size exceptions & manual hiding survive filter changes
+  final private IndexBits                 m_filtered               = new IndexBits();
 
   // cached cell position start pixel coordinate
-  final private ArrayList<Integer>    m_cellPositionStartCache = new ArrayList<>();
+  final private ArrayList<Integer>        m_cellPositionStartCache = new ArrayList<>();
 
   // observable integer for axis total body size in pixels (excludes header)
-  private ObservableInteger           m_bodyPixelsCache        = new ObservableInteger( INVALID );
+  private ObservableInteger               m_bodyPixelsCache        = new ObservableInteger( INVALID );
 
   /***************************************** constructor *****************************************/
   public AxisSize( ReadOnlyInteger countProperty )
   {
     // call super
     super( countProperty );
-
-    // if axis count changes
-    countProperty.addListener( x ->
-    {
-      // set cached body size to invalid and remove any exceptions beyond count
-      m_bodyPixelsCache.set( INVALID );
-      int count = countProperty.get();
-      for ( int key : m_sizeExceptions.keySet() )
-        if ( key >= count )
-          m_sizeExceptions.remove( key );
-
-      // truncate cell position start if size greater than new count
-      truncateCache( count, 0 );
-    } );
   }
 
   /******************************************** reset ********************************************/
@@ -81,6 +71,7 @@ public class AxisSize extends AxisBase
     m_headerSize = 40;
     m_zoom = 1.0;
     m_sizeExceptions.clear();
+    m_filtered.clear();
     m_cellPositionStartCache.clear();
     m_bodyPixelsCache.set( INVALID );
   }
@@ -108,18 +99,18 @@ public class AxisSize extends AxisBase
     if ( m_bodyPixelsCache.get() == INVALID )
     {
       // cached size is invalid, so re-calculate size of table body cells
-      int defaultCount = getCount();
-      int bodySize = 0;
-
-      for ( int key : m_sizeExceptions.keySet() )
+      int[] totals = { getCount() - m_filtered.cardinality(), 0 };
+      m_sizeExceptions.forEach( ( key, value ) ->
       {
-        defaultCount--;
-        int size = zoom( m_sizeExceptions.get( key ) );
+        if ( m_filtered.get( key ) )
+          return;
+        totals[0]--;
+        int size = zoom( value );
         if ( size > 0 )
-          bodySize += size;
-      }
+          totals[1] += size;
+      } );
 
-      m_bodyPixelsCache.set( bodySize + defaultCount * zoom( m_defaultSize ) );
+      m_bodyPixelsCache.set( totals[1] + totals[0] * zoom( m_defaultSize ) );
     }
 
     return m_bodyPixelsCache.get();
@@ -183,15 +174,14 @@ public class AxisSize extends AxisBase
       // if minimum size increasing, check exceptions
       if ( minSize > m_minimumSize )
       {
-        var it = m_sizeExceptions.entrySet().iterator();
-        while ( it.hasNext() )
+        m_sizeExceptions.replaceAll( size ->
         {
-          var entry = it.next();
-          if ( entry.getValue() > 0 && entry.getValue() < minSize )
-            entry.setValue( minSize );
-          if ( entry.getValue() < 0 && entry.getValue() > -minSize )
-            entry.setValue( -minSize );
-        }
+          if ( size > 0 && size < minSize )
+            return minSize;
+          if ( size < 0 && size > -minSize )
+            return -minSize;
+          return size;
+        } );
 
         m_bodyPixelsCache.set( INVALID );
         m_cellPositionStartCache.clear();
@@ -229,7 +219,9 @@ public class AxisSize extends AxisBase
     if ( cellIndex == HEADER )
       return m_headerSize;
 
-    // return cell size from exception (-ve means hidden) or default
+    // return zero if filtered, otherwise cell size from exception (-ve means hidden) or default
+    if ( cellIndex >= FIRSTCELL && m_filtered.get( cellIndex ) )
+      return 0;
     int size = m_sizeExceptions.getOrDefault( cellIndex, m_defaultSize );
     if ( size < 0 )
       return 0; // -ve means row hidden, so return zero
@@ -260,7 +252,7 @@ public class AxisSize extends AxisBase
     m_sizeExceptions.put( cellIndex, newSize );
 
     // if new size is different, update body size and truncate cell position start cache if needed
-    if ( newSize != oldSize )
+    if ( newSize != oldSize && !m_filtered.get( cellIndex ) )
     {
       int position = getPositionFromIndex( cellIndex ) + 1;
       int delta = zoom( newSize ) - zoom( oldSize );
@@ -295,8 +287,8 @@ public class AxisSize extends AxisBase
   /************************************** getSizeExceptions **************************************/
   public Map<Integer, Integer> getSizeExceptions()
   {
-    // return size exceptions
-    return Collections.unmodifiableMap( m_sizeExceptions );
+    // return copy of size exceptions
+    return Collections.unmodifiableMap( m_sizeExceptions.toMap() );
   }
 
   /************************************ getStartFromPosition *************************************/
@@ -388,7 +380,7 @@ public class AxisSize extends AxisBase
     if ( oldSize > 0 )
     {
       m_sizeExceptions.put( index, -oldSize );
-      truncateCache( TableAxis.FIRSTCELL, -zoom( oldSize ) );
+      truncateCache( TableAxis.FIRSTCELL, m_filtered.get( index ) ? 0 : -zoom( oldSize ) );
     }
   }
 
@@ -401,7 +393,7 @@ public class AxisSize extends AxisBase
     if ( oldSize > 0 )
     {
       m_sizeExceptions.put( index, -oldSize );
-      truncateCache( position, -zoom( oldSize ) );
+      truncateCache( position, m_filtered.get( index ) ? 0 : -zoom( oldSize ) );
     }
   }
 
@@ -418,8 +410,104 @@ public class AxisSize extends AxisBase
       else
         m_sizeExceptions.put( index, -oldSize );
 
-      truncateCache( position, -zoom( oldSize ) );
+      truncateCache( position, m_filtered.get( index ) ? 0 : -zoom( oldSize ) );
+    }
+  }
+
+  /*************************************** indexesInserted ***************************************/
+  @Override
+  public int indexesInserted( int index, int count )
+  {
+    // shift size exceptions & filtered at or after index up (none if appending), new cells have default size
+    m_sizeExceptions.shift( index, count );
+    m_filtered.insert( index, count );
+
+    // update mapping, then body size and start cache after the inserted position
+    int position = super.indexesInserted( index, count );
+    truncateCache( position + 1, count * zoom( m_defaultSize ) );
+    return position;
+  }
+
+  /*************************************** indexesRemoved ****************************************/
+  @Override
+  public int indexesRemoved( int index, int count )
+  {
+    // remove size exceptions of removed indexes totalling their pixels, visiting only those removed
+    int[] totals = { count - m_filtered.cardinality( index, index + count ), 0 };
+    m_sizeExceptions.removeRange( index, index + count, ( key, value ) ->
+    {
+      if ( !m_filtered.get( key ) )
+      {
+        totals[0]--;
+        totals[1] += Math.max( zoom( value ), 0 );
+      }
+    } );
+    int removedPixels = totals[1] + totals[0] * zoom( m_defaultSize );
+
+    // shift later size exceptions & filtered down (none if truncating)
+    m_sizeExceptions.shift( index + count, -count );
+    m_filtered.remove( index, count );
+
+    // update mapping, then body size and start cache after the lowest removed position
+    int position = super.indexesRemoved( index, count );
+    truncateCache( position + 1, -removedPixels );
+    return position;
+  }
+
+  /**************************************** isIndexFiltered **************************************/
+  public boolean isIndexFiltered( int index )
+  {
+    // return true if index is hidden by filtering
+    return index >= FIRSTCELL && m_filtered.get( index );
+  }
+
+  /*************************************** getFilteredCount **************************************/
+  public int getFilteredCount()
+  {
+    // return number of indexes hidden by filtering
+    return m_filtered.cardinality();
+  }
+
+  /***************************************** getFiltered *****************************************/
+  public BitSet getFiltered()
+  {
+    // return copy of indexes hidden by filtering
+    return m_filtered.toBitSet();
+  }
+
+  /***************************************** setFiltered *****************************************/
+  public void setFiltered( BitSet filtered )
+  {
+    // replace indexes hidden by filtering in bulk with a single geometry update, null to show all
+    BitSet bits = filtered == null ? new BitSet() : (BitSet) filtered.clone();
+    if ( bits.length() > getCount() )
+      bits.clear( getCount(), bits.length() );
+    if ( !bits.equals( m_filtered.toBitSet() ) )
+    {
+      m_filtered.setBitSet( bits );
+      m_bodyPixelsCache.set( INVALID );
+      m_cellPositionStartCache.clear();
+    }
+  }
+
+  /***************************************** setFiltered *****************************************/
+  public void setFiltered( BitSet indexes, BitSet filtered )
+  {
+    // set filtered state of specified indexes only from second bit set, with a single geometry update
+    int delta = 0;
+    for ( int index = indexes.nextSetBit( 0 ); index >= 0 && index < getCount(); index = indexes.nextSetBit(
+        index + 1 ) )
+    {
+      boolean hide = filtered.get( index );
+      if ( hide != m_filtered.get( index ) )
+      {
+        m_filtered.set( index, hide );
+        int pixels = zoom( Math.max( m_sizeExceptions.getOrDefault( index, m_defaultSize ), 0 ) );
+        delta += hide ? -pixels : pixels;
+      }
     }
+
+    truncateCache( FIRSTCELL, delta );
   }
 
   /**************************************** truncateCache ****************************************/
@@ -453,6 +541,15 @@ public class AxisSize extends AxisBase
     super.movePositions( positions, newPosition );
   }
 
+  /****************************************** setOrder *******************************************/
+  @Override
+  public void setOrder( int[] order )
+  {
+    // replace position to index mapping and clear cell location cache
+    super.setOrder( order );
+    truncateCache( FIRSTCELL, 0 );
+  }
+
   /************************************** getVisibleIndexes **************************************/
   public ArrayList<Integer> getVisibleIndexes( int position1, int position2 )
   {
@@ -468,4 +565,20 @@ public class AxisSize extends AxisBase
     return indexes;
   }
 
+  /*********************************** getVisibleIndexesArray ************************************/
+  public int[] getVisibleIndexesArray( int position1, int position2 )
+  {
+    // return array of visible cell indexes between two positions inclusive (avoids boxing)
+    int[] indexes = new int[Math.max( position2 - position1 + 1, 0 )];
+    int count = 0;
+    for ( int pos = position1; pos <= position2; pos++ )
+    {
+      int index = getIndexFromPosition( pos );
+      if ( getCellSize( index ) > 0 )
+        indexes[count++] = index;
+    }
+
+    return count == indexes.length ? indexes : Arrays.copyOf( indexes, count );
+  }
+
 }
\ No newline at end of file
@@ -0,0 +1,401 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+package rjc.table.view.axis;
+
+import java.util.BitSet;
+
+/*************************************************************************************************/
+/********* Bit per axis index, inserting or removing indexes anywhere in O(log n) steps **********/
+/*************************************************************************************************/
+
+/* A treap of bit blocks ordered on position, each node knowing the bits and set bits in its
+ * subtree, so an index is found by descending and indexes inserted or removed by splitting and
+ * merging blocks with no shifting of later bits. Indexes beyond the blocks are clear. */
+
+class IndexBits
+{
+  private Node             m_root;             // treap root, null if no blocks
+  private int              m_seed;             // random priority generator state
+
+  final static private int BLOCK = 4096;       // bits in blocks created, blocks grown in place up to this
+
+  // block of bits, with totals for node and its descendants
+  private static class Node
+  {
+    BitSet bits;
+    int    length;
+    int    ones;
+    int    priority;
+    Node   left;
+    Node   right;
+    int    total;
+    int    count;
+
+    Node( BitSet bits, int length, int priority )
+    {
+      this.bits = bits;
+      this.length = length;
+      this.ones = bits.cardinality();
+      this.priority = priority;
+      this.total = length;
+      this.count = ones;
+    }
+  }
+
+  /**************************************** constructor ******************************************/
+  IndexBits()
+  {
+    // initialise random priority generator
+    m_seed = 0x5DEECE66;
+  }
+
+  /******************************************* length ********************************************/
+  int length()
+  {
+    // return number of indexes held in blocks, all later indexes are clear
+    return total( m_root );
+  }
+
+  /***************************************** cardinality *****************************************/
+  int cardinality()
+  {
+    // return number of set indexes
+    return m_root == null ? 0 : m_root.count;
+  }
+
+  /***************************************** cardinality *****************************************/
+  int cardinality( int fromIndex, int toIndex )
+  {
+    // return number of set indexes from fromIndex (inclusive) to toIndex (exclusive)
+    int length = length();
+    return rank( Math.min( toIndex, length ) ) - rank( Math.min( fromIndex, length ) );
+  }
+
+  /********************************************* get *********************************************/
+  boolean get( int index )
+  {
+    // return true if index is set
+    Node node = m_root;
+    while ( node != null && index >= 0 )
+    {
+      int before = total( node.left );
+      if ( index < before )
+        node = node.left;
+      else if ( index < before + node.length )
+        return node.bits.get( index - before );
+      else
+      {
+        index -= before + node.length;
+        node = node.right;
+      }
+    }
+
+    return false;
+  }
+
+  /********************************************* set *********************************************/
+  void set( int index, boolean value )
+  {
+    // set or clear index, adding clear blocks if index beyond blocks
+    int length = length();
+    if ( index >= length )
+    {
+      if ( !value )
+        return;
+      m_root = merge( m_root, clear( index + 1 - length ) );
+    }
+    set( m_root, index, value );
+  }
+
+  /******************************************** clear ********************************************/
+  void clear()
+  {
+    // clear all indexes
+    m_root = null;
+  }
+
+  /******************************************* insert ********************************************/
+  void insert( int index, int count )
+  {
+    // insert clear indexes at index, moving later indexes up
+    if ( count <= 0 || index >= length() || grow( m_root, index, count ) )
+      return;
+
+    Node[] parts = split( m_root, index );
+    m_root = merge( merge( parts[0], clear( count ) ), parts[1] );
+  }
+
+  /******************************************* remove ********************************************/
+  void remove( int index, int count )
+  {
+    // remove indexes at index, moving later indexes down
+    if ( count <= 0 || index >= length() || shrink( m_root, index, count ) )
+      return;
+
+    Node[] parts = split( m_root, index );
+    Node[] tail = split( parts[1], count );
+    m_root = merge( parts[0], tail[1] );
+  }
+
+  /****************************************** toBitSet *******************************************/
+  BitSet toBitSet()
+  {
+    // return set indexes as a bit set
+    BitSet bits = new BitSet();
+    copy( m_root, 0, bits );
+    return bits;
+  }
+
+  /****************************************** setBitSet ******************************************/
+  void setBitSet( BitSet bits )
+  {
+    // replace all indexes with those of bit set
+    m_root = null;
+    int length = bits.length();
+    for ( int start = 0; start < length; start += BLOCK )
+    {
+      int end = Math.min( start + BLOCK, length );
+      m_root = merge( m_root, new Node( bits.get( start, end ), end - start, priority() ) );
+    }
+  }
+
+  /******************************************** rank *********************************************/
+  private int rank( int index )
+  {
+    // return number of set indexes before index, which must not be beyond blocks
+    int rank = 0;
+    Node node = m_root;
+    while ( node != null )
+    {
+      int before = total( node.left );
+      if ( index < before )
+      {
+        node = node.left;
+        continue;
+      }
+
+      rank += count( node.left );
+      index -= before;
+      if ( index < node.length )
+        return rank + ( index == 0 ? 0 : node.bits.get( 0, index ).cardinality() );
+      rank += node.ones;
+      index -= node.length;
+      node = node.right;
+    }
+
+    return rank;
+  }
+
+  /********************************************* set *********************************************/
+  private static void set( Node node, int index, boolean value )
+  {
+    // set or clear index within subtree, updating totals on way back up
+    int before = total( node.left );
+    if ( index < before )
+      set( node.left, index, value );
+    else if ( index < before + node.length )
+    {
+      node.bits.set( index - before, value );
+      node.ones = node.bits.cardinality();
+    }
+    else
+      set( node.right, index - before - node.length, value );
+    update( node );
+  }
+
+  /******************************************** grow *********************************************/
+  private static boolean grow( Node node, int index, int count )
+  {
+    // insert clear indexes into block holding index if it stays within block size, false if not
+    int before = total( node.left );
+    boolean grown;
+    if ( index < before )
+      grown = grow( node.left, index, count );
+    else if ( index < before + node.length )
+    {
+      grown = node.length + count <= BLOCK;
+      if ( grown )
+      {
+        int offset = index - before;
+        BitSet moved = node.bits.get( offset, node.length );
+        node.bits.clear( offset, node.length );
+        moved.stream().forEach( bit -> node.bits.set( offset + count + bit ) );
+        node.length += count;
+      }
+    }
+    else
+      grown = grow( node.right, index - before - node.length, count );
+
+    if ( grown )
+      update( node );
+    return grown;
+  }
+
+  /******************************************* shrink ********************************************/
+  private static boolean shrink( Node node, int index, int count )
+  {
+    // remove indexes from block holding index if all within it and some left, false if not
+    int before = total( node.left );
+    boolean shrunk;
+    if ( index < before )
+      shrunk = shrink( node.left, index, count );
+    else if ( index < before + node.length )
+    {
+      int offset = index - before;
+      shrunk = offset + count < node.length;
+      if ( shrunk )
+      {
+        BitSet moved = node.bits.get( offset + count, node.length );
+        node.bits.clear( offset, node.length );
+        moved.stream().forEach( bit -> node.bits.set( offset + bit ) );
+        node.length -= count;
+        node.ones = node.bits.cardinality();
+      }
+    }
+    else
+      shrunk = shrink( node.right, index - before - node.length, count );
+
+    if ( shrunk )
+      update( node );
+    return shrunk;
+  }
+
+  /******************************************** clear ********************************************/
+  private Node clear( int count )
+  {
+    // return subtree of clear blocks holding count indexes
+    Node root = null;
+    for ( int start = 0; start < count; start += BLOCK )
+      root = merge( root, new Node( new BitSet(), Math.min( BLOCK, count - start ), priority() ) );
+
+    return root;
+  }
+
+  /******************************************** split ********************************************/
+  private Node[] split( Node node, int index )
+  {
+    // split subtree into indexes before index and indexes at or after index, cutting a block if needed
+    if ( node == null )
+      return new Node[2];
+
+    int before = total( node.left );
+    if ( index <= before )
+    {
+      Node[] parts = split( node.left, index );
+      node.left = parts[1];
+      update( node );
+      parts[1] = node;
+      return parts;
+    }
+
+    if ( index >= before + node.length )
+    {
+      Node[] parts = split( node.right, index - before - node.length );
+      node.right = parts[0];
+      update( node );
+      parts[0] = node;
+      return parts;
+    }
+
+    // index is inside this block, so cut block in two with later part joining right subtree
+    int offset = index - before;
+    Node cut = new Node( node.bits.get( offset, node.length ), node.length - offset, priority() );
+    node.bits.clear( offset, node.length );
+    node.length = offset;
+    node.ones = node.bits.cardinality();
+    Node right = node.right;
+    node.right = null;
+    update( node );
+    return new Node[] { node, merge( cut, right ) };
+  }
+
+  /******************************************** merge ********************************************/
+  private static Node merge( Node first, Node second )
+  {
+    // merge subtrees where all indexes of first are before all indexes of second
+    if ( first == null )
+      return second;
+    if ( second == null )
+      return first;
+
+    if ( first.priority > second.priority )
+    {
+      first.right = merge( first.right, second );
+      update( first );
+      return first;
+    }
+
+    second.left = merge( first, second.left );
+    update( second );
+    return second;
+  }
+
+  /******************************************** copy *********************************************/
+  private static int copy( Node node, int start, BitSet bits )
+  {
+    // set bits for set indexes of subtree starting at start, returning index after subtree
+    if ( node == null )
+      return start;
+
+    int offset = copy( node.left, start, bits );
+    node.bits.stream().forEach( bit -> bits.set( offset + bit ) );
+    return copy( node.right, offset + node.length, bits );
+  }
+
+  /******************************************* update ********************************************/
+  private static void update( Node node )
+  {
+    // recalculate node subtree totals from its block and children
+    node.total = total( node.left ) + node.length + total( node.right );
+    node.count = count( node.left ) + node.ones + count( node.right );
+  }
+
+  /******************************************** total ********************************************/
+  private static int total( Node node )
+  {
+    // return number of indexes in subtree
+    return node == null ? 0 : node.total;
+  }
+
+  /******************************************** count ********************************************/
+  private static int count( Node node )
+  {
+    // return number of set indexes in subtree
+    return node == null ? 0 : node.count;
+  }
+
+  /****************************************** priority *******************************************/
+  private int priority()
+  {
+    // return next pseudo random node priority (xorshift)
+    m_seed ^= m_seed << 13;
+    m_seed ^= m_seed >>> 17;
+    m_seed ^= m_seed << 5;
+    return m_seed;
+  }
+
+  /******************************************* toString ******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[length="
+        + length() + " cardinality=" + cardinality() + "]";
+  }
+
+}
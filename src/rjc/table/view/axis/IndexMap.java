@@ -0,0 +1,276 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+package rjc.table.view.axis;
+
+import java.util.TreeMap;
+import java.util.function.IntUnaryOperator;
+
+/*************************************************************************************************/
+/********** Sparse map from axis index to value, shifting later keys in O(log n) steps ***********/
+/*************************************************************************************************/
+
+/* A treap ordered on key. Each node holds its key relative to pending shifts on it and its
+ * ancestors, so shifting every key at or after an index is one split, one pending shift on the
+ * split off tree, and one merge, with no visit to the keys moved. */
+
+class IndexMap
+{
+  private Node m_root; // treap root, null if empty
+  private int  m_size; // number of keys
+  private int  m_seed; // random priority generator state
+
+  // key value pair, with shift pending for node and its descendants
+  private static class Node
+  {
+    int  key;
+    int  value;
+    int  shift;
+    int  priority;
+    Node left;
+    Node right;
+
+    Node( int key, int value, int priority )
+    {
+      this.key = key;
+      this.value = value;
+      this.priority = priority;
+    }
+  }
+
+  // receives keys and values in key order
+  interface Visitor
+  {
+    void visit( int key, int value );
+  }
+
+  /**************************************** constructor ******************************************/
+  IndexMap()
+  {
+    // initialise random priority generator
+    m_seed = 0x2545F491;
+  }
+
+  /********************************************* size ********************************************/
+  int size()
+  {
+    // return number of keys
+    return m_size;
+  }
+
+  /******************************************** clear ********************************************/
+  void clear()
+  {
+    // remove all keys
+    m_root = null;
+    m_size = 0;
+  }
+
+  /***************************************** getOrDefault ****************************************/
+  int getOrDefault( int key, int defaultValue )
+  {
+    // return value for key, or default if key not in map
+    int shift = 0;
+    for ( Node node = m_root; node != null; )
+    {
+      shift += node.shift;
+      int nodeKey = node.key + shift;
+      if ( key == nodeKey )
+        return node.value;
+      node = key < nodeKey ? node.left : node.right;
+    }
+
+    return defaultValue;
+  }
+
+  /********************************************* put *********************************************/
+  void put( int key, int value )
+  {
+    // set value for key, adding key if not in map
+    Node[] parts = split( m_root, key );
+    Node[] tail = split( parts[1], key + 1 );
+    if ( tail[0] == null )
+    {
+      tail[0] = new Node( key, value, priority() );
+      m_size++;
+    }
+    else
+      tail[0].value = value;
+    m_root = merge( merge( parts[0], tail[0] ), tail[1] );
+  }
+
+  /******************************************** remove *******************************************/
+  Integer remove( int key )
+  {
+    // remove key returning its value, or null if key not in map
+    Node[] parts = split( m_root, key );
+    Node[] tail = split( parts[1], key + 1 );
+    m_root = merge( parts[0], tail[1] );
+    if ( tail[0] == null )
+      return null;
+
+    m_size--;
+    return tail[0].value;
+  }
+
+  /***************************************** removeRange *****************************************/
+  void removeRange( int fromKey, int toKey, Visitor visitor )
+  {
+    // remove keys from fromKey (inclusive) to toKey (exclusive), visiting each removed in key order
+    Node[] parts = split( m_root, fromKey );
+    Node[] tail = split( parts[1], toKey );
+    m_root = merge( parts[0], tail[1] );
+    m_size -= visit( tail[0], 0, visitor );
+  }
+
+  /******************************************** shift ********************************************/
+  void shift( int fromKey, int delta )
+  {
+    // add delta to keys at or after fromKey, which must not then pass any key before fromKey
+    Node[] parts = split( m_root, fromKey );
+    if ( parts[1] != null )
+      parts[1].shift += delta;
+    m_root = merge( parts[0], parts[1] );
+  }
+
+  /******************************************* forEach *******************************************/
+  void forEach( Visitor visitor )
+  {
+    // visit keys and values in key order
+    visit( m_root, 0, visitor );
+  }
+
+  /***************************************** replaceAll ******************************************/
+  void replaceAll( IntUnaryOperator function )
+  {
+    // replace every value with result of function applied to it
+    replace( m_root, function );
+  }
+
+  /******************************************** toMap ********************************************/
+  TreeMap<Integer, Integer> toMap()
+  {
+    // return copy of keys and values as a sorted map
+    TreeMap<Integer, Integer> map = new TreeMap<>();
+    forEach( ( key, value ) -> map.put( key, value ) );
+    return map;
+  }
+
+  /******************************************** visit ********************************************/
+  private static int visit( Node node, int shift, Visitor visitor )
+  {
+    // visit keys of subtree in key order, returning number visited
+    if ( node == null )
+      return 0;
+
+    shift += node.shift;
+    int count = visit( node.left, shift, visitor );
+    if ( visitor != null )
+      visitor.visit( node.key + shift, node.value );
+    return count + 1 + visit( node.right, shift, visitor );
+  }
+
+  /******************************************* replace *******************************************/
+  private static void replace( Node node, IntUnaryOperator function )
+  {
+    // replace values of subtree with result of function applied to them
+    if ( node != null )
+    {
+      node.value = function.applyAsInt( node.value );
+      replace( node.left, function );
+      replace( node.right, function );
+    }
+  }
+
+  /******************************************** push *********************************************/
+  private static void push( Node node )
+  {
+    // apply node pending shift to its key and pass it on to its children
+    if ( node.shift != 0 )
+    {
+      node.key += node.shift;
+      if ( node.left != null )
+        node.left.shift += node.shift;
+      if ( node.right != null )
+        node.right.shift += node.shift;
+      node.shift = 0;
+    }
+  }
+
+  /******************************************** split ********************************************/
+  private static Node[] split( Node node, int key )
+  {
+    // split subtree into keys before key and keys at or after key
+    if ( node == null )
+      return new Node[2];
+
+    push( node );
+    if ( node.key < key )
+    {
+      Node[] parts = split( node.right, key );
+      node.right = parts[0];
+      parts[0] = node;
+      return parts;
+    }
+
+    Node[] parts = split( node.left, key );
+    node.left = parts[1];
+    parts[1] = node;
+    return parts;
+  }
+
+  /******************************************** merge ********************************************/
+  private static Node merge( Node first, Node second )
+  {
+    // merge subtrees where all keys of first are before all keys of second
+    if ( first == null )
+      return second;
+    if ( second == null )
+      return first;
+
+    if ( first.priority > second.priority )
+    {
+      push( first );
+      first.right = merge( first.right, second );
+      return first;
+    }
+
+    push( second );
+    second.left = merge( first, second.left );
+    return second;
+  }
+
+  /****************************************** priority *******************************************/
+  private int priority()
+  {
+    // return next pseudo random node priority (xorshift)
+    m_seed ^= m_seed << 13;
+    m_seed ^= m_seed >>> 17;
+    m_seed ^= m_seed << 5;
+    return m_seed;
+  }
+
+  /******************************************* toString ******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[size="
+        + m_size + "]";
+  }
+
+}
@@ -33,18 +33,18 @@ public class CellDraw extends CellStyle
   /******************************************** draw *********************************************/
   public void draw()
   {
-    // clip drawing to cell boundaries
+    // clip drawing to cell boundaries, body & row header cells not drawn over any footer rows
     gc.save();
     gc.beginPath();
 
-    if ( columnIndex == TableAxis.HEADER || rowIndex == TableAxis.HEADER )
+    if ( rowIndex == TableAxis.HEADER )
       gc.rect( x, y, w, h );
     else
     {
-      double cx = x > view.getHeaderWidth() ? x : view.getHeaderWidth();
+      double cx = columnIndex == TableAxis.HEADER || x > view.getHeaderWidth() ? x : view.getHeaderWidth();
       double cy = y > view.getHeaderHeight() ? y : view.getHeaderHeight();
       double cw = w + x - cx;
-      double ch = h + y - cy;
+      double ch = Math.min( h + y, view.getCanvas().getHeight() - view.getFooterHeight() ) - cy;
       gc.rect( cx, cy, cw, ch );
     }
 
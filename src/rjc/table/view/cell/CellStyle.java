@@ -26,6 +26,10 @@ import javafx.scene.text.Font;
 import javafx.scene.text.FontPosture;
 import javafx.scene.text.FontWeight;
 import rjc.table.Colors;
+import rjc.table.data.Date;
+import rjc.table.data.DateTime;
+import rjc.table.data.TableData;
+import rjc.table.data.Time;
 import rjc.table.view.axis.TableAxis;
 
 /*************************************************************************************************/
@@ -36,6 +40,9 @@ public class CellStyle extends CellContext
 {
   protected final static Insets CELL_TEXT_INSERTS = new Insets( 0.0, 1.0, 1.0, 0.0 );
 
+  private CellValues            m_values;                                            // pre-fetched cell values
+  private TableData             m_data;                                              // data read if not view data
+
   /****************************************** getText ********************************************/
   protected String getText()
   {
@@ -46,11 +53,126 @@ public class CellStyle extends CellContext
   /****************************************** getText ********************************************/
   public String getText( int cIndex, int rIndex )
   {
-    // return cell value as string for specified cell index
-    Object value = view.getData().getValue( cIndex, rIndex );
+    // return cell value as string for specified cell index, using typed getters for primitive typed body cells
+    TableData data = getData();
+    if ( cIndex >= TableAxis.FIRSTCELL && rIndex >= TableAxis.FIRSTCELL )
+    {
+      var type = data.getColumnType( cIndex );
+      if ( type != TableData.ColumnType.OBJECT )
+      {
+        if ( data.isNull( cIndex, rIndex ) )
+          return null;
+
+        switch ( type )
+        {
+          case INTEGER:
+            return formatInteger( data.getInt( cIndex, rIndex ) );
+          case LONG:
+            return formatLong( data.getLong( cIndex, rIndex ) );
+          case DOUBLE:
+            return formatDouble( data.getDouble( cIndex, rIndex ) );
+          case BOOLEAN:
+            return formatBoolean( data.getBoolean( cIndex, rIndex ) );
+          case DATE:
+            return formatDate( data.getInt( cIndex, rIndex ) );
+          case TIME:
+            return formatTime( data.getInt( cIndex, rIndex ) );
+          case DATETIME:
+            return formatDateTime( data.getLong( cIndex, rIndex ) );
+          default:
+            throw new UnsupportedOperationException( type.toString() );
+        }
+      }
+    }
+
+    Object value = getValue( cIndex, rIndex );
     return value == null ? null : value.toString();
   }
 
+  /**************************************** formatInteger ****************************************/
+  protected String formatInteger( int value )
+  {
+    // return text for integer typed cell value
+    return Integer.toString( value );
+  }
+
+  /***************************************** formatLong ******************************************/
+  protected String formatLong( long value )
+  {
+    // return text for long typed cell value
+    return Long.toString( value );
+  }
+
+  /**************************************** formatDouble *****************************************/
+  protected String formatDouble( double value )
+  {
+    // return text for double typed cell value
+    return Double.toString( value );
+  }
+
+  /**************************************** formatBoolean ****************************************/
+  protected String formatBoolean( boolean value )
+  {
+    // return text for boolean typed cell value
+    return Boolean.toString( value );
+  }
+
+  /***************************************** formatDate ******************************************/
+  protected String formatDate( int epochday )
+  {
+    // return text for date typed cell value
+    return new Date( epochday ).toString();
+  }
+
+  /***************************************** formatTime ******************************************/
+  protected String formatTime( int milliseconds )
+  {
+    // return text for time typed cell value
+    return Time.fromMilliseconds( milliseconds ).toString();
+  }
+
+  /*************************************** formatDateTime ****************************************/
+  protected String formatDateTime( long milliseconds )
+  {
+    // return text for date-time typed cell value
+    return new DateTime( milliseconds ).toString();
+  }
+
+  /****************************************** getValue *******************************************/
+  public Object getValue( int cIndex, int rIndex )
+  {
+    // return cell value from pre-fetched block if covered, otherwise direct from data source
+    if ( m_values != null )
+    {
+      Object value = m_values.get( cIndex, rIndex );
+      if ( value != CellValues.NOT_FETCHED )
+        return value;
+    }
+
+    return getData().getValue( cIndex, rIndex );
+  }
+
+  /******************************************* getData *******************************************/
+  public TableData getData()
+  {
+    // return data cell values are read from, the view data unless set
+    return m_data == null ? view.getData() : m_data;
+  }
+
+  /******************************************* setData *******************************************/
+  public void setData( TableData data )
+  {
+    // set data to read cell values from instead of view data, e.g. a snapshot, null for view data
+    m_data = data;
+  }
+
+  /****************************************** setValues ******************************************/
+  public void setValues( CellValues values )
+  {
+    // set block of pre-fetched cell values to use in preference to individual data source calls
+    m_values = values;
+  }
+
   /************************************** getTextAlignment ***************************************/
   protected Pos getTextAlignment()
   {
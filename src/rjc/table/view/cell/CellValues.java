@@ -0,0 +1,145 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.cell;
+
+import java.util.Arrays;
+
+import rjc.table.data.TableData;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.view.TableView;
+
+/*************************************************************************************************/
+/************** Block of cell values fetched from table data in a single bulk call ***************/
+/*************************************************************************************************/
+
+public class CellValues
+{
+  private int[]              m_columnIndexes;            // column index for each block column
+  private int[]              m_rowIndexes;               // row index for each block row
+  private long[]             m_columnLookup;             // sorted (index << 32 | block column) for binary search
+  private long[]             m_rowLookup;                // sorted (index << 32 | block row) for binary search
+  private Object[][]         m_values;                   // cell values [column][row]
+
+  // returned by get() if cell index is not covered by this block
+  final static public Object NOT_FETCHED = new Object();
+
+  /**************************************** constructor ******************************************/
+  public CellValues( TableData data, int[] columnIndexes, int[] rowIndexes )
+  {
+    // fetch block of cell values for specified column & row indexes in one call
+    m_columnIndexes = columnIndexes;
+    m_rowIndexes = rowIndexes;
+    m_columnLookup = lookup( columnIndexes );
+    m_rowLookup = lookup( rowIndexes );
+    m_values = new Object[columnIndexes.length][rowIndexes.length];
+    data.getValues( columnIndexes, rowIndexes, m_values );
+  }
+
+  /**************************************** constructor ******************************************/
+  public CellValues( TableView view, int minColumnPos, int minRowPos, int maxColumnPos, int maxRowPos )
+  {
+    // fetch block of visible object typed cell values between specified positions inclusive
+    this( view.getData(), objectColumns( view.getData(),
+        view.getColumnsAxis().getVisibleIndexesArray( minColumnPos, maxColumnPos ) ),
+        view.getRowsAxis().getVisibleIndexesArray( minRowPos, maxRowPos ) );
+  }
+
+  /**************************************** objectColumns ****************************************/
+  private static int[] objectColumns( TableData data, int[] columnIndexes )
+  {
+    // return column indexes excluding primitive typed columns which are drawn via typed getters without boxing
+    int count = 0;
+    for ( int columnIndex : columnIndexes )
+      if ( data.getColumnType( columnIndex ) == ColumnType.OBJECT )
+        columnIndexes[count++] = columnIndex;
+
+    return count == columnIndexes.length ? columnIndexes : Arrays.copyOf( columnIndexes, count );
+  }
+
+  /******************************************* lookup ********************************************/
+  private static long[] lookup( int[] indexes )
+  {
+    // return sorted index to block offset lookup
+    long[] lookup = new long[indexes.length];
+    for ( int offset = 0; offset < indexes.length; offset++ )
+      lookup[offset] = (long) indexes[offset] << 32 | offset;
+    Arrays.sort( lookup );
+    return lookup;
+  }
+
+  /******************************************* offset ********************************************/
+  private static int offset( long[] lookup, int index )
+  {
+    // return block offset for index, or -1 if not in block
+    int low = 0;
+    int high = lookup.length - 1;
+    while ( low <= high )
+    {
+      int mid = ( low + high ) >>> 1;
+      int midIndex = (int) ( lookup[mid] >> 32 );
+      if ( midIndex < index )
+        low = mid + 1;
+      else if ( midIndex > index )
+        high = mid - 1;
+      else
+        return (int) lookup[mid];
+    }
+    return -1;
+  }
+
+  /********************************************* get *********************************************/
+  public Object get( int columnIndex, int rowIndex )
+  {
+    // return fetched cell value, or NOT_FETCHED if cell not covered by this block
+    int column = offset( m_columnLookup, columnIndex );
+    int row = column < 0 ? -1 : offset( m_rowLookup, rowIndex );
+    return row < 0 ? NOT_FETCHED : m_values[column][row];
+  }
+
+  /****************************************** getArray *******************************************/
+  public Object[][] getArray()
+  {
+    // return the fetched values array [column][row] in order of indexes supplied
+    return m_values;
+  }
+
+  /************************************** getColumnIndexes ***************************************/
+  public int[] getColumnIndexes()
+  {
+    // return the column indexes covered by this block
+    return m_columnIndexes;
+  }
+
+  /**************************************** getRowIndexes ****************************************/
+  public int[] getRowIndexes()
+  {
+    // return the row indexes covered by this block
+    return m_rowIndexes;
+  }
+
+  /****************************************** toString *******************************************/
+  @Override
+  public String toString()
+  {
+    // return as string
+    return getClass().getSimpleName() + "@" + Integer.toHexString( System.identityHashCode( this ) ) + "[columns="
+        + m_columnIndexes.length + " rows=" + m_rowIndexes.length + "]";
+  }
+
+}
@@ -0,0 +1,98 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.cell;
+
+import javafx.scene.paint.Paint;
+import rjc.table.Colors;
+import rjc.table.data.Aggregate.Function;
+import rjc.table.data.TableData.ColumnType;
+import rjc.table.view.axis.TableAxis;
+
+/*************************************************************************************************/
+/********************** Draws footer cell showing aggregate of column values *********************/
+/*************************************************************************************************/
+
+public class FooterDraw extends CellDraw
+{
+  public Function function; // aggregate function shown in footer row
+
+  /******************************************** draw *********************************************/
+  @Override
+  public void draw()
+  {
+    // clip drawing to footer cell boundaries, body cells not drawn over row header
+    gc.save();
+    gc.beginPath();
+    double cx = columnIndex == TableAxis.HEADER || x > view.getHeaderWidth() ? x : view.getHeaderWidth();
+    gc.rect( cx, y, w + x - cx, h );
+    gc.clip();
+    drawUnclipped();
+    gc.restore();
+  }
+
+  /****************************************** getText ********************************************/
+  @Override
+  protected String getText()
+  {
+    // return function name in row header, otherwise column aggregate formatted for column type
+    if ( columnIndex == TableAxis.HEADER )
+      return function.name().charAt( 0 ) + function.name().substring( 1 ).toLowerCase();
+
+    double value = view.getData().getAggregates().get( columnIndex ).get( function );
+    if ( function == Function.COUNT )
+      return formatLong( (long) value );
+    if ( Double.isNaN( value ) )
+      return null;
+
+    // sums of dates & times have no meaning, otherwise format as column type where whole
+    ColumnType type = view.getData().getColumnType( columnIndex );
+    boolean whole = value == Math.rint( value ) && Math.abs( value ) < 1e18;
+    switch ( type )
+    {
+      case DATE:
+        return function == Function.SUM || !whole ? null : formatDate( (int) value );
+      case TIME:
+        return function == Function.SUM || !whole ? null : formatTime( (int) value );
+      case DATETIME:
+        return function == Function.SUM || !whole ? null : formatDateTime( (long) value );
+      case INTEGER:
+      case LONG:
+        return whole ? formatLong( (long) value ) : formatDouble( value );
+      default:
+        return formatDouble( value );
+    }
+  }
+
+  /************************************* getBackgroundPaint **************************************/
+  @Override
+  protected Paint getBackgroundPaint()
+  {
+    // return footer cell background
+    return Colors.HEADER_DEFAULT_FILL;
+  }
+
+  /**************************************** getTextPaint *****************************************/
+  @Override
+  protected Paint getTextPaint()
+  {
+    // return footer cell text paint
+    return Colors.TEXT_DEFAULT;
+  }
+
+}
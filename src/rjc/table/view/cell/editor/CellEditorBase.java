@@ -21,9 +21,13 @@ package rjc.table.view.cell.editor;
 import javafx.scene.control.Control;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
+import rjc.table.Status.Level;
 import rjc.table.control.XTextField;
 import rjc.table.data.TableData;
+import rjc.table.data.formula.Formulas;
+import rjc.table.undo.CommandSetFormula;
 import rjc.table.undo.CommandSetValue;
+import rjc.table.undo.IUndoCommand;
 import rjc.table.view.TableView;
 import rjc.table.view.cell.CellStyle;
 
@@ -105,8 +109,22 @@ public class CellEditorBase
     int columnIndex = m_cell.columnIndex;
     int rowIndex = m_cell.rowIndex;
 
-    // push new command on undo-stack to update cell value
-    var command = new CommandSetValue( data, columnIndex, rowIndex, getValue() );
+    // push new command on undo-stack to update cell value, or cell formula if text starts '=' or had formula
+    Object value = getValue();
+    Formulas formulas = data.hasFormulas() ? data.getFormulas() : null;
+    IUndoCommand command;
+    if ( value instanceof String && ( (String) value ).startsWith( "=" )
+        || formulas != null && formulas.getFormula( columnIndex, rowIndex ) != null )
+      command = new CommandSetFormula( data, columnIndex, rowIndex, value );
+    else if ( formulas != null && formulas.isComputed( columnIndex, rowIndex ) )
+    {
+      // value would be immediately overwritten by column formula, so reject edit
+      if ( m_cell.view.getStatus() != null )
+        m_cell.view.getStatus().update( Level.ERROR, "Cell is calculated by column formula" );
+      return false;
+    }
+    else
+      command = new CommandSetValue( data, columnIndex, rowIndex, value );
     return m_cell.view.getUndoStack().push( command );
   }
 
@@ -123,6 +141,13 @@ public class CellEditorBase
     // set editor value - normally overloaded
   }
 
+  /****************************************** parseValue *****************************************/
+  public Object parseValue( Object value )
+  {
+    // return value as this editor would commit it, e.g. pasted text converted to object - normally overloaded
+    return value;
+  }
+
   /****************************************** endEditing *****************************************/
   public static void endEditing()
   {
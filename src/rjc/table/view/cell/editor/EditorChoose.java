@@ -52,4 +52,17 @@ public class EditorChoose extends CellEditorBase
     // set editor current value
     m_choose.setSelected( value );
   }
+
+  /****************************************** parseValue *****************************************/
+  @Override
+  public Object parseValue( Object value )
+  {
+    // return choice whose text matches value text, or value unchanged if none matches
+    if ( value instanceof String )
+      for ( int index = 0; index < m_choose.getCount(); index++ )
+        if ( m_choose.getText( index ).equals( value ) )
+          return m_choose.getChoice( index );
+
+    return value;
+  }
 }
@@ -65,4 +65,12 @@ public class EditorDate extends CellEditorBase
       throw new IllegalArgumentException( "Don't know how to handle " + value.getClass() + " " + value );
   }
 
+  /***************************************** isValueValid ****************************************/
+  @Override
+  public boolean isValueValid( Object value )
+  {
+    // date (e.g. pasted) is always valid, text must be allowed by date field
+    return value instanceof Date || super.isValueValid( value );
+  }
+
 }
@@ -65,4 +65,12 @@ public class EditorDateTime extends CellEditorBase
       throw new IllegalArgumentException( "Don't know how to handle " + value.getClass() + " " + value );
   }
 
+  /***************************************** isValueValid ****************************************/
+  @Override
+  public boolean isValueValid( Object value )
+  {
+    // date-time (e.g. pasted) is always valid, text must be allowed by date-time field
+    return value instanceof DateTime || super.isValueValid( value );
+  }
+
 }
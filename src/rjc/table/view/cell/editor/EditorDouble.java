@@ -53,4 +53,17 @@ public class EditorDouble extends CellEditorBase
     m_spin.setValue( value );
   }
 
+  /***************************************** isValueValid ****************************************/
+  @Override
+  public boolean isValueValid( Object value )
+  {
+    // number (e.g. pasted) is valid if within spin range, text must be allowed by spin field
+    if ( value instanceof Number )
+    {
+      double number = ( (Number) value ).doubleValue();
+      return number >= m_spin.getMin() && number <= m_spin.getMax();
+    }
+    return super.isValueValid( value );
+  }
+
 }
@@ -65,4 +65,12 @@ public class EditorTime extends CellEditorBase
       throw new IllegalArgumentException( "Don't know how to handle " + value.getClass() + " " + value );
   }
 
+  /***************************************** isValueValid ****************************************/
+  @Override
+  public boolean isValueValid( Object value )
+  {
+    // time (e.g. pasted) is always valid, text must be allowed by time field
+    return value instanceof Time || super.isValueValid( value );
+  }
+
 }
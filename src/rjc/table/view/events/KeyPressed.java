@@ -70,6 +70,10 @@ public class KeyPressed implements EventHandler<KeyEvent>
           Content.paste( m_view );
           return;
 
+        case DELETE: // remove selected whole columns or rows (Ctrl-Delete)
+          Content.remove( m_view );
+          return;
+
         case D: // fill-down cells contents (Ctrl-D)
           Content.fillDown( m_view );
           return;
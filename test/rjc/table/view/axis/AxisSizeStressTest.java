@@ -0,0 +1,346 @@
+/**************************************************************************
+ *  Copyright (C) 2022 by Richard Crook                                   *
+ *  https://github.com/dazzle50/JTableFX                                  *
+ *                                                                        *
+ *  This program is free software: you can redistribute it and/or modify  *
+ *  it under the terms of the GNU General Public License as published by  *
+ *  the Free Software Foundation, either version 3 of the License, or     *
+ *  (at your option) any later version.                                   *
+ *                                                                        *
+ *  This program is distributed in the hope that it will be useful,       *
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of        *
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the         *
+ *  GNU General Public License for more details.                          *
+ *                                                                        *
+ *  You should have received a copy of the GNU General Public License     *
+ *  along with this program.  If not, see http://www.gnu.org/licenses/    *
+ **************************************************************************/
+
+package rjc.table.view.axis;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+import rjc.table.signal.ObservableInteger;
+
+/*************************************************************************************************/
+/********* Stress test of axis count shrink & grow against size, hidden, filter & order **********/
+/*************************************************************************************************/
+
+public class AxisSizeStressTest
+{
+  // axis under test driven by its count property, and naive model of expected state per index
+  private ObservableInteger        m_count;
+  private AxisSize                 m_axis;
+  private ArrayList<Integer>       m_order;      // index at each position
+  private ArrayList<Integer>       m_exceptions; // size exception at each index, null if none, -ve hidden
+  private ArrayList<Boolean>       m_filtered;   // filtered state at each index
+  private Random                   m_random;
+  private int                      m_operations;
+
+  final static private int         DEFAULT = 100;
+  final static private int         MINIMUM = 20;
+
+  /******************************************** main *********************************************/
+  public static void main( String[] args )
+  {
+    // run with fixed seeds so any failure is repeatable, optional argument overrides first seed
+    long seed = args.length > 0 ? Long.parseLong( args[0] ) : 1L;
+    for ( int run = 0; run < 5; run++ )
+    {
+      new AxisSizeStressTest( seed + run ).run( 4000, 600 );
+      new AxisSizeStressTest( seed + run ).run( 200, 12000 );
+    }
+    System.out.println( "AxisSizeStressTest passed" );
+  }
+
+  /***************************************** constructor *****************************************/
+  private AxisSizeStressTest( long seed )
+  {
+    // create empty axis and matching empty model
+    m_count = new ObservableInteger( 0 );
+    m_axis = new AxisSize( m_count.getReadOnly() );
+    m_axis.reset();
+    m_order = new ArrayList<>();
+    m_exceptions = new ArrayList<>();
+    m_filtered = new ArrayList<>();
+    m_random = new Random( seed );
+  }
+
+  /********************************************* run *********************************************/
+  private void run( int operations, int maxCount )
+  {
+    // apply random operations, mostly count shrink & grow, checking axis against model after each
+    for ( m_operations = 0; m_operations < operations; m_operations++ )
+    {
+      int choice = m_random.nextInt( 100 );
+      if ( choice < 30 )
+        setCount( m_random.nextInt( maxCount + 1 ) );
+      else if ( choice < 40 )
+        insert( maxCount );
+      else if ( choice < 50 )
+        remove();
+      else if ( choice < 62 )
+        resize();
+      else if ( choice < 74 )
+        hide();
+      else if ( choice < 86 )
+        filter();
+      else if ( choice < 96 )
+        move();
+      else
+        fillCache();
+
+      verify();
+    }
+  }
+
+  /****************************************** setCount *******************************************/
+  private void setCount( int count )
+  {
+    // change count property so axis adds or removes indexes at end
+    int old = m_order.size();
+    if ( count > old )
+      modelInsert( old, count - old );
+    else if ( count < old )
+      modelRemove( count, old - count );
+    m_count.set( count );
+  }
+
+  /******************************************* insert ********************************************/
+  private void insert( int maxCount )
+  {
+    // structural insert within axis followed by count change, as table data does
+    int count = m_order.size();
+    int index = m_random.nextInt( count + 1 );
+    int number = 1 + m_random.nextInt( Math.max( 1, Math.min( 50, maxCount - count ) ) );
+    modelInsert( index, number );
+    m_axis.indexesInserted( index, number );
+    m_count.set( count + number );
+  }
+
+  /******************************************* remove ********************************************/
+  private void remove()
+  {
+    // structural remove within axis followed by count change, as table data does
+    int count = m_order.size();
+    if ( count == 0 )
+      return;
+    int index = m_random.nextInt( count );
+    int number = 1 + m_random.nextInt( Math.min( 50, count - index ) );
+    modelRemove( index, number );
+    m_axis.indexesRemoved( index, number );
+    m_count.set( count - number );
+  }
+
+  /******************************************* resize ********************************************/
+  private void resize()
+  {
+    // set or clear size exception of random index
+    int count = m_order.size();
+    if ( count == 0 )
+      return;
+    int index = m_random.nextInt( count );
+    if ( m_random.nextBoolean() )
+    {
+      int size = m_random.nextInt( 200 );
+      m_axis.setCellSize( index, size );
+      m_exceptions.set( index, Math.max( size, MINIMUM ) );
+    }
+    else
+    {
+      m_axis.clearCellSize( index );
+      m_exceptions.set( index, null );
+    }
+  }
+
+  /******************************************** hide *********************************************/
+  private void hide()
+  {
+    // hide or unhide random position
+    int count = m_order.size();
+    if ( count == 0 )
+      return;
+    int position = m_random.nextInt( count );
+    int index = m_order.get( position );
+    Integer exception = m_exceptions.get( index );
+    int old = exception == null ? DEFAULT : exception;
+    if ( m_random.nextBoolean() )
+    {
+      m_axis.hidePosition( position );
+      if ( old > 0 )
+        m_exceptions.set( index, -old );
+    }
+    else
+    {
+      m_axis.unhidePosition( position );
+      if ( old < 0 )
+        m_exceptions.set( index, old == -DEFAULT ? null : -old );
+    }
+  }
+
+  /******************************************* filter ********************************************/
+  private void filter()
+  {
+    // change filtered state of random run of indexes, or occasionally replace all filtering
+    int count = m_order.size();
+    if ( count == 0 )
+      return;
+    BitSet indexes = new BitSet();
+    BitSet filtered = new BitSet();
+    int start = m_random.nextInt( count );
+    int end = Math.min( count, start + 1 + m_random.nextInt( 100 ) );
+    for ( int index = start; index < end; index++ )
+    {
+      indexes.set( index );
+      filtered.set( index, m_random.nextInt( 3 ) == 0 );
+    }
+
+    if ( m_random.nextInt( 10 ) == 0 )
+    {
+      m_axis.setFiltered( filtered );
+      for ( int index = 0; index < count; index++ )
+        m_filtered.set( index, filtered.get( index ) );
+    }
+    else
+    {
+      m_axis.setFiltered( indexes, filtered );
+      for ( int index = start; index < end; index++ )
+        m_filtered.set( index, filtered.get( index ) );
+    }
+  }
+
+  /******************************************** move *********************************************/
+  private void move()
+  {
+    // move a few random positions to a random new position, or occasionally reverse whole order
+    int count = m_order.size();
+    if ( count < 2 )
+      return;
+    if ( m_random.nextInt( 10 ) == 0 )
+    {
+      int[] order = new int[count];
+      for ( int position = 0; position < count; position++ )
+        order[position] = m_order.get( count - 1 - position );
+      m_axis.setOrder( order );
+      for ( int position = 0; position < count; position++ )
+        m_order.set( position, order[position] );
+      return;
+    }
+
+    HashSet<Integer> positions = new HashSet<>();
+    int number = 1 + m_random.nextInt( Math.min( 5, count - 1 ) );
+    while ( positions.size() < number )
+      positions.add( m_random.nextInt( count ) );
+    int newPosition = m_random.nextInt( count + 1 );
+    m_axis.movePositions( positions, newPosition );
+
+    ArrayList<Integer> moved = new ArrayList<>();
+    ArrayList<Integer> remaining = new ArrayList<>();
+    int before = 0;
+    for ( int position = 0; position < count; position++ )
+      if ( positions.contains( position ) )
+      {
+        moved.add( m_order.get( position ) );
+        if ( position < newPosition )
+          before++;
+      }
+      else
+        remaining.add( m_order.get( position ) );
+    remaining.addAll( newPosition - before, moved );
+    m_order.clear();
+    m_order.addAll( remaining );
+  }
+
+  /****************************************** fillCache ******************************************/
+  private void fillCache()
+  {
+    // populate body size and start position caches so later changes must keep them right
+    m_axis.getBodyPixels();
+    m_axis.getStartFromPosition( m_random.nextInt( m_order.size() + 1 ), 0 );
+  }
+
+  /***************************************** modelInsert *****************************************/
+  private void modelInsert( int index, int count )
+  {
+    // new indexes take position of index being displaced, or append if at end
+    int position = index < m_order.size() ? m_order.indexOf( index ) : m_order.size();
+    m_order.replaceAll( value -> value >= index ? value + count : value );
+    for ( int offset = 0; offset < count; offset++ )
+    {
+      m_order.add( position + offset, index + offset );
+      m_exceptions.add( index, null );
+      m_filtered.add( index, false );
+    }
+  }
+
+  /***************************************** modelRemove *****************************************/
+  private void modelRemove( int index, int count )
+  {
+    // drop removed indexes from order and shift later indexes down
+    m_order.removeIf( value -> value >= index && value < index + count );
+    m_order.replaceAll( value -> value >= index + count ? value - count : value );
+    m_exceptions.subList( index, index + count ).clear();
+    m_filtered.subList( index, index + count ).clear();
+  }
+
+  /******************************************* verify ********************************************/
+  private void verify()
+  {
+    // check count, order, sizes, filtering, exceptions and pixel caches all agree with model
+    int count = m_order.size();
+    check( m_axis.getCount() == count, "count " + m_axis.getCount() + " expected " + count );
+
+    int[] order = m_axis.getOrder();
+    HashMap<Integer, Integer> exceptions = new HashMap<>();
+    int filteredCount = 0;
+    for ( int position = 0; position < count; position++ )
+    {
+      int index = m_order.get( position );
+      check( order[position] == index, "index " + order[position] + " at position " + position + " expected " + index );
+      check( m_axis.getPositionFromIndex( index ) == position, "position of index " + index );
+    }
+
+    for ( int index = 0; index < count; index++ )
+    {
+      Integer exception = m_exceptions.get( index );
+      boolean filtered = m_filtered.get( index );
+      if ( exception != null )
+        exceptions.put( index, exception );
+      if ( filtered )
+        filteredCount++;
+
+      int size = filtered || exception != null && exception < 0 ? 0 : exception == null ? DEFAULT : exception;
+      check( m_axis.getCellSize( index ) == size, "size of index " + index + " expected " + size );
+      check( m_axis.isIndexFiltered( index ) == filtered, "filtered state of index " + index );
+    }
+
+    check( m_axis.getSizeExceptions().equals( exceptions ), "size exceptions " + m_axis.getSizeExceptions() );
+    check( m_axis.getFilteredCount() == filteredCount, "filtered count " + m_axis.getFilteredCount() );
+    check( m_axis.getFiltered().length() <= count, "filtered beyond count " + m_axis.getFiltered().length() );
+
+    // body pixels may be a cached value maintained incrementally, start position cache likewise
+    int start = m_axis.getHeaderPixels();
+    int probe = m_random.nextInt( count + 1 );
+    for ( int position = 0; position < count; position++ )
+    {
+      if ( position == probe )
+        check( m_axis.getStartFromPosition( position, 0 ) == start, "start of position " + position );
+      start += m_axis.getCellSize( m_order.get( position ) );
+    }
+    check( m_axis.getStartFromPosition( count, 0 ) == start, "start of position " + count );
+    check( m_axis.getBodyPixels() == start - m_axis.getHeaderPixels(), "body pixels " + m_axis.getBodyPixels() );
+  }
+
+  /******************************************** check ********************************************/
+  private void check( boolean ok, String message )
+  {
+    // throw if check failed, giving operation number to help reproduce
+    if ( !ok )
+      throw new IllegalStateException( "Operation " + m_operations + ": " + message );
+  }
+
+}